@@ -0,0 +1,118 @@
+package com.qcloud.cos;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.region.Region;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Parts of 16MB per second uploaded by {@link COSClient#uploadPart(UploadPartRequest)} from a
+ * cached file to a local server answering with the MD5 of the part as its ETag, the part being
+ * given as a file region, and as a stream of the file. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=UploadPart}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadPartBenchmark {
+
+    private static final int PART_SIZE = 16 * 1024 * 1024;
+    private static final long PART_OFFSET = PART_SIZE;
+
+    private File file;
+    private HttpServer server;
+    private COSClient cosClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("upload", ".bin");
+        byte[] content = new byte[3 * PART_SIZE];
+        new Random(42).nextBytes(content);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    MessageDigest md5 = DigestUtils.getMd5Digest();
+                    InputStream in = exchange.getRequestBody();
+                    byte[] buffer = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(buffer)) > -1) {
+                        md5.update(buffer, 0, n);
+                    }
+                    exchange.getResponseHeaders().add("ETag",
+                            "\"" + Hex.encodeHexString(md5.digest()) + "\"");
+                    exchange.sendResponseHeaders(200, -1);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        String endpoint = "127.0.0.1:" + server.getAddress().getPort();
+        ClientConfig clientConfig = new ClientConfig(new Region("ap-guangzhou"));
+        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+        cosClient = new COSClient(new AnonymousCOSCredentials(), clientConfig);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cosClient.shutdown();
+        server.stop(0);
+        file.delete();
+    }
+
+    private UploadPartRequest request() {
+        return new UploadPartRequest().withBucketName("examplebucket-1250000000")
+                .withKey("part").withUploadId("upload").withPartNumber(2)
+                .withFileOffset(PART_OFFSET).withPartSize(PART_SIZE);
+    }
+
+    @Benchmark
+    public String fileRegion() {
+        return cosClient.uploadPart(request().withFile(file)).getETag();
+    }
+
+    @Benchmark
+    public String fileStream() throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return cosClient.uploadPart(request().withInputStream(in)).getETag();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.qcloud.cos.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Downloads of 64MB per second written to a file from a stream read 16KB at a time, as from a
+ * connection, through a {@link BufferedOutputStream}, a {@link FileChannelDownloadSink} and a
+ * {@link MappedFileDownloadSink}. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DownloadSink}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadSinkBenchmark {
+
+    private static final int CONTENT_SIZE = 64 * 1024 * 1024;
+    private static final int READ_SIZE = 16 * 1024;
+
+    private byte[] content;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        content = new byte[CONTENT_SIZE];
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("download", ".bin");
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    private InputStream connection() {
+        return new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, READ_SIZE));
+            }
+        };
+    }
+
+    @Benchmark
+    public long bufferedOutputStream() throws IOException {
+        InputStream in = connection();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            byte[] buffer = new byte[1024 * 10];
+            long written = 0;
+            int n;
+            while ((n = in.read(buffer)) > -1) {
+                out.write(buffer, 0, n);
+                written += n;
+            }
+            return written;
+        } finally {
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public long fileChannelSink() throws IOException {
+        DownloadSink sink = new FileChannelDownloadSink(file, CONTENT_SIZE);
+        try {
+            return sink.write(connection(), 0);
+        } finally {
+            sink.close();
+        }
+    }
+
+    @Benchmark
+    public long mappedFileSink() throws IOException {
+        DownloadSink sink = new MappedFileDownloadSink(file, CONTENT_SIZE);
+        try {
+            return sink.write(connection(), 0);
+        } finally {
+            sink.close();
+        }
+    }
+}
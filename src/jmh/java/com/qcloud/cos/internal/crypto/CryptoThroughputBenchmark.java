@@ -0,0 +1,177 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.auth.COSStaticCredentialsProvider;
+import com.qcloud.cos.internal.COSDirect;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectInputStream;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadResult;
+import com.qcloud.cos.model.CopyPartRequest;
+import com.qcloud.cos.model.CopyPartResult;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadResult;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.model.UploadPartResult;
+
+/**
+ * Encrypt and decrypt throughput of {@link COSCryptoModuleAE} against an in-memory store, i.e.
+ * without any network involved. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CryptoThroughput}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoThroughputBenchmark {
+
+    @Param({"4096", "1048576", "16777216"})
+    public int objectSize;
+
+    private COSCryptoModuleAE crypto;
+    private InMemoryCOSDirect cos;
+    private byte[] plaintext;
+    private final byte[] sink = new byte[256 * 1024];
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        cos = new InMemoryCOSDirect();
+        crypto = new COSCryptoModuleAE(cos,
+                new COSStaticCredentialsProvider(new AnonymousCOSCredentials()),
+                new StaticEncryptionMaterialsProvider(
+                        new EncryptionMaterials(generator.generateKey())),
+                new CryptoConfiguration(CryptoMode.AuthenticatedEncryption).readOnly());
+        plaintext = new byte[objectSize];
+        new Random(objectSize).nextBytes(plaintext);
+        crypto.putObjectSecurely(newPutRequest());
+    }
+
+    private PutObjectRequest newPutRequest() {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(plaintext.length);
+        return new PutObjectRequest("bucket", "key", new ByteArrayInputStream(plaintext),
+                metadata);
+    }
+
+    @Benchmark
+    public int encrypt() {
+        crypto.putObjectSecurely(newPutRequest());
+        return cos.object.length;
+    }
+
+    @Benchmark
+    public long decrypt() throws IOException {
+        COSObject object = crypto.getObjectSecurely(new GetObjectRequest("bucket", "key"));
+        InputStream in = object.getObjectContent();
+        long total = 0;
+        int n;
+        while ((n = in.read(sink)) != -1) {
+            total += n;
+        }
+        // nothing to release, the content is not backed by an http request
+        return total;
+    }
+
+    /**
+     * Keeps the last object put.
+     */
+    private static class InMemoryCOSDirect extends COSDirect {
+        private byte[] object;
+        private ObjectMetadata metadata;
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest req) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[64 * 1024];
+            try {
+                InputStream in = req.getInputStream();
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+                in.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            object = out.toByteArray();
+            metadata = req.getMetadata();
+            return new PutObjectResult();
+        }
+
+        @Override
+        public COSObject getObject(GetObjectRequest req) {
+            ObjectMetadata objectMetadata = metadata.clone();
+            objectMetadata.setContentLength(object.length);
+            COSObject cosObject = new COSObject();
+            cosObject.setBucketName(req.getBucketName());
+            cosObject.setKey(req.getKey());
+            cosObject.setObjectMetadata(objectMetadata);
+            cosObject.setObjectContent(
+                    new COSObjectInputStream(new ByteArrayInputStream(object), null));
+            return cosObject;
+        }
+
+        @Override
+        public ObjectMetadata getObject(GetObjectRequest req, File dest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(
+                CompleteMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+                InitiateMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CopyPartResult copyPart(CopyPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
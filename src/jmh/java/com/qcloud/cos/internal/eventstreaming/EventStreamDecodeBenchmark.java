@@ -0,0 +1,112 @@
+package com.qcloud.cos.internal.eventstreaming;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qcloud.cos.model.SelectObjectContentEvent;
+import com.qcloud.cos.model.SelectObjectContentEvent.RecordsEvent;
+import com.qcloud.cos.model.transform.SelectObjectContentEventUnmarshaller;
+import com.qcloud.cos.utils.StringUtils;
+
+/**
+ * Select responses of 8MB of records per second, decoded 256 bytes at a time by
+ * {@link MessageDecoder}, and by {@link MessageReader}. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=EventStreamDecode}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventStreamDecodeBenchmark {
+
+    private static final int RECORDS_SIZE = 8 * 1024 * 1024;
+
+    @Param({"1024", "65536"})
+    public int recordsPerMessage;
+
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder();
+        while (csv.length() < RECORDS_SIZE) {
+            csv.append(random.nextInt()).append(",name-").append(random.nextInt(1000))
+                    .append(',').append(random.nextDouble()).append('\n');
+        }
+        byte[] records = csv.toString().getBytes(StringUtils.UTF8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < records.length; offset += recordsPerMessage) {
+            int length = Math.min(recordsPerMessage, records.length - offset);
+            byte[] payload = new byte[length];
+            System.arraycopy(records, offset, payload, 0, length);
+            event("Records", payload).encode(out);
+            if (offset % (16 * recordsPerMessage) == 0) {
+                event("Progress", ("<Progress><BytesScanned>" + offset
+                        + "</BytesScanned><BytesProcessed>" + offset
+                        + "</BytesProcessed><BytesReturned>" + offset
+                        + "</BytesReturned></Progress>").getBytes(StringUtils.UTF8)).encode(out);
+            }
+        }
+        event("End", new byte[0]).encode(out);
+        response = out.toByteArray();
+    }
+
+    private static Message event(String type, byte[] payload) {
+        Map<String, HeaderValue> headers = new LinkedHashMap<String, HeaderValue>();
+        headers.put(":message-type", HeaderValue.fromString("event"));
+        headers.put(":event-type", HeaderValue.fromString(type));
+        headers.put(":content-type", HeaderValue.fromString("application/octet-stream"));
+        return new Message(headers, payload);
+    }
+
+    private static long recordsSize(SelectObjectContentEvent event) {
+        return event instanceof RecordsEvent ? ((RecordsEvent) event).getPayload().remaining() : 0;
+    }
+
+    @Benchmark
+    public long messageDecoder() throws IOException {
+        InputStream in = new ByteArrayInputStream(response);
+        MessageDecoder decoder = new MessageDecoder();
+        byte[] payload = new byte[256];
+        long size = 0;
+        int read;
+        while ((read = in.read(payload)) != -1) {
+            for (Message message : decoder.feed(payload, 0, read)) {
+                size += recordsSize(SelectObjectContentEventUnmarshaller.unmarshalMessage(message));
+            }
+        }
+        return size;
+    }
+
+    @Benchmark
+    public long messageReader() throws IOException {
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(response));
+        long size = 0;
+        while (reader.next()) {
+            size += recordsSize(SelectObjectContentEventUnmarshaller.unmarshalMessage(reader));
+        }
+        return size;
+    }
+}
@@ -0,0 +1,90 @@
+package com.qcloud.cos.model;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qcloud.cos.utils.StringUtils;
+
+/**
+ * Select results of 8MB of CSV records per second, in payloads of 64KB, read by lines and split
+ * into strings, and through {@link SelectRecordReader}. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SelectRecord}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectRecordBenchmark {
+
+    private static final int RESULT_SIZE = 8 * 1024 * 1024;
+    private static final int PAYLOAD_SIZE = 64 * 1024;
+
+    private final List<ByteBuffer> payloads = new ArrayList<ByteBuffer>();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder();
+        while (csv.length() < RESULT_SIZE) {
+            csv.append(random.nextInt()).append(",name-").append(random.nextInt(1000))
+                    .append(",\"city, ").append(random.nextInt(100)).append("\",")
+                    .append(random.nextDouble()).append('\n');
+        }
+        byte[] result = csv.toString().getBytes(StringUtils.UTF8);
+        for (int offset = 0; offset < result.length; offset += PAYLOAD_SIZE) {
+            payloads.add(ByteBuffer.wrap(result, offset,
+                    Math.min(PAYLOAD_SIZE, result.length - offset)).slice());
+        }
+    }
+
+    @Benchmark
+    public long readLineAndSplit() throws IOException {
+        List<InputStream> streams = new ArrayList<InputStream>();
+        for (ByteBuffer payload : payloads) {
+            streams.add(new ByteArrayInputStream(payload.array(), payload.arrayOffset(),
+                    payload.remaining()));
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new SequenceInputStream(Collections.enumeration(streams)), StringUtils.UTF8));
+        long length = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            length += line.split(",")[1].length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public long recordReader() {
+        SelectRecordReader reader = new SelectRecordReader(payloads.iterator(),
+                new OutputSerialization().withCsv(new CSVOutput()), null);
+        long length = 0;
+        while (reader.next()) {
+            length += reader.getField(1).length();
+        }
+        return length;
+    }
+}
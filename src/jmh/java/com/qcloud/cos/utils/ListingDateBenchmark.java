@@ -0,0 +1,90 @@
+package com.qcloud.cos.utils;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qcloud.cos.internal.XmlResponsesSaxParser;
+import com.qcloud.cos.model.CompactObjectListing;
+import com.qcloud.cos.model.ObjectListing;
+
+/**
+ * Pages of 1000 listing entries per second: the dates alone, through Joda-Time and through
+ * {@link FastDateCodec}, and the whole XML page. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ListingDate}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingDateBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private String[] dates;
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        dates = new String[PAGE_SIZE];
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='utf-8' ?>"
+                + "<ListBucketResult><Name>examplebucket-1250000000</Name><Prefix/><Marker/>"
+                + "<MaxKeys>1000</MaxKeys><IsTruncated>true</IsTruncated>");
+        long millis = 1586499405000L;
+        for (int i = 0; i < PAGE_SIZE; ++i) {
+            millis += 7919L * i;
+            dates[i] = DateUtils.iso8601DateFormat.print(millis);
+            xml.append("<Contents><Key>dir/key-").append(i).append("</Key><LastModified>")
+                    .append(dates[i]).append("</LastModified>")
+                    .append("<ETag>&quot;0f343b0931126a20f133d67c2b018a3b&quot;</ETag>")
+                    .append("<Size>").append(i).append("</Size><Owner><ID>1250000000</ID>")
+                    .append("<DisplayName>1250000000</DisplayName></Owner>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        page = xml.append("</ListBucketResult>").toString().getBytes(StringUtils.UTF8);
+    }
+
+    @Benchmark
+    public long datesJodaTime() {
+        long sum = 0;
+        for (String date : dates) {
+            sum += DateUtils.iso8601DateFormat.parseMillis(date);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long datesFast() {
+        long sum = 0;
+        for (String date : dates) {
+            sum += DateUtils.parseISO8601DateMillis(date);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ObjectListing listingPage() throws Exception {
+        return new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(new ByteArrayInputStream(page), false)
+                .getObjectListing();
+    }
+
+    @Benchmark
+    public CompactObjectListing compactListingPage() throws Exception {
+        return new XmlResponsesSaxParser()
+                .parseCompactListBucketObjectsResponse(new ByteArrayInputStream(page), false)
+                .getObjectListing();
+    }
+}
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.List;
 
@@ -46,6 +47,7 @@ import com.qcloud.cos.model.GetBucketLoggingConfigurationRequest;
 import com.qcloud.cos.model.BucketLoggingConfiguration;
 import com.qcloud.cos.model.COSObject;
 import com.qcloud.cos.model.CannedAccessControlList;
+import com.qcloud.cos.model.CompactObjectListing;
 import com.qcloud.cos.model.CompleteMultipartUploadRequest;
 import com.qcloud.cos.model.CompleteMultipartUploadResult;
 import com.qcloud.cos.model.CopyObjectRequest;
@@ -319,6 +321,50 @@ public interface COS extends COSDirectSpi {
     public PutObjectResult putObject(String bucketName, String key, String content)
             throws CosClientException, CosServiceException;
 
+    /**
+     * <p>
+     * Uploads the given bytes to a cos object. The content length and, unless set in the metadata,
+     * the MD5 of the content are computed here; the array is sent as is, and again as is on a
+     * retry, so it must not be modified until this method returns.
+     * </p>
+     *
+     * @param bucketName The name of an existing bucket, to which you have {@link Permission#Write}
+     *         permission.
+     * @param key The key under which to store the content.
+     * @param content The object content.
+     * @param metadata Additional metadata instructing how to handle the uploaded data, or null.
+     * @return A {@link PutObjectResult} object containing the information returned by for the newly
+     *         created object.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request or handling the response.
+     * @throws CosServiceException If any errors occurred in while processing the request.
+     * @see COS#putObject(String, String, ByteBuffer, ObjectMetadata)
+     */
+    public PutObjectResult putObject(String bucketName, String key, byte[] content,
+            ObjectMetadata metadata) throws CosClientException, CosServiceException;
+
+    /**
+     * <p>
+     * Uploads the remaining bytes of the given buffer to a cos object, without changing the
+     * position of the buffer. A buffer backed by an array is sent from the array, other buffers
+     * are copied once.
+     * </p>
+     *
+     * @param bucketName The name of an existing bucket, to which you have {@link Permission#Write}
+     *         permission.
+     * @param key The key under which to store the content.
+     * @param content The object content.
+     * @param metadata Additional metadata instructing how to handle the uploaded data, or null.
+     * @return A {@link PutObjectResult} object containing the information returned by for the newly
+     *         created object.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request or handling the response.
+     * @throws CosServiceException If any errors occurred in while processing the request.
+     * @see COS#putObject(String, String, byte[], ObjectMetadata)
+     */
+    public PutObjectResult putObject(String bucketName, String key, ByteBuffer content,
+            ObjectMetadata metadata) throws CosClientException, CosServiceException;
+
     /**
      * <p>
      * Gets the object stored in under the specified bucket and key.
@@ -449,6 +495,61 @@ public interface COS extends COSDirectSpi {
     public ObjectMetadata getObject(GetObjectRequest getObjectRequest, File destinationFile)
             throws CosClientException, CosServiceException;
 
+    /**
+     * <p>
+     * Gets the content of the object stored under the specified bucket and key into an array of
+     * exactly its content length.
+     * </p>
+     *
+     * @param bucketName The name of the bucket containing the desired object.
+     * @param key The key under which the desired object is stored.
+     * @return The content of the object.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request, handling the response, or if the object is too large for an array.
+     * @throws CosServiceException If any errors occurred in while processing the request.
+     * @see COS#getObjectAsBytes(GetObjectRequest)
+     */
+    public byte[] getObjectAsBytes(String bucketName, String key)
+            throws CosClientException, CosServiceException;
+
+    /**
+     * <p>
+     * Gets the content of an object into an array of exactly its content length. Returns
+     * <code>null</code> if the specified constraints weren't met.
+     * </p>
+     *
+     * @param getObjectRequest The request object containing all the options on how to download the
+     *         object content.
+     * @return The content of the object. Returns <code>null</code> if constraints were specified
+     *         but not met.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request, handling the response, or if the object is too large for an array.
+     * @throws CosServiceException If any errors occurred in while processing the request.
+     * @see COS#getObject(GetObjectRequest, ByteBuffer)
+     */
+    public byte[] getObjectAsBytes(GetObjectRequest getObjectRequest)
+            throws CosClientException, CosServiceException;
+
+    /**
+     * <p>
+     * Gets the content of an object into the given buffer, from its position, which is advanced by
+     * the content length. Returns <code>null</code> if the specified constraints weren't met.
+     * </p>
+     *
+     * @param getObjectRequest The request object containing all the options on how to download the
+     *         object content.
+     * @param destination The buffer to read the object content into.
+     * @return All COS object metadata for the specified object. Returns <code>null</code> if
+     *         constraints were specified but not met.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request, handling the response, or if the content doesn't fit in the remaining
+     *         bytes of the buffer.
+     * @throws CosServiceException If any errors occurred in while processing the request.
+     * @see COS#getObjectAsBytes(GetObjectRequest)
+     */
+    public ObjectMetadata getObject(GetObjectRequest getObjectRequest, ByteBuffer destination)
+            throws CosClientException, CosServiceException;
+
     /**
      * @param bucketName Name of bucket that presumably contains object
      * @param objectName Name of object that has to be checked
@@ -1170,6 +1271,45 @@ public interface COS extends COSDirectSpi {
             ListNextBatchOfObjectsRequest listNextBatchOfObjectsRequest)
             throws CosClientException, CosServiceException;
 
+    /**
+     * <p>
+     * Returns a page of the objects of a bucket as {@link #listObjects(ListObjectsRequest)} does,
+     * in a {@link CompactObjectListing} rather than an {@link ObjectListing}.
+     * </p>
+     * <p>
+     * A compact listing stores the objects in columns and shares the values repeated across
+     * objects, which takes several times less memory and garbage collection work when scanning
+     * large buckets or keeping millions of listed objects around. The objects are read through
+     * {@link CompactObjectListing#cursor()}.
+     * </p>
+     *
+     * @param listObjectsRequest The request object containing all options for listing the objects
+     *        in a specified bucket.
+     * @return A compact listing of the objects in the specified bucket, along with the common
+     *         prefixes and the original request parameters.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request or handling the response.
+     * @throws CosServiceException If any errors occurred in COS while processing the request.
+     * @see COS#listNextBatchOfObjectsCompact(CompactObjectListing)
+     */
+    public CompactObjectListing listObjectsCompact(ListObjectsRequest listObjectsRequest)
+            throws CosClientException, CosServiceException;
+
+    /**
+     * Returns the next page of a truncated compact listing, or an empty listing if the previous
+     * one was not truncated.
+     *
+     * @param previousObjectListing The previous page of the listing.
+     * @return The next page of the listing.
+     * @throws CosClientException If any errors are encountered in the client while making the
+     *         request or handling the response.
+     * @throws CosServiceException If any errors occurred in COS while processing the request.
+     * @see COS#listObjectsCompact(ListObjectsRequest)
+     */
+    public CompactObjectListing listNextBatchOfObjectsCompact(
+            CompactObjectListing previousObjectListing)
+            throws CosClientException, CosServiceException;
+
     /**
      * <p>
      * Returns a list of summary information about the versions in the specified bucket.
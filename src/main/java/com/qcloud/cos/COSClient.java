@@ -26,6 +26,9 @@ import com.qcloud.cos.auth.COSCredentialsProvider;
 import com.qcloud.cos.auth.COSSessionCredentials;
 import com.qcloud.cos.auth.COSSigner;
 import com.qcloud.cos.auth.COSStaticCredentialsProvider;
+import com.qcloud.cos.cache.DiskObjectCache;
+import com.qcloud.cos.cache.ObjectMetadataCache;
+import com.qcloud.cos.cache.RequestCoalescer;
 import com.qcloud.cos.endpoint.CIRegionEndpointBuilder;
 import com.qcloud.cos.endpoint.EndpointBuilder;
 import com.qcloud.cos.endpoint.RegionEndpointBuilder;
@@ -41,6 +44,7 @@ import com.qcloud.cos.http.HttpMethodName;
 import com.qcloud.cos.http.HttpProtocol;
 import com.qcloud.cos.http.HttpResponseHandler;
 import com.qcloud.cos.internal.BucketNameUtils;
+import com.qcloud.cos.internal.ByteArrayContentInputStream;
 import com.qcloud.cos.internal.CIServiceRequest;
 import com.qcloud.cos.internal.CIWorkflowServiceRequest;
 import com.qcloud.cos.internal.COSDefaultAclHeaderHandler;
@@ -55,6 +59,7 @@ import com.qcloud.cos.internal.CosServiceResponse;
 import com.qcloud.cos.internal.DeleteObjectTaggingHeaderHandler;
 import com.qcloud.cos.internal.DeleteObjectsResponse;
 import com.qcloud.cos.internal.DigestValidationInputStream;
+import com.qcloud.cos.internal.FileRegionInputStream;
 import com.qcloud.cos.internal.GetObjectTaggingResponseHeaderHandler;
 import com.qcloud.cos.internal.InputSubstream;
 import com.qcloud.cos.internal.LengthCheckInputStream;
@@ -63,7 +68,6 @@ import com.qcloud.cos.internal.MultiObjectDeleteXmlFactory;
 import com.qcloud.cos.internal.ObjectExpirationHeaderHandler;
 import com.qcloud.cos.internal.ReleasableInputStream;
 import com.qcloud.cos.internal.RequestXmlFactory;
-import com.qcloud.cos.internal.ResettableInputStream;
 import com.qcloud.cos.internal.ResponseHeaderHandlerChain;
 import com.qcloud.cos.internal.SdkFilterInputStream;
 import com.qcloud.cos.internal.ServerSideEncryptionHeaderHandler;
@@ -96,6 +100,7 @@ import com.qcloud.cos.model.BucketWebsiteConfiguration;
 import com.qcloud.cos.model.COSObject;
 import com.qcloud.cos.model.COSObjectInputStream;
 import com.qcloud.cos.model.CannedAccessControlList;
+import com.qcloud.cos.model.CompactObjectListing;
 import com.qcloud.cos.model.CompleteMultipartUploadRequest;
 import com.qcloud.cos.model.CompleteMultipartUploadResult;
 import com.qcloud.cos.model.CopyObjectRequest;
@@ -228,6 +233,7 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -240,6 +246,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
 import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.ContentType;
 import org.slf4j.Logger;
@@ -847,10 +854,40 @@ public class COSClient implements COS {
         return false;
     }
 
+    private void invalidateObjectCaches(PutObjectRequest putObjectRequest) {
+        if (putObjectRequest != null && putObjectRequest.getBucketName() != null
+                && putObjectRequest.getKey() != null) {
+            invalidateObjectCaches(putObjectRequest.getBucketName(), putObjectRequest.getKey(),
+                    null);
+        }
+    }
+
+    /**
+     * Removes an object from the caches of the client, after it was written through the client.
+     */
+    private void invalidateObjectCaches(String bucketName, String key, String versionId) {
+        ObjectMetadataCache objectMetadataCache = clientConfig.getObjectMetadataCache();
+        if (objectMetadataCache != null) {
+            objectMetadataCache.invalidate(bucketName, key, versionId);
+        }
+        DiskObjectCache objectCache = clientConfig.getObjectCache();
+        if (objectCache != null) {
+            objectCache.invalidate(bucketName, key, null);
+            if (versionId != null) {
+                objectCache.invalidate(bucketName, key, versionId);
+            }
+        }
+    }
+
     @Override
     public PutObjectResult putObject(PutObjectRequest putObjectRequest)
             throws CosClientException, CosServiceException {
-        ObjectMetadata returnedMetadata = uploadObjectInternal(UploadMode.PUT_OBJECT, putObjectRequest);
+        ObjectMetadata returnedMetadata;
+        try {
+            returnedMetadata = uploadObjectInternal(UploadMode.PUT_OBJECT, putObjectRequest);
+        } finally {
+            invalidateObjectCaches(putObjectRequest);
+        }
         PutObjectResult result = createPutObjectResult(returnedMetadata);
         result.setContentMd5(returnedMetadata.getETag());
         return result;
@@ -861,7 +898,13 @@ public class COSClient implements COS {
             throws CosServiceException, CosClientException {
         rejectNull(appendObjectRequest, "The append object request must be specified");
         rejectNull(appendObjectRequest.getPosition(), "The position parameter must be specified");
-        ObjectMetadata returnedMetadata = uploadObjectInternal(UploadMode.APPEND_OBJECT, appendObjectRequest);
+        ObjectMetadata returnedMetadata;
+        try {
+            returnedMetadata =
+                    uploadObjectInternal(UploadMode.APPEND_OBJECT, appendObjectRequest);
+        } finally {
+            invalidateObjectCaches(appendObjectRequest);
+        }
         return createAppendObjectResult(returnedMetadata);
     }
 
@@ -890,7 +933,7 @@ public class COSClient implements COS {
         if (file == null) {
             // When input is a FileInputStream, this wrapping enables
             // unlimited mark-and-reset
-            if (input != null) {
+            if (input != null && !(input instanceof ByteArrayContentInputStream)) {
                 input = ReleasableInputStream.wrap(input);
             }
         } else {
@@ -914,8 +957,12 @@ public class COSClient implements COS {
                             e);
                 }
             }
-            input = ResettableInputStream.newResettableInputStream(file,
-                    "Unable to find file to upload");
+            // Sent with positional reads, which fail if the file ends before its length
+            try {
+                input = FileRegionInputStream.open(file, 0, file.length());
+            } catch (IOException e) {
+                throw new CosClientException("Unable to find file to upload", e);
+            }
         }
 
         final ObjectMetadata returnedMetadata;
@@ -979,7 +1026,14 @@ public class COSClient implements COS {
                                     + expectedLength
                                     + ", please use transferManager to upload big file!");
                 }
-                if (expectedLength >= 0) {
+                if (input instanceof ByteArrayContentInputStream) {
+                    // The whole array is sent as is, so its length has to be the one declared.
+                    if (((ByteArrayContentInputStream) input).getLength() != expectedLength) {
+                        throw new CosClientException("The content length " + expectedLength
+                                + " doesn't match the length of the byte array content "
+                                + ((ByteArrayContentInputStream) input).getLength());
+                    }
+                } else if (expectedLength >= 0 && !(input instanceof FileRegionInputStream)) {
                     // Performs length check on the underlying data stream.
                     // For COS encryption client, the underlying data stream here
                     // refers to the cipher-text data stream (ie not the underlying
@@ -996,6 +1050,16 @@ public class COSClient implements COS {
                 }
             }
 
+            if (metadata.getContentMD5() == null && input instanceof ByteArrayContentInputStream
+                    && !skipMd5CheckStrategy.skipClientSideValidationPerRequest(uploadObjectRequest)) {
+                /*
+                 * The bytes are in memory, so their MD5 is calculated beforehand, as for a byte
+                 * array put, leaving them to be sent as is rather than through a digest stream.
+                 */
+                ByteArrayContentInputStream bytes = (ByteArrayContentInputStream) input;
+                metadata.setContentMD5(Base64.encodeAsString(Md5Utils.computeMD5Hash(
+                        bytes.getArray(), bytes.getOffset(), bytes.getLength())));
+            }
             if (metadata.getContentMD5() == null
                     && !skipMd5CheckStrategy.skipClientSideValidationPerRequest(uploadObjectRequest)) {
                 /*
@@ -1075,15 +1139,46 @@ public class COSClient implements COS {
                 "The content with utf-8 encoding must be specified when uploading an object");
 
         byte[] contentByteArray = content.getBytes(StringUtils.UTF8);
-        String contentMd5 = Md5Utils.md5AsBase64(contentByteArray);
-
-        InputStream contentInput = new ByteArrayInputStream(contentByteArray);
         ObjectMetadata metadata = new ObjectMetadata();
         metadata.setContentType("text/plain");
-        metadata.setContentLength(contentByteArray.length);
-        metadata.setContentMD5(contentMd5);
+        return putObject(bucketName, key, contentByteArray, 0, contentByteArray.length, metadata);
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, byte[] content,
+            ObjectMetadata metadata) throws CosClientException, CosServiceException {
+        rejectNull(content, "The content must be specified when uploading an object");
+        return putObject(bucketName, key, content, 0, content.length, metadata);
+    }
 
-        return putObject(new PutObjectRequest(bucketName, key, contentInput, metadata));
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, ByteBuffer content,
+            ObjectMetadata metadata) throws CosClientException, CosServiceException {
+        rejectNull(content, "The content must be specified when uploading an object");
+        if (content.hasArray()) {
+            return putObject(bucketName, key, content.array(),
+                    content.arrayOffset() + content.position(), content.remaining(), metadata);
+        }
+        byte[] contentByteArray = new byte[content.remaining()];
+        content.duplicate().get(contentByteArray);
+        return putObject(bucketName, key, contentByteArray, 0, contentByteArray.length, metadata);
+    }
+
+    private PutObjectResult putObject(String bucketName, String key, byte[] content, int offset,
+            int length, ObjectMetadata metadata) {
+        rejectNull(bucketName,
+                "The bucket name parameter must be specified when uploading an object");
+        rejectNull(key, "The key parameter must be specified when uploading an object");
+        if (metadata == null) {
+            metadata = new ObjectMetadata();
+        }
+        metadata.setContentLength(length);
+        if (metadata.getContentMD5() == null) {
+            metadata.setContentMD5(
+                    Base64.encodeAsString(Md5Utils.computeMD5Hash(content, offset, length)));
+        }
+        return putObject(new PutObjectRequest(bucketName, key,
+                new ByteArrayContentInputStream(content, offset, length), metadata));
     }
 
     @Override
@@ -1104,6 +1199,33 @@ public class COSClient implements COS {
         rejectNull(clientConfig.getRegion(),
                 "region is null, region in clientConfig must be specified when requesting an object");
 
+        DiskObjectCache objectCache = clientConfig.getObjectCache();
+        if (objectCache != null && objectCache.isCacheable(getObjectRequest)) {
+            return objectCache.getObject(getObjectRequest, new DiskObjectCache.Fetcher() {
+                @Override
+                public COSObject fetch(GetObjectRequest request) {
+                    return coalesceObject(request);
+                }
+            });
+        }
+        return coalesceObject(getObjectRequest);
+    }
+
+    private COSObject coalesceObject(GetObjectRequest getObjectRequest) {
+        RequestCoalescer requestCoalescer = clientConfig.getRequestCoalescer();
+        if (requestCoalescer != null && requestCoalescer.isCoalescable(getObjectRequest)) {
+            return requestCoalescer.getObject(getObjectRequest, new DiskObjectCache.Fetcher() {
+                @Override
+                public COSObject fetch(GetObjectRequest request) {
+                    return fetchObject(request);
+                }
+            });
+        }
+        return fetchObject(getObjectRequest);
+    }
+
+    private COSObject fetchObject(GetObjectRequest getObjectRequest)
+            throws CosClientException, CosServiceException {
         CosHttpRequest<GetObjectRequest> request = createRequest(getObjectRequest.getBucketName(),
                 getObjectRequest.getKey(), getObjectRequest, HttpMethodName.GET);
         addParameterIfNotNull(request, "versionId", getObjectRequest.getVersionId());
@@ -1169,7 +1291,11 @@ public class COSClient implements COS {
                         INCLUDE_SKIPPED_BYTES); // bytes received from cos are all included even if
                 // skipped
             }
-            cosObject.setObjectContent(new COSObjectInputStream(is, httpRequest));
+            final Long contentLength = (Long) cosObject.getObjectMetadata()
+                    .getRawMetadataValue(Headers.CONTENT_LENGTH);
+            cosObject.setObjectContent(new COSObjectInputStream(is, httpRequest,
+                    clientConfig.getConnectionDrainer(),
+                    contentLength == null ? -1 : contentLength.longValue()));
             return cosObject;
         } catch (CosServiceException cse) {
             /*
@@ -1217,6 +1343,98 @@ public class COSClient implements COS {
         return cosObject.getObjectMetadata();
     }
 
+    @Override
+    public byte[] getObjectAsBytes(String bucketName, String key)
+            throws CosClientException, CosServiceException {
+        return getObjectAsBytes(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public byte[] getObjectAsBytes(GetObjectRequest getObjectRequest)
+            throws CosClientException, CosServiceException {
+        COSObject cosObject = getObject(getObjectRequest);
+        if (cosObject == null) {
+            return null;
+        }
+        byte[] content = new byte[checkedContentLength(cosObject, Integer.MAX_VALUE)];
+        readFully(cosObject, content, 0, content.length);
+        return content;
+    }
+
+    @Override
+    public ObjectMetadata getObject(GetObjectRequest getObjectRequest, ByteBuffer destination)
+            throws CosClientException, CosServiceException {
+        rejectNull(destination,
+                "The destination buffer must be specified when downloading an object into a buffer");
+        COSObject cosObject = getObject(getObjectRequest);
+        if (cosObject == null) {
+            return null;
+        }
+        int length = checkedContentLength(cosObject, destination.remaining());
+        if (destination.hasArray()) {
+            readFully(cosObject, destination.array(),
+                    destination.arrayOffset() + destination.position(), length);
+        } else {
+            byte[] content = new byte[length];
+            readFully(cosObject, content, 0, length);
+            destination.duplicate().put(content);
+        }
+        destination.position(destination.position() + length);
+        return cosObject.getObjectMetadata();
+    }
+
+    /**
+     * Returns the content length of the object, aborting its download if the length is unknown or
+     * more than the given room.
+     */
+    private static int checkedContentLength(COSObject cosObject, int room) {
+        Long contentLength = (Long) cosObject.getObjectMetadata()
+                .getRawMetadataValue(Headers.CONTENT_LENGTH);
+        if (contentLength == null || contentLength.longValue() > room) {
+            cosObject.getObjectContent().abort();
+            throw new CosClientException("The content length " + contentLength + " of object "
+                    + cosObject.getKey() + " doesn't fit in " + room + " bytes");
+        }
+        return contentLength.intValue();
+    }
+
+    /**
+     * Reads the whole content of the object into the given range of the array, and then the end
+     * of the content so that its integrity is checked.
+     */
+    private static void readFully(COSObject cosObject, byte[] b, int offset, int length) {
+        COSObjectInputStream input = cosObject.getObjectContent();
+        boolean completed = false;
+        try {
+            int read = 0;
+            while (read < length) {
+                int count = input.read(b, offset + read, length - read);
+                if (count < 0) {
+                    throw new CosClientException("Unable to read object " + cosObject.getKey()
+                            + ": the content ended after " + read + " of " + length + " bytes");
+                }
+                read += count;
+            }
+            if (input.read() != -1) {
+                throw new CosClientException("Unable to read object " + cosObject.getKey()
+                        + ": the content is longer than " + length + " bytes");
+            }
+            completed = true;
+        } catch (IOException e) {
+            throw new CosClientException(
+                    "Unable to read object " + cosObject.getKey() + ": " + e.getMessage(), e);
+        } finally {
+            if (!completed) {
+                input.abort();
+            }
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.debug("Unable to close the content of object " + cosObject.getKey(), e);
+            }
+        }
+    }
+
     @Override
     public boolean doesObjectExist(String bucketName, String objectName)
             throws CosClientException, CosServiceException {
@@ -1252,6 +1470,38 @@ public class COSClient implements COS {
                 "The bucket name parameter must be specified when requesting an object's metadata");
         rejectNull(key, "The key parameter must be specified when requesting an object's metadata");
 
+        ObjectMetadataCache objectMetadataCache = clientConfig.getObjectMetadataCache();
+        if (objectMetadataCache != null
+                && objectMetadataCache.isCacheable(getObjectMetadataRequest)) {
+            return objectMetadataCache.getObjectMetadata(getObjectMetadataRequest,
+                    new ObjectMetadataCache.Loader() {
+                        @Override
+                        public ObjectMetadata load(GetObjectMetadataRequest request) {
+                            return coalesceHeadObject(request);
+                        }
+                    });
+        }
+        return coalesceHeadObject(getObjectMetadataRequest);
+    }
+
+    private ObjectMetadata coalesceHeadObject(GetObjectMetadataRequest getObjectMetadataRequest) {
+        RequestCoalescer requestCoalescer = clientConfig.getRequestCoalescer();
+        if (requestCoalescer != null && requestCoalescer.isCoalescable(getObjectMetadataRequest)) {
+            return requestCoalescer.getObjectMetadata(getObjectMetadataRequest,
+                    new ObjectMetadataCache.Loader() {
+                        @Override
+                        public ObjectMetadata load(GetObjectMetadataRequest request) {
+                            return headObject(request);
+                        }
+                    });
+        }
+        return headObject(getObjectMetadataRequest);
+    }
+
+    private ObjectMetadata headObject(GetObjectMetadataRequest getObjectMetadataRequest)
+            throws CosClientException, CosServiceException {
+        String bucketName = getObjectMetadataRequest.getBucketName();
+        String key = getObjectMetadataRequest.getKey();
         CosHttpRequest<GetObjectMetadataRequest> request =
                 createRequest(bucketName, key, getObjectMetadataRequest, HttpMethodName.HEAD);
         addParameterIfNotNull(request, "versionId", getObjectMetadataRequest.getVersionId());
@@ -1284,7 +1534,12 @@ public class COSClient implements COS {
         CosHttpRequest<DeleteObjectRequest> request =
                 createRequest(deleteObjectRequest.getBucketName(), deleteObjectRequest.getKey(),
                         deleteObjectRequest, HttpMethodName.DELETE);
-        invoke(request, voidCosResponseHandler);
+        try {
+            invoke(request, voidCosResponseHandler);
+        } finally {
+            invalidateObjectCaches(deleteObjectRequest.getBucketName(),
+                    deleteObjectRequest.getKey(), null);
+        }
     }
 
     @Override
@@ -1318,7 +1573,15 @@ public class COSClient implements COS {
                 new ResponseHeaderHandlerChain<DeleteObjectsResponse>(
                         new Unmarshallers.DeleteObjectsResultUnmarshaller());
 
-        DeleteObjectsResponse response = invoke(request, responseHandler);
+        DeleteObjectsResponse response;
+        try {
+            response = invoke(request, responseHandler);
+        } finally {
+            for (DeleteObjectsRequest.KeyVersion keyVersion : deleteObjectsRequest.getKeys()) {
+                invalidateObjectCaches(deleteObjectsRequest.getBucketName(), keyVersion.getKey(),
+                        keyVersion.getVersion());
+            }
+        }
 
         /*
          * If the result was only partially successful, throw an exception
@@ -1365,7 +1628,11 @@ public class COSClient implements COS {
                 createRequest(bucketName, key, deleteVersionRequest, HttpMethodName.DELETE);
         request.addParameter("versionId", versionId);
 
-        invoke(request, voidCosResponseHandler);
+        try {
+            invoke(request, voidCosResponseHandler);
+        } finally {
+            invalidateObjectCaches(bucketName, key, versionId);
+        }
     }
 
     @Override
@@ -1610,11 +1877,24 @@ public class COSClient implements COS {
                     isCurr = ReleasableInputStream.wrap(isCurr);
                 }
             } else {
+                FileRegionInputStream region;
                 try {
-                    isCurr = new ResettableInputStream(fileOrig);
+                    isCurr = region = FileRegionInputStream.open(fileOrig,
+                            uploadPartRequest.getFileOffset(), partSize);
                 } catch (IOException e) {
                     throw new IllegalArgumentException("Failed to open file " + fileOrig, e);
                 }
+                boolean calculateMd5 = uploadPartRequest.getMd5Digest() == null
+                        && !skipMd5CheckStrategy
+                                .skipClientSideValidationPerRequest(uploadPartRequest);
+                /*
+                 * The part is sent straight from the file rather than through a digest stream,
+                 * so its MD5 is calculated from the buffers sent, and validated with the
+                 * returned ETag as for a stream.
+                 */
+                region.setMd5Calculated(calculateMd5);
+                return doUploadPart(bucketName, key, uploadId, partNumber, partSize, request,
+                        isCurr, calculateMd5 ? region : null);
             }
             isCurr = new InputSubstream(isCurr, uploadPartRequest.getFileOffset(), partSize,
                     uploadPartRequest.isLastPart());
@@ -1635,18 +1915,46 @@ public class COSClient implements COS {
         }
     }
 
+    /**
+     * Returns the MD5 calculated by the given digest stream or file region while the part was
+     * sent, reading the region again if the HTTP client did not send it in full as a region.
+     */
+    private static byte[] clientSideMd5(InputStream md5Source) {
+        if (md5Source instanceof MD5DigestCalculatingInputStream) {
+            return ((MD5DigestCalculatingInputStream) md5Source).getMd5Digest();
+        }
+        FileRegionInputStream region = (FileRegionInputStream) md5Source;
+        if (region.getMd5Digest() != null) {
+            return region.getMd5Digest();
+        }
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(256 * 1024, region.getLength()));
+        try {
+            long read = 0;
+            while (read < region.getLength()) {
+                buffer.clear();
+                int count = region.read(read, buffer);
+                digest.update(buffer.array(), 0, count);
+                read += count;
+            }
+        } catch (IOException e) {
+            throw new CosClientException("Unable to calculate MD5 hash: " + e.getMessage(), e);
+        }
+        return digest.digest();
+    }
+
     private UploadPartResult doUploadPart(final String bucketName, final String key,
             final String uploadId, final int partNumber, final long partSize,
             CosHttpRequest<UploadPartRequest> request, InputStream inputStream,
-            MD5DigestCalculatingInputStream md5DigestStream) {
+            InputStream md5Source) {
         try {
             request.setContent(inputStream);
             ObjectMetadata metadata = invoke(request, new CosMetadataResponseHandler());
             final String etag = metadata.getETag();
 
-            if (md5DigestStream != null && !skipMd5CheckStrategy
+            if (md5Source != null && !skipMd5CheckStrategy
                     .skipClientSideValidationPerUploadPartResponse(metadata)) {
-                byte[] clientSideHash = md5DigestStream.getMd5Digest();
+                byte[] clientSideHash = clientSideMd5(md5Source);
                 byte[] serverSideHash = BinaryUtils.fromHex(etag);
 
                 if (!Arrays.equals(clientSideHash, serverSideHash)) {
@@ -1782,7 +2090,11 @@ public class COSClient implements COS {
                             new ServerSideEncryptionHeaderHandler<CompleteMultipartUploadHandler>(),
                             new ObjectExpirationHeaderHandler<CompleteMultipartUploadHandler>(),
                             new VIDResultHandler<CompleteMultipartUploadHandler>());
-            handler = invoke(request, responseHandler);
+            try {
+                handler = invoke(request, responseHandler);
+            } finally {
+                invalidateObjectCaches(bucketName, key, null);
+            }
             if (handler.getCompleteMultipartUploadResult() != null) {
                 Map<String, String> responseHeaders = responseHandler.getResponseHeaders();
                 String versionId = responseHeaders.get(Headers.COS_VERSION_ID);
@@ -1854,6 +2166,47 @@ public class COSClient implements COS {
     @Override
     public ObjectListing listObjects(ListObjectsRequest listObjectsRequest)
             throws CosClientException, CosServiceException {
+        final boolean shouldSDKDecodeResponse = listObjectsRequest != null
+                && listObjectsRequest.getEncodingType() == null;
+        return invoke(createListObjectsRequest(listObjectsRequest),
+                new Unmarshallers.ListObjectsUnmarshaller(shouldSDKDecodeResponse));
+    }
+
+    @Override
+    public CompactObjectListing listObjectsCompact(ListObjectsRequest listObjectsRequest)
+            throws CosClientException, CosServiceException {
+        final boolean shouldSDKDecodeResponse = listObjectsRequest != null
+                && listObjectsRequest.getEncodingType() == null;
+        return invoke(createListObjectsRequest(listObjectsRequest),
+                new Unmarshallers.CompactListObjectsUnmarshaller(shouldSDKDecodeResponse));
+    }
+
+    @Override
+    public CompactObjectListing listNextBatchOfObjectsCompact(
+            CompactObjectListing previousObjectListing)
+            throws CosClientException, CosServiceException {
+        rejectNull(previousObjectListing,
+                "The previous object listing must be specified when listing the next batch of objects in a bucket");
+        if (!previousObjectListing.isTruncated()) {
+            CompactObjectListing emptyListing = new CompactObjectListing();
+            emptyListing.setBucketName(previousObjectListing.getBucketName());
+            emptyListing.setDelimiter(previousObjectListing.getDelimiter());
+            emptyListing.setMarker(previousObjectListing.getNextMarker());
+            emptyListing.setMaxKeys(previousObjectListing.getMaxKeys());
+            emptyListing.setPrefix(previousObjectListing.getPrefix());
+            emptyListing.setEncodingType(previousObjectListing.getEncodingType());
+            emptyListing.setTruncated(false);
+            return emptyListing;
+        }
+        return listObjectsCompact(new ListObjectsRequest(previousObjectListing.getBucketName(),
+                previousObjectListing.getPrefix(), previousObjectListing.getNextMarker(),
+                previousObjectListing.getDelimiter(),
+                Integer.valueOf(previousObjectListing.getMaxKeys()))
+                        .withEncodingType(previousObjectListing.getEncodingType()));
+    }
+
+    private CosHttpRequest<ListObjectsRequest> createListObjectsRequest(
+            ListObjectsRequest listObjectsRequest) {
         rejectNull(listObjectsRequest,
                 "The ListObjectsRequest parameter must be specified when listing objects in a bucket");
         rejectNull(listObjectsRequest.getBucketName(),
@@ -1877,8 +2230,7 @@ public class COSClient implements COS {
                 && listObjectsRequest.getMaxKeys().intValue() >= 0) {
             request.addParameter("max-keys", listObjectsRequest.getMaxKeys().toString());
         }
-
-        return invoke(request, new Unmarshallers.ListObjectsUnmarshaller(shouldSDKDecodeResponse));
+        return request;
     }
 
     @Override
@@ -2058,6 +2410,8 @@ public class COSClient implements COS {
             }
 
             throw cse;
+        } finally {
+            invalidateObjectCaches(destinationBucketName, destinationKey, null);
         }
 
         /*
@@ -2934,7 +3288,11 @@ public class COSClient implements COS {
             throw new CosClientException("Couldn't compute md5 sum", e);
         }
 
-        invoke(request, voidCosResponseHandler);
+        try {
+            invoke(request, voidCosResponseHandler);
+        } finally {
+            invalidateObjectCaches(bucketName, key, versionId);
+        }
     }
 
     @Override
@@ -57,6 +57,11 @@ public class COSEncryptionClient extends COSClient implements COSEncryption {
      * KMS client would be responsible to shut down the KMS client.
      */
     private final boolean isKMSClientInternal;
+    /**
+     * True if the parts of a multipart upload are encrypted independently and can be uploaded
+     * concurrently.
+     */
+    private final boolean parallelMultipartUpload;
 
     public COSEncryptionClient(COSCredentialsProvider credentialsProvider,
             EncryptionMaterialsProvider kekMaterialsProvider, ClientConfig clientConfig,
@@ -72,6 +77,7 @@ public class COSEncryptionClient extends COSClient implements COSEncryption {
                 "EncryptionMaterialsProvider parameter must not be null.");
         assertParameterNotNull(cryptoConfig, "CryptoConfiguration parameter must not be null.");
         this.isKMSClientInternal = kms == null;
+        this.parallelMultipartUpload = cryptoConfig.isParallelMultipartUpload();
         this.crypto = new CryptoModuleDispatcher(kms, new COSDirectImpl(), credentialsProvider,
                 kekMaterialsProvider, cryptoConfig);
     }
@@ -82,6 +88,15 @@ public class COSEncryptionClient extends COSClient implements COSEncryption {
         }
     }
 
+    /**
+     * Returns true if the parts of a multipart upload can be uploaded concurrently.
+     *
+     * @see CryptoConfiguration#setParallelMultipartUpload(boolean)
+     */
+    public boolean isParallelMultipartUpload() {
+        return parallelMultipartUpload;
+    }
+
     @Override
     public PutObjectResult putObject(PutObjectRequest req) {
         return crypto.putObjectSecurely(req.clone());
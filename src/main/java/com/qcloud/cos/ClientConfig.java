@@ -20,11 +20,17 @@ package com.qcloud.cos;
 
 import com.qcloud.cos.auth.COSSigner;
 import com.qcloud.cos.endpoint.DefaultEndpointResolver;
+import com.qcloud.cos.cache.DiskObjectCache;
+import com.qcloud.cos.cache.ObjectMetadataCache;
+import com.qcloud.cos.cache.RequestCoalescer;
 import com.qcloud.cos.endpoint.EndpointBuilder;
 import com.qcloud.cos.endpoint.EndpointResolver;
 import com.qcloud.cos.endpoint.RegionEndpointBuilder;
 import com.qcloud.cos.endpoint.SuffixEndpointBuilder;
+import com.qcloud.cos.http.BandwidthLimiter;
+import com.qcloud.cos.http.ConnectionDrainer;
 import com.qcloud.cos.http.HttpProtocol;
+import com.qcloud.cos.http.RetryBuffer;
 import com.qcloud.cos.region.Region;
 import com.qcloud.cos.retry.BackoffStrategy;
 import com.qcloud.cos.retry.PredefinedBackoffStrategies;
@@ -86,6 +92,18 @@ public class ClientConfig {
     private String userAgent = DEFAULT_USER_AGENT;
     private int readLimit = DEFAULT_READ_LIMIT;
     private COSSigner cosSigner = new COSSigner();
+    // 客户端限速器, 为空表示不限速
+    private BandwidthLimiter bandwidthLimiter = null;
+    // 对象的本地磁盘缓存, 为空表示不缓存
+    private DiskObjectCache objectCache = null;
+    // 对象元数据的内存缓存, 为空表示不缓存
+    private ObjectMetadataCache objectMetadataCache = null;
+    // 合并并发的相同GET/HEAD请求, 为空表示不合并
+    private RequestCoalescer requestCoalescer = null;
+    // 不可重置的请求流的重试缓冲, 为空表示只在内存中缓冲readLimit字节
+    private RetryBuffer retryBuffer = null;
+    // 提前关闭的对象流的连接排空器, 为空表示总是中断连接
+    private ConnectionDrainer connectionDrainer = null;
 
     // 不传入region 用于后续调用List Buckets(获取所有的bucket信息)
     public ClientConfig() {
@@ -285,4 +303,111 @@ public class ClientConfig {
     public void setCosSigner(COSSigner cosSigner) {
         this.cosSigner = cosSigner;
     }
+
+    /**
+     * @return the client side bandwidth limiter shared by all requests, or null if unlimited
+     */
+    public BandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
+    }
+
+    /**
+     * Sets a client side bandwidth limiter. The same limiter instance can be shared by several
+     * clients (and the TransferManagers built on them) to cap the aggregate throughput of the
+     * process.
+     *
+     * @param bandwidthLimiter the limiter, or null to disable client side limiting
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * @return the local disk cache of the objects read by getObject, or null if none
+     */
+    public DiskObjectCache getObjectCache() {
+        return objectCache;
+    }
+
+    /**
+     * Sets a local disk cache for the objects read by getObject. The same cache can be shared by
+     * several clients.
+     *
+     * @param objectCache the cache, or null to read every object from COS
+     */
+    public void setObjectCache(DiskObjectCache objectCache) {
+        this.objectCache = objectCache;
+    }
+
+    /**
+     * @return the in-memory cache of the object metadata read by getObjectMetadata and
+     *         doesObjectExist, or null if none
+     */
+    public ObjectMetadataCache getObjectMetadataCache() {
+        return objectMetadataCache;
+    }
+
+    /**
+     * Sets an in-memory cache for the object metadata read by getObjectMetadata and
+     * doesObjectExist. The writes through a client remove the entries of the objects written, so
+     * a cache should be shared only by clients of the same credentials and endpoints.
+     *
+     * @param objectMetadataCache the cache, or null to send every HEAD request to COS
+     */
+    public void setObjectMetadataCache(ObjectMetadataCache objectMetadataCache) {
+        this.objectMetadataCache = objectMetadataCache;
+    }
+
+    /**
+     * @return the coalescer of the concurrent identical GET and HEAD requests, or null if none
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Sets a coalescer, so that the concurrent identical GET and HEAD requests of the client
+     * share one request to COS.
+     *
+     * @param requestCoalescer the coalescer, or null to send every request
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * @return the buffer keeping the content of the request streams which cannot be reset, or
+     *         null if none
+     */
+    public RetryBuffer getRetryBuffer() {
+        return retryBuffer;
+    }
+
+    /**
+     * Sets a buffer keeping the content of the request streams which cannot be reset, in memory
+     * and then in a temporary file, so that the requests can be retried whatever their length.
+     *
+     * @param retryBuffer the buffer, or null to buffer such a stream up to the read limit only
+     */
+    public void setRetryBuffer(RetryBuffer retryBuffer) {
+        this.retryBuffer = retryBuffer;
+    }
+
+    /**
+     * @return the drainer of the connections of the object streams closed before their end, or
+     *         null if none
+     */
+    public ConnectionDrainer getConnectionDrainer() {
+        return connectionDrainer;
+    }
+
+    /**
+     * Sets a drainer, so that the connection of an object stream closed before its end is drained
+     * and reused when the rest of the object is short enough, rather than aborted.
+     *
+     * @param connectionDrainer the drainer, or null to always abort such a connection
+     */
+    public void setConnectionDrainer(ConnectionDrainer connectionDrainer) {
+        this.connectionDrainer = connectionDrainer;
+    }
 }
@@ -0,0 +1,474 @@
+package com.qcloud.cos.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.annotation.SdkInternalApi;
+import com.qcloud.cos.annotation.ThreadSafe;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectInputStream;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.utils.BinaryUtils;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.Md5Utils;
+import com.qcloud.cos.utils.StringUtils;
+
+/**
+ * A read-through cache of whole objects on the local disk, used by
+ * {@link com.qcloud.cos.COSClient#getObject(GetObjectRequest)} and
+ * {@link com.qcloud.cos.COSClient#getObject(GetObjectRequest, File)} once set with
+ * {@link com.qcloud.cos.ClientConfig#setObjectCache(DiskObjectCache)}.
+ * <p>
+ * An entry is served without any request for the freshness time after it was fetched or last
+ * revalidated. After that it is revalidated with a GET conditional on its ETag, which costs a 304
+ * if the object did not change. Only the requests for a whole object, without conditions, response
+ * header overrides, SSE-C key or credentials of their own, go through the cache, and objects bigger than
+ * {@link #getMaxObjectSize()} are not cached. The least recently used entries are evicted when the
+ * cache gets bigger than its maximum size. A read whose object cannot be written to the cache,
+ * e.g. because the disk is full, is still served, uncached.
+ * </p>
+ * <p>
+ * Each entry is one file, holding the metadata and the body of the object, which is written
+ * aside and renamed into place, so several processes can share the cache directory: a reader
+ * sees either the previous or the new version of an entry. The last modified time of the file is
+ * the time the entry was last validated, so a revalidation by a process counts for all of them.
+ * </p>
+ */
+@ThreadSafe
+public class DiskObjectCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskObjectCache.class);
+
+    private static final int MAGIC = 0x434f5331; // "COS1"
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long STALE_TEMP_FILE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long RESCAN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The classes an entry header can hold, i.e. what an {@link ObjectMetadata} is made of.
+     */
+    private static final Set<String> METADATA_CLASSES = new HashSet<String>(Arrays.asList(
+            ObjectMetadata.class.getName(), "java.util.HashMap", "java.util.TreeMap",
+            "java.lang.String$CaseInsensitiveComparator", "java.util.Date", "java.lang.Number",
+            "java.lang.Long", "java.lang.Integer", "java.lang.Boolean"));
+
+    /**
+     * Fetches an object from COS.
+     */
+    @SdkInternalApi
+    public interface Fetcher {
+        /**
+         * Returns the object, or null if the conditions of the request are not met.
+         */
+        COSObject fetch(GetObjectRequest request);
+    }
+
+    private final File directory;
+    private final long maxSize;
+    private final long freshnessMillis;
+    private volatile long maxObjectSize;
+
+    // when this process last read each entry, the eviction order
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<String, Long>();
+
+    // the total size of the entries, as of the last scan of the directory plus the entries this
+    // process wrote and removed since; rescanned now and then for the other processes
+    private final AtomicLong size = new AtomicLong();
+    private volatile long scannedAt;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong revalidatedCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param directory the cache directory, created if needed, which can be shared by several
+     *         processes.
+     * @param maxSize the maximum total size of the entries in bytes.
+     * @param freshness the time an entry is served without being revalidated, 0 to revalidate it
+     *         on every read.
+     * @param unit the unit of freshness.
+     */
+    public DiskObjectCache(File directory, long maxSize, long freshness, TimeUnit unit) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory must be specified");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (freshness < 0) {
+            throw new IllegalArgumentException("freshness must not be negative: " + freshness);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new CosClientException("Unable to create the cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.freshnessMillis = unit.toMillis(freshness);
+        this.maxObjectSize = maxSize / 4;
+        trim();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getFreshnessMillis() {
+        return freshnessMillis;
+    }
+
+    /**
+     * Returns the size of the biggest object which is cached, by default a quarter of the
+     * maximum size of the cache.
+     */
+    public long getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    public void setMaxObjectSize(long maxObjectSize) {
+        if (maxObjectSize < 0 || maxObjectSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "maxObjectSize must be between 0 and maxSize: " + maxObjectSize);
+        }
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    /**
+     * Returns the number of reads served without any request.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of reads served after a revalidation which found the object unchanged.
+     */
+    public long getRevalidatedCount() {
+        return revalidatedCount.get();
+    }
+
+    /**
+     * Returns the number of reads which downloaded the object.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns true if the request reads a whole object as is, and can be served from the cache.
+     */
+    public boolean isCacheable(GetObjectRequest request) {
+        return request.getRange() == null && request.getMatchingETagConstraints().isEmpty()
+                && request.getNonmatchingETagConstraints().isEmpty()
+                && request.getModifiedSinceConstraint() == null
+                && request.getUnmodifiedSinceConstraint() == null
+                && request.getResponseHeaders() == null && request.getSSECustomerKey() == null
+                && request.getCosCredentials() == null;
+    }
+
+    /**
+     * Reads an object through the cache.
+     *
+     * @param request a request for which {@link #isCacheable(GetObjectRequest)} is true.
+     * @param fetcher what sends the requests to COS.
+     */
+    @SdkInternalApi
+    public COSObject getObject(GetObjectRequest request, Fetcher fetcher) {
+        String name = entryName(request.getBucketName(), request.getKey(), request.getVersionId());
+        File file = new File(directory, name);
+        Entry entry = open(file);
+        if (entry != null) {
+            lastAccess.put(name, System.currentTimeMillis());
+            if (System.currentTimeMillis() - entry.validatedAt < freshnessMillis) {
+                hitCount.incrementAndGet();
+                return entry.toObject(request);
+            }
+            GetObjectRequest conditional = (GetObjectRequest) request.clone();
+            conditional.setNonmatchingETagConstraints(
+                    Collections.singletonList(entry.metadata.getETag()));
+            COSObject fetched;
+            try {
+                fetched = fetcher.fetch(conditional);
+            } catch (CosServiceException e) {
+                entry.close();
+                if (e.getStatusCode() == 404) {
+                    invalidate(file);
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                entry.close();
+                throw e;
+            }
+            if (fetched == null) {
+                // 304, the entry is valid for another freshness time
+                if (!file.setLastModified(System.currentTimeMillis())) {
+                    log.debug("Unable to set the last modified time of {}", file);
+                }
+                revalidatedCount.incrementAndGet();
+                return entry.toObject(request);
+            }
+            entry.close();
+            missCount.incrementAndGet();
+            return store(name, fetched, request, fetcher);
+        }
+        missCount.incrementAndGet();
+        return store(name, fetcher.fetch(request), request, fetcher);
+    }
+
+    /**
+     * Removes the entry of an object, e.g. after it was overwritten.
+     */
+    public void invalidate(String bucketName, String key, String versionId) {
+        invalidate(new File(directory, entryName(bucketName, key, versionId)));
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        for (File file : listFiles()) {
+            invalidate(file);
+        }
+    }
+
+    private void invalidate(File file) {
+        lastAccess.remove(file.getName());
+        long length = file.length();
+        if (file.delete()) {
+            size.addAndGet(-length);
+        } else if (file.exists()) {
+            log.warn("Unable to delete the cache entry {}", file);
+        }
+    }
+
+    static String entryName(String bucketName, String key, String versionId) {
+        String id = bucketName + "/" + key + (versionId == null ? "" : "?versionId=" + versionId);
+        return BinaryUtils.toHex(Md5Utils.computeMD5Hash(id.getBytes(StringUtils.UTF8)))
+                + ENTRY_SUFFIX;
+    }
+
+    /**
+     * Writes a fetched object into an entry, and returns the object read from the entry. The
+     * object is returned as fetched if it is not to be cached, and fetched again, uncached, if the
+     * entry cannot be written.
+     */
+    private COSObject store(String name, COSObject fetched, GetObjectRequest request,
+            Fetcher fetcher) {
+        ObjectMetadata metadata = fetched.getObjectMetadata();
+        if (metadata.getETag() == null || metadata.getContentLength() > maxObjectSize) {
+            return fetched;
+        }
+        File temp = null;
+        File file = new File(directory, name);
+        try {
+            temp = File.createTempFile(name, TEMP_SUFFIX, directory);
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                writeHeader(out, metadata);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                InputStream in = fetched.getObjectContent();
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+            long length = temp.length();
+            long replacedLength = file.length();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            size.addAndGet(length - replacedLength);
+        } catch (IOException e) {
+            log.warn("Unable to cache the object " + request.getKey() + " in " + directory
+                    + ", reading it uncached", e);
+            IOUtils.closeQuietly(fetched, log);
+            return fetcher.fetch(request);
+        } finally {
+            IOUtils.closeQuietly(fetched, log);
+            if (temp != null && !temp.delete()) {
+                log.warn("Unable to delete {}", temp);
+            }
+        }
+        lastAccess.put(name, System.currentTimeMillis());
+        Entry entry = open(file);
+        if (size.get() > maxSize
+                || System.currentTimeMillis() - scannedAt > RESCAN_MILLIS) {
+            trim();
+        }
+        if (entry == null) {
+            // removed by another process in the meantime
+            return fetcher.fetch(request);
+        }
+        return entry.toObject(request);
+    }
+
+    /**
+     * Scans the directory for the total size of the entries, and evicts the least recently used
+     * ones until the cache is not bigger than its maximum size. An entry which this process did
+     * not read is taken as last used when last validated.
+     */
+    private synchronized void trim() {
+        List<File> files = listFiles();
+        final Map<File, Long> usedAt = new HashMap<File, Long>();
+        long total = 0;
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            long lastModified = file.lastModified();
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // left by a process which died while writing
+                if (now - lastModified > STALE_TEMP_FILE_MILLIS && !file.delete()) {
+                    log.debug("Unable to delete {}", file);
+                }
+                continue;
+            }
+            Long accessed = lastAccess.get(file.getName());
+            usedAt.put(file, accessed == null ? lastModified : Math.max(accessed, lastModified));
+            total += file.length();
+        }
+        size.set(total);
+        scannedAt = now;
+        if (total <= maxSize) {
+            return;
+        }
+        List<File> entries = new ArrayList<File>(usedAt.keySet());
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return usedAt.get(a).compareTo(usedAt.get(b));
+            }
+        });
+        for (int i = 0; i < entries.size() && size.get() > maxSize; ++i) {
+            invalidate(entries.get(i));
+        }
+    }
+
+    private List<File> listFiles() {
+        File[] files = directory.listFiles();
+        List<File> result = new ArrayList<File>();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(ENTRY_SUFFIX) || file.getName().endsWith(TEMP_SUFFIX)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void writeHeader(OutputStream out, ObjectMetadata metadata)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(metadata);
+        objectOut.close();
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(bytes.size());
+        bytes.writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    /**
+     * Opens an entry, positioned at the start of the body, or returns null if there is none or it
+     * cannot be read.
+     */
+    private Entry open(File file) {
+        FileInputStream in;
+        long validatedAt = file.lastModified();
+        try {
+            in = new FileInputStream(file);
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            DataInputStream dataIn = new DataInputStream(in);
+            if (dataIn.readInt() != MAGIC) {
+                throw new IOException("Not a cache entry");
+            }
+            byte[] header = new byte[dataIn.readInt()];
+            dataIn.readFully(header);
+            ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(header)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc)
+                        throws IOException, ClassNotFoundException {
+                    if (!METADATA_CLASSES.contains(desc.getName())) {
+                        throw new InvalidClassException(desc.getName(),
+                                "Unexpected class in a cache entry");
+                    }
+                    return super.resolveClass(desc);
+                }
+            };
+            ObjectMetadata metadata = (ObjectMetadata) objectIn.readObject();
+            return new Entry(metadata, in, validatedAt);
+        } catch (Exception e) {
+            log.warn("Ignoring the unreadable cache entry " + file, e);
+            IOUtils.closeQuietly(in, log);
+            invalidate(file);
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        private final ObjectMetadata metadata;
+        private final InputStream body;
+        private final long validatedAt;
+
+        Entry(ObjectMetadata metadata, InputStream body, long validatedAt) {
+            this.metadata = metadata;
+            this.body = body;
+            this.validatedAt = validatedAt;
+        }
+
+        COSObject toObject(GetObjectRequest request) {
+            COSObject object = new COSObject();
+            object.setBucketName(request.getBucketName());
+            object.setKey(request.getKey());
+            object.setObjectMetadata(metadata);
+            object.setObjectContent(new COSObjectInputStream(body, null));
+            return object;
+        }
+
+        void close() {
+            IOUtils.closeQuietly(body, log);
+        }
+    }
+}
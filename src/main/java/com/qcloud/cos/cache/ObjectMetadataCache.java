@@ -0,0 +1,264 @@
+package com.qcloud.cos.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.qcloud.cos.annotation.SdkInternalApi;
+import com.qcloud.cos.annotation.ThreadSafe;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.GetObjectMetadataRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+
+/**
+ * An in-memory cache of the results of
+ * {@link com.qcloud.cos.COSClient#getObjectMetadata(GetObjectMetadataRequest)}, and so of
+ * {@link com.qcloud.cos.COSClient#doesObjectExist(String, String)}, once set with
+ * {@link com.qcloud.cos.ClientConfig#setObjectMetadataCache(ObjectMetadataCache)}.
+ * <p>
+ * The metadata of an object is kept for a time to live, and the 404 of a missing object for a
+ * usually shorter one. The writes of an object through a client using the cache, i.e. put,
+ * append, copy, delete, restore and the completion of a multipart upload, remove its entries, so
+ * the client reads its own writes. The writes of other clients are seen once the entries expire.
+ * </p>
+ * <p>
+ * The entries are spread over independently locked stripes, each evicting its least recently
+ * used entries beyond its share of the maximum number of entries.
+ * </p>
+ */
+@ThreadSafe
+public class ObjectMetadataCache {
+
+    private static final int STRIPES = 16;
+
+    /**
+     * Sends a HEAD request to COS.
+     */
+    @SdkInternalApi
+    public interface Loader {
+        ObjectMetadata load(GetObjectMetadataRequest request);
+    }
+
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxEntries the maximum number of objects in the cache.
+     * @param ttl the time the metadata of an object is kept.
+     * @param negativeTtl the time the absence of an object is kept, 0 not to cache 404s.
+     * @param unit the unit of ttl and negativeTtl.
+     */
+    public ObjectMetadataCache(int maxEntries, long ttl, long negativeTtl, TimeUnit unit) {
+        if (maxEntries < STRIPES) {
+            throw new IllegalArgumentException(
+                    "maxEntries must be at least " + STRIPES + ": " + maxEntries);
+        }
+        if (ttl <= 0 || negativeTtl < 0) {
+            throw new IllegalArgumentException("ttl must be positive and negativeTtl not negative: "
+                    + ttl + ", " + negativeTtl);
+        }
+        this.ttlMillis = unit.toMillis(ttl);
+        this.negativeTtlMillis = unit.toMillis(negativeTtl);
+        for (int i = 0; i < STRIPES; ++i) {
+            stripes[i] = new Stripe(maxEntries / STRIPES);
+        }
+    }
+
+    /**
+     * Returns the number of requests answered with cached metadata.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of requests answered with a cached 404.
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount.get();
+    }
+
+    /**
+     * Returns the number of requests sent to COS.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of entries evicted to make room for others.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the share of the requests answered from the cache, including the 404s, or 0 if
+     * there was none.
+     */
+    public double getHitRate() {
+        long hits = hitCount.get() + negativeHitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of entries, including the expired ones not removed yet.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns true if the request can be answered from the cache, i.e. it has no SSE-C key nor
+     * credentials of its own.
+     */
+    public boolean isCacheable(GetObjectMetadataRequest request) {
+        return request.getSSECustomerKey() == null && request.getCosCredentials() == null;
+    }
+
+    /**
+     * Returns the metadata of an object from the cache or else from COS.
+     *
+     * @param request a request for which {@link #isCacheable(GetObjectMetadataRequest)} is true.
+     * @param loader what sends the HEAD requests to COS.
+     * @throws CosServiceException with a 404 status code if the object does not exist.
+     */
+    @SdkInternalApi
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request, Loader loader) {
+        String id = id(request.getBucketName(), request.getKey(), request.getVersionId());
+        Stripe stripe = stripeOf(request.getBucketName(), request.getKey());
+        long generation;
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(id);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                if (entry.notFound != null) {
+                    negativeHitCount.incrementAndGet();
+                    throw copyOf(entry.notFound);
+                }
+                hitCount.incrementAndGet();
+                return entry.metadata.clone();
+            }
+            generation = stripe.generation;
+        }
+        missCount.incrementAndGet();
+        try {
+            ObjectMetadata metadata = loader.load(request);
+            stripe.put(id, new Entry(metadata.clone(), null,
+                    System.nanoTime() + millisToNanos(ttlMillis)), generation);
+            return metadata;
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404 && negativeTtlMillis > 0) {
+                stripe.put(id, new Entry(null, copyOf(e),
+                        System.nanoTime() + millisToNanos(negativeTtlMillis)), generation);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the entries of an object, the latest version and the given one.
+     */
+    public void invalidate(String bucketName, String key, String versionId) {
+        Stripe stripe = stripeOf(bucketName, key);
+        synchronized (stripe) {
+            ++stripe.generation;
+            stripe.entries.remove(id(bucketName, key, null));
+            if (versionId != null) {
+                stripe.entries.remove(id(bucketName, key, versionId));
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                ++stripe.generation;
+                stripe.entries.clear();
+            }
+        }
+    }
+
+    private static String id(String bucketName, String key, String versionId) {
+        return versionId == null ? bucketName + "/" + key
+                : bucketName + "/" + key + "?versionId=" + versionId;
+    }
+
+    // the versions of an object are in the same stripe, so invalidate locks only one
+    private Stripe stripeOf(String bucketName, String key) {
+        int h = bucketName.hashCode() * 31 + key.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private static long millisToNanos(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Copies a service exception, so that each caller gets its own.
+     */
+    static CosServiceException copyOf(CosServiceException e) {
+        CosServiceException copy = new CosServiceException(e.getErrorMessage());
+        copy.setStatusCode(e.getStatusCode());
+        copy.setErrorCode(e.getErrorCode());
+        copy.setErrorType(e.getErrorType());
+        copy.setRequestId(e.getRequestId());
+        copy.setTraceId(e.getTraceId());
+        return copy;
+    }
+
+    private static final class Entry {
+        final ObjectMetadata metadata;
+        final CosServiceException notFound;
+        final long expiresAt;
+
+        Entry(ObjectMetadata metadata, CosServiceException notFound, long expiresAt) {
+            this.metadata = metadata;
+            this.notFound = notFound;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Stripe {
+        final int maxEntries;
+        final LinkedHashMap<String, Entry> entries;
+        // incremented on every invalidation, so a load which overlaps a write is not cached
+        long generation;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        }
+
+        synchronized void put(String id, Entry entry, long loadGeneration) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            entries.put(id, entry);
+            if (entries.size() > maxEntries) {
+                Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                it.next();
+                it.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+}
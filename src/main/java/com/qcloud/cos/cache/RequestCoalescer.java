@@ -0,0 +1,397 @@
+package com.qcloud.cos.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.Headers;
+import com.qcloud.cos.annotation.SdkInternalApi;
+import com.qcloud.cos.annotation.ThreadSafe;
+import com.qcloud.cos.event.ProgressListener;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.internal.CosServiceRequest;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectInputStream;
+import com.qcloud.cos.model.GetObjectMetadataRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Coalesces the concurrent identical GET and HEAD requests of a client, once set with
+ * {@link com.qcloud.cos.ClientConfig#setRequestCoalescer(RequestCoalescer)}: while a request is in
+ * flight, the same request, i.e. for the same bucket, key, version, range and conditions, waits
+ * for it and gets its result rather than being sent.
+ * <p>
+ * Each caller gets its own {@link COSObject}, with its own metadata and stream. A body up to the
+ * memory threshold is read once into memory and shared. A bigger one is written to a temporary
+ * file as the fastest caller reads it, and the other callers read it back from the file, which is
+ * deleted when all the streams are closed. A request which is not shared is returned as is,
+ * without any buffering.
+ * </p>
+ * <p>
+ * The requests with their own credentials, progress listener, custom headers or parameters,
+ * response header overrides or SSE-C key are never coalesced.
+ * </p>
+ */
+@ThreadSafe
+public class RequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    public static final long DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private static final Object NOT_MODIFIED = new Object();
+
+    private final long memoryThreshold;
+    private final File spillDirectory;
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Creates a coalescer which shares the bodies up to {@link #DEFAULT_MEMORY_THRESHOLD} in
+     * memory, and the bigger ones through the temporary directory of the JVM.
+     */
+    public RequestCoalescer() {
+        this(DEFAULT_MEMORY_THRESHOLD, new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param memoryThreshold the size of the biggest body shared in memory.
+     * @param spillDirectory where the temporary files of the bigger bodies are written.
+     */
+    public RequestCoalescer(long memoryThreshold, File spillDirectory) {
+        if (memoryThreshold < 0 || memoryThreshold > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid memoryThreshold: " + memoryThreshold);
+        }
+        if (spillDirectory == null) {
+            throw new IllegalArgumentException("spillDirectory must be specified");
+        }
+        this.memoryThreshold = memoryThreshold;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public long getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Returns the number of requests sent through the coalescer.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * Returns the number of requests answered with the result of another one.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public boolean isCoalescable(GetObjectRequest request) {
+        return isShareable(request) && request.getSSECustomerKey() == null
+                && request.getResponseHeaders() == null;
+    }
+
+    public boolean isCoalescable(GetObjectMetadataRequest request) {
+        return isShareable(request) && request.getSSECustomerKey() == null;
+    }
+
+    private static boolean isShareable(CosServiceRequest request) {
+        return request.getCosCredentials() == null && request.getFixedEndpointAddr() == null
+                && request.getGeneralProgressListener() == ProgressListener.NOOP
+                && isEmpty(request.getCustomRequestHeaders())
+                && isEmpty(request.getCustomQueryParameters());
+    }
+
+    private static boolean isEmpty(Map<?, ?> map) {
+        return map == null || map.isEmpty();
+    }
+
+    /**
+     * Gets an object, sharing the request with the identical ones in flight.
+     *
+     * @param request a request for which {@link #isCoalescable(GetObjectRequest)} is true.
+     */
+    @SdkInternalApi
+    public COSObject getObject(GetObjectRequest request, DiskObjectCache.Fetcher fetcher) {
+        String key = keyOf(request);
+        while (true) {
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                return leadGet(key, flight, request, fetcher);
+            }
+            if (existing.join()) {
+                coalescedCount.incrementAndGet();
+                Object result = existing.await();
+                if (result == NOT_MODIFIED) {
+                    return null;
+                }
+                return ((SharedObject) rethrowIfFailed(result)).newObject();
+            }
+            // the leader is about to remove it
+            flights.remove(key, existing);
+        }
+    }
+
+    private COSObject leadGet(String key, Flight flight, GetObjectRequest request,
+            DiskObjectCache.Fetcher fetcher) {
+        sentCount.incrementAndGet();
+        try {
+            COSObject object = fetcher.fetch(request);
+            int followers = land(key, flight);
+            if (followers == 0) {
+                return object;
+            }
+            if (object == null) {
+                flight.complete(NOT_MODIFIED);
+                return null;
+            }
+            SharedObject shared = share(object, followers + 1);
+            flight.complete(shared);
+            return shared.newObject();
+        } catch (RuntimeException e) {
+            abandon(key, flight, e);
+            throw e;
+        } catch (Error e) {
+            abandon(key, flight, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the metadata of an object, sharing the request with the identical ones in flight.
+     *
+     * @param request a request for which {@link #isCoalescable(GetObjectMetadataRequest)} is true.
+     */
+    @SdkInternalApi
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request,
+            ObjectMetadataCache.Loader loader) {
+        String key = keyOf(request);
+        while (true) {
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                return leadHead(key, flight, request, loader);
+            }
+            if (existing.join()) {
+                coalescedCount.incrementAndGet();
+                return ((ObjectMetadata) rethrowIfFailed(existing.await())).clone();
+            }
+            flights.remove(key, existing);
+        }
+    }
+
+    private ObjectMetadata leadHead(String key, Flight flight, GetObjectMetadataRequest request,
+            ObjectMetadataCache.Loader loader) {
+        sentCount.incrementAndGet();
+        try {
+            ObjectMetadata metadata = loader.load(request);
+            if (land(key, flight) > 0) {
+                flight.complete(metadata.clone());
+            }
+            return metadata;
+        } catch (RuntimeException e) {
+            abandon(key, flight, e);
+            throw e;
+        } catch (Error e) {
+            abandon(key, flight, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ends a flight, so that the next identical request is sent, and returns its followers.
+     */
+    private int land(String key, Flight flight) {
+        flights.remove(key, flight);
+        return flight.close();
+    }
+
+    /**
+     * Ends a flight whose leader failed, unless already completed, so that the followers fail as
+     * well rather than wait forever. An Error is handed to them wrapped, as it is not theirs.
+     */
+    private void abandon(String key, Flight flight, Throwable failure) {
+        if (land(key, flight) == 0) {
+            return;
+        }
+        if (failure instanceof RuntimeException) {
+            flight.fail(failure);
+        } else {
+            flight.fail(new CosClientException("The shared request failed: " + failure, failure));
+        }
+    }
+
+    private static Object rethrowIfFailed(Object result) {
+        if (result instanceof CosServiceException) {
+            throw ObjectMetadataCache.copyOf((CosServiceException) result);
+        }
+        if (result instanceof RuntimeException) {
+            throw (RuntimeException) result;
+        }
+        return result;
+    }
+
+    private SharedObject share(COSObject object, int readers) {
+        ObjectMetadata metadata = object.getObjectMetadata();
+        boolean lengthKnown = metadata.getRawMetadataValue(Headers.CONTENT_LENGTH) != null;
+        InputStream content = object.getObjectContent();
+        try {
+            if (lengthKnown && metadata.getContentLength() <= memoryThreshold) {
+                byte[] body;
+                try {
+                    body = IOUtils.toByteArray(content);
+                } finally {
+                    IOUtils.closeQuietly(content, log);
+                }
+                return new SharedObject(object, body, null);
+            }
+            return new SharedObject(object, null,
+                    new SpillBuffer(content, spillDirectory, readers));
+        } catch (IOException e) {
+            object.getObjectContent().abort();
+            throw new CosClientException("Unable to share the response of " + object.getKey()
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String keyOf(GetObjectRequest request) {
+        StringBuilder key = new StringBuilder("GET");
+        append(key, request.getBucketName());
+        append(key, request.getKey());
+        append(key, request.getVersionId());
+        long[] range = request.getRange();
+        append(key, range == null ? null : range[0] + "-" + range[1]);
+        append(key, request.getMatchingETagConstraints().toString());
+        append(key, request.getNonmatchingETagConstraints().toString());
+        append(key, millis(request.getModifiedSinceConstraint()));
+        append(key, millis(request.getUnmodifiedSinceConstraint()));
+        append(key, String.valueOf(request.getTrafficLimit()));
+        return key.toString();
+    }
+
+    private static String keyOf(GetObjectMetadataRequest request) {
+        StringBuilder key = new StringBuilder("HEAD");
+        append(key, request.getBucketName());
+        append(key, request.getKey());
+        append(key, request.getVersionId());
+        return key.toString();
+    }
+
+    private static String millis(Date date) {
+        return date == null ? null : String.valueOf(date.getTime());
+    }
+
+    // length prefixed, as keys can hold any character
+    private static void append(StringBuilder key, String field) {
+        if (field == null) {
+            key.append("|-");
+        } else {
+            key.append('|').append(field.length()).append(':').append(field);
+        }
+    }
+
+    /**
+     * A request in flight, and the followers waiting for its result.
+     */
+    private static final class Flight {
+        private int followers;
+        private boolean closed;
+        private boolean completed;
+        private Object result;
+
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            ++followers;
+            return true;
+        }
+
+        synchronized int close() {
+            closed = true;
+            return followers;
+        }
+
+        synchronized void complete(Object result) {
+            this.result = result;
+            this.completed = true;
+            notifyAll();
+        }
+
+        synchronized void fail(Object failure) {
+            if (!completed) {
+                complete(failure);
+            }
+        }
+
+        /**
+         * Waits for the result, uninterruptibly as the request of the leader cannot be
+         * interrupted either, and keeps the interrupt status.
+         */
+        Object await() {
+            boolean interrupted = false;
+            try {
+                synchronized (this) {
+                    while (!completed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    return result;
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * A response shared by the leader and the followers of a flight.
+     */
+    private static final class SharedObject {
+        private final COSObject object;
+        private final byte[] body;
+        private final SpillBuffer spill;
+
+        SharedObject(COSObject object, byte[] body, SpillBuffer spill) {
+            this.object = object;
+            this.body = body;
+            this.spill = spill;
+        }
+
+        COSObject newObject() {
+            COSObject copy = new COSObject();
+            copy.setBucketName(object.getBucketName());
+            copy.setKey(object.getKey());
+            copy.setObjectMetadata(object.getObjectMetadata().clone());
+            InputStream content = body != null ? new ByteArrayInputStream(body)
+                    : spill.newReader();
+            copy.setObjectContent(new COSObjectInputStream(content, null));
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.qcloud.cos.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.internal.SdkFilterInputStream;
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Fans out a stream to several readers through a temporary file: the bytes are written once to
+ * the file as the readers need them, by the reader which is the furthest ahead, and the others read
+ * them back from the file. No thread is started, and a slow reader does not hold back the others.
+ * <p>
+ * The buffer is created for a known number of readers, and the file is deleted once they are all
+ * closed. If they are closed before the end, the source is aborted.
+ * </p>
+ */
+final class SpillBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillBuffer.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final File file;
+    private final FileChannel channel;
+    // used by the pumping reader only
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    // guarded by this
+    private long written;
+    private boolean done;
+    private boolean pumping;
+    private IOException failure;
+    private int references;
+
+    /**
+     * @param source the stream to fan out, closed or aborted by the buffer.
+     * @param directory where to create the temporary file.
+     * @param readers the number of readers, each to open with {@link #newReader()}, or to give
+     *         back with {@link #release()}.
+     */
+    SpillBuffer(InputStream source, File directory, int readers) throws IOException {
+        this.source = source;
+        this.file = File.createTempFile("cos-shared-", ".tmp", directory);
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+        } finally {
+            if (raf == null && !file.delete()) {
+                log.warn("Unable to delete {}", file);
+            }
+        }
+        this.channel = raf.getChannel();
+        this.references = readers;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns a stream over the whole content, for one of the readers.
+     */
+    InputStream newReader() {
+        return new Reader();
+    }
+
+    /**
+     * Gives back the reference of a reader which does not read.
+     */
+    void release() {
+        boolean last;
+        synchronized (this) {
+            last = --references == 0;
+        }
+        if (last) {
+            dispose();
+        }
+    }
+
+    /**
+     * Reads up to len bytes at the given position, waiting for them to be pumped from the source.
+     */
+    private int read(long position, byte[] b, int off, int len) throws IOException {
+        while (true) {
+            long available;
+            synchronized (this) {
+                while (position >= written && !done && failure == null && pumping) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException(
+                                "Interrupted while waiting for a shared response");
+                    }
+                }
+                if (position < written) {
+                    available = written - position;
+                } else if (failure != null) {
+                    throw new IOException("The shared response failed: " + failure.getMessage(),
+                            failure);
+                } else if (done) {
+                    return -1;
+                } else {
+                    pumping = true;
+                    available = 0;
+                }
+            }
+            if (available > 0) {
+                int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)),
+                        position);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                return n;
+            }
+            pump();
+        }
+    }
+
+    /**
+     * Copies the next chunk of the source to the file, called by one reader at a time.
+     */
+    private void pump() {
+        int n = 0;
+        IOException error = null;
+        try {
+            n = source.read(chunk);
+            if (n > 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                long position = written();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e.getMessage(), e);
+        }
+        synchronized (this) {
+            pumping = false;
+            if (error != null) {
+                failure = error;
+            } else if (n < 0) {
+                done = true;
+            } else {
+                written += n;
+            }
+            notifyAll();
+        }
+        if (error != null || n < 0) {
+            IOUtils.closeQuietly(source, log);
+        }
+    }
+
+    private synchronized long written() {
+        return written;
+    }
+
+    private void dispose() {
+        boolean complete;
+        synchronized (this) {
+            complete = done;
+        }
+        if (!complete) {
+            abortSource();
+        }
+        IOUtils.closeQuietly(channel, log);
+        if (!file.delete() && file.exists()) {
+            log.warn("Unable to delete {}", file);
+        }
+    }
+
+    private void abortSource() {
+        if (source instanceof SdkFilterInputStream) {
+            ((SdkFilterInputStream) source).abort();
+        } else {
+            IOUtils.closeQuietly(source, log);
+        }
+    }
+
+    private final class Reader extends InputStream {
+        private long position;
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int n = SpillBuffer.this.read(position, b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            synchronized (SpillBuffer.this) {
+                return (int) Math.min(Integer.MAX_VALUE, Math.max(0, written - position));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.qcloud.cos.http;
+
+import com.qcloud.cos.exception.AbortedException;
+
+/**
+ * Client side bandwidth limiter shared by all the request and response streams of the clients
+ * configured with it (see {@link com.qcloud.cos.ClientConfig#setBandwidthLimiter(BandwidthLimiter)}).
+ * <p>
+ * Upload and download traffic are shaped by two independent token buckets, each refilled at the
+ * configured rate in bytes per second. A rate less than or equal to 0 means unlimited. Rates can
+ * be changed at runtime, waiting streams pick up the new rate immediately.
+ * </p>
+ * <p>
+ * Unlike the server side traffic limit (x-cos-traffic-limit) which applies to a single request,
+ * this limiter caps the aggregate throughput of the whole process, e.g. all the parts of all the
+ * transfers of a TransferManager.
+ * </p>
+ */
+public class BandwidthLimiter {
+
+    private final TokenBucket uploadBucket;
+    private final TokenBucket downloadBucket;
+
+    /**
+     * @param uploadBytesPerSecond the upload budget in bytes per second, unlimited if <= 0
+     * @param downloadBytesPerSecond the download budget in bytes per second, unlimited if <= 0
+     */
+    public BandwidthLimiter(long uploadBytesPerSecond, long downloadBytesPerSecond) {
+        this.uploadBucket = new TokenBucket(uploadBytesPerSecond);
+        this.downloadBucket = new TokenBucket(downloadBytesPerSecond);
+    }
+
+    public long getUploadBytesPerSecond() {
+        return uploadBucket.getRate();
+    }
+
+    public void setUploadBytesPerSecond(long uploadBytesPerSecond) {
+        uploadBucket.setRate(uploadBytesPerSecond);
+    }
+
+    public long getDownloadBytesPerSecond() {
+        return downloadBucket.getRate();
+    }
+
+    public void setDownloadBytesPerSecond(long downloadBytesPerSecond) {
+        downloadBucket.setRate(downloadBytesPerSecond);
+    }
+
+    /**
+     * Blocks until the upload budget allows sending the given number of bytes.
+     */
+    public void acquireUpload(long bytes, BandwidthPriority priority) {
+        uploadBucket.acquire(bytes, priority);
+    }
+
+    /**
+     * Blocks until the download budget allows receiving the given number of bytes.
+     */
+    public void acquireDownload(long bytes, BandwidthPriority priority) {
+        downloadBucket.acquire(bytes, priority);
+    }
+
+    /**
+     * A token bucket which allows a bounded debt: a caller may take more tokens than available as
+     * long as the bucket is not already in debt, the following callers then wait until the debt is
+     * paid back. This lets a single read of any size proceed without splitting it, while keeping
+     * the long term rate exact. The burst size is one second worth of tokens.
+     */
+    private static final class TokenBucket {
+        private static final long NANOS_PER_SECOND = 1000L * 1000L * 1000L;
+
+        private final int[] waiters = new int[BandwidthPriority.values().length];
+        private long rate;
+        private long tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(long rate) {
+            this.rate = rate;
+            this.tokens = Math.max(rate, 0);
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized long getRate() {
+            return rate;
+        }
+
+        synchronized void setRate(long newRate) {
+            refill();
+            this.rate = newRate;
+            if (newRate > 0) {
+                this.tokens = Math.min(tokens, newRate);
+            }
+            notifyAll();
+        }
+
+        synchronized void acquire(long bytes, BandwidthPriority priority) {
+            if (bytes <= 0) {
+                return;
+            }
+            if (priority == null) {
+                priority = BandwidthPriority.NORMAL;
+            }
+            int level = priority.ordinal();
+            ++waiters[level];
+            try {
+                while (true) {
+                    if (rate <= 0) {
+                        return;
+                    }
+                    refill();
+                    if (tokens > 0 && !hasHigherPriorityWaiters(level)) {
+                        tokens -= bytes;
+                        return;
+                    }
+                    long waitNanos = tokens > 0 ? NANOS_PER_SECOND / 100
+                            : (long) ((-tokens + 1) * (double) NANOS_PER_SECOND / rate);
+                    long waitMillis = Math.max(1, waitNanos / 1000000L);
+                    try {
+                        wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AbortedException("interrupted while waiting for bandwidth", e);
+                    }
+                }
+            } finally {
+                --waiters[level];
+                notifyAll();
+            }
+        }
+
+        private boolean hasHigherPriorityWaiters(int level) {
+            for (int i = 0; i < level; ++i) {
+                if (waiters[i] > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            long elapsed = now - lastRefillNanos;
+            if (rate <= 0) {
+                lastRefillNanos = now;
+                return;
+            }
+            long newTokens = (long) ((double) elapsed * rate / NANOS_PER_SECOND);
+            if (newTokens > 0) {
+                tokens = Math.min(rate, tokens + newTokens);
+                lastRefillNanos = now;
+            }
+        }
+    }
+}
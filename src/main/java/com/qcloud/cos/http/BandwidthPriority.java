@@ -0,0 +1,10 @@
+package com.qcloud.cos.http;
+
+/**
+ * Priority classes used by {@link BandwidthLimiter} to decide which waiting stream is served first
+ * when the shared bandwidth budget is exhausted. Streams of a lower priority only get tokens when
+ * no stream of a higher priority is waiting in the same direction.
+ */
+public enum BandwidthPriority {
+    HIGH, NORMAL, LOW;
+}
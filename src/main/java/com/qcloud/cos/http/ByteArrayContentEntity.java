@@ -0,0 +1,43 @@
+package com.qcloud.cos.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.http.entity.ByteArrayEntity;
+
+/**
+ * A byte array entity written in chunks, each accounted for by a {@link RequestContentMeter}, so
+ * that sending a request straight from memory still reports its progress and keeps to the upload
+ * budget of the client.
+ */
+final class ByteArrayContentEntity extends ByteArrayEntity {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+    private final RequestContentMeter meter;
+
+    ByteArrayContentEntity(byte[] array, int offset, int length, RequestContentMeter meter) {
+        super(array, offset, length);
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+        this.meter = meter;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        meter.start();
+        int written = 0;
+        while (written < length) {
+            int count = Math.min(CHUNK_SIZE, length - written);
+            meter.beforeWrite(count);
+            out.write(array, offset + written, count);
+            meter.afterWrite(count);
+            written += count;
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,238 @@
+package com.qcloud.cos.http;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.annotation.ThreadSafe;
+
+/**
+ * Decides what becomes of the connection of an object stream closed before its end, once set with
+ * {@link com.qcloud.cos.ClientConfig#setConnectionDrainer(ConnectionDrainer)}. Without it, the
+ * connection is always aborted, and the next request opens a new one.
+ * <p>
+ * When the bytes remaining in the response are known and no more than the drain threshold, they
+ * are read and discarded on a thread of the drainer, off the thread closing the stream, and the
+ * connection goes back to the pool. Otherwise, or when too many drains are already pending, the
+ * connection is aborted. A drain not done within the drain timeout of the stream being closed,
+ * e.g. because the server sends the rest slowly, is given up and its connection aborted, so a slow
+ * response cannot hold a drain thread for long.
+ * </p>
+ */
+@ThreadSafe
+public class ConnectionDrainer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionDrainer.class);
+
+    public static final long DEFAULT_DRAIN_THRESHOLD = 128 * 1024;
+    public static final int DEFAULT_MAX_PENDING_DRAINS = 64;
+    public static final int DEFAULT_DRAIN_THREADS = 4;
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 1000;
+
+    private final long drainThreshold;
+    private final long drainTimeoutMillis;
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicLong drainedCount = new AtomicLong();
+    private final AtomicLong drainedBytes = new AtomicLong();
+    private final AtomicLong abortedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    /**
+     * Creates a drainer of the remainders up to {@link #DEFAULT_DRAIN_THRESHOLD} bytes, which lets
+     * up to {@link #DEFAULT_MAX_PENDING_DRAINS} drains wait for its threads.
+     */
+    public ConnectionDrainer() {
+        this(DEFAULT_DRAIN_THRESHOLD, DEFAULT_MAX_PENDING_DRAINS);
+    }
+
+    /**
+     * Creates a drainer with {@link #DEFAULT_DRAIN_THREADS} threads, which gives up a drain after
+     * {@link #DEFAULT_DRAIN_TIMEOUT_MILLIS} milliseconds.
+     *
+     * @param drainThreshold the number of remaining bytes up to which a connection is drained.
+     * @param maxPendingDrains the number of drains which can wait for the threads of the drainer,
+     *         past which the connections are aborted.
+     */
+    public ConnectionDrainer(long drainThreshold, int maxPendingDrains) {
+        this(drainThreshold, maxPendingDrains, DEFAULT_DRAIN_THREADS,
+                DEFAULT_DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param drainThreshold the number of remaining bytes up to which a connection is drained.
+     * @param maxPendingDrains the number of drains which can wait for the threads of the drainer,
+     *         past which the connections are aborted.
+     * @param drainThreads the number of drains run at the same time.
+     * @param drainTimeout the time after the stream is closed within which its drain must be
+     *         done, past which the connection is aborted.
+     * @param unit the unit of drainTimeout.
+     */
+    public ConnectionDrainer(long drainThreshold, int maxPendingDrains, int drainThreads,
+            long drainTimeout, TimeUnit unit) {
+        if (drainThreshold < 0) {
+            throw new IllegalArgumentException("invalid drainThreshold: " + drainThreshold);
+        }
+        if (maxPendingDrains < 1) {
+            throw new IllegalArgumentException("invalid maxPendingDrains: " + maxPendingDrains);
+        }
+        if (drainThreads < 1) {
+            throw new IllegalArgumentException("invalid drainThreads: " + drainThreads);
+        }
+        if (drainTimeout <= 0) {
+            throw new IllegalArgumentException("invalid drainTimeout: " + drainTimeout);
+        }
+        this.drainThreshold = drainThreshold;
+        this.drainTimeoutMillis = unit.toMillis(drainTimeout);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(drainThreads, drainThreads, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(maxPendingDrains),
+                newThreadFactory("cos-connection-drainer"));
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+        this.timer = new ScheduledThreadPoolExecutor(1,
+                newThreadFactory("cos-connection-drainer-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName(name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    public long getDrainThreshold() {
+        return drainThreshold;
+    }
+
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    /**
+     * Returns the number of connections drained and given back to the pool.
+     */
+    public long getDrainedCount() {
+        return drainedCount.get();
+    }
+
+    /**
+     * Returns the number of bytes read and discarded by the drains.
+     */
+    public long getDrainedBytes() {
+        return drainedBytes.get();
+    }
+
+    /**
+     * Returns the number of connections aborted, because of a remainder too long or unknown, or
+     * because their drain could not be run, failed or timed out.
+     */
+    public long getAbortedCount() {
+        return abortedCount.get();
+    }
+
+    /**
+     * Returns the number of drains given up because they were not done within the drain timeout.
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    /**
+     * Drains the connection of a stream closed before its end if the remainder is short enough,
+     * and aborts it otherwise.
+     *
+     * @param remaining the number of bytes remaining in the response, or -1 if unknown.
+     * @param drain reads the rest of the response, returning the number of bytes read. It is
+     *         interrupted by the abort of the connection when the drain times out.
+     * @param release gives the drained connection back to the pool.
+     * @param abort aborts the connection, if it cannot be drained.
+     */
+    public void drainOrAbort(long remaining, final Callable<Long> drain, final Runnable release,
+            final Runnable abort) {
+        if (remaining < 0 || remaining > drainThreshold) {
+            abort(abort);
+            return;
+        }
+        // set by whichever of the drain and its timeout is done first, the other one then leaves
+        // the connection alone
+        final AtomicBoolean done = new AtomicBoolean();
+        final ScheduledFuture<?> timeout;
+        try {
+            timeout = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (done.compareAndSet(false, true)) {
+                        timedOutCount.incrementAndGet();
+                        abort(abort);
+                    }
+                }
+            }, drainTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            abort(abort);
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (done.get()) {
+                        return;
+                    }
+                    long drained;
+                    try {
+                        drained = drain.call();
+                    } catch (Exception e) {
+                        if (done.compareAndSet(false, true)) {
+                            timeout.cancel(false);
+                            log.debug("unable to drain the connection, aborting it", e);
+                            abort(abort);
+                        }
+                        return;
+                    }
+                    if (done.compareAndSet(false, true)) {
+                        timeout.cancel(false);
+                        drainedBytes.addAndGet(drained);
+                        drainedCount.incrementAndGet();
+                        release.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (done.compareAndSet(false, true)) {
+                timeout.cancel(false);
+                abort(abort);
+            }
+        }
+    }
+
+    private void abort(Runnable abort) {
+        abortedCount.incrementAndGet();
+        abort.run();
+    }
+
+    /**
+     * Stops the threads of the drainer once the pending drains are done or timed out; the
+     * connections of the streams closed afterwards are aborted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        timer.shutdown();
+    }
+}
@@ -26,10 +26,13 @@ import com.qcloud.cos.event.ProgressListener;
 import com.qcloud.cos.exception.CosClientException;
 import com.qcloud.cos.exception.CosServiceException;
 import com.qcloud.cos.exception.CosServiceException.ErrorType;
+import com.qcloud.cos.internal.BandwidthLimitedInputStream;
+import com.qcloud.cos.internal.ByteArrayContentInputStream;
 import com.qcloud.cos.internal.CosErrorResponseHandler;
 import com.qcloud.cos.internal.CosServiceRequest;
 import com.qcloud.cos.internal.ReleasableInputStream;
 import com.qcloud.cos.internal.CosServiceResponse;
+import com.qcloud.cos.internal.FileRegionInputStream;
 import com.qcloud.cos.internal.SdkBufferedInputStream;
 import com.qcloud.cos.internal.ResettableInputStream;
 import com.qcloud.cos.retry.BackoffStrategy;
@@ -44,6 +47,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
@@ -177,7 +181,8 @@ public class DefaultCosHttpClient implements CosHttpClient {
     }
 
     private <X extends CosServiceRequest> HttpRequestBase buildHttpRequest(
-            CosHttpRequest<X> request) throws CosClientException {
+            CosHttpRequest<X> request, AbstractHttpEntity repeatableEntity)
+            throws CosClientException {
         HttpRequestBase httpRequestBase = null;
         HttpMethodName httpMethodName = request.getHttpMethod();
         if (httpMethodName.equals(HttpMethodName.PUT)) {
@@ -231,9 +236,9 @@ public class DefaultCosHttpClient implements CosHttpClient {
             httpRequestBase.addHeader(Headers.SDK_LOG_DEBUG, "off");
         }
 
-        if (request.getContent() != null) {
-            InputStreamEntity reqEntity =
-                    new InputStreamEntity(request.getContent(), content_length);
+        if (repeatableEntity != null || request.getContent() != null) {
+            AbstractHttpEntity reqEntity = repeatableEntity != null ? repeatableEntity
+                    : new InputStreamEntity(request.getContent(), content_length);
             if (httpMethodName.equals(HttpMethodName.PUT)
                     || httpMethodName.equals(HttpMethodName.POST)) {
                 HttpEntityEnclosingRequestBase entityRequestBase =
@@ -268,6 +273,8 @@ public class DefaultCosHttpClient implements CosHttpClient {
             InputStream oriIn = apacheHttpResponse.getEntity().getContent();
             InputStream progressIn = null;
             if (oriIn != null) {
+                oriIn = BandwidthLimitedInputStream.inputStreamForResponse(oriIn,
+                        clientConfig.getBandwidthLimiter(), bandwidthPriorityOf(request));
                 progressIn = ProgressInputStream.inputStreamForResponse(oriIn, progressListener);
                 httpResponse.setContent(progressIn);
             }
@@ -327,16 +334,25 @@ public class DefaultCosHttpClient implements CosHttpClient {
         return exception;
     }
 
-    private <X extends CosServiceRequest> void bufferAndResetAbleContent(
+    /**
+     * @return the stream of the retry buffer the content was wrapped in, to be discarded once the
+     *         request is complete, or null if none
+     */
+    private <X extends CosServiceRequest> RetryBufferInputStream bufferAndResetAbleContent(
             CosHttpRequest<X> request) {
         final InputStream origContent = request.getContent();
-        if (origContent != null) {
+        if (origContent != null && !(origContent instanceof ByteArrayContentInputStream)
+                && !(origContent instanceof FileRegionInputStream)) {
             final InputStream toBeClosed = buffer(makeResettable(origContent));
             // make "notCloseable", so reset would work with retries
             final InputStream notCloseable = (toBeClosed == null) ? null
                     : ReleasableInputStream.wrap(toBeClosed).disableClose();
             request.setContent(notCloseable);
+            if (toBeClosed instanceof RetryBufferInputStream) {
+                return (RetryBufferInputStream) toBeClosed;
+            }
         }
+        return null;
     }
 
     /**
@@ -350,6 +366,34 @@ public class DefaultCosHttpClient implements CosHttpClient {
         return ProgressInputStream.inputStreamForRequest(content, listener);
     }
 
+    /**
+     * Returns the entity sending the content of the request straight from its byte array or file
+     * region, or null if the content is a stream to read.
+     */
+    private <X extends CosServiceRequest> AbstractHttpEntity createRepeatableEntity(
+            CosHttpRequest<X> request) {
+        InputStream content = request.getContent();
+        if (!(content instanceof ByteArrayContentInputStream)
+                && !(content instanceof FileRegionInputStream)) {
+            return null;
+        }
+        RequestContentMeter meter = new RequestContentMeter(request.getProgressListener(),
+                clientConfig.getBandwidthLimiter(), bandwidthPriorityOf(request));
+        if (content instanceof ByteArrayContentInputStream) {
+            ByteArrayContentInputStream array = (ByteArrayContentInputStream) content;
+            return new ByteArrayContentEntity(array.getArray(), array.getOffset(),
+                    array.getLength(), meter);
+        }
+        return new FileRegionEntity((FileRegionInputStream) content, meter);
+    }
+
+    private <X extends CosServiceRequest> BandwidthPriority bandwidthPriorityOf(
+            CosHttpRequest<X> request) {
+        CosServiceRequest originalRequest = request.getOriginalRequest();
+        return originalRequest == null ? BandwidthPriority.NORMAL
+                : originalRequest.getBandwidthPriority();
+    }
+
     private void setBasicProxyAuthorization(HttpRequestBase httpRequest) {
         String auth = clientConfig.getProxyUsername() + ":" + clientConfig.getProxyPassword();
         String authHeader = "Basic " + new String(Base64.encodeBase64(auth.getBytes()));
@@ -394,7 +438,7 @@ public class DefaultCosHttpClient implements CosHttpClient {
         return false;
     }
 
-    private HttpResponse executeOneRequest(HttpContext context, HttpRequestBase httpRequest) {
+    HttpResponse executeOneRequest(HttpContext context, HttpRequestBase httpRequest) {
         HttpResponse httpResponse = null;
         try {
             httpResponse = httpClient.execute(httpRequest, context);
@@ -419,16 +463,34 @@ public class DefaultCosHttpClient implements CosHttpClient {
     public <X, Y extends CosServiceRequest> X exeute(CosHttpRequest<Y> request,
             HttpResponseHandler<CosServiceResponse<X>> responseHandler)
             throws CosClientException, CosServiceException {
+        RetryBufferInputStream retryContent = bufferAndResetAbleContent(request);
+        try {
+            return executeWithRetries(request, responseHandler);
+        } finally {
+            if (retryContent != null) {
+                retryContent.discard();
+            }
+        }
+    }
+
+    private <X, Y extends CosServiceRequest> X executeWithRetries(CosHttpRequest<Y> request,
+            HttpResponseHandler<CosServiceResponse<X>> responseHandler)
+            throws CosClientException, CosServiceException {
 
         HttpResponse httpResponse = null;
         HttpRequestBase httpRequest = null;
-        bufferAndResetAbleContent(request);
 
+        // 内存或文件区域的内容作为可重复实体直接发送, 其进度和带宽在写出时统计, 重试时无需重置流
+        final AbstractHttpEntity repeatableEntity = createRepeatableEntity(request);
         // Always mark the input stream before execution.
         ProgressListener progressListener = request.getProgressListener();
-        final InputStream originalContent = request.getContent();
+        final InputStream originalContent =
+                repeatableEntity == null ? request.getContent() : null;
         if (originalContent != null) {
-            request.setContent(monitorStreamProgress(progressListener, originalContent));
+            InputStream limitedContent = BandwidthLimitedInputStream.inputStreamForRequest(
+                    originalContent, clientConfig.getBandwidthLimiter(),
+                    bandwidthPriorityOf(request));
+            request.setContent(monitorStreamProgress(progressListener, limitedContent));
         }
         if (originalContent != null && originalContent.markSupported()
                 && !(originalContent instanceof BufferedInputStream)) {
@@ -456,7 +518,7 @@ public class DefaultCosHttpClient implements CosHttpClient {
                     Thread.sleep(delay);
                 }
                 HttpContext context = HttpClientContext.create();
-                httpRequest = buildHttpRequest(request);
+                httpRequest = buildHttpRequest(request, repeatableEntity);
                 httpResponse = null;
                 httpResponse = executeOneRequest(context, httpRequest);
                 checkResponse(request, httpRequest, httpResponse);
@@ -536,11 +598,14 @@ public class DefaultCosHttpClient implements CosHttpClient {
      * Buffer input stream if possible.
      *
      * @param content Input stream to buffer
-     * @return SdkBufferedInputStream if possible, otherwise original input stream.
+     * @return RetryBufferInputStream if the client has a retry buffer, or SdkBufferedInputStream,
+     *         if possible, otherwise original input stream.
      */
     private InputStream buffer(InputStream content) {
         if (!content.markSupported()) {
-            content = new SdkBufferedInputStream(content);
+            RetryBuffer retryBuffer = clientConfig.getRetryBuffer();
+            content = retryBuffer == null ? new SdkBufferedInputStream(content)
+                    : retryBuffer.newInputStream(content);
         }
         return content;
     }
@@ -0,0 +1,86 @@
+package com.qcloud.cos.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.qcloud.cos.internal.FileRegionInputStream;
+
+/**
+ * A repeatable entity sending a region of a file. Every write reads the region again from its start
+ * with positional reads into one large buffer, which the connection writes to the socket directly
+ * instead of copying it through its own small buffer. The client accounts for every buffer written
+ * with a {@link RequestContentMeter}, and when asked by the region, calculates its MD5 from the
+ * buffers as they are written.
+ */
+public class FileRegionEntity extends AbstractHttpEntity {
+
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileRegionInputStream region;
+    private final RequestContentMeter meter;
+
+    public FileRegionEntity(FileRegionInputStream region) {
+        this(region, null);
+    }
+
+    FileRegionEntity(FileRegionInputStream region, RequestContentMeter meter) {
+        this.region = region;
+        this.meter = meter;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return region.getLength();
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new FileRegionInputStream(region.getChannel(), region.getOffset(),
+                region.getLength());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (meter != null) {
+            meter.start();
+        }
+        long length = region.getLength();
+        MessageDigest md5 = region.isMd5Calculated() ? DigestUtils.getMd5Digest() : null;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, length));
+        long written = 0;
+        while (written < length) {
+            buffer.clear();
+            int read = region.read(written, buffer);
+            if (meter != null) {
+                meter.beforeWrite(read);
+            }
+            out.write(buffer.array(), 0, read);
+            if (meter != null) {
+                meter.afterWrite(read);
+            }
+            if (md5 != null) {
+                md5.update(buffer.array(), 0, read);
+            }
+            written += read;
+        }
+        if (md5 != null) {
+            region.setMd5Digest(md5.digest());
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
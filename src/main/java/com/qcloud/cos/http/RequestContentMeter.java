@@ -0,0 +1,52 @@
+package com.qcloud.cos.http;
+
+import static com.qcloud.cos.event.SDKProgressPublisher.publishRequestBytesTransferred;
+import static com.qcloud.cos.event.SDKProgressPublisher.publishRequestReset;
+
+import com.qcloud.cos.event.ProgressListener;
+
+/**
+ * Accounts for the bytes of a repeatable request entity as it writes them, the way the content
+ * stream of any other request is accounted for as it is read: every chunk is charged against the
+ * upload budget of the client before it is written, and published to the progress listener of
+ * the request once written. The entity being written again from its start on a retry, the bytes
+ * of the previous attempt are then published as reset.
+ */
+final class RequestContentMeter {
+
+    private final ProgressListener listener;
+    private final BandwidthLimiter limiter;
+    private final BandwidthPriority priority;
+    private long written;
+
+    RequestContentMeter(ProgressListener listener, BandwidthLimiter limiter,
+            BandwidthPriority priority) {
+        this.listener = listener;
+        this.limiter = limiter;
+        this.priority = priority;
+    }
+
+    /**
+     * Called when the entity starts being written.
+     */
+    void start() {
+        if (written > 0) {
+            publishRequestReset(listener, written);
+            written = 0;
+        }
+    }
+
+    /**
+     * Blocks until the upload budget allows writing the given number of bytes.
+     */
+    void beforeWrite(int bytes) {
+        if (limiter != null) {
+            limiter.acquireUpload(bytes, priority);
+        }
+    }
+
+    void afterWrite(int bytes) {
+        written += bytes;
+        publishRequestBytesTransferred(listener, bytes);
+    }
+}
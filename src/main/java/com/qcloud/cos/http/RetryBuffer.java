@@ -0,0 +1,144 @@
+package com.qcloud.cos.http;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.qcloud.cos.annotation.ThreadSafe;
+
+/**
+ * Keeps the content sent from the request streams which cannot be reset, once set with
+ * {@link com.qcloud.cos.ClientConfig#setRetryBuffer(RetryBuffer)}, so that the requests can be
+ * retried whatever the length of their content. Without it, such a stream is buffered up to the
+ * read limit of the client, and a request with a longer content cannot be retried.
+ * <p>
+ * The first bytes of a content, up to the memory threshold, are kept in chunks of
+ * {@link #CHUNK_SIZE} bytes taken from a pool shared by the requests; the rest is spilled to a
+ * temporary file. The chunks are given back and the file deleted when the request completes.
+ * </p>
+ */
+@ThreadSafe
+public class RetryBuffer {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+    public static final int DEFAULT_MAX_POOLED_BYTES = 16 * 1024 * 1024;
+
+    private final int memoryThreshold;
+    private final File spillDirectory;
+    private final int maxPooledChunks;
+    private final Queue<byte[]> pool = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger pooledChunks = new AtomicInteger();
+
+    private final AtomicLong bufferedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    /**
+     * Creates a buffer which keeps up to {@link #DEFAULT_MEMORY_THRESHOLD} bytes of each content
+     * in memory, pools up to {@link #DEFAULT_MAX_POOLED_BYTES} bytes of chunks, and spills to the
+     * temporary directory of the JVM.
+     */
+    public RetryBuffer() {
+        this(DEFAULT_MEMORY_THRESHOLD, DEFAULT_MAX_POOLED_BYTES,
+                new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param memoryThreshold the number of bytes of each content kept in memory.
+     * @param maxPooledBytes the number of bytes of the chunks kept in the pool while unused.
+     * @param spillDirectory where the temporary files of the longer contents are written.
+     */
+    public RetryBuffer(int memoryThreshold, int maxPooledBytes, File spillDirectory) {
+        if (memoryThreshold < 0) {
+            throw new IllegalArgumentException("invalid memoryThreshold: " + memoryThreshold);
+        }
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("invalid maxPooledBytes: " + maxPooledBytes);
+        }
+        if (spillDirectory == null) {
+            throw new IllegalArgumentException("spillDirectory must be specified");
+        }
+        this.memoryThreshold = memoryThreshold;
+        this.maxPooledChunks = maxPooledBytes / CHUNK_SIZE;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Returns the number of request contents buffered.
+     */
+    public long getBufferedCount() {
+        return bufferedCount.get();
+    }
+
+    /**
+     * Returns the number of request contents longer than the memory threshold, spilled to a file.
+     */
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * Returns the number of bytes written to the spill files.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    /**
+     * Returns the ratio of the buffered contents spilled to a file, or 0 if none was buffered.
+     */
+    public double getSpillRate() {
+        long buffered = bufferedCount.get();
+        return buffered == 0 ? 0 : (double) spilledCount.get() / buffered;
+    }
+
+    /**
+     * Returns a stream of the given content which can be reset to its mark at any time. The
+     * stream should be discarded once the request is complete.
+     */
+    RetryBufferInputStream newInputStream(InputStream content) {
+        bufferedCount.incrementAndGet();
+        return new RetryBufferInputStream(this, content);
+    }
+
+    byte[] borrowChunk() {
+        byte[] chunk = pool.poll();
+        if (chunk == null) {
+            return new byte[CHUNK_SIZE];
+        }
+        pooledChunks.decrementAndGet();
+        return chunk;
+    }
+
+    void returnChunk(byte[] chunk) {
+        if (pooledChunks.incrementAndGet() <= maxPooledChunks) {
+            pool.offer(chunk);
+        } else {
+            pooledChunks.decrementAndGet();
+        }
+    }
+
+    int getPooledChunks() {
+        return pooledChunks.get();
+    }
+
+    void recordSpill() {
+        spilledCount.incrementAndGet();
+    }
+
+    void recordSpilledBytes(long count) {
+        spilledBytes.addAndGet(count);
+    }
+}
@@ -0,0 +1,203 @@
+package com.qcloud.cos.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.internal.SdkInputStream;
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Keeps all the bytes read from a content, the first ones in chunks of a {@link RetryBuffer} and
+ * the rest in a temporary file, so that it can be reset to its mark whatever the read limit.
+ */
+class RetryBufferInputStream extends SdkInputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(RetryBufferInputStream.class);
+
+    private final RetryBuffer retryBuffer;
+    private final InputStream content;
+    private final List<byte[]> chunks = new ArrayList<byte[]>();
+    private long memoryLength;
+    private File spillFile;
+    private RandomAccessFile spill;
+    private long spillLength;
+    private long position;
+    private long mark;
+    private boolean eof;
+    private boolean discarded;
+
+    RetryBufferInputStream(RetryBuffer retryBuffer, InputStream content) {
+        this.retryBuffer = retryBuffer;
+        this.content = content;
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return content;
+    }
+
+    private long recordedLength() {
+        return memoryLength + spillLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (discarded) {
+            throw new IOException("The content of the request has been discarded");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n;
+        if (position < recordedLength()) {
+            n = readRecorded(b, off, (int) Math.min(len, recordedLength() - position));
+        } else {
+            if (eof) {
+                return -1;
+            }
+            n = content.read(b, off, len);
+            if (n == -1) {
+                eof = true;
+                return -1;
+            }
+            record(b, off, n);
+        }
+        position += n;
+        return n;
+    }
+
+    private int readRecorded(byte[] b, int off, int len) throws IOException {
+        if (position < memoryLength) {
+            byte[] chunk = chunks.get((int) (position / RetryBuffer.CHUNK_SIZE));
+            int chunkOffset = (int) (position % RetryBuffer.CHUNK_SIZE);
+            int n = (int) Math.min(Math.min(len, chunk.length - chunkOffset),
+                    memoryLength - position);
+            System.arraycopy(chunk, chunkOffset, b, off, n);
+            return n;
+        }
+        ByteBuffer dst = ByteBuffer.wrap(b, off, len);
+        FileChannel channel = spill.getChannel();
+        while (dst.hasRemaining()) {
+            if (channel.read(dst, position - memoryLength + dst.position() - off) == -1) {
+                throw new IOException("Unexpected end of the spill file " + spillFile);
+            }
+        }
+        return len;
+    }
+
+    private void record(byte[] b, int off, int len) throws IOException {
+        int inMemory = (int) Math.min(len, retryBuffer.getMemoryThreshold() - memoryLength);
+        for (int copied = 0; copied < inMemory;) {
+            int chunkOffset = (int) (memoryLength % RetryBuffer.CHUNK_SIZE);
+            if (chunkOffset == 0) {
+                chunks.add(retryBuffer.borrowChunk());
+            }
+            int n = Math.min(inMemory - copied, RetryBuffer.CHUNK_SIZE - chunkOffset);
+            System.arraycopy(b, off + copied, chunks.get(chunks.size() - 1), chunkOffset, n);
+            copied += n;
+            memoryLength += n;
+        }
+        if (inMemory < len) {
+            if (spill == null) {
+                openSpill();
+            }
+            ByteBuffer src = ByteBuffer.wrap(b, off + inMemory, len - inMemory);
+            FileChannel channel = spill.getChannel();
+            while (src.hasRemaining()) {
+                spillLength += channel.write(src, spillLength);
+            }
+            retryBuffer.recordSpilledBytes(len - inMemory);
+        }
+    }
+
+    private void openSpill() throws IOException {
+        spillFile = File.createTempFile("cos_retry_", ".tmp", retryBuffer.getSpillDirectory());
+        spill = new RandomAccessFile(spillFile, "rw");
+        retryBuffer.recordSpill();
+        if (log.isDebugEnabled()) {
+            log.debug("spilling request content past " + memoryLength + " bytes to " + spillFile);
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position; the read limit is ignored, since all the bytes read are kept.
+     */
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        mark = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        if (discarded) {
+            throw new IOException("The content of the request has been discarded");
+        }
+        position = mark;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        if (position < recordedLength()) {
+            return (int) Math.min(Integer.MAX_VALUE, recordedLength() - position);
+        }
+        return eof ? 0 : content.available();
+    }
+
+    /**
+     * Gives the chunks back to the pool and deletes the spill file, without closing the content.
+     */
+    void discard() {
+        if (discarded) {
+            return;
+        }
+        discarded = true;
+        for (byte[] chunk : chunks) {
+            retryBuffer.returnChunk(chunk);
+        }
+        chunks.clear();
+        if (spill != null) {
+            IOUtils.closeQuietly(spill, null);
+            if (!spillFile.delete()) {
+                log.warn("unable to delete the spill file " + spillFile);
+            }
+            spill = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        discard();
+        content.close();
+    }
+
+    @Override
+    public void release() {
+        discard();
+        IOUtils.release(content, null);
+    }
+}
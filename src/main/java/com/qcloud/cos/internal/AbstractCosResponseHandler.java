@@ -104,14 +104,14 @@ public abstract class AbstractCosResponseHandler<T>
                 }
             } else if (key.equalsIgnoreCase(Headers.CONTENT_LENGTH)) {
                 try {
-                    metadata.setHeader(key, Long.parseLong(header.getValue()));
+                    metadata.setHeader(Headers.CONTENT_LENGTH, Long.parseLong(header.getValue()));
                 } catch (NumberFormatException nfe) {
                     log.warn("Unable to parse content length: " + header.getValue(), nfe);
                 }
             } else if (key.equalsIgnoreCase(Headers.DELETE_MARKER)) {
                 metadata.setDeleteMarker(Boolean.parseBoolean(header.getValue()));
             } else if (key.equalsIgnoreCase(Headers.ETAG)) {
-                metadata.setHeader(key, StringUtils.removeQuotes(header.getValue()));
+                metadata.setHeader(Headers.ETAG, StringUtils.removeQuotes(header.getValue()));
             } else if (key.equalsIgnoreCase(Headers.EXPIRES)) {
                 try {
                     metadata.setHttpExpiresDate(DateUtils.parseRFC822Date(header.getValue()));
@@ -0,0 +1,83 @@
+package com.qcloud.cos.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.qcloud.cos.http.BandwidthLimiter;
+import com.qcloud.cos.http.BandwidthPriority;
+
+/**
+ * Input stream that charges every byte read against a shared {@link BandwidthLimiter}. The data
+ * is passed through without any extra copy, mark and reset are delegated to the wrapped stream so
+ * retries keep working.
+ */
+public class BandwidthLimitedInputStream extends SdkFilterInputStream {
+
+    private final BandwidthLimiter limiter;
+    private final BandwidthPriority priority;
+    private final boolean upload;
+
+    private BandwidthLimitedInputStream(InputStream in, BandwidthLimiter limiter,
+            BandwidthPriority priority, boolean upload) {
+        super(in);
+        this.limiter = limiter;
+        this.priority = priority;
+        this.upload = upload;
+    }
+
+    /**
+     * Returns the given request content limited by the upload budget, or the content as is if no
+     * limiter is configured.
+     */
+    public static InputStream inputStreamForRequest(InputStream is, BandwidthLimiter limiter,
+            BandwidthPriority priority) {
+        return (is == null || limiter == null) ? is
+                : new BandwidthLimitedInputStream(is, limiter, priority, true);
+    }
+
+    /**
+     * Returns the given response content limited by the download budget, or the content as is if
+     * no limiter is configured.
+     */
+    public static InputStream inputStreamForResponse(InputStream is, BandwidthLimiter limiter,
+            BandwidthPriority priority) {
+        return (is == null || limiter == null) ? is
+                : new BandwidthLimitedInputStream(is, limiter, priority, false);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int ch = super.read();
+        if (ch != -1) {
+            acquire(1);
+        }
+        return ch;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int bytesRead = super.read(b, off, len);
+        if (bytesRead > 0) {
+            acquire(bytesRead);
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0 && !upload) {
+            // skipped response bytes still go through the network
+            acquire(skipped);
+        }
+        return skipped;
+    }
+
+    private void acquire(long bytes) {
+        if (upload) {
+            limiter.acquireUpload(bytes, priority);
+        } else {
+            limiter.acquireDownload(bytes, priority);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.qcloud.cos.internal;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Content of a request held in a byte array. The content can be read again from the start any
+ * number of times, so the client sends it as a repeatable entity straight from the array, without
+ * the buffering and length checking wrappers a stream of unknown origin needs.
+ */
+public class ByteArrayContentInputStream extends ByteArrayInputStream {
+
+    private final int offset;
+    private final int length;
+
+    public ByteArrayContentInputStream(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    public ByteArrayContentInputStream(byte[] buf, int offset, int length) {
+        super(buf, offset, length);
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the array holding the content, which is not copied.
+     */
+    public byte[] getArray() {
+        return buf;
+    }
+
+    /**
+     * Returns the offset of the content in the array.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the length of the content.
+     */
+    public int getLength() {
+        return length;
+    }
+}
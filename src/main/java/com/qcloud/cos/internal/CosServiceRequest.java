@@ -26,6 +26,7 @@ import java.util.Map;
 
 import com.qcloud.cos.auth.COSCredentials;
 import com.qcloud.cos.event.ProgressListener;
+import com.qcloud.cos.http.BandwidthPriority;
 
 public class CosServiceRequest implements Cloneable, ReadLimitInfo {
 
@@ -53,6 +54,11 @@ public class CosServiceRequest implements Cloneable, ReadLimitInfo {
      */
     private Map<String, List<String>> customQueryParameters;
 
+    /**
+     * The priority of this request when a client side bandwidth limiter is configured.
+     */
+    private BandwidthPriority bandwidthPriority = BandwidthPriority.NORMAL;
+
     private final RequestClientOptions requestClientOptions = new RequestClientOptions();
 
     /**
@@ -98,6 +104,25 @@ public class CosServiceRequest implements Cloneable, ReadLimitInfo {
         return fixedEndpointAddr;
     }
 
+    /**
+     * Returns the priority of this request when a client side bandwidth limiter is configured.
+     */
+    public BandwidthPriority getBandwidthPriority() {
+        return bandwidthPriority;
+    }
+
+    /**
+     * Sets the priority of this request when a client side bandwidth limiter is configured.
+     * Requests of a lower priority only consume the shared bandwidth budget when no request of a
+     * higher priority is waiting for it.
+     *
+     * @param bandwidthPriority the bandwidth priority of this request
+     */
+    public void setBandwidthPriority(BandwidthPriority bandwidthPriority) {
+        this.bandwidthPriority =
+                bandwidthPriority == null ? BandwidthPriority.NORMAL : bandwidthPriority;
+    }
+
     /**
      * Sets the optional progress listener for receiving updates about the progress of the request,
      * and returns a reference to this object so that method calls can be chained together.
@@ -209,6 +234,7 @@ public class CosServiceRequest implements Cloneable, ReadLimitInfo {
             }
         }
         target.setGeneralProgressListener(progressListener);
+        target.setBandwidthPriority(bandwidthPriority);
         requestClientOptions.copyTo(target.getRequestClientOptions());
         return target;
     }
@@ -0,0 +1,82 @@
+package com.qcloud.cos.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The destination of downloaded content, written at given positions. Writes to disjoint regions
+ * may run concurrently from several threads, with no lock around them, so the ranges of an object
+ * can be downloaded in parallel into one file.
+ *
+ * @see FileChannelDownloadSink
+ * @see MappedFileDownloadSink
+ */
+public abstract class DownloadSink implements Closeable {
+
+    /**
+     * The size of the buffer the content of a stream is copied through.
+     */
+    public static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Writes the remaining bytes of the buffer at the given position, advancing the position of
+     * the buffer to its limit.
+     *
+     * @throws IOException if the bytes cannot be written.
+     */
+    public abstract void write(ByteBuffer src, long position) throws IOException;
+
+    /**
+     * Writes the content of the stream, until its end, from the given position. The content is
+     * copied through a buffer of {@link #BUFFER_SIZE} bytes, which is only written once full or
+     * at the end of the stream.
+     *
+     * @return the number of bytes written.
+     * @throws IOException if the stream cannot be read or the bytes cannot be written.
+     */
+    public long write(InputStream content, long position) throws IOException {
+        return write(content, position, -1);
+    }
+
+    /**
+     * Writes the content of the stream, until its end, from the given position. The content is
+     * copied through a buffer of {@link #BUFFER_SIZE} bytes at most, or of the length of the
+     * content if known and shorter, so that a small download does not allocate a large buffer.
+     *
+     * @param contentLength the expected length of the content, or -1 if unknown.
+     * @return the number of bytes written.
+     * @throws IOException if the stream cannot be read or the bytes cannot be written.
+     */
+    public long write(InputStream content, long position, long contentLength)
+            throws IOException {
+        byte[] buffer = new byte[bufferSize(contentLength)];
+        long written = 0;
+        int filled = 0;
+        int n;
+        while ((n = content.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += n;
+            if (filled == buffer.length) {
+                write(ByteBuffer.wrap(buffer), position + written);
+                written += filled;
+                filled = 0;
+            }
+        }
+        if (filled > 0) {
+            write(ByteBuffer.wrap(buffer, 0, filled), position + written);
+            written += filled;
+        }
+        return written;
+    }
+
+    /**
+     * Returns the size of a buffer for content of the given length, or of unknown length if -1.
+     */
+    static int bufferSize(long contentLength) {
+        if (contentLength < 0) {
+            return BUFFER_SIZE;
+        }
+        return (int) Math.max(1, Math.min(contentLength, BUFFER_SIZE));
+    }
+}
@@ -0,0 +1,50 @@
+package com.qcloud.cos.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Writes downloaded content to a file with positional writes of a {@link FileChannel}.
+ */
+public class FileChannelDownloadSink extends DownloadSink {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    /**
+     * Opens the given file, creating it if needed.
+     *
+     * @param length the length to set the file to, which allocates the space of the content
+     *         before it is written; or -1 to leave the file as is, when appending to it.
+     * @throws IOException if the file cannot be opened or set to the length.
+     */
+    public FileChannelDownloadSink(File file, long length) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        try {
+            if (length >= 0) {
+                this.file.setLength(length);
+            }
+        } catch (IOException e) {
+            IOUtils.closeQuietly(this.file, null);
+            throw e;
+        }
+        this.channel = this.file.getChannel();
+    }
+
+    @Override
+    public void write(ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
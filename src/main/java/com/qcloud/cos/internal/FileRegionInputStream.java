@@ -0,0 +1,265 @@
+package com.qcloud.cos.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * A region of a file read with positional reads. Regions of the same file opened at the same time
+ * share one file channel, so the parts of a file can be uploaded concurrently with a single file
+ * handle, and a region can be read again from its start on a retry without any mark and reset of
+ * the channel. The client sends a region as a repeatable entity straight from the channel.
+ */
+public class FileRegionInputStream extends SdkInputStream {
+
+    /**
+     * The channels of the files that have regions open, by absolute file.
+     */
+    private static final Map<File, SharedChannel> sharedChannels =
+            new HashMap<File, SharedChannel>();
+
+    private static class SharedChannel {
+        final File file;
+        volatile FileChannel channel;
+        int regions;
+
+        SharedChannel(File file) throws IOException {
+            this.file = file;
+            this.channel = new RandomAccessFile(file, "r").getChannel();
+        }
+
+        /**
+         * Opens the file again if the given channel was closed by the interrupt of a thread
+         * reading another region.
+         */
+        synchronized FileChannel reopen(FileChannel closed) throws IOException {
+            if (channel == closed && !closed.isOpen()) {
+                channel = new RandomAccessFile(file, "r").getChannel();
+            }
+            return channel;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+    /**
+     * The shared channel released by {@link #release()}, null if the channel is not owned.
+     */
+    private SharedChannel shared;
+    private long position;
+    private long markedPosition;
+    private volatile boolean md5Calculated;
+    private volatile byte[] md5Digest;
+
+    /**
+     * Opens a region of the given file, sharing the channel of the file with the other regions of
+     * it open.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public static FileRegionInputStream open(File file, long offset, long length)
+            throws IOException {
+        File key = file.getAbsoluteFile();
+        SharedChannel shared;
+        synchronized (sharedChannels) {
+            shared = sharedChannels.get(key);
+            if (shared == null) {
+                shared = new SharedChannel(key);
+                sharedChannels.put(key, shared);
+            }
+            shared.regions++;
+        }
+        FileRegionInputStream region = new FileRegionInputStream(shared.channel, offset, length);
+        region.shared = shared;
+        return region;
+    }
+
+    /**
+     * Reads a region of the given channel, which is left open on release.
+     */
+    public FileRegionInputStream(FileChannel channel, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid file region: offset " + offset + ", length " + length);
+        }
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public FileChannel getChannel() {
+        return shared == null ? channel : shared.channel;
+    }
+
+    /**
+     * Returns the offset of the region in the file.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the length of the region.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns whether the client calculates the MD5 of the region while it sends it.
+     */
+    public boolean isMd5Calculated() {
+        return md5Calculated;
+    }
+
+    /**
+     * Sets whether the client calculates the MD5 of the region while it sends it, to be read
+     * back with {@link #getMd5Digest()} once sent, instead of reading the region once more
+     * beforehand.
+     */
+    public void setMd5Calculated(boolean md5Calculated) {
+        this.md5Calculated = md5Calculated;
+    }
+
+    /**
+     * Returns the MD5 of the region as last sent in full by the client, or null if it is not
+     * calculated or the region has not been sent in full.
+     */
+    public byte[] getMd5Digest() {
+        return md5Digest;
+    }
+
+    public void setMd5Digest(byte[] md5Digest) {
+        this.md5Digest = md5Digest;
+    }
+
+    /**
+     * Reads the region from the given offset into the buffer, until the buffer or the region is
+     * full, without changing the position of this stream. Returns the number of bytes read.
+     *
+     * @throws IOException if the file ends before the region.
+     */
+    public int read(long regionOffset, ByteBuffer buffer) throws IOException {
+        abortIfNeeded();
+        int limit = buffer.limit();
+        if (buffer.remaining() > length - regionOffset) {
+            buffer.limit(buffer.position() + (int) (length - regionOffset));
+        }
+        int read = 0;
+        FileChannel channel = getChannel();
+        try {
+            while (buffer.hasRemaining()) {
+                int count;
+                try {
+                    count = channel.read(buffer, offset + regionOffset + read);
+                } catch (ClosedChannelException e) {
+                    if (shared == null || e instanceof ClosedByInterruptException) {
+                        throw e;
+                    }
+                    channel = shared.reopen(channel);
+                    continue;
+                }
+                if (count < 0) {
+                    throw new IOException("The file ended at " + (offset + regionOffset + read)
+                            + ", before the end of the region at " + (offset + length));
+                }
+                read += count;
+            }
+        } finally {
+            buffer.limit(limit);
+        }
+        return read;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int read = read(position, ByteBuffer.wrap(b, off, len));
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        markedPosition = position;
+    }
+
+    @Override
+    public void reset() {
+        position = markedPosition;
+    }
+
+    /**
+     * Does nothing, so that the region can be read again after a connection that sent it closes
+     * it; a region opened on a file is only closed by {@link #release()}.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Releases the shared channel of the region, closing it if no other region of the file is
+     * open.
+     */
+    @Override
+    public void release() {
+        SharedChannel released;
+        synchronized (this) {
+            released = shared;
+            shared = null;
+        }
+        if (released == null) {
+            return;
+        }
+        synchronized (sharedChannels) {
+            if (--released.regions > 0) {
+                return;
+            }
+            sharedChannels.remove(released.file);
+        }
+        IOUtils.closeQuietly(released.channel, null);
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return null;
+    }
+}
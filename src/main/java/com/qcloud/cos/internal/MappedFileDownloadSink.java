@@ -0,0 +1,90 @@
+package com.qcloud.cos.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Writes downloaded content into a file of a known length mapped in memory, which copies the
+ * content into the page cache with no system call per write. The file is mapped in windows of
+ * {@link #WINDOW_SIZE} bytes as they are first written; a mapping is only released once garbage
+ * collected, so this sink suits large files on 64-bit systems. No download path of the client
+ * uses it, it is for callers writing ranges into a file themselves.
+ */
+public class MappedFileDownloadSink extends DownloadSink {
+
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long length;
+    private final AtomicReferenceArray<MappedByteBuffer> windows;
+
+    /**
+     * Opens the given file, creating it if needed, and sets it to the given length, out of which
+     * nothing can be written.
+     *
+     * @throws IOException if the file cannot be opened or set to the length.
+     */
+    public MappedFileDownloadSink(File file, long length) throws IOException {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative: " + length);
+        }
+        this.file = new RandomAccessFile(file, "rw");
+        try {
+            this.file.setLength(length);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(this.file, null);
+            throw e;
+        }
+        this.channel = this.file.getChannel();
+        this.length = length;
+        this.windows = new AtomicReferenceArray<MappedByteBuffer>(
+                (int) ((length + WINDOW_SIZE - 1) / WINDOW_SIZE));
+    }
+
+    private MappedByteBuffer window(int index) throws IOException {
+        MappedByteBuffer window = windows.get(index);
+        if (window == null) {
+            long start = (long) index * WINDOW_SIZE;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                    Math.min(WINDOW_SIZE, length - start));
+            if (!windows.compareAndSet(index, null, window)) {
+                window = windows.get(index);
+            }
+        }
+        return window;
+    }
+
+    @Override
+    public void write(ByteBuffer src, long position) throws IOException {
+        if (position < 0 || position + src.remaining() > length) {
+            throw new IOException("Unable to write " + src.remaining() + " bytes at " + position
+                    + " past the length " + length + " of the mapped file");
+        }
+        while (src.hasRemaining()) {
+            ByteBuffer window = window((int) (position / WINDOW_SIZE)).duplicate();
+            window.position((int) (position % WINDOW_SIZE));
+            int count = Math.min(src.remaining(), window.remaining());
+            ByteBuffer chunk = src.duplicate();
+            chunk.limit(chunk.position() + count);
+            window.put(chunk);
+            src.position(src.position() + count);
+            position += count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < windows.length(); ++i) {
+            windows.set(i, null);
+        }
+        file.close();
+    }
+}
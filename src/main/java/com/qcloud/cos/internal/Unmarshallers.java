@@ -29,6 +29,7 @@ import com.qcloud.cos.model.MultipartUploadListing;
 import com.qcloud.cos.model.SetBucketInventoryConfigurationResult;
 import com.qcloud.cos.model.BucketTaggingConfiguration;
 import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.CompactObjectListing;
 import com.qcloud.cos.model.VersionListing;
 import com.qcloud.cos.model.PartListing;
 import com.qcloud.cos.model.ListBucketInventoryConfigurationsResult;
@@ -106,6 +107,25 @@ public class Unmarshallers {
         }
     }
 
+    /**
+     * Unmarshaller for the ListObjects XML response into a compact listing.
+     */
+    public static final class CompactListObjectsUnmarshaller
+            implements Unmarshaller<CompactObjectListing, InputStream> {
+
+        private final boolean shouldSDKDecodeResponse;
+
+        public CompactListObjectsUnmarshaller(final boolean shouldSDKDecodeResponse) {
+            this.shouldSDKDecodeResponse = shouldSDKDecodeResponse;
+        }
+
+        public CompactObjectListing unmarshall(InputStream in) throws Exception {
+            return new XmlResponsesSaxParser()
+                    .parseCompactListBucketObjectsResponse(in, shouldSDKDecodeResponse)
+                    .getObjectListing();
+        }
+    }
+
     /**
      * Unmarshaller for the ListVersions XML response.
      */
@@ -69,6 +69,7 @@ import com.qcloud.cos.model.CORSRule;
 import com.qcloud.cos.model.CORSRule.AllowedMethods;
 import com.qcloud.cos.model.COSObjectSummary;
 import com.qcloud.cos.model.COSVersionSummary;
+import com.qcloud.cos.model.CompactObjectListing;
 import com.qcloud.cos.model.CompleteMultipartUploadResult;
 import com.qcloud.cos.model.CopyObjectResult;
 import com.qcloud.cos.model.DeleteObjectsResult.DeletedObject;
@@ -318,6 +319,21 @@ public class XmlResponsesSaxParser {
         return handler;
     }
 
+    /**
+     * Parses a ListBucket response XML document into a {@link CompactObjectListing}.
+     *
+     * @param inputStream XML data input stream.
+     * @param shouldSDKDecodeResponse
+     * @return the XML handler object populated with data parsed from the XML stream.
+     * @throws CosClientException
+     */
+    public CompactListBucketHandler parseCompactListBucketObjectsResponse(
+            InputStream inputStream, final boolean shouldSDKDecodeResponse) throws IOException {
+        CompactListBucketHandler handler = new CompactListBucketHandler(shouldSDKDecodeResponse);
+        parseXmlInputStream(handler, sanitizeXmlDocument(handler, inputStream));
+        return handler;
+    }
+
 
     /**
      * Parses a ListVersions response XML document from an input stream.
@@ -792,6 +808,142 @@ public class XmlResponsesSaxParser {
 
     }
 
+    /**
+     * Handler for ListBucket response XML documents which fills a {@link CompactObjectListing}
+     * rather than creating a {@link COSObjectSummary} and an {@link Owner} per object.
+     */
+    public static class CompactListBucketHandler extends AbstractHandler {
+
+        private final CompactObjectListing objectListing = new CompactObjectListing();
+        private final boolean shouldSDKDecodeResponse;
+
+        private String key;
+        private long size;
+        private long lastModified;
+        private String eTag;
+        private String storageClass;
+        private String ownerId;
+        private String ownerDisplayName;
+        private Owner lastOwner;
+
+        public CompactListBucketHandler(final boolean shouldSDKDecodeResponse) {
+            this.shouldSDKDecodeResponse = shouldSDKDecodeResponse;
+        }
+
+        public CompactObjectListing getObjectListing() {
+            return objectListing;
+        }
+
+        @Override
+        protected void doStartElement(String uri, String name, String qName, Attributes attrs) {
+            if (in("ListBucketResult") && name.equals("Contents")) {
+                key = null;
+                size = 0;
+                lastModified = -1;
+                eTag = null;
+                storageClass = null;
+                ownerId = null;
+                ownerDisplayName = null;
+            }
+        }
+
+        @Override
+        protected void doEndElement(String uri, String name, String qName) {
+            if (atTopLevel()) {
+                if (name.equals("ListBucketResult")) {
+                    // as ListBucketHandler, always give access to the next marker
+                    if (objectListing.isTruncated() && objectListing.getNextMarker() == null) {
+                        if (objectListing.size() > 0) {
+                            objectListing.setNextMarker(objectListing.getLastKey());
+                        } else if (!objectListing.getCommonPrefixes().isEmpty()) {
+                            objectListing.setNextMarker(objectListing.getCommonPrefixes()
+                                    .get(objectListing.getCommonPrefixes().size() - 1));
+                        } else {
+                            log.error("COS response indicates truncated results, "
+                                    + "but contains no object summaries or common prefixes.");
+                        }
+                    }
+                }
+            } else if (in("ListBucketResult")) {
+                if (name.equals("Name")) {
+                    objectListing.setBucketName(getText());
+                } else if (name.equals("Prefix")) {
+                    objectListing.setPrefix(decodeIfSpecified(checkForEmptyString(getText()),
+                            shouldSDKDecodeResponse));
+                } else if (name.equals("Marker")) {
+                    objectListing.setMarker(decodeIfSpecified(checkForEmptyString(getText()),
+                            shouldSDKDecodeResponse));
+                } else if (name.equals("NextMarker")) {
+                    objectListing
+                            .setNextMarker(decodeIfSpecified(getText(), shouldSDKDecodeResponse));
+                } else if (name.equals("MaxKeys")) {
+                    objectListing.setMaxKeys(parseInt(getText()));
+                } else if (name.equals("Delimiter")) {
+                    objectListing.setDelimiter(decodeIfSpecified(checkForEmptyString(getText()),
+                            shouldSDKDecodeResponse));
+                } else if (name.equals("EncodingType")) {
+                    objectListing.setEncodingType(
+                            shouldSDKDecodeResponse ? null : checkForEmptyString(getText()));
+                } else if (name.equals("IsTruncated")) {
+                    String isTruncatedStr = getText();
+                    if (isTruncatedStr.startsWith("false")) {
+                        objectListing.setTruncated(false);
+                    } else if (isTruncatedStr.startsWith("true")) {
+                        objectListing.setTruncated(true);
+                    } else {
+                        throw new IllegalStateException(
+                                "Invalid value for IsTruncated field: " + isTruncatedStr);
+                    }
+                } else if (name.equals("Contents")) {
+                    objectListing.addObject(key, size, lastModified, eTag, storageClass,
+                            owner());
+                }
+            } else if (in("ListBucketResult", "Contents")) {
+                if (name.equals("Key")) {
+                    key = decodeIfSpecified(getText(), shouldSDKDecodeResponse);
+                } else if (name.equals("LastModified")) {
+                    lastModified = DateUtils.parseISO8601DateMillis(getText());
+                } else if (name.equals("ETag")) {
+                    eTag = StringUtils.removeQuotes(getText());
+                } else if (name.equals("Size")) {
+                    size = parseLong(getText());
+                } else if (name.equals("StorageClass")) {
+                    storageClass = getText();
+                }
+            } else if (in("ListBucketResult", "Contents", "Owner")) {
+                if (name.equals("ID")) {
+                    ownerId = getText();
+                } else if (name.equals("DisplayName")) {
+                    ownerDisplayName = getText();
+                }
+            } else if (in("ListBucketResult", "CommonPrefixes")) {
+                if (name.equals("Prefix")) {
+                    objectListing.getCommonPrefixes()
+                            .add(decodeIfSpecified(getText(), shouldSDKDecodeResponse));
+                }
+            }
+        }
+
+        /**
+         * Returns the owner of the current object, the same instance as the previous object's if
+         * they have the same owner.
+         */
+        private Owner owner() {
+            if (ownerId == null && ownerDisplayName == null) {
+                return null;
+            }
+            if (lastOwner == null || !equals(lastOwner.getId(), ownerId)
+                    || !equals(lastOwner.getDisplayName(), ownerDisplayName)) {
+                lastOwner = new Owner(ownerId, ownerDisplayName);
+            }
+            return lastOwner;
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
     /**
      * Handler for ListAllMyBuckets response XML documents. The document is parsed into
      * {@link Bucket}s available via the {@link #getBuckets()} method.
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import com.qcloud.cos.auth.COSCredentialsProvider;
 import com.qcloud.cos.exception.CosClientException;
@@ -49,6 +50,9 @@ public class COSCryptoModuleAE extends COSCryptoModuleBase {
         CryptoRuntime.enableBouncyCastle();
     }
 
+    // guarded by this
+    private ExecutorService parallelDownloadExecutor;
+
     public COSCryptoModuleAE(COSDirect cos, COSCredentialsProvider credentialsProvider,
             EncryptionMaterialsProvider kekMaterialsProvider, CryptoConfiguration cryptoConfig) {
         this(null, cos, credentialsProvider, kekMaterialsProvider, cryptoConfig);
@@ -60,6 +64,18 @@ public class COSCryptoModuleAE extends COSCryptoModuleBase {
         super(kms, cos, credentialsProvider, kekMaterialsProvider, cryptoConfig);
     }
 
+    /**
+     * Returns the executor of the ranges of the parallel downloads, shared by all the downloads
+     * of this module and created on the first one.
+     */
+    private synchronized ExecutorService parallelDownloadExecutor() {
+        if (parallelDownloadExecutor == null) {
+            parallelDownloadExecutor = ParallelObjectDecryptor
+                    .newExecutor(Math.max(1, cryptoConfig.getParallelDownloadThreads()));
+        }
+        return parallelDownloadExecutor;
+    }
+
     /**
      * Returns true if a strict encryption mode is in use in the current crypto module; false
      * otherwise.
@@ -275,6 +291,87 @@ public class COSCryptoModuleAE extends COSCryptoModuleBase {
         assertParameterNotNull(destinationFile,
                 "The destination file parameter must be specified when downloading an object directly to a file");
 
+        if (cryptoConfig.getParallelDownloadThreads() > 1 && getObjectRequest.getRange() == null
+                && instructionFileSuffixOf(getObjectRequest) == null) {
+            return getObjectInParallelSecurely(getObjectRequest, destinationFile);
+        }
+        return getObjectSerially(getObjectRequest, destinationFile);
+    }
+
+    private static String instructionFileSuffixOf(GetObjectRequest req) {
+        if (req instanceof EncryptedGetObjectRequest) {
+            String suffix = ((EncryptedGetObjectRequest) req).getInstructionFileSuffix();
+            if (suffix != null && !suffix.trim().isEmpty()) {
+                return suffix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Downloads an object encrypted with AES/GCM as concurrent ranges, each decrypted at its own
+     * offset, the tag of the whole object being verified once all the ranges are written. Falls
+     * back to {@link #getObjectSerially(GetObjectRequest, File)} for objects encrypted otherwise.
+     */
+    private ObjectMetadata getObjectInParallelSecurely(GetObjectRequest req,
+            File destinationFile) {
+        long partSize =
+                ParallelObjectDecryptor.alignPartSize(cryptoConfig.getParallelDownloadPartSize());
+        GetObjectRequest firstReq = (GetObjectRequest) req.clone();
+        firstReq.setRange(0, partSize - 1);
+        COSObject first = cos.getObject(firstReq);
+        // getObject can return null if constraints were specified but not met
+        if (first == null) {
+            return null;
+        }
+        ParallelObjectDecryptor decryptor;
+        try {
+            COSObjectWrapper wrapped = new COSObjectWrapper(first, req.getCOSObjectId());
+            ContentCryptoMaterial cekMaterial = null;
+            boolean keyWrapExpected = isStrict();
+            if (req instanceof EncryptedGetObjectRequest && !keyWrapExpected) {
+                keyWrapExpected = ((EncryptedGetObjectRequest) req).isKeyWrapExpected();
+            }
+            if (wrapped.hasEncryptionInfo()) {
+                cekMaterial = ContentCryptoMaterial.fromObjectMetadata(first.getObjectMetadata(),
+                        kekMaterialsProvider, cryptoConfig.getCryptoProvider(), null,
+                        keyWrapExpected, kms);
+            } else {
+                COSObjectWrapper ifile = fetchInstructionFile(req.getCOSObjectId(), null);
+                if (ifile != null) {
+                    try {
+                        @SuppressWarnings("unchecked")
+                        Map<String, String> matdesc = Collections.unmodifiableMap(
+                                Jackson.fromJsonString(ifile.toJsonString(), Map.class));
+                        cekMaterial = ContentCryptoMaterial.fromInstructionFile(matdesc,
+                                kekMaterialsProvider, cryptoConfig.getCryptoProvider(), null,
+                                keyWrapExpected, kms);
+                    } finally {
+                        IOUtils.closeQuietly(ifile, log);
+                    }
+                }
+            }
+            if (cekMaterial == null
+                    || cekMaterial.getContentCryptoScheme() != ContentCryptoScheme.AES_GCM
+                    || cekMaterial.getCipherLite().getIV().length != 12) {
+                IOUtils.closeQuietly(first, log);
+                return getObjectSerially(req, destinationFile);
+            }
+            securityCheck(cekMaterial, wrapped);
+            decryptor = new ParallelObjectDecryptor(cos, cekMaterial,
+                    cryptoConfig.getCryptoProvider(), parallelDownloadExecutor(), partSize);
+        } catch (RuntimeException ex) {
+            IOUtils.closeQuietly(first, log);
+            throw ex;
+        } catch (Error error) {
+            IOUtils.closeQuietly(first, log);
+            throw error;
+        }
+        return decryptor.download(req, first, destinationFile);
+    }
+
+    private ObjectMetadata getObjectSerially(GetObjectRequest getObjectRequest,
+            File destinationFile) {
         COSObject cosObject = getObjectSecurely(getObjectRequest);
         // getObject can return null if constraints were specified but not met
         if (cosObject == null) {
@@ -309,6 +406,10 @@ public class COSCryptoModuleAE extends COSCryptoModuleBase {
     @Override
     final MultipartUploadCryptoContext newUploadContext(InitiateMultipartUploadRequest req,
             ContentCryptoMaterial cekMaterial) {
+        if (cryptoConfig.isParallelMultipartUpload()) {
+            return new ParallelMultipartUploadCryptoContext(req.getBucketName(), req.getKey(),
+                    cekMaterial, cryptoConfig.getCryptoProvider());
+        }
         return new MultipartUploadCryptoContext(req.getBucketName(), req.getKey(), cekMaterial);
     }
 
@@ -30,6 +30,7 @@ import java.util.Map;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,7 +83,7 @@ import static com.qcloud.cos.utils.StringUtils.UTF8;
 public abstract class COSCryptoModuleBase extends COSCryptoModule {
 
     private static final boolean IS_MULTI_PART = true;
-    protected static final int DEFAULT_BUFFER_SIZE = 1024 * 2; // 2K
+    protected static final int DEFAULT_BUFFER_SIZE = 1024 * 64; // 64K
     protected final EncryptionMaterialsProvider kekMaterialsProvider;
     protected final Logger log = LoggerFactory.getLogger(getClass());
     protected final COSCryptoScheme cryptoScheme;
@@ -115,7 +116,8 @@ public abstract class COSCryptoModuleBase extends COSCryptoModule {
         this.cryptoConfig = cryptoConfig;
         this.cryptoScheme = COSCryptoScheme.from(cryptoConfig.getCryptoMode());
         this.contentCryptoScheme = cryptoScheme.getContentCryptoScheme();
-        this.kms = kms;
+        this.kms = kms == null || cryptoConfig.getDataKeyCache() == null ? kms
+                : new CachingQCLOUDKMS(kms, cryptoConfig.getDataKeyCache());
     }
 
     /**
@@ -255,7 +257,9 @@ public abstract class COSCryptoModuleBase extends COSCryptoModule {
      * <b>NOTE:</b> Because the encryption process requires context from previous blocks, parts
      * uploaded with the COSEncryptionClient (as opposed to the normal COSClient) must be
      * uploaded serially, and in order. Otherwise, the previous encryption context isn't available
-     * to use when encrypting the current part.
+     * to use when encrypting the current part. With
+     * {@link CryptoConfiguration#setParallelMultipartUpload(boolean)}, every part is encrypted from
+     * its own offset instead and the parts can be uploaded concurrently.
      */
     @Override
     public UploadPartResult uploadPartSecurely(UploadPartRequest req) {
@@ -275,6 +279,10 @@ public abstract class COSCryptoModuleBase extends COSCryptoModule {
             throw new CosClientException(
                     "No client-side information available on upload ID " + uploadId);
         }
+        if (uploadContext instanceof ParallelMultipartUploadCryptoContext) {
+            return uploadPartInParallelSecurely(req,
+                    (ParallelMultipartUploadCryptoContext) uploadContext);
+        }
         final UploadPartResult result;
         // Checks the parts are uploaded in series
         uploadContext.beginPartUpload(req.getPartNumber());
@@ -317,6 +325,78 @@ public abstract class COSCryptoModuleBase extends COSCryptoModule {
         return result;
     }
 
+    /**
+     * Uploads a part of an upload whose parts are encrypted independently. The part is encrypted
+     * with AES/CTR at its offset in the object and its ciphertext hashed on the fly; the last part
+     * waits for all the preceding parts and carries the GCM tag of the whole object.
+     */
+    private UploadPartResult uploadPartInParallelSecurely(UploadPartRequest req,
+            ParallelMultipartUploadCryptoContext uploadContext) {
+        final boolean isLastPart = req.isLastPart();
+        final int partNumber = req.getPartNumber();
+        if (isLastPart && uploadContext.hasFinalPartBeenSeen()) {
+            throw new CosClientException(
+                    "This part was specified as the last part in a multipart upload, but a previous part was already marked as the last part.  "
+                            + "Only the last part of the upload should be marked as the last part.");
+        }
+        final long[] precedingHash;
+        final long plaintextOffset;
+        if (isLastPart) {
+            precedingHash = uploadContext.awaitPrecedingParts(partNumber);
+            plaintextOffset = uploadContext.lastPartOffset(partNumber);
+        } else {
+            precedingHash = null;
+            plaintextOffset = uploadContext.beginPart(partNumber, req.getPartSize());
+        }
+        final CipherLite cipherLite;
+        try {
+            cipherLite = uploadContext.getCipherLite().createAuxiliary(plaintextOffset);
+        } catch (Exception e) {
+            throw new CosClientException("Unable to build cipher: " + e.getMessage(), e);
+        }
+        final File fileOrig = req.getFile();
+        final InputStream isOrig = req.getInputStream();
+        SdkFilterInputStream isCurr = null;
+        final UploadPartResult result;
+        boolean success = false;
+        try {
+            CipherLiteInputStream clis = newMultipartCOSCipherInputStream(req, cipherLite);
+            isCurr = clis;
+            GHashInputStream ghis = isLastPart
+                    ? new GHashInputStream(clis, uploadContext.getGHash(), precedingHash,
+                            plaintextOffset, uploadContext.getEncryptedJ0())
+                    : new GHashInputStream(clis, uploadContext.getGHash());
+            isCurr = ghis;
+            req.setInputStream(isCurr);
+            req.setFile(null);
+            req.setFileOffset(0);
+            if (isLastPart) {
+                long lastPartSize = computeLastPartSize(req);
+                if (lastPartSize > -1) {
+                    req.setPartSize(lastPartSize);
+                }
+            }
+            result = cos.uploadPart(req);
+            if (!isLastPart) {
+                if (ghis.getCiphertextLength() != req.getPartSize()) {
+                    throw new CosClientException("Part " + partNumber + " was not fully read: "
+                            + ghis.getCiphertextLength() + " of " + req.getPartSize() + " bytes");
+                }
+                uploadContext.partUploaded(partNumber, ghis.getHash());
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                uploadContext.partFailed(partNumber);
+            }
+            cleanupDataSource(req, fileOrig, isOrig, isCurr, log);
+        }
+        if (isLastPart) {
+            uploadContext.setHasFinalPartBeenSeen(true);
+        }
+        return result;
+    }
+
     protected final CipherLiteInputStream newMultipartCOSCipherInputStream(UploadPartRequest req,
             CipherLite cipherLite) {
         final File fileOrig = req.getFile();
@@ -462,23 +542,21 @@ public abstract class COSCryptoModuleBase extends COSCryptoModule {
         cryptoScheme.getSecureRandom().nextBytes(iv);
 
         if (materials.isKMSEnabled()) {
-            /*
+            if (kms == null) {
+                throw new CosClientException(
+                        "A KMS client is required to encrypt with KMS encryption materials");
+            }
             final Map<String, String> encryptionContext =
                     ContentCryptoMaterial.mergeMaterialDescriptions(materials, req);
-            GenerateDataKeyRequest keyGenReq =
-                    new GenerateDataKeyRequest().withEncryptionContext(encryptionContext)
-                            .withKeyId(materials.getCustomerMasterKeyId())
-                            .withKeySpec(contentCryptoScheme.getKeySpec());
-            keyGenReq.withGeneralProgressListener(req.getGeneralProgressListener())
-                    .withRequestMetricCollector(req.getRequestMetricCollector());
-            GenerateDataKeyResult keyGenRes = kms.generateDataKey(keyGenReq);
-            final SecretKey cek = new SecretKeySpec(copyAllBytesFrom(keyGenRes.getPlaintext()),
+            DataKey dataKey = kms.generateDataKey(materials.getCustomerMasterKeyId(),
+                    contentCryptoScheme.getKeySpec(), encryptionContext);
+            if (dataKey == null) {
+                throw new CosClientException("KMS returned no data key");
+            }
+            final SecretKey cek = new SecretKeySpec(dataKey.getPlaintext(),
                     contentCryptoScheme.getKeyGeneratorAlgorithm());
-            byte[] keyBlob = copyAllBytesFrom(keyGenRes.getCiphertextBlob());
             return ContentCryptoMaterial.wrap(cek, iv, contentCryptoScheme, provider,
-                    new KMSSecuredCEK(keyBlob, encryptionContext));
-                    */
-            return null;
+                    new KMSSecuredCEK(dataKey.getCiphertextBlob(), encryptionContext));
         } else {
             // Generate a one-time use symmetric key and initialize a cipher to encrypt object data
             return ContentCryptoMaterial.create(generateCEK(materials, provider), iv, materials,
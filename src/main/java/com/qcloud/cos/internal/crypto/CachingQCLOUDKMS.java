@@ -0,0 +1,48 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.util.Map;
+
+/**
+ * Serves data key operations from a {@link DataKeyCache} when possible, falling back to the key
+ * management service otherwise.
+ */
+final class CachingQCLOUDKMS implements QCLOUDKMS {
+
+    private final QCLOUDKMS kms;
+    private final DataKeyCache cache;
+
+    CachingQCLOUDKMS(QCLOUDKMS kms, DataKeyCache cache) {
+        this.kms = kms;
+        this.cache = cache;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertextBlob, Map<String, String> encryptionContext) {
+        byte[] plaintext = cache.getPlaintext(ciphertextBlob, encryptionContext);
+        if (plaintext != null) {
+            return plaintext;
+        }
+        plaintext = kms.decrypt(ciphertextBlob, encryptionContext);
+        if (plaintext != null) {
+            cache.putPlaintext(ciphertextBlob, encryptionContext, plaintext);
+        }
+        return plaintext;
+    }
+
+    @Override
+    public DataKey generateDataKey(String keyId, String keySpec,
+            Map<String, String> encryptionContext) {
+        DataKey dataKey = cache.getDataKey(keyId, keySpec, encryptionContext);
+        if (dataKey != null) {
+            return dataKey;
+        }
+        dataKey = kms.generateDataKey(keyId, keySpec, encryptionContext);
+        if (dataKey != null) {
+            cache.putDataKey(keyId, keySpec, encryptionContext, dataKey);
+            // objects read back soon after being written need not decrypt the key again
+            cache.putPlaintext(dataKey.getCiphertextBlob(), encryptionContext,
+                    dataKey.getPlaintext());
+        }
+        return dataKey;
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.qcloud.cos.internal.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -30,6 +31,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.NullCipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * Functions like a {@link Cipher} but provides only a subset of all the
@@ -64,16 +66,21 @@ class CipherLite {
             return this;
         }
     };
-    private final Cipher cipher;
+    /**
+     * The underlying cipher, or null once released to the {@link CipherPool}.
+     */
+    private Cipher cipher;
     private final ContentCryptoScheme scheme;
     private final SecretKey secreteKey;
     private final int cipherMode;
+    // kept aside so that the cipher lite can still be recreated once its cipher is released
+    private final String algorithm;
+    private final Provider provider;
+    private final byte[] iv;
+    private final int blockSize;
 
     private CipherLite() {
-        this.cipher = new NullCipher();
-        this.scheme = null;
-        this.secreteKey = null;
-        this.cipherMode = -1;
+        this(new NullCipher(), null, null, -1);
     }
 
     CipherLite(Cipher cipher, ContentCryptoScheme scheme,
@@ -82,14 +89,18 @@ class CipherLite {
         this.scheme = scheme;
         this.secreteKey = secreteKey;
         this.cipherMode = cipherMode;
+        this.algorithm = cipher.getAlgorithm();
+        this.provider = cipher.getProvider();
+        this.iv = cipher.getIV();
+        this.blockSize = cipher.getBlockSize();
     }
 
     /**
      * Recreates a new instance of CipherLite from the current one.
      */
     CipherLite recreate() {
-        return scheme.createCipherLite(secreteKey, cipher.getIV(),
-                this.cipherMode, cipher.getProvider());
+        return scheme.createCipherLite(secreteKey, getIV(),
+                this.cipherMode, provider);
     }
 
     /**
@@ -98,7 +109,7 @@ class CipherLite {
      */
     CipherLite createUsingIV(byte[] iv) {
         return scheme.createCipherLite(secreteKey, iv, this.cipherMode,
-                cipher.getProvider());
+                provider);
     }
 
     /**
@@ -112,8 +123,8 @@ class CipherLite {
             throws InvalidKeyException, NoSuchAlgorithmException,
             NoSuchProviderException, NoSuchPaddingException,
             InvalidAlgorithmParameterException {
-        return scheme.createAuxillaryCipher(secreteKey, cipher.getIV(),
-                cipherMode, cipher.getProvider(), startingBytePos);
+        return scheme.createAuxillaryCipher(secreteKey, getIV(),
+                cipherMode, provider, startingBytePos);
     }
 
     /**
@@ -130,8 +141,8 @@ class CipherLite {
         } else {
             throw new UnsupportedOperationException();
         }
-        return scheme.createCipherLite(secreteKey, cipher.getIV(),
-                inversedMode, cipher.getProvider());
+        return scheme.createCipherLite(secreteKey, getIV(),
+                inversedMode, provider);
     }
 
     /**
@@ -275,18 +286,52 @@ class CipherLite {
         return cipher.update(input, inputOffset, inputLen);
     }
 
+    /**
+     * Same as {@link #update(byte[], int, int)} but stores the result in the given output
+     * buffer, which avoids allocating a new buffer for every chunk of data.
+     *
+     * @return the number of bytes stored in the output buffer
+     * @throws ShortBufferException if the output buffer is too small
+     */
+    int update(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+            throws ShortBufferException {
+        return cipher.update(input, inputOffset, inputLen, output, outputOffset);
+    }
+
+    /**
+     * Same as {@link #update(byte[], int, int)} but reads the input from, and stores the result
+     * into, the given buffers, whose positions are advanced accordingly.
+     *
+     * @return the number of bytes stored in the output buffer
+     * @throws ShortBufferException if the output buffer does not have enough space remaining
+     */
+    int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        return cipher.update(input, output);
+    }
+
+    /**
+     * Returns the underlying cipher to the {@link CipherPool} once it has been finished; this
+     * cipher lite may still be recreated or inverted but must not process any more data.
+     */
+    final void release() {
+        if (cipher != null && this != Null) {
+            CipherPool.release(cipher);
+            cipher = null;
+        }
+    }
+
     /**
      * Returns the algorithm name of the underlying cipher.
      */
     final String getCipherAlgorithm() {
-        return cipher.getAlgorithm();
+        return algorithm;
     }
 
     /**
      * Returns the provider of the underlying cipher.
      */
     final Provider getCipherProvider() {
-        return cipher.getProvider();
+        return provider;
     }
 
     /**
@@ -296,6 +341,13 @@ class CipherLite {
         return secreteKey.getAlgorithm();
     }
 
+    /**
+     * Returns the secret key of the underlying cipher.
+     */
+    final SecretKey getSecretKey() {
+        return secreteKey;
+    }
+
     /**
      * This method is provided only for testing purposes. The {@link CipherLite}
      * is intended to be used in lieu of the underlying Cipher.
@@ -320,7 +372,7 @@ class CipherLite {
      *         been set.
      */
     final byte[] getIV() {
-        return cipher.getIV();
+        return iv == null ? null : iv.clone();
     }
 
     /**
@@ -330,7 +382,7 @@ class CipherLite {
      *         not a block cipher
      */
     final int getBlockSize() {
-        return cipher.getBlockSize();
+        return blockSize;
     }
 
     final int getCipherMode() {
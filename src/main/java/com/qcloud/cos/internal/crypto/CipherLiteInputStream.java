@@ -23,6 +23,7 @@ import java.io.InputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
 import com.qcloud.cos.internal.SdkFilterInputStream;
 
@@ -30,6 +31,11 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
 
     private static final int MAX_RETRY = 1000;
     private static final int DEFAULT_IN_BUFFER_SIZE = 512;
+    /**
+     * Room left in the output buffer for the data the cipher may hold back between updates,
+     * such as a partial block or the GCM tag while decrypting.
+     */
+    private static final int OUT_BUFFER_SLACK = 64;
     private CipherLite cipherLite;
     /**
      * True if this input stream is currently involved in a multipart uploads;
@@ -47,7 +53,14 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
     private final boolean lastMultiPart;
     private boolean eof;
     private byte[] bufin;
+    /**
+     * The processed data not yet read; either {@link #outbuf} or the result of doFinal.
+     */
     private byte[] bufout;
+    /**
+     * Output buffer reused across updates.
+     */
+    private final byte[] outbuf;
     private int curr_pos;
     private int max_pos;
 
@@ -74,6 +87,7 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
                     + DEFAULT_IN_BUFFER_SIZE);
         }
         this.bufin = new byte[buffsize];
+        this.outbuf = new byte[buffsize + OUT_BUFFER_SLACK];
     }
 
     protected CipherLiteInputStream(InputStream is) {
@@ -255,9 +269,15 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
             }
             return -1;
         }
-        bufout = cipherLite.update(bufin, 0, len);
         curr_pos = 0;
-        return max_pos = (bufout == null ? 0 : bufout.length);
+        try {
+            bufout = outbuf;
+            return max_pos = cipherLite.update(bufin, 0, len, outbuf, 0);
+        } catch (ShortBufferException e) {
+            // the cipher held back more than expected
+            bufout = cipherLite.update(bufin, 0, len);
+            return max_pos = (bufout == null ? 0 : bufout.length);
+        }
     }
 
     void renewCipherLite() {
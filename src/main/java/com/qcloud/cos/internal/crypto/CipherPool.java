@@ -0,0 +1,106 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.Provider;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Cipher;
+
+/**
+ * Keeps finished {@link Cipher} instances per algorithm and provider, so that encrypting or
+ * decrypting an object does not have to go through the provider lookup of
+ * {@link Cipher#getInstance(String)} every time. A pooled cipher is always re-initialized before
+ * being handed out again.
+ */
+final class CipherPool {
+
+    /**
+     * The maximum number of idle ciphers kept per algorithm and provider.
+     */
+    static final int MAX_IDLE_PER_KEY = 32;
+
+    private static final ConcurrentMap<String, BlockingQueue<Cipher>> POOL =
+            new ConcurrentHashMap<String, BlockingQueue<Cipher>>();
+
+    /**
+     * The name of the provider of the last cipher created per algorithm without a provider, i.e.
+     * of the default provider, under which the idle ciphers borrowed that way are looked up.
+     */
+    private static final ConcurrentMap<String, String> DEFAULT_PROVIDERS =
+            new ConcurrentHashMap<String, String>();
+
+    private CipherPool() {
+    }
+
+    /**
+     * Returns an idle cipher of the given algorithm and provider if there is one, or a new one.
+     * The cipher must be initialized by the caller.
+     *
+     * @param providerName the name of the provider, which takes precedence over the provider
+     * @param provider the provider, or null for the default one, in which case an idle cipher of
+     *        the provider which was the default one when the last cipher was created is returned
+     */
+    static Cipher borrow(String algorithm, String providerName, Provider provider)
+            throws GeneralSecurityException {
+        if (providerName != null) {
+            Cipher cipher = poll(algorithm, providerName);
+            return cipher != null ? cipher : Cipher.getInstance(algorithm, providerName);
+        }
+        if (provider != null) {
+            Cipher cipher = poll(algorithm, provider.getName());
+            return cipher != null && cipher.getProvider() == provider ? cipher
+                    : Cipher.getInstance(algorithm, provider);
+        }
+        String defaultProviderName = DEFAULT_PROVIDERS.get(algorithm);
+        if (defaultProviderName != null) {
+            Cipher cipher = poll(algorithm, defaultProviderName);
+            if (cipher != null) {
+                return cipher;
+            }
+        }
+        Cipher cipher = Cipher.getInstance(algorithm);
+        if (cipher.getProvider() != null) {
+            DEFAULT_PROVIDERS.put(algorithm, cipher.getProvider().getName());
+        }
+        return cipher;
+    }
+
+    /**
+     * Makes a cipher which is no longer used available to {@link #borrow}.
+     */
+    static void release(Cipher cipher) {
+        if (cipher == null || cipher.getProvider() == null) {
+            return;
+        }
+        String key = key(cipher.getAlgorithm(), cipher.getProvider().getName());
+        BlockingQueue<Cipher> idle = POOL.get(key);
+        if (idle == null) {
+            BlockingQueue<Cipher> created = new ArrayBlockingQueue<Cipher>(MAX_IDLE_PER_KEY);
+            idle = POOL.putIfAbsent(key, created);
+            if (idle == null) {
+                idle = created;
+            }
+        }
+        idle.offer(cipher);
+    }
+
+    /**
+     * Returns the number of idle ciphers of the given algorithm and provider.
+     */
+    static int idleCount(String algorithm, String providerName) {
+        BlockingQueue<Cipher> idle = POOL.get(key(algorithm, providerName));
+        return idle == null ? 0 : idle.size();
+    }
+
+    private static Cipher poll(String algorithm, String providerName) {
+        BlockingQueue<Cipher> idle = POOL.get(key(algorithm, providerName));
+        return idle == null ? null : idle.poll();
+    }
+
+    private static String key(String algorithm, String providerName) {
+        return algorithm + "/" + providerName;
+    }
+}
@@ -238,16 +238,15 @@ final class ContentCryptoMaterial {
      */
     private static SecretKey cekByKMS(byte[] cekSecured, String keyWrapAlgo,
             EncryptionMaterials materials, ContentCryptoScheme contentCryptoScheme, QCLOUDKMS kms) {
-        /*
-        DecryptRequest kmsreq = new DecryptRequest()
-            .withEncryptionContext(materials.getMaterialsDescription())
-            .withCiphertextBlob(ByteBuffer.wrap(cekSecured));
-        DecryptResult result = kms.decrypt(kmsreq);
-        return new SecretKeySpec(copyAllBytesFrom(result.getPlaintext()),
-                contentCryptoScheme.getKeyGeneratorAlgorithm());
-                */
-        // TODO(chengwu)
-        return null;
+        if (kms == null) {
+            throw new CosClientException(
+                    "A KMS client is required to decrypt the content encrypting key");
+        }
+        byte[] plaintext = kms.decrypt(cekSecured, materials.getMaterialsDescription());
+        if (plaintext == null) {
+            throw new CosClientException("KMS returned no plaintext for the data key");
+        }
+        return new SecretKeySpec(plaintext, contentCryptoScheme.getKeyGeneratorAlgorithm());
     }
 
     /**
@@ -19,6 +19,7 @@
 package com.qcloud.cos.internal.crypto;
 
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -176,17 +177,24 @@ abstract class ContentCryptoScheme {
      */
     CipherLite createCipherLite(SecretKey cek, byte[] iv, int cipherMode,
             Provider securityProvider) {
+        // use the specific provider if defined, else the one optionally specified in the input,
+        // else the default provider
         String specificProvider = getSpecificCipherProvider();
         Cipher cipher;
         try {
-            if (specificProvider != null) { // use the specific provider if defined
-                cipher = Cipher.getInstance(getCipherAlgorithm(), specificProvider);
-            } else if (securityProvider != null) { // use the one optionally specified in the input
-                cipher = Cipher.getInstance(getCipherAlgorithm(), securityProvider);
-            } else { // use the default provider
-                cipher = Cipher.getInstance(getCipherAlgorithm());
+            cipher = CipherPool.borrow(getCipherAlgorithm(), specificProvider, securityProvider);
+            try {
+                cipher.init(cipherMode, cek, new IvParameterSpec(iv));
+            } catch (GeneralSecurityException e) {
+                // a pooled cipher may refuse to be re-initialized, e.g. with the key and IV it
+                // last encrypted with
+                cipher = specificProvider != null
+                        ? Cipher.getInstance(getCipherAlgorithm(), specificProvider)
+                        : securityProvider != null
+                                ? Cipher.getInstance(getCipherAlgorithm(), securityProvider)
+                                : Cipher.getInstance(getCipherAlgorithm());
+                cipher.init(cipherMode, cek, new IvParameterSpec(iv));
             }
-            cipher.init(cipherMode, cek, new IvParameterSpec(iv));
             return newCipherLite(cipher, cek, cipherMode);
         } catch (Exception e) {
             throw e instanceof RuntimeException
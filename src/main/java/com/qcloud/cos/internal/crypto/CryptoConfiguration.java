@@ -32,6 +32,8 @@ public class CryptoConfiguration implements Cloneable, Serializable {
 
     private static final long serialVersionUID = -8646831898339939580L;
 
+    private static final long DEFAULT_PARALLEL_DOWNLOAD_PART_SIZE = 8 * 1024 * 1024;
+
     private CryptoMode cryptoMode;
     private CryptoStorageMode storageMode;
     private Provider cryptoProvider;
@@ -42,6 +44,25 @@ public class CryptoConfiguration implements Cloneable, Serializable {
      * missing instruction file would always cause security exception.
      */
     private boolean ignoreMissingInstructionFile = true;
+    /**
+     * True to encrypt the parts of a multipart upload independently, so they can be uploaded
+     * concurrently; false otherwise. Default is false.
+     */
+    private boolean parallelMultipartUpload = false;
+    /**
+     * Number of ranges of an encrypted object downloaded and decrypted concurrently by
+     * getObject to a file. Default is 1, i.e. a single sequential stream.
+     */
+    private int parallelDownloadThreads = 1;
+    /**
+     * Size of the ranges of an encrypted object downloaded concurrently.
+     */
+    private long parallelDownloadPartSize = DEFAULT_PARALLEL_DOWNLOAD_PART_SIZE;
+    /**
+     * Cache of KMS data keys; null if every data key operation goes to KMS. Never serialized, as
+     * the cache holds plaintext keys and is not serializable.
+     */
+    private transient DataKeyCache dataKeyCache;
 
     /**
      * Creates a new CryptoConfiguration object with default storage mode and
@@ -207,6 +228,108 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         return this;
     }
 
+    /**
+     * Returns true if the parts of a multipart upload are encrypted independently from their
+     * offset in the object, so they can be uploaded concurrently; false otherwise. Default is
+     * false.
+     */
+    public boolean isParallelMultipartUpload() {
+        return parallelMultipartUpload;
+    }
+
+    /**
+     * @param parallelMultipartUpload true to encrypt the parts of a multipart upload
+     *         independently from their offset in the object, so they can be uploaded
+     *         concurrently. All the parts but the last one must then have the same size. The
+     *         ciphertext is the same as with serial uploads, the GCM tag being computed from the
+     *         hashes of all the parts when the last part is uploaded.
+     */
+    public void setParallelMultipartUpload(boolean parallelMultipartUpload) {
+        this.parallelMultipartUpload = parallelMultipartUpload;
+    }
+
+    /**
+     * Fluent API to set the property to encrypt the parts of a multipart upload independently.
+     */
+    public CryptoConfiguration withParallelMultipartUpload(boolean parallelMultipartUpload) {
+        this.parallelMultipartUpload = parallelMultipartUpload;
+        return this;
+    }
+
+    /**
+     * Returns the number of ranges of an encrypted object downloaded and decrypted concurrently
+     * when getting an object into a file. Default is 1, i.e. a single sequential stream.
+     */
+    public int getParallelDownloadThreads() {
+        return parallelDownloadThreads;
+    }
+
+    /**
+     * @param parallelDownloadThreads the number of ranges of an encrypted object downloaded and
+     *         decrypted concurrently when getting an object into a file. Every range is
+     *         decrypted from its own offset and written in place, the GCM tag of the whole object
+     *         still being verified. Values greater than 1 enable the parallel download. The
+     *         ranges of the concurrent downloads of a client share this number of threads.
+     */
+    public void setParallelDownloadThreads(int parallelDownloadThreads) {
+        this.parallelDownloadThreads = parallelDownloadThreads;
+    }
+
+    /**
+     * Fluent API to set the number of ranges of an encrypted object downloaded concurrently.
+     */
+    public CryptoConfiguration withParallelDownloadThreads(int parallelDownloadThreads) {
+        this.parallelDownloadThreads = parallelDownloadThreads;
+        return this;
+    }
+
+    /**
+     * Returns the size of the ranges of an encrypted object downloaded concurrently. Default is
+     * 8 MB.
+     */
+    public long getParallelDownloadPartSize() {
+        return parallelDownloadPartSize;
+    }
+
+    /**
+     * @param parallelDownloadPartSize the size of the ranges of an encrypted object downloaded
+     *         concurrently, rounded up to a multiple of the cipher block size.
+     */
+    public void setParallelDownloadPartSize(long parallelDownloadPartSize) {
+        this.parallelDownloadPartSize = parallelDownloadPartSize;
+    }
+
+    /**
+     * Fluent API to set the size of the ranges of an encrypted object downloaded concurrently.
+     */
+    public CryptoConfiguration withParallelDownloadPartSize(long parallelDownloadPartSize) {
+        this.parallelDownloadPartSize = parallelDownloadPartSize;
+        return this;
+    }
+
+    /**
+     * Returns the cache of KMS data keys, or null if none is used (the default).
+     */
+    public DataKeyCache getDataKeyCache() {
+        return dataKeyCache;
+    }
+
+    /**
+     * @param dataKeyCache the cache of the data keys decrypted and generated through KMS, e.g. a
+     *         {@link TTLDataKeyCache}; or null to call KMS for every encrypted object.
+     */
+    public void setDataKeyCache(DataKeyCache dataKeyCache) {
+        this.dataKeyCache = dataKeyCache;
+    }
+
+    /**
+     * Fluent API to set the cache of KMS data keys.
+     */
+    public CryptoConfiguration withDataKeyCache(DataKeyCache dataKeyCache) {
+        this.dataKeyCache = dataKeyCache;
+        return this;
+    }
+
     /**
      * Checks if the crypto mode is supported by the runtime.
      *
@@ -291,6 +414,46 @@ public class CryptoConfiguration implements Cloneable, Serializable {
                 boolean ignoreMissingInstructionFile) {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public void setParallelMultipartUpload(boolean parallelMultipartUpload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CryptoConfiguration withParallelMultipartUpload(boolean parallelMultipartUpload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setParallelDownloadThreads(int parallelDownloadThreads) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CryptoConfiguration withParallelDownloadThreads(int parallelDownloadThreads) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setParallelDownloadPartSize(long parallelDownloadPartSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CryptoConfiguration withParallelDownloadPartSize(long parallelDownloadPartSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setDataKeyCache(DataKeyCache dataKeyCache) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CryptoConfiguration withDataKeyCache(DataKeyCache dataKeyCache) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
@@ -313,6 +476,10 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         that.storageMode = this.storageMode;
         that.cryptoProvider = this.cryptoProvider;
         that.ignoreMissingInstructionFile = this.ignoreMissingInstructionFile;
+        that.parallelMultipartUpload = this.parallelMultipartUpload;
+        that.parallelDownloadThreads = this.parallelDownloadThreads;
+        that.parallelDownloadPartSize = this.parallelDownloadPartSize;
+        that.dataKeyCache = this.dataKeyCache;
         return that;
     }
 }
\ No newline at end of file
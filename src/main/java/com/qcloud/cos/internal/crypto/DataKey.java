@@ -0,0 +1,33 @@
+package com.qcloud.cos.internal.crypto;
+
+/**
+ * A data key generated by the key management service, in plaintext and in encrypted form.
+ */
+public final class DataKey {
+
+    private final byte[] plaintext;
+    private final byte[] ciphertextBlob;
+
+    public DataKey(byte[] plaintext, byte[] ciphertextBlob) {
+        if (plaintext == null || ciphertextBlob == null) {
+            throw new IllegalArgumentException(
+                    "The plaintext and the ciphertext blob of a data key must be specified");
+        }
+        this.plaintext = plaintext.clone();
+        this.ciphertextBlob = ciphertextBlob.clone();
+    }
+
+    /**
+     * Returns a copy of the plaintext data key.
+     */
+    public byte[] getPlaintext() {
+        return plaintext.clone();
+    }
+
+    /**
+     * Returns a copy of the data key encrypted under the customer master key.
+     */
+    public byte[] getCiphertextBlob() {
+        return ciphertextBlob.clone();
+    }
+}
@@ -0,0 +1,52 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.util.Map;
+
+/**
+ * Caches the data keys of the key management service, so that reading objects protected by the
+ * same data key, or writing objects in quick succession, does not require a round trip to the key
+ * management service every time.
+ * <p>
+ * Implementations must be thread safe. Configured through
+ * {@link CryptoConfiguration#setDataKeyCache(DataKeyCache)}.
+ * </p>
+ *
+ * @see TTLDataKeyCache
+ */
+public interface DataKeyCache {
+
+    /**
+     * Returns the plaintext of a data key decrypted earlier, or null if it is not cached.
+     *
+     * @param ciphertextBlob the encrypted data key
+     * @param encryptionContext the encryption context of the data key
+     */
+    public byte[] getPlaintext(byte[] ciphertextBlob, Map<String, String> encryptionContext);
+
+    /**
+     * Caches the plaintext of a decrypted data key.
+     */
+    public void putPlaintext(byte[] ciphertextBlob, Map<String, String> encryptionContext,
+            byte[] plaintext);
+
+    /**
+     * Returns a previously generated data key which may be used to encrypt one more object, or
+     * null if a new data key has to be generated.
+     *
+     * @param keyId the id of the customer master key
+     * @param keySpec the specification of the data key
+     * @param encryptionContext the encryption context of the data key
+     */
+    public DataKey getDataKey(String keyId, String keySpec, Map<String, String> encryptionContext);
+
+    /**
+     * Makes a freshly generated data key available for reuse, its generation counting as one use.
+     */
+    public void putDataKey(String keyId, String keySpec, Map<String, String> encryptionContext,
+            DataKey dataKey);
+
+    /**
+     * Evicts all the cached data keys.
+     */
+    public void clear();
+}
@@ -18,12 +18,14 @@
 
 package com.qcloud.cos.internal.crypto;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 final class GCMCipherLite extends CipherLite {
 
@@ -97,6 +99,8 @@ final class GCMCipherLite extends CipherLite {
         }
         doneFinal = true;
         finalBytes = super.doFinal();
+        // the GCM cipher is no longer needed, re-processing goes through an auxiliary cipher
+        release();
         if (finalBytes == null) {
             return null;    // only possible for decryption
         }
@@ -139,6 +143,7 @@ final class GCMCipherLite extends CipherLite {
         doneFinal = true;
         // compute final bytes for the first time
         finalBytes = super.doFinal(input, inputOffset, inputLen);
+        release();
         if (finalBytes == null) {
             return null;    // only possible for decryption
         }
@@ -189,6 +194,57 @@ final class GCMCipherLite extends CipherLite {
         return out;
     }
 
+    @Override
+    int update(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+            throws ShortBufferException {
+        if (aux == null) {
+            int n = super.update(input, inputOffset, inputLen, output, outputOffset);
+            outputByteCount += checkMax(n);
+            invisiblyProcessed = n == 0 && inputLen > 0;
+            return n;
+        }
+        return auxProcessed(aux.update(input, inputOffset, inputLen, output, outputOffset));
+    }
+
+    @Override
+    int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int inputLen = input.remaining();
+        if (aux == null) {
+            int n = super.update(input, output);
+            outputByteCount += checkMax(n);
+            invisiblyProcessed = n == 0 && inputLen > 0;
+            return n;
+        }
+        int n = aux.update(input, output);
+        int kept = auxProcessed(n);
+        output.position(output.position() - (n - kept));
+        return kept;
+    }
+
+    /**
+     * Accounts for the given number of bytes re-processed by the auxiliary cipher, and returns
+     * how many of them are to be output.
+     */
+    private int auxProcessed(int n) {
+        currentCount += n;
+        if (currentCount == outputByteCount) {
+            aux = null; // flip back to the original GCM cipher
+        } else if (currentCount > outputByteCount) {
+            if (Cipher.ENCRYPT_MODE == getCipherMode()) {
+                throw new IllegalStateException("currentCount=" + currentCount
+                        + " > outputByteCount=" + outputByteCount);
+            }
+            // For decryption, this is possible since AES/CTR doesn't know
+            // about the tag at the end
+            int finalBytesLen = (finalBytes == null ? 0 : finalBytes.length);
+            long diff = outputByteCount - (currentCount - n) - finalBytesLen;
+            currentCount = outputByteCount - finalBytesLen;
+            aux = null; // flip back to the original GCM cipher
+            return (int) diff;
+        }
+        return n;
+    }
+
     /**
      * Returns the input delta but only if it will not result in exceeding the
      * limit of the maximum number of bytes that can be processed by AES/GCM.
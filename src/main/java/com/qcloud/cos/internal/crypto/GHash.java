@@ -0,0 +1,284 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.Provider;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+import com.qcloud.cos.exception.CosClientException;
+
+/**
+ * The GHASH function of AES/GCM (NIST SP 800-38D) for a given hash subkey H.
+ * <p>
+ * Since GHASH is linear, the hash of a ciphertext can be computed piecewise: the hash of A || B is
+ * GHASH(A) * H^blocks(B) xor GHASH(B). This allows the parts of a multipart upload to be
+ * encrypted with AES/CTR at their own offset and hashed independently, the GCM tag of the whole
+ * object being assembled once all the parts are known.
+ * </p>
+ * Field elements are represented as two longs, the most significant bits of the first long being
+ * the first bits of the block.
+ */
+final class GHash {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final long R = 0xE100000000000000L;
+    private static final long[] LAST4 = {
+            0x0000, 0x1c20, 0x3840, 0x2460, 0x7080, 0x6ca0, 0x48c0, 0x54e0,
+            0xe100, 0xfd20, 0xd940, 0xc560, 0x9180, 0x8da0, 0xa9c0, 0xb5e0};
+
+    private final long[] hh = new long[16];
+    private final long[] hl = new long[16];
+
+    /**
+     * @param h the 16 byte hash subkey, i.e. the encryption of the zero block
+     */
+    GHash(byte[] h) {
+        long vh = readLong(h, 0);
+        long vl = readLong(h, 8);
+        // 4 bit multiplication tables (Shoup's method)
+        hh[8] = vh;
+        hl[8] = vl;
+        for (int i = 4; i > 0; i >>= 1) {
+            long t = (vl & 1) * 0xe1000000L;
+            vl = (vh << 63) | (vl >>> 1);
+            vh = (vh >>> 1) ^ (t << 32);
+            hh[i] = vh;
+            hl[i] = vl;
+        }
+        for (int i = 2; i <= 8; i *= 2) {
+            vh = hh[i];
+            vl = hl[i];
+            for (int j = 1; j < i; ++j) {
+                hh[i + j] = vh ^ hh[j];
+                hl[i + j] = vl ^ hl[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the GHASH function for the given content encrypting key.
+     */
+    static GHash forKey(SecretKey cek, Provider provider) {
+        return new GHash(encryptBlock(cek, provider, new byte[BLOCK_SIZE]));
+    }
+
+    /**
+     * Encrypts a single block with the raw AES block cipher.
+     */
+    static byte[] encryptBlock(SecretKey cek, Provider provider, byte[] block) {
+        try {
+            Cipher cipher = provider == null ? Cipher.getInstance("AES/ECB/NoPadding")
+                    : Cipher.getInstance("AES/ECB/NoPadding", provider);
+            cipher.init(Cipher.ENCRYPT_MODE, cek);
+            return cipher.doFinal(block);
+        } catch (GeneralSecurityException e) {
+            throw new CosClientException("Unable to build cipher: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Multiplies x by H in place.
+     */
+    void multiplyH(long[] x) {
+        int lo = (int) (x[1] & 0xf);
+        long zh = hh[lo];
+        long zl = hl[lo];
+        for (int i = 15; i >= 0; --i) {
+            int b = (int) ((i < 8 ? x[0] >>> (56 - 8 * i) : x[1] >>> (120 - 8 * i)) & 0xff);
+            lo = b & 0xf;
+            int hi = b >>> 4;
+            int rem;
+            if (i != 15) {
+                rem = (int) (zl & 0xf);
+                zl = (zh << 60) | (zl >>> 4);
+                zh = (zh >>> 4) ^ (LAST4[rem] << 48);
+                zh ^= hh[lo];
+                zl ^= hl[lo];
+            }
+            rem = (int) (zl & 0xf);
+            zl = (zh << 60) | (zl >>> 4);
+            zh = (zh >>> 4) ^ (LAST4[rem] << 48);
+            zh ^= hh[hi];
+            zl ^= hl[hi];
+        }
+        x[0] = zh;
+        x[1] = zl;
+    }
+
+    /**
+     * Multiplies x by y in place, bit by bit. Only used for the few multiplications combining the
+     * hashes of the parts.
+     */
+    static void multiply(long[] x, long[] y) {
+        long zh = 0;
+        long zl = 0;
+        long vh = y[0];
+        long vl = y[1];
+        for (int i = 0; i < 128; ++i) {
+            long bit = i < 64 ? x[0] >>> (63 - i) : x[1] >>> (127 - i);
+            if ((bit & 1) != 0) {
+                zh ^= vh;
+                zl ^= vl;
+            }
+            boolean carry = (vl & 1) != 0;
+            vl = (vl >>> 1) | (vh << 63);
+            vh >>>= 1;
+            if (carry) {
+                vh ^= R;
+            }
+        }
+        x[0] = zh;
+        x[1] = zl;
+    }
+
+    /**
+     * Returns H to the given power.
+     */
+    long[] power(long n) {
+        // the multiplicative identity is the block with only the first bit set
+        long[] result = {Long.MIN_VALUE, 0};
+        long[] base = {hh[8], hl[8]};
+        while (n > 0) {
+            if ((n & 1) != 0) {
+                multiply(result, base);
+            }
+            long[] square = base.clone();
+            multiply(square, base);
+            base = square;
+            n >>>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hash of A || B from the hash of A, the hash of B and the number of blocks of B.
+     */
+    long[] concat(long[] hashA, long[] hashB, long blocksB) {
+        long[] result = hashA.clone();
+        multiply(result, power(blocksB));
+        result[0] ^= hashB[0];
+        result[1] ^= hashB[1];
+        return result;
+    }
+
+    /**
+     * Returns the GCM tag of a ciphertext without additional authenticated data.
+     *
+     * @param hash the hash of the ciphertext
+     * @param ciphertextLength the length of the ciphertext in bytes
+     * @param encryptedJ0 the encryption of the pre-counter block J0
+     */
+    byte[] tag(long[] hash, long ciphertextLength, byte[] encryptedJ0) {
+        long[] s = hash.clone();
+        s[1] ^= ciphertextLength << 3;
+        multiplyH(s);
+        byte[] tag = new byte[BLOCK_SIZE];
+        writeLong(s[0], tag, 0);
+        writeLong(s[1], tag, 8);
+        for (int i = 0; i < BLOCK_SIZE; ++i) {
+            tag[i] ^= encryptedJ0[i];
+        }
+        return tag;
+    }
+
+    static long readLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; ++i) {
+            v = (v << 8) | (b[off + i] & 0xff);
+        }
+        return v;
+    }
+
+    static void writeLong(long v, byte[] b, int off) {
+        for (int i = 7; i >= 0; --i) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    /**
+     * Running hash of a stream of ciphertext.
+     */
+    final class Accumulator {
+        private final long[] state = new long[2];
+        private final byte[] partial = new byte[BLOCK_SIZE];
+        private int partialLength;
+        private long length;
+
+        Accumulator() {
+        }
+
+        private Accumulator(Accumulator that) {
+            System.arraycopy(that.state, 0, state, 0, 2);
+            System.arraycopy(that.partial, 0, partial, 0, BLOCK_SIZE);
+            partialLength = that.partialLength;
+            length = that.length;
+        }
+
+        Accumulator copy() {
+            return new Accumulator(this);
+        }
+
+        void update(byte[] b, int off, int len) {
+            length += len;
+            if (partialLength > 0) {
+                int n = Math.min(len, BLOCK_SIZE - partialLength);
+                System.arraycopy(b, off, partial, partialLength, n);
+                partialLength += n;
+                off += n;
+                len -= n;
+                if (partialLength < BLOCK_SIZE) {
+                    return;
+                }
+                absorb(partial, 0);
+                partialLength = 0;
+            }
+            while (len >= BLOCK_SIZE) {
+                absorb(b, off);
+                off += BLOCK_SIZE;
+                len -= BLOCK_SIZE;
+            }
+            if (len > 0) {
+                System.arraycopy(b, off, partial, 0, len);
+                partialLength = len;
+            }
+        }
+
+        private void absorb(byte[] b, int off) {
+            state[0] ^= readLong(b, off);
+            state[1] ^= readLong(b, off + 8);
+            multiplyH(state);
+        }
+
+        /**
+         * Returns the number of bytes hashed so far.
+         */
+        long getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the number of blocks hashed so far, the last partial block included.
+         */
+        long getBlocks() {
+            return (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
+
+        /**
+         * Returns the hash of the bytes so far, the last partial block padded with zeros. The
+         * accumulator itself is left unchanged.
+         */
+        long[] getHash() {
+            if (partialLength == 0) {
+                return state.clone();
+            }
+            Accumulator padded = copy();
+            for (int i = partialLength; i < BLOCK_SIZE; ++i) {
+                padded.partial[i] = 0;
+            }
+            padded.absorb(padded.partial, 0);
+            return padded.state;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.qcloud.cos.internal.SdkFilterInputStream;
+
+/**
+ * Hashes the ciphertext of a part read through it with {@link GHash}. For the last part of a
+ * multipart upload, the GCM tag of the whole object is appended once the ciphertext is exhausted.
+ * Mark and reset are supported if the underlying stream supports them, the running hash being
+ * restored along with the stream.
+ */
+class GHashInputStream extends SdkFilterInputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 2 * 1024;
+
+    private final GHash ghash;
+    private GHash.Accumulator accumulator;
+    private GHash.Accumulator marked;
+
+    // only set for the last part
+    private final long[] precedingHash;
+    private final long precedingLength;
+    private final byte[] encryptedJ0;
+
+    private byte[] tag;
+    private int tagPos;
+
+    /**
+     * Hashes a part which is not the last one.
+     */
+    GHashInputStream(InputStream in, GHash ghash) {
+        this(in, ghash, null, 0, null);
+    }
+
+    /**
+     * Hashes the last part and appends the tag of the object.
+     *
+     * @param precedingHash the hash of the ciphertext of all the preceding parts
+     * @param precedingLength the length of the ciphertext of all the preceding parts
+     * @param encryptedJ0 the encryption of the pre-counter block of the object
+     */
+    GHashInputStream(InputStream in, GHash ghash, long[] precedingHash, long precedingLength,
+            byte[] encryptedJ0) {
+        super(in);
+        this.ghash = ghash;
+        this.accumulator = ghash.new Accumulator();
+        this.marked = accumulator.copy();
+        this.precedingHash = precedingHash;
+        this.precedingLength = precedingLength;
+        this.encryptedJ0 = encryptedJ0;
+    }
+
+    /**
+     * Returns the hash of the ciphertext read so far.
+     */
+    long[] getHash() {
+        return accumulator.getHash();
+    }
+
+    /**
+     * Returns the number of ciphertext bytes read so far, the tag excluded.
+     */
+    long getCiphertextLength() {
+        return accumulator.getLength();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n;
+        while ((n = read(b, 0, 1)) == 0) {
+        }
+        return n == -1 ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (tag == null) {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                accumulator.update(b, off, n);
+                return n;
+            }
+            if (n == 0 || precedingHash == null) {
+                return n;
+            }
+            long[] hash = ghash.concat(precedingHash, accumulator.getHash(),
+                    accumulator.getBlocks());
+            tag = ghash.tag(hash, precedingLength + accumulator.getLength(), encryptedJ0);
+            tagPos = 0;
+        }
+        if (tagPos >= tag.length) {
+            return -1;
+        }
+        int n = Math.min(len, tag.length - tagPos);
+        System.arraycopy(tag, tagPos, b, off, n);
+        tagPos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // the skipped bytes still have to be hashed
+        byte[] buf = new byte[SKIP_BUFFER_SIZE];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return tag == null ? in.available() : tag.length - tagPos;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        in.mark(readlimit);
+        marked = tag == null ? accumulator.copy() : null;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        if (marked == null) {
+            throw new IOException("mark not set or set after the end of the ciphertext");
+        }
+        in.reset();
+        accumulator = marked.copy();
+        tag = null;
+        tagPos = 0;
+    }
+}
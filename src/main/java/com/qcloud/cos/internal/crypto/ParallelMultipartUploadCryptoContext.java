@@ -0,0 +1,176 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.security.Provider;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.qcloud.cos.exception.AbortedException;
+import com.qcloud.cos.exception.CosClientException;
+
+/**
+ * Contextual information for an in-flight multipart upload whose parts are encrypted
+ * independently, and can therefore be uploaded concurrently.
+ * <p>
+ * AES/GCM encrypts with AES/CTR, so every part is encrypted with a counter derived from its byte
+ * offset in the object and produces exactly the ciphertext the serial upload would. The GCM tag
+ * over the whole ciphertext is assembled from the GHASH of every part: the last part waits for all
+ * the preceding parts, then appends the tag. All the parts but the last one must have the same
+ * size, so that the offset of a part follows from its part number.
+ * </p>
+ */
+public class ParallelMultipartUploadCryptoContext extends MultipartUploadCryptoContext {
+
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * How long the last part waits without any preceding part completing before it gives up.
+     */
+    static final long DEFAULT_PRECEDING_PARTS_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    private final GHash ghash;
+    private final byte[] encryptedJ0;
+
+    /**
+     * The size of all the parts but the last one, -1 until a part has been seen.
+     */
+    private long partSize = -1;
+    private final Map<Integer, long[]> partHashes = new HashMap<Integer, long[]>();
+    private final Set<Integer> failedParts = new HashSet<Integer>();
+    private long precedingPartsTimeoutMillis = DEFAULT_PRECEDING_PARTS_TIMEOUT_MILLIS;
+
+    ParallelMultipartUploadCryptoContext(String bucketName, String key,
+            ContentCryptoMaterial cekMaterial, Provider securityProvider) {
+        super(bucketName, key, cekMaterial);
+        CipherLite cipherLite = cekMaterial.getCipherLite();
+        byte[] iv = cipherLite.getIV();
+        if (iv.length != 12) {
+            throw new UnsupportedOperationException(
+                    "Parallel multipart upload requires an IV of length 12");
+        }
+        this.ghash = GHash.forKey(cipherLite.getSecretKey(), securityProvider);
+        byte[] j0 = new byte[BLOCK_SIZE];
+        System.arraycopy(iv, 0, j0, 0, iv.length);
+        j0[BLOCK_SIZE - 1] = 0x01;
+        this.encryptedJ0 = GHash.encryptBlock(cipherLite.getSecretKey(), securityProvider, j0);
+    }
+
+    synchronized void setPrecedingPartsTimeoutMillis(long precedingPartsTimeoutMillis) {
+        this.precedingPartsTimeoutMillis = precedingPartsTimeoutMillis;
+    }
+
+    GHash getGHash() {
+        return ghash;
+    }
+
+    byte[] getEncryptedJ0() {
+        return encryptedJ0;
+    }
+
+    /**
+     * Registers the size of a part which is not the last one and returns its plaintext offset.
+     */
+    synchronized long beginPart(int partNumber, long size) {
+        if (partNumber < 1) {
+            throw new IllegalArgumentException("part number must be at least 1");
+        }
+        if (partSize == -1) {
+            partSize = size;
+        } else if (partSize != size) {
+            throw new CosClientException(
+                    "Parts uploaded in parallel are required to have the same size, except the last one (partSize="
+                            + partSize + ", size=" + size + ")");
+        }
+        return (partNumber - 1) * partSize;
+    }
+
+    /**
+     * Records the hash of the ciphertext of a successfully uploaded part.
+     */
+    synchronized void partUploaded(int partNumber, long[] hash) {
+        partHashes.put(partNumber, hash);
+        failedParts.remove(partNumber);
+        notifyAll();
+    }
+
+    /**
+     * Records a failed part, so the last part stops waiting for it.
+     */
+    synchronized void partFailed(int partNumber) {
+        failedParts.add(partNumber);
+        notifyAll();
+    }
+
+    /**
+     * Waits until all the parts preceding the last one are uploaded, and returns the hash of their
+     * ciphertext. The wait is bounded: if no preceding part completes for the preceding parts
+     * timeout, e.g. because they never get to run, the last part fails instead of holding its
+     * thread forever.
+     *
+     * @throws CosClientException if one of the preceding parts failed, or the wait timed out.
+     */
+    synchronized long[] awaitPrecedingParts(int lastPartNumber) {
+        if (lastPartNumber < 1) {
+            throw new IllegalArgumentException("part number must be at least 1");
+        }
+        int lastUploaded = -1;
+        long deadlineNanos = 0;
+        while (true) {
+            for (int failedPart : failedParts) {
+                if (failedPart < lastPartNumber) {
+                    throw new CosClientException("Unable to upload the last part, part "
+                            + failedPart + " of the upload failed");
+                }
+            }
+            int uploaded = 0;
+            for (int partNumber : partHashes.keySet()) {
+                if (partNumber < lastPartNumber) {
+                    ++uploaded;
+                }
+            }
+            if (uploaded == lastPartNumber - 1) {
+                break;
+            }
+            long nowNanos = System.nanoTime();
+            if (uploaded != lastUploaded) {
+                lastUploaded = uploaded;
+                deadlineNanos =
+                        nowNanos + TimeUnit.MILLISECONDS.toNanos(precedingPartsTimeoutMillis);
+            }
+            long remainingNanos = deadlineNanos - nowNanos;
+            if (remainingNanos <= 0) {
+                throw new CosClientException("Unable to upload the last part, "
+                        + (lastPartNumber - 1 - uploaded) + " of the preceding parts were not "
+                        + "uploaded within " + precedingPartsTimeoutMillis + "ms");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException();
+            }
+        }
+        long[] hash = new long[2];
+        if (lastPartNumber > 1) {
+            // GHASH(A || B) = GHASH(A) * H^blocks(B) xor GHASH(B), with parts of the same size
+            long[] partPower = ghash.power(partSize / BLOCK_SIZE);
+            for (int partNumber = 1; partNumber < lastPartNumber; ++partNumber) {
+                GHash.multiply(hash, partPower);
+                long[] partHash = partHashes.get(partNumber);
+                hash[0] ^= partHash[0];
+                hash[1] ^= partHash[1];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the plaintext offset of the last part, only valid once
+     * {@link #awaitPrecedingParts(int)} returned.
+     */
+    synchronized long lastPartOffset(int lastPartNumber) {
+        return lastPartNumber == 1 ? 0 : (lastPartNumber - 1) * partSize;
+    }
+}
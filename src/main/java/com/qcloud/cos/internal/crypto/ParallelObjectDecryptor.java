@@ -0,0 +1,266 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.Headers;
+import com.qcloud.cos.exception.AbortedException;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.internal.COSDirect;
+import com.qcloud.cos.internal.DownloadSink;
+import com.qcloud.cos.internal.FileChannelDownloadSink;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Downloads an AES/GCM encrypted object into a file as concurrent ranges.
+ * <p>
+ * Every range is decrypted with AES/CTR from its own offset, which yields the same plaintext as
+ * the GCM decryption of the whole object, and written in place. The GHASH of the ciphertext of
+ * every range is computed on the fly, so the GCM tag of the whole object is still verified once
+ * all the ranges are done; the file is deleted if it does not match.
+ * </p>
+ * <p>
+ * The ranges run on an executor shared by the downloads of a client, see
+ * {@link #newExecutor(int)}, rather than on threads started for every download.
+ * </p>
+ */
+final class ParallelObjectDecryptor {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelObjectDecryptor.class);
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int TAG_LENGTH = 16;
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private final COSDirect cos;
+    private final ContentCryptoMaterial cekMaterial;
+    private final ExecutorService executor;
+    private final long partSize;
+    private final GHash ghash;
+    private final byte[] encryptedJ0;
+
+    /**
+     * @param cekMaterial the content crypto material of the object, for AES/GCM
+     * @param securityProvider optional security provider
+     * @param executor the executor downloading the ranges, see {@link #newExecutor(int)}
+     * @param partSize the size of a range, see {@link #alignPartSize(long)}
+     */
+    ParallelObjectDecryptor(COSDirect cos, ContentCryptoMaterial cekMaterial,
+            Provider securityProvider, ExecutorService executor, long partSize) {
+        this.cos = cos;
+        this.cekMaterial = cekMaterial;
+        this.executor = executor;
+        this.partSize = alignPartSize(partSize);
+        CipherLite cipherLite = cekMaterial.getCipherLite();
+        byte[] iv = cipherLite.getIV();
+        this.ghash = GHash.forKey(cipherLite.getSecretKey(), securityProvider);
+        byte[] j0 = new byte[BLOCK_SIZE];
+        System.arraycopy(iv, 0, j0, 0, iv.length);
+        j0[BLOCK_SIZE - 1] = 0x01;
+        this.encryptedJ0 = GHash.encryptBlock(cipherLite.getSecretKey(), securityProvider, j0);
+    }
+
+    /**
+     * Returns an executor for the ranges of the downloads of a client, which run on up to the
+     * given number of daemon threads, started on demand and stopped after a minute idle, so that
+     * an idle client holds no thread.
+     */
+    static ExecutorService newExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("cos-crypto-download-worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Rounds the range size up to a multiple of the block size, so that every range starts on a
+     * block boundary.
+     */
+    static long alignPartSize(long partSize) {
+        return (Math.max(partSize, BLOCK_SIZE) + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    /**
+     * Downloads and decrypts the object.
+     *
+     * @param req the original request, without range
+     * @param first the response to the first range of the object, i.e. [0, partSize - 1] with the
+     *        aligned part size
+     * @param destinationFile the file to write the plaintext to
+     * @return the metadata of the object
+     */
+    ObjectMetadata download(final GetObjectRequest req, COSObject first, File destinationFile) {
+        ObjectMetadata metadata = first.getObjectMetadata();
+        final long instanceLength = metadata.getInstanceLength();
+        final long ciphertextLength = instanceLength - TAG_LENGTH;
+        if (ciphertextLength < 0) {
+            IOUtils.closeQuietly(first, log);
+            throw new SecurityException("Encrypted object is shorter than its tag: " + first);
+        }
+        final byte[] tag = new byte[TAG_LENGTH];
+        final int rangeCount = (int) Math.max(1, (instanceLength + partSize - 1) / partSize);
+        List<Future<long[]>> ranges = new ArrayList<Future<long[]>>(rangeCount);
+        DownloadSink sink = null;
+        boolean success = false;
+        try {
+            sink = new FileChannelDownloadSink(destinationFile, ciphertextLength);
+            final DownloadSink rangeSink = sink;
+            final String eTag = metadata.getETag();
+            for (int i = 0; i < rangeCount; ++i) {
+                final long start = i * partSize;
+                final long end = Math.min(start + partSize, instanceLength) - 1;
+                final COSObject response = i == 0 ? first : null;
+                ranges.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        COSObject object = response;
+                        if (object == null) {
+                            GetObjectRequest rangeReq = (GetObjectRequest) req.clone();
+                            rangeReq.setRange(start, end);
+                            // all the ranges must come from the same version of the object
+                            if (eTag != null && req.getMatchingETagConstraints().isEmpty()) {
+                                rangeReq.setMatchingETagConstraints(
+                                        Collections.singletonList(eTag));
+                            }
+                            object = cos.getObject(rangeReq);
+                            if (object == null) {
+                                throw new CosClientException(
+                                        "Object changed while downloading range " + start + "-"
+                                                + end);
+                            }
+                        }
+                        try {
+                            return decryptRange(object.getObjectContent(), start, end,
+                                    rangeSink, ciphertextLength, tag);
+                        } finally {
+                            IOUtils.closeQuietly(object, log);
+                        }
+                    }
+                }));
+            }
+            long[] hash = new long[2];
+            for (int i = 0; i < rangeCount; ++i) {
+                long[] rangeHash = await(ranges.get(i));
+                long rangeCiphertext = Math.max(0,
+                        Math.min(ciphertextLength, (i + 1) * partSize) - i * partSize);
+                hash = ghash.concat(hash, rangeHash,
+                        (rangeCiphertext + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            }
+            byte[] expectedTag = ghash.tag(hash, ciphertextLength, encryptedJ0);
+            if (!MessageDigest.isEqual(expectedTag, tag)) {
+                throw new SecurityException(
+                        "Tag mismatch, the encrypted object has been modified: " + first);
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new CosClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            if (!success) {
+                for (Future<long[]> range : ranges) {
+                    range.cancel(true);
+                }
+            }
+            // the first range closes the first response, unless it never ran
+            if (ranges.isEmpty() || ranges.get(0).isCancelled()) {
+                IOUtils.closeQuietly(first, log);
+            }
+            IOUtils.closeQuietly(sink, log);
+            if (!success && !destinationFile.delete()) {
+                log.warn("Unable to delete the partially downloaded file " + destinationFile);
+            }
+        }
+        metadata.setHeader(Headers.CONTENT_RANGE, null);
+        metadata.setContentLength(instanceLength);
+        return metadata;
+    }
+
+    private static long[] await(Future<long[]> range) {
+        try {
+            return range.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CosClientException("Unable to download the object: " + cause.getMessage(),
+                    cause);
+        }
+    }
+
+    /**
+     * Decrypts the range [start, end] of the object into the file and returns the GHASH of its
+     * ciphertext. The bytes of the range past the ciphertext are copied into the tag.
+     */
+    long[] decryptRange(InputStream in, long start, long end, DownloadSink sink,
+            long ciphertextLength, byte[] tag) throws Exception {
+        CipherLite cipherLite = cekMaterial.getCipherLite().createAuxiliary(start);
+        GHash.Accumulator accumulator = ghash.new Accumulator();
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, end + 1 - start)];
+        ByteBuffer plaintext = ByteBuffer.allocate(buffer.length + BLOCK_SIZE);
+        long position = start;
+        long writePosition = start;
+        int n;
+        while (position <= end && (n = in.read(buffer, 0,
+                (int) Math.min(buffer.length, end + 1 - position))) != -1) {
+            int ciphertextBytes = (int) Math.max(0, Math.min(n, ciphertextLength - position));
+            if (ciphertextBytes > 0) {
+                accumulator.update(buffer, 0, ciphertextBytes);
+                plaintext.clear();
+                cipherLite.update(ByteBuffer.wrap(buffer, 0, ciphertextBytes), plaintext);
+                plaintext.flip();
+                int plaintextBytes = plaintext.remaining();
+                sink.write(plaintext, writePosition);
+                writePosition += plaintextBytes;
+            }
+            for (int i = ciphertextBytes; i < n; ++i) {
+                tag[(int) (position + i - ciphertextLength)] = buffer[i];
+            }
+            position += n;
+        }
+        if (position != end + 1) {
+            throw new CosClientException("Unexpected end of range " + start + "-" + end + " at "
+                    + position);
+        }
+        byte[] remaining = cipherLite.doFinal();
+        if (remaining != null) {
+            sink.write(ByteBuffer.wrap(remaining), writePosition);
+        }
+        cipherLite.release();
+        return accumulator.getHash();
+    }
+}
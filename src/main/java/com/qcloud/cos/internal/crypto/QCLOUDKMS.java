@@ -18,6 +18,31 @@
 
 package com.qcloud.cos.internal.crypto;
 
+import java.util.Map;
+
+/**
+ * The operations of the key management service used by the encryption client to protect content
+ * encrypting keys with a customer master key.
+ */
 public interface QCLOUDKMS {
 
+    /**
+     * Decrypts a data key.
+     *
+     * @param ciphertextBlob the data key encrypted by the key management service
+     * @param encryptionContext the encryption context the data key was generated with
+     * @return the plaintext data key
+     */
+    public byte[] decrypt(byte[] ciphertextBlob, Map<String, String> encryptionContext);
+
+    /**
+     * Generates a data key protected by a customer master key.
+     *
+     * @param keyId the id of the customer master key
+     * @param keySpec the specification of the data key, e.g. AES_256
+     * @param encryptionContext the encryption context bound to the data key
+     * @return the plaintext data key along with its encrypted form
+     */
+    public DataKey generateDataKey(String keyId, String keySpec,
+            Map<String, String> encryptionContext);
 }
@@ -0,0 +1,193 @@
+package com.qcloud.cos.internal.crypto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded {@link DataKeyCache} whose entries expire after a fixed time.
+ * <p>
+ * Decrypted data keys are kept for {@code ttlMillis}, the least recently used ones being evicted
+ * beyond {@code maxEntries}. Data key reuse on the encryption side is disabled unless
+ * {@code maxDataKeyUses} is greater than 1, in which case a generated data key encrypts at most
+ * that many objects and is given up after {@code dataKeyTtlMillis}, whichever comes first. Up to
+ * {@code maxEntries} generated data keys are kept too, the least recently used ones being evicted
+ * beyond.
+ * </p>
+ * Note the plaintext data keys are held in memory for as long as they are cached.
+ */
+public class TTLDataKeyCache implements DataKeyCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final int maxDataKeyUses;
+    private final long dataKeyTtlMillis;
+
+    private final Map<CacheKey, Entry<byte[]>> plaintexts;
+    private final Map<CacheKey, Entry<DataKey>> dataKeys;
+
+    /**
+     * Caches up to {@value #DEFAULT_MAX_ENTRIES} decrypted data keys for 5 minutes, without data
+     * key reuse on the encryption side.
+     */
+    public TTLDataKeyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param maxEntries the maximum number of decrypted data keys cached
+     * @param ttlMillis the time a decrypted data key is cached for
+     */
+    public TTLDataKeyCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, 1, 0);
+    }
+
+    /**
+     * @param maxEntries the maximum number of decrypted data keys cached
+     * @param ttlMillis the time a decrypted data key is cached for
+     * @param maxDataKeyUses the maximum number of objects encrypted with a generated data key
+     * @param dataKeyTtlMillis the time a generated data key may be reused for
+     */
+    public TTLDataKeyCache(int maxEntries, long ttlMillis, int maxDataKeyUses,
+            long dataKeyTtlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (ttlMillis < 0 || dataKeyTtlMillis < 0) {
+            throw new IllegalArgumentException("time to live must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.maxDataKeyUses = maxDataKeyUses;
+        this.dataKeyTtlMillis = dataKeyTtlMillis;
+        this.plaintexts = newLruMap(maxEntries);
+        this.dataKeys = newLruMap(maxEntries);
+    }
+
+    private static <T> Map<CacheKey, Entry<T>> newLruMap(final int maxEntries) {
+        return new LinkedHashMap<CacheKey, Entry<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the current time in milliseconds; overridden in tests.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized byte[] getPlaintext(byte[] ciphertextBlob,
+            Map<String, String> encryptionContext) {
+        CacheKey key = new CacheKey(null, ciphertextBlob, encryptionContext);
+        Entry<byte[]> entry = plaintexts.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(currentTimeMillis())) {
+            plaintexts.remove(key);
+            return null;
+        }
+        return entry.value.clone();
+    }
+
+    @Override
+    public synchronized void putPlaintext(byte[] ciphertextBlob,
+            Map<String, String> encryptionContext, byte[] plaintext) {
+        if (ttlMillis == 0) {
+            return;
+        }
+        plaintexts.put(new CacheKey(null, ciphertextBlob, encryptionContext),
+                new Entry<byte[]>(plaintext.clone(), currentTimeMillis() + ttlMillis));
+    }
+
+    @Override
+    public synchronized DataKey getDataKey(String keyId, String keySpec,
+            Map<String, String> encryptionContext) {
+        CacheKey key = new CacheKey(keyId + "/" + keySpec, null, encryptionContext);
+        Entry<DataKey> entry = dataKeys.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(currentTimeMillis()) || entry.uses >= maxDataKeyUses) {
+            dataKeys.remove(key);
+            return null;
+        }
+        ++entry.uses;
+        return entry.value;
+    }
+
+    @Override
+    public synchronized void putDataKey(String keyId, String keySpec,
+            Map<String, String> encryptionContext, DataKey dataKey) {
+        if (maxDataKeyUses <= 1 || dataKeyTtlMillis == 0) {
+            return;
+        }
+        Entry<DataKey> entry = new Entry<DataKey>(dataKey, currentTimeMillis() + dataKeyTtlMillis);
+        entry.uses = 1;
+        dataKeys.put(new CacheKey(keyId + "/" + keySpec, null, encryptionContext), entry);
+    }
+
+    @Override
+    public synchronized void clear() {
+        plaintexts.clear();
+        dataKeys.clear();
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long expiresAt;
+        private int uses;
+
+        Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    private static final class CacheKey {
+        private final String keyId;
+        private final byte[] ciphertextBlob;
+        private final Map<String, String> encryptionContext;
+
+        CacheKey(String keyId, byte[] ciphertextBlob, Map<String, String> encryptionContext) {
+            this.keyId = keyId;
+            this.ciphertextBlob = ciphertextBlob == null ? null : ciphertextBlob.clone();
+            this.encryptionContext = encryptionContext == null ? null
+                    : new HashMap<String, String>(encryptionContext);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return (keyId == null ? that.keyId == null : keyId.equals(that.keyId))
+                    && Arrays.equals(ciphertextBlob, that.ciphertextBlob)
+                    && (encryptionContext == null ? that.encryptionContext == null
+                            : encryptionContext.equals(that.encryptionContext));
+        }
+
+        @Override
+        public int hashCode() {
+            int h = keyId == null ? 0 : keyId.hashCode();
+            h = 31 * h + Arrays.hashCode(ciphertextBlob);
+            return 31 * h + (encryptionContext == null ? 0 : encryptionContext.hashCode());
+        }
+    }
+}
@@ -21,6 +21,11 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Decodes eventstream messages from the bytes fed to it.
+ *
+ * @see MessageReader to read the messages of a stream without copying them.
+ */
 public final class MessageDecoder {
 
     private ByteBuffer buf;
@@ -38,6 +43,13 @@ public final class MessageDecoder {
     }
 
     public List<Message> feed(byte[] bytes, int offset, int length) {
+        if (buf.remaining() < length) {
+            // a message bigger than the buffer
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + length));
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
         buf.put(bytes, offset, length);
         ByteBuffer readView = (ByteBuffer) buf.duplicate().flip();
         int bytesConsumed = 0;
@@ -0,0 +1,243 @@
+package com.qcloud.cos.internal.eventstreaming;
+
+import static java.lang.String.format;
+
+import com.qcloud.cos.exception.CRC32MismatchException;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.utils.StringUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Reads eventstream messages from a stream, one at a time, without copying them: the stream is
+ * read in large chunks, and the headers and the payload of the current message are read in
+ * place. Unlike {@link MessageDecoder}, messages can be of any size allowed by the protocol.
+ * <p>
+ * The payloads returned by {@link #getPayload()} are slices of the chunks, which are never
+ * overwritten, so they stay valid after the next messages are read.
+ * </p>
+ */
+public final class MessageReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final int TRAILING_CRC_LENGTH = 4;
+
+    private final InputStream in;
+    private final int chunkSize;
+    private final CRC32 crc = new CRC32();
+
+    private byte[] buf = new byte[0];
+    // the bytes read and not consumed yet are in [start, end)
+    private int start;
+    private int end;
+    // true once a payload slice of buf was returned, so its consumed bytes are not overwritten
+    private boolean shared;
+
+    // the current message
+    private int messageOffset = -1;
+    private int headersOffset;
+    private int headersLength;
+    private int payloadLength;
+
+    public MessageReader(InputStream in) {
+        this(in, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MessageReader(InputStream in, int chunkSize) {
+        if (chunkSize < Prelude.LENGTH_WITH_CRC) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        this.in = in;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the next message, and checks its checksums.
+     *
+     * @return false at the end of the stream.
+     */
+    public boolean next() throws IOException {
+        messageOffset = -1;
+        if (!fill(Prelude.LENGTH_WITH_CRC)) {
+            return false;
+        }
+        long wirePreludeCrc = Utils.toUnsignedLong(getInt(start + Prelude.LENGTH));
+        crc.reset();
+        crc.update(buf, start, Prelude.LENGTH);
+        if (crc.getValue() != wirePreludeCrc) {
+            throw new IllegalArgumentException(format(
+                    "Prelude checksum failure: expected 0x%x, computed 0x%x", wirePreludeCrc,
+                    crc.getValue()));
+        }
+        long totalLength = Utils.toUnsignedLong(getInt(start));
+        long headers = Utils.toUnsignedLong(getInt(start + 4));
+        Prelude.checkLengths(totalLength, headers);
+
+        int length = (int) totalLength;
+        if (!fill(length)) {
+            return false;
+        }
+        int crcOffset = start + length - TRAILING_CRC_LENGTH;
+        long wireMessageCrc = Utils.toUnsignedLong(getInt(crcOffset));
+        crc.reset();
+        crc.update(buf, start, length - TRAILING_CRC_LENGTH);
+        if (crc.getValue() != wireMessageCrc) {
+            throw new CosClientException(new CRC32MismatchException(
+                    format("Message checksum failure: expected 0x%x, computed 0x%x",
+                            wireMessageCrc, crc.getValue())));
+        }
+
+        messageOffset = start;
+        headersOffset = start + Prelude.LENGTH_WITH_CRC;
+        headersLength = (int) headers;
+        payloadLength = length - Message.MESSAGE_OVERHEAD - headersLength;
+        start += length;
+        return true;
+    }
+
+    /**
+     * Returns true if the stream ended in the middle of a message.
+     */
+    public boolean hasPendingContent() {
+        return start != end;
+    }
+
+    /**
+     * Returns the value of a string header of the current message, or null if it has no such
+     * header.
+     *
+     * @throws IllegalArgumentException if the header is not a string.
+     */
+    public String getStringHeader(String name) {
+        checkMessage();
+        ByteBuffer headers = ByteBuffer.wrap(buf, headersOffset, headersLength);
+        while (headers.hasRemaining()) {
+            boolean matches = nameMatches(headers, name);
+            byte typeId = headers.get();
+            if (matches) {
+                if (typeId != HeaderType.STRING.headerTypeId) {
+                    throw new IllegalArgumentException("Unexpected non-string '" + name
+                            + "' header: " + HeaderType.fromTypeId(typeId));
+                }
+                int length = headers.getShort() & 0xFFFF;
+                return new String(buf, headers.position(), length, StringUtils.UTF8);
+            }
+            skipValue(headers, typeId);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the payload of the current message, which shares its content with the chunk read
+     * from the stream.
+     */
+    public ByteBuffer getPayload() {
+        checkMessage();
+        shared = true;
+        return ByteBuffer.wrap(buf, headersOffset + headersLength, payloadLength).slice();
+    }
+
+    /**
+     * Returns a copy of the current message.
+     */
+    public Message toMessage() {
+        checkMessage();
+        Map<String, HeaderValue> headers = Message.decodeHeaders(
+                ByteBuffer.wrap(buf, headersOffset, headersLength));
+        byte[] payload = new byte[payloadLength];
+        System.arraycopy(buf, headersOffset + headersLength, payload, 0, payloadLength);
+        return new Message(headers, payload);
+    }
+
+    private void checkMessage() {
+        if (messageOffset < 0) {
+            throw new IllegalStateException("No current message");
+        }
+    }
+
+    private boolean nameMatches(ByteBuffer headers, String name) {
+        int length = headers.get() & 0xFF;
+        int offset = headers.position();
+        headers.position(offset + length);
+        if (length != name.length()) {
+            return false;
+        }
+        // the names of the headers are ASCII
+        for (int i = 0; i < length; ++i) {
+            if (buf[offset + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void skipValue(ByteBuffer headers, byte typeId) {
+        switch (HeaderType.fromTypeId(typeId)) {
+            case TRUE:
+            case FALSE:
+                return;
+            case BYTE:
+                headers.position(headers.position() + 1);
+                return;
+            case SHORT:
+                headers.position(headers.position() + 2);
+                return;
+            case INTEGER:
+                headers.position(headers.position() + 4);
+                return;
+            case LONG:
+            case TIMESTAMP:
+                headers.position(headers.position() + 8);
+                return;
+            case UUID:
+                headers.position(headers.position() + 16);
+                return;
+            case BYTE_ARRAY:
+            case STRING:
+                int length = headers.getShort() & 0xFFFF;
+                headers.position(headers.position() + length);
+                return;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private int getInt(int offset) {
+        return (buf[offset] & 0xFF) << 24 | (buf[offset + 1] & 0xFF) << 16
+                | (buf[offset + 2] & 0xFF) << 8 | buf[offset + 3] & 0xFF;
+    }
+
+    /**
+     * Reads until at least the given number of bytes are available.
+     *
+     * @return false if the stream ended first.
+     */
+    private boolean fill(int needed) throws IOException {
+        if (end - start >= needed) {
+            return true;
+        }
+        if (start + needed > buf.length) {
+            // moves the pending bytes to the front, of a new chunk if the payloads returned
+            // reference the current one
+            byte[] chunk = shared || needed > buf.length
+                    ? new byte[Math.max(chunkSize, needed)] : buf;
+            System.arraycopy(buf, start, chunk, 0, end - start);
+            buf = chunk;
+            end -= start;
+            start = 0;
+            shared = false;
+        }
+        while (end - start < needed) {
+            int n = in.read(buf, end, buf.length - end);
+            if (n == -1) {
+                return false;
+            }
+            end += n;
+        }
+        return true;
+    }
+}
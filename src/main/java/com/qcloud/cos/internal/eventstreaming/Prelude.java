@@ -49,6 +49,12 @@ final class Prelude {
                     wirePreludeCrc, computedPreludeCrc));
         }
 
+        checkLengths(totalLength, headersLength);
+
+        return new Prelude(toIntExact(totalLength), headersLength);
+    }
+
+    static void checkLengths(long totalLength, long headersLength) {
         if (headersLength < 0 || headersLength > 131072) {
             throw new IllegalArgumentException("Illegal headers_length value: " + headersLength);
         }
@@ -57,8 +63,6 @@ final class Prelude {
         if (payloadLength < 0 || payloadLength > 16777216) {
             throw new IllegalArgumentException("Illegal payload size: " + payloadLength);
         }
-
-        return new Prelude(toIntExact(totalLength), headersLength);
     }
 
     private static long intToUnsignedLong(int i) {
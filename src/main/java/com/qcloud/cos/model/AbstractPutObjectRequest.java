@@ -104,6 +104,12 @@ public abstract class AbstractPutObjectRequest extends CosServiceRequest impleme
      */
     private int trafficLimit = 0;
 
+    /**
+     * The scheduling priority of the upload when submitted to a TransferManager with fair
+     * scheduling enabled.
+     */
+    private TransferPriority transferPriority = TransferPriority.NORMAL;
+
     /**
      * Constructs a new {@link AbstractPutObjectRequest} object to upload a file to the specified
      * bucket and key. After constructing the request, users may optionally specify object metadata
@@ -699,7 +705,8 @@ public abstract class AbstractPutObjectRequest extends CosServiceRequest impleme
                 .withMetadata(metadata == null ? null : metadata.clone())
                 .withRedirectLocation(getRedirectLocation()).withStorageClass(getStorageClass())
                 .withSSECOSKeyManagementParams(getSSECOSKeyManagementParams())
-                .withSSECustomerKey(getSSECustomerKey());
+                .withSSECustomerKey(getSSECustomerKey())
+                .withTransferPriority(getTransferPriority());
     }
 
     public int getTrafficLimit() {
@@ -709,4 +716,27 @@ public abstract class AbstractPutObjectRequest extends CosServiceRequest impleme
     public void setTrafficLimit(int trafficLimit) {
         this.trafficLimit = trafficLimit;
     }
+
+    public TransferPriority getTransferPriority() {
+        return transferPriority;
+    }
+
+    /**
+     * Sets the scheduling priority of the upload when it is submitted to a TransferManager with
+     * fair scheduling enabled.
+     *
+     * @param transferPriority The scheduling priority of the upload.
+     */
+    public void setTransferPriority(TransferPriority transferPriority) {
+        this.transferPriority =
+                transferPriority == null ? TransferPriority.NORMAL : transferPriority;
+    }
+
+    public <T extends AbstractPutObjectRequest> T withTransferPriority(
+            TransferPriority transferPriority) {
+        setTransferPriority(transferPriority);
+        @SuppressWarnings("unchecked")
+        T t = (T) this;
+        return t;
+    }
 }
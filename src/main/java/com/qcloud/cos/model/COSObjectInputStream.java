@@ -20,11 +20,13 @@ package com.qcloud.cos.model;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Callable;
 
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.EofSensorInputStream;
 
+import com.qcloud.cos.http.ConnectionDrainer;
 import com.qcloud.cos.internal.SdkFilterInputStream;
 import com.qcloud.cos.utils.IOUtils;
 
@@ -37,16 +39,35 @@ import com.qcloud.cos.utils.IOUtils;
 public class COSObjectInputStream extends SdkFilterInputStream {
 
     private final HttpRequestBase httpRequest;
+    private final ConnectionDrainer drainer;
+    private final long contentLength;
 
     private boolean eof;
+    private long bytesRead;
+    private long markedBytesRead;
 
     public COSObjectInputStream(
             InputStream in,
             HttpRequestBase httpRequest) {
+        this(in, httpRequest, null, -1);
+    }
+
+    /**
+     * @param drainer decides whether the connection is drained or aborted if the stream is
+     *         closed before its end, or null to always abort it.
+     * @param contentLength the number of bytes of the stream, or -1 if unknown.
+     */
+    public COSObjectInputStream(
+            InputStream in,
+            HttpRequestBase httpRequest,
+            ConnectionDrainer drainer,
+            long contentLength) {
 
         super(in);
 
         this.httpRequest = httpRequest;
+        this.drainer = drainer;
+        this.contentLength = contentLength;
     }
 
     /**
@@ -113,6 +134,8 @@ public class COSObjectInputStream extends SdkFilterInputStream {
         int value = super.read();
         if (value == -1) {
             eof = true;
+        } else {
+            ++bytesRead;
         }
         return value;
     }
@@ -133,10 +156,31 @@ public class COSObjectInputStream extends SdkFilterInputStream {
         int value = super.read(b, off, len);
         if (value == -1) {
             eof = true;
+        } else {
+            bytesRead += value;
         }
         return value;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        bytesRead += skipped;
+        return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void mark(int readlimit) {
+        super.mark(readlimit);
+        markedBytesRead = bytesRead;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -144,6 +188,7 @@ public class COSObjectInputStream extends SdkFilterInputStream {
     public void reset() throws IOException {
         super.reset();
         eof = false;
+        bytesRead = markedBytesRead;
     }
 
     /**
@@ -151,6 +196,9 @@ public class COSObjectInputStream extends SdkFilterInputStream {
      *
      * Delegate to {@link COSObjectInputStream#abort()} if there is data remaining in the stream. If the stream has been
      * read completely, with no data remaining, safely close the stream.
+     * <p>
+     * With a {@link ConnectionDrainer}, a short enough remainder is read and discarded on its thread instead, so that
+     * the connection can be reused.
      *
      * @see {@link COSObjectInputStream#abort()}
      */
@@ -158,10 +206,55 @@ public class COSObjectInputStream extends SdkFilterInputStream {
     public void close() throws IOException {
         if (eof) {
             super.close();
-            httpRequest.releaseConnection();
+            if (httpRequest != null) {
+                httpRequest.releaseConnection();
+            }
+        } else if (drainer != null) {
+            drainer.drainOrAbort(contentLength < 0 ? -1 : contentLength - bytesRead,
+                    new Callable<Long>() {
+                        @Override
+                        public Long call() throws IOException {
+                            return drain();
+                        }
+                    }, new Runnable() {
+                        @Override
+                        public void run() {
+                            releaseDrained();
+                        }
+                    }, new Runnable() {
+                        @Override
+                        public void run() {
+                            doAbort();
+                        }
+                    });
         } else {
             doAbort();
         }
     }
+
+    /**
+     * Reads the rest of the stream.
+     *
+     * @return the number of bytes read.
+     */
+    private long drain() throws IOException {
+        byte[] buffer = new byte[8192];
+        long drained = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            drained += n;
+        }
+        return drained;
+    }
+
+    /**
+     * Closes the drained stream and releases its connection.
+     */
+    private void releaseDrained() {
+        IOUtils.closeQuietly(in, null);
+        if (httpRequest != null) {
+            httpRequest.releaseConnection();
+        }
+    }
 }
 
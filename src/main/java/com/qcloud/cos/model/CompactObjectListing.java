@@ -0,0 +1,388 @@
+package com.qcloud.cos.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A page of a listing, as returned by {@link com.qcloud.cos.COS#listObjectsCompact}, which holds
+ * the objects in columns rather than as one {@link COSObjectSummary} each: the keys are strings,
+ * the sizes and last modified times primitives, the MD5 ETags 16 raw bytes, and the storage
+ * classes and owners, which repeat on most objects, are stored once per listing. This takes
+ * several times less memory than an {@link ObjectListing}, and makes little garbage while
+ * parsing.
+ * <p>
+ * The objects are read with a {@link Cursor}, which is a view over the listing rather than an
+ * object per entry.
+ * </p>
+ */
+public class CompactObjectListing {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MD5_LENGTH = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // stored in place of a missing ETag, which is not an MD5 either, compared by identity
+    private static final String NO_ETAG = new String("");
+
+    private String bucketName;
+    private String prefix;
+    private String marker;
+    private String nextMarker;
+    private String delimiter;
+    private String encodingType;
+    private int maxKeys;
+    private boolean truncated;
+    private final List<String> commonPrefixes = new ArrayList<String>();
+
+    private int size;
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private long[] sizes = new long[INITIAL_CAPACITY];
+    private long[] lastModified = new long[INITIAL_CAPACITY];
+    private byte[] md5ETags = new byte[INITIAL_CAPACITY * MD5_LENGTH];
+    // the ETags which are not an MD5, allocated on the first one
+    private String[] otherETags;
+    private short[] storageClassIndexes = new short[INITIAL_CAPACITY];
+    private short[] ownerIndexes = new short[INITIAL_CAPACITY];
+
+    private final List<String> storageClasses = new ArrayList<String>();
+    private final List<Owner> owners = new ArrayList<Owner>();
+
+    /**
+     * Adds an object at the end of the listing.
+     *
+     * @param lastModifiedMillis the last modified time, or -1 if unknown.
+     * @param eTag the ETag without quotes, or null.
+     * @param storageClass the storage class, or null.
+     * @param owner the owner, or null.
+     */
+    public void addObject(String key, long size, long lastModifiedMillis, String eTag,
+            String storageClass, Owner owner) {
+        if (this.size == keys.length) {
+            grow();
+        }
+        int i = this.size++;
+        keys[i] = key;
+        sizes[i] = size;
+        lastModified[i] = lastModifiedMillis;
+        if (!parseMd5(eTag, i)) {
+            if (otherETags == null) {
+                otherETags = new String[keys.length];
+            }
+            otherETags[i] = eTag == null ? NO_ETAG : eTag;
+        }
+        storageClassIndexes[i] = storageClassIndexOf(storageClass);
+        ownerIndexes[i] = ownerIndexOf(owner);
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        lastModified = Arrays.copyOf(lastModified, capacity);
+        md5ETags = Arrays.copyOf(md5ETags, capacity * MD5_LENGTH);
+        if (otherETags != null) {
+            otherETags = Arrays.copyOf(otherETags, capacity);
+        }
+        storageClassIndexes = Arrays.copyOf(storageClassIndexes, capacity);
+        ownerIndexes = Arrays.copyOf(ownerIndexes, capacity);
+    }
+
+    // a listing has a handful of distinct storage classes and owners, a linear search is enough
+
+    private short storageClassIndexOf(String storageClass) {
+        if (storageClass == null) {
+            return -1;
+        }
+        for (int i = 0; i < storageClasses.size(); ++i) {
+            if (storageClasses.get(i).equals(storageClass)) {
+                return (short) i;
+            }
+        }
+        return add(storageClasses, storageClass);
+    }
+
+    private short ownerIndexOf(Owner owner) {
+        if (owner == null) {
+            return -1;
+        }
+        for (int i = 0; i < owners.size(); ++i) {
+            Owner existing = owners.get(i);
+            if (equals(existing.getId(), owner.getId())
+                    && equals(existing.getDisplayName(), owner.getDisplayName())) {
+                return (short) i;
+            }
+        }
+        return add(owners, owner);
+    }
+
+    private static <T> short add(List<T> values, T value) {
+        if (values.size() == Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct values in a listing");
+        }
+        values.add(value);
+        return (short) (values.size() - 1);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Stores the ETag of the i-th object as raw bytes if it is a lower case hex MD5.
+     */
+    private boolean parseMd5(String eTag, int i) {
+        if (eTag == null || eTag.length() != MD5_LENGTH * 2) {
+            return false;
+        }
+        int offset = i * MD5_LENGTH;
+        for (int j = 0; j < MD5_LENGTH; ++j) {
+            int high = hexValue(eTag.charAt(2 * j));
+            int low = hexValue(eTag.charAt(2 * j + 1));
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            md5ETags[offset + j] = (byte) (high << 4 | low);
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of objects of the listing.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a cursor positioned before the first object.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Returns the key of the last object, or null if the listing is empty.
+     */
+    public String getLastKey() {
+        return size == 0 ? null : keys[size - 1];
+    }
+
+    /**
+     * Converts the listing into a regular one, e.g. for code which needs
+     * {@link COSObjectSummary}s.
+     */
+    public ObjectListing toObjectListing() {
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName(bucketName);
+        listing.setPrefix(prefix);
+        listing.setMarker(marker);
+        listing.setNextMarker(nextMarker);
+        listing.setDelimiter(delimiter);
+        listing.setEncodingType(encodingType);
+        listing.setMaxKeys(maxKeys);
+        listing.setTruncated(truncated);
+        listing.setCommonPrefixes(new ArrayList<String>(commonPrefixes));
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            listing.getObjectSummaries().add(cursor.toObjectSummary());
+        }
+        return listing;
+    }
+
+    /**
+     * A view of one object of the listing at a time.
+     */
+    public final class Cursor {
+        private int index = -1;
+
+        /**
+         * Moves to the next object, returns false if there is none.
+         */
+        public boolean next() {
+            if (index + 1 >= size) {
+                index = size;
+                return false;
+            }
+            ++index;
+            return true;
+        }
+
+        /**
+         * Moves to the i-th object of the listing.
+         */
+        public void moveTo(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+            }
+            index = i;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getKey() {
+            return keys[checkedIndex()];
+        }
+
+        public long getSize() {
+            return sizes[checkedIndex()];
+        }
+
+        /**
+         * Returns the last modified time in milliseconds since the epoch, or -1 if unknown.
+         */
+        public long getLastModifiedMillis() {
+            return lastModified[checkedIndex()];
+        }
+
+        /**
+         * Returns true if the ETag is an MD5, available with {@link #copyMd5ETag(byte[], int)}.
+         */
+        public boolean hasMd5ETag() {
+            int i = checkedIndex();
+            return otherETags == null || otherETags[i] == null;
+        }
+
+        /**
+         * Copies the 16 bytes of the MD5 ETag into the given array.
+         */
+        public void copyMd5ETag(byte[] dest, int offset) {
+            if (!hasMd5ETag()) {
+                throw new IllegalStateException("The ETag is not an MD5: " + getETag());
+            }
+            System.arraycopy(md5ETags, index * MD5_LENGTH, dest, offset, MD5_LENGTH);
+        }
+
+        /**
+         * Returns the ETag without quotes, or null. An MD5 ETag is formatted on every call.
+         */
+        public String getETag() {
+            int i = checkedIndex();
+            if (otherETags != null && otherETags[i] != null) {
+                return otherETags[i] == NO_ETAG ? null : otherETags[i];
+            }
+            char[] chars = new char[MD5_LENGTH * 2];
+            int offset = i * MD5_LENGTH;
+            for (int j = 0; j < MD5_LENGTH; ++j) {
+                int b = md5ETags[offset + j] & 0xff;
+                chars[2 * j] = HEX[b >>> 4];
+                chars[2 * j + 1] = HEX[b & 0xf];
+            }
+            return new String(chars);
+        }
+
+        public String getStorageClass() {
+            short i = storageClassIndexes[checkedIndex()];
+            return i < 0 ? null : storageClasses.get(i);
+        }
+
+        /**
+         * Returns the owner, shared by all the objects of the listing with the same owner.
+         */
+        public Owner getOwner() {
+            short i = ownerIndexes[checkedIndex()];
+            return i < 0 ? null : owners.get(i);
+        }
+
+        public COSObjectSummary toObjectSummary() {
+            COSObjectSummary summary = new COSObjectSummary();
+            summary.setBucketName(bucketName);
+            summary.setKey(getKey());
+            summary.setSize(getSize());
+            if (getLastModifiedMillis() >= 0) {
+                summary.setLastModified(new Date(getLastModifiedMillis()));
+            }
+            summary.setETag(getETag());
+            summary.setStorageClass(getStorageClass());
+            summary.setOwner(getOwner());
+            return summary;
+        }
+
+        private int checkedIndex() {
+            if (index < 0 || index >= size) {
+                throw new IllegalStateException("The cursor is not on an object");
+            }
+            return index;
+        }
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public void setBucketName(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getMarker() {
+        return marker;
+    }
+
+    public void setMarker(String marker) {
+        this.marker = marker;
+    }
+
+    public String getNextMarker() {
+        return nextMarker;
+    }
+
+    public void setNextMarker(String nextMarker) {
+        this.nextMarker = nextMarker;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public String getEncodingType() {
+        return encodingType;
+    }
+
+    public void setEncodingType(String encodingType) {
+        this.encodingType = encodingType;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public List<String> getCommonPrefixes() {
+        return commonPrefixes;
+    }
+}
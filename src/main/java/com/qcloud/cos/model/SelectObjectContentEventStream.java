@@ -22,8 +22,7 @@ import com.qcloud.cos.annotation.NotThreadSafe;
 import com.qcloud.cos.exception.SelectObjectContentEventException;
 import com.qcloud.cos.internal.ReleasableInputStream;
 import com.qcloud.cos.internal.SdkFilterInputStream;
-import com.qcloud.cos.internal.eventstreaming.Message;
-import com.qcloud.cos.internal.eventstreaming.MessageDecoder;
+import com.qcloud.cos.internal.eventstreaming.MessageReader;
 import com.qcloud.cos.model.SelectObjectContentEvent.RecordsEvent;
 import com.qcloud.cos.model.transform.SelectObjectContentEventUnmarshaller;
 import com.qcloud.cos.utils.BinaryUtils;
@@ -178,6 +177,40 @@ public class SelectObjectContentEventStream implements Closeable {
         return new SelectRecordsInputStream(recordInputStream, inputStream);
     }
 
+    /**
+     * Retrieve a reader of the records of the COS object that matched the query, split by the record delimiter of the
+     * output serialization of the request, whose fields of CSV records are decoded on demand. This will lazily-load
+     * the content from COS, and read the records in place rather than copying them.
+     *
+     * This will raise a runtime exception if {@link #getAllEvents()}, {@link #visitAllEvents(SelectObjectContentEventVisitor)},
+     * {@link #getRecordsInputStream()} or {@link #getEventsIterator()} have already been used.
+     *
+     * Closing the reader is equivalent to calling {@link #close()} on this {@link SelectObjectContentEventStream}.
+     *
+     * @param outputSerialization The output serialization of the {@link SelectObjectContentRequest}.
+     * @see #getRecordReader(OutputSerialization, SelectObjectContentEventVisitor) to also process non-record events
+     *         while reading the response.
+     */
+    public SelectRecordReader getRecordReader(OutputSerialization outputSerialization)
+            throws SelectObjectContentEventException {
+        return getRecordReader(outputSerialization, new SelectObjectContentEventVisitor() {
+        });
+    }
+
+    /**
+     * Retrieve a reader of the records of the COS object that matched the query, like
+     * {@link #getRecordReader(OutputSerialization)}, with a "listener" {@link SelectObjectContentEventVisitor}
+     * that intercepts the events returned by COS while the records are read.
+     *
+     * @param outputSerialization The output serialization of the {@link SelectObjectContentRequest}.
+     * @param listener A visitor for monitoring the progress of the query between {@link RecordsEvent}s.
+     */
+    public SelectRecordReader getRecordReader(OutputSerialization outputSerialization,
+            SelectObjectContentEventVisitor listener) throws SelectObjectContentEventException {
+        return new SelectRecordReader(new RecordsPayloadIterator(getEventsIterator(), listener),
+                outputSerialization, this);
+    }
+
     /**
      * Abort this stream, potentially before all events have been read. This should be used before {@link #close()} if
      * there are
@@ -215,29 +248,18 @@ public class SelectObjectContentEventStream implements Closeable {
      */
     private class SelectEventIterator extends LazyLoadedIterator<SelectObjectContentEvent> {
 
-        private final MessageDecoder decoder = new MessageDecoder();
+        private final MessageReader reader = new MessageReader(inputStream);
 
         @Override
         protected Collection<SelectObjectContentEvent> getNext() throws IOException {
-            List<SelectObjectContentEvent> next = new ArrayList<SelectObjectContentEvent>();
-            byte[] payload = new byte[256];
-            while (next.isEmpty()) {
-                int read = inputStream.read(payload);
-                if (read == -1) {
-                    if (decoder.hasPendingContent()) {
-                        throw new SelectObjectContentEventException(
-                                "Service stream ended before an event could be entirely decoded.");
-                    }
-                    break;
-                }
-
-                List<Message> messages = decoder.feed(payload, 0, read);
-
-                for (Message message : messages) {
-                    next.add(SelectObjectContentEventUnmarshaller.unmarshalMessage(message));
+            if (!reader.next()) {
+                if (reader.hasPendingContent()) {
+                    throw new SelectObjectContentEventException(
+                            "Service stream ended before an event could be entirely decoded.");
                 }
+                return Collections.emptyList();
             }
-            return next;
+            return Collections.singletonList(SelectObjectContentEventUnmarshaller.unmarshalMessage(reader));
         }
 
     }
@@ -281,7 +303,11 @@ public class SelectObjectContentEventStream implements Closeable {
                     @Override
                     public void visit(RecordsEvent event) {
                         ByteBuffer records = event.getPayload();
-                        if (records != null) {
+                        if (records != null && records.hasArray()) {
+                            // reads the payload in place
+                            result.add(new ByteArrayInputStream(records.array(),
+                                    records.arrayOffset() + records.position(), records.remaining()));
+                        } else if (records != null) {
                             result.add(new ByteArrayInputStream(BinaryUtils.copyBytesFrom(records)));
                         }
                     }
@@ -308,6 +334,37 @@ public class SelectObjectContentEventStream implements Closeable {
         }
     }
 
+    /**
+     * An implementation of {@link LazyLoadedIterator} that returns the payloads of the {@link RecordsEvent}s of the
+     * underlying event stream, as they are.
+     */
+    private class RecordsPayloadIterator extends LazyLoadedIterator<ByteBuffer> {
+
+        private final Iterator<SelectObjectContentEvent> selectEventIterator;
+        private final SelectObjectContentEventVisitor additionalVisitor;
+
+        private RecordsPayloadIterator(Iterator<SelectObjectContentEvent> selectEventIterator,
+                SelectObjectContentEventVisitor additionalVisitor) {
+            this.selectEventIterator = selectEventIterator;
+            this.additionalVisitor = additionalVisitor;
+        }
+
+        @Override
+        protected Collection<ByteBuffer> getNext() {
+            while (selectEventIterator.hasNext()) {
+                SelectObjectContentEvent event = selectEventIterator.next();
+                event.visit(additionalVisitor);
+                if (event instanceof RecordsEvent) {
+                    ByteBuffer records = ((RecordsEvent) event).getPayload();
+                    if (records != null && records.hasRemaining()) {
+                        return Collections.singletonList(records);
+                    }
+                }
+            }
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * An implementation of {@link Iterator} that maps the Iterator contract into a lazily-loaded, simpler-to-implement
      * {@link #getNext()} method.
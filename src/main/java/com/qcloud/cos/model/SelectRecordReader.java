@@ -0,0 +1,464 @@
+package com.qcloud.cos.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.qcloud.cos.annotation.NotThreadSafe;
+import com.qcloud.cos.utils.StringUtils;
+
+/**
+ * Reads the records of a select result one at a time, usually acquired by a call to
+ * {@link SelectObjectContentEventStream#getRecordReader(OutputSerialization)}. The records are
+ * split by the record delimiter of the {@link CSVOutput} or {@link JSONOutput} of the request,
+ * the delimiters within the quoted CSV fields excepted.
+ * <p>
+ * The current record is a view, valid until the next call to {@link #next()}: its bytes are read
+ * in place from the payload of the records event, and only copied when it spans several events.
+ * Its text and the fields of a CSV record are decoded on demand, into buffers reused from one
+ * record to the next, so copy them, e.g. with <code>toString()</code>, to keep them.
+ * </p>
+ */
+@NotThreadSafe
+public class SelectRecordReader implements Closeable {
+
+    private static final char DEFAULT_RECORD_DELIMITER = '\n';
+    private static final char DEFAULT_FIELD_DELIMITER = ',';
+    private static final char DEFAULT_QUOTE_CHARACTER = '"';
+
+    private final Iterator<ByteBuffer> payloads;
+    private final Closeable source;
+    private final boolean csv;
+    private final byte recordDelimiter;
+    private final char fieldDelimiter;
+    private final char quote;
+    private final char escape;
+    private final CharsetDecoder decoder = StringUtils.UTF8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    // the payload being scanned
+    private byte[] chunk;
+    private int position;
+    private int limit;
+    // the start of a record spanning several payloads
+    private byte[] carry = new byte[1024];
+    private int carryLength;
+    // the quoting state of the record being scanned
+    private boolean inQuotes;
+    private boolean escaped;
+
+    // the current record
+    private byte[] recordArray;
+    private int recordOffset;
+    private int recordLength;
+    private boolean hasRecord;
+    private char[] text = new char[1024];
+    private int textLength = -1;
+    private final Chars textView = new Chars();
+    // the bounds of the fields in the record, and of the decoded ones in fieldChars
+    private int[] fieldBounds = new int[0];
+    private int[] fieldStarts = new int[0];
+    private int[] fieldLengths = new int[0];
+    private int fieldCount = -1;
+    private Chars[] fieldViews = new Chars[0];
+    private char[] fieldChars = new char[1024];
+    private int fieldCharsUsed;
+    private byte[] unquoted = new byte[256];
+
+    /**
+     * @param payloads the payloads of the records events, in order.
+     * @param outputSerialization the output serialization of the request.
+     * @param source what to close with the reader, or null.
+     */
+    public SelectRecordReader(Iterator<ByteBuffer> payloads,
+            OutputSerialization outputSerialization, Closeable source) {
+        this.payloads = payloads;
+        this.source = source;
+        CSVOutput csvOutput = outputSerialization == null ? null : outputSerialization.getCsv();
+        JSONOutput jsonOutput = outputSerialization == null ? null : outputSerialization.getJson();
+        if (csvOutput == null && jsonOutput == null) {
+            throw new IllegalArgumentException(
+                    "The output serialization must be either CSV or JSON");
+        }
+        this.csv = csvOutput != null;
+        Character delimiter = csv ? csvOutput.getRecordDelimiter()
+                : jsonOutput.getRecordDelimiter();
+        this.recordDelimiter = (byte) singleByte(
+                delimiter == null ? DEFAULT_RECORD_DELIMITER : delimiter, "record delimiter");
+        if (csv) {
+            this.fieldDelimiter = singleByte(csvOutput.getFieldDelimiter() == null
+                    ? DEFAULT_FIELD_DELIMITER : csvOutput.getFieldDelimiter(), "field delimiter");
+            this.quote = singleByte(csvOutput.getQuoteCharacter() == null
+                    ? DEFAULT_QUOTE_CHARACTER : csvOutput.getQuoteCharacter(), "quote character");
+            this.escape = singleByte(csvOutput.getQuoteEscapeCharacter() == null ? quote
+                    : csvOutput.getQuoteEscapeCharacter(), "quote escape character");
+        } else {
+            this.fieldDelimiter = 0;
+            this.quote = 0;
+            this.escape = 0;
+        }
+    }
+
+    private static char singleByte(char c, String name) {
+        // an ASCII byte never appears within the UTF-8 encoding of another character
+        if (c >= 0x80) {
+            throw new IllegalArgumentException("Unsupported non ASCII " + name + ": " + c);
+        }
+        return c;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false at the end of the records.
+     */
+    public boolean next() {
+        if (hasRecord && recordArray == carry) {
+            carryLength = 0;
+        }
+        hasRecord = false;
+        textLength = -1;
+        fieldCount = -1;
+        while (true) {
+            if (position < limit) {
+                int start = position;
+                int end = scan(start);
+                if (end >= 0) {
+                    position = end + 1;
+                    if (carryLength == 0) {
+                        setRecord(chunk, start, end - start);
+                    } else {
+                        appendCarry(start, end - start);
+                        setRecord(carry, 0, carryLength);
+                    }
+                    return true;
+                }
+                appendCarry(start, limit - start);
+                position = limit;
+            }
+            if (!payloads.hasNext()) {
+                if (carryLength > 0) {
+                    // the last record, without a delimiter
+                    setRecord(carry, 0, carryLength);
+                    return true;
+                }
+                return false;
+            }
+            ByteBuffer payload = payloads.next();
+            if (payload.hasArray()) {
+                chunk = payload.array();
+                position = payload.arrayOffset() + payload.position();
+                limit = position + payload.remaining();
+            } else {
+                chunk = new byte[payload.remaining()];
+                payload.duplicate().get(chunk);
+                position = 0;
+                limit = chunk.length;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the next record delimiter in the current payload, or -1 if it has
+     * none.
+     */
+    private int scan(int from) {
+        byte[] b = chunk;
+        if (!csv) {
+            for (int i = from; i < limit; ++i) {
+                if (b[i] == recordDelimiter) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (int i = from; i < limit; ++i) {
+            byte c = b[i];
+            if (escaped) {
+                escaped = false;
+            } else if (inQuotes && c == escape && escape != quote) {
+                escaped = true;
+            } else if (c == quote) {
+                // a doubled quote escaping a quote toggles twice
+                inQuotes = !inQuotes;
+            } else if (c == recordDelimiter && !inQuotes) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendCarry(int from, int length) {
+        if (carryLength + length > carry.length) {
+            byte[] bigger = new byte[Math.max(carry.length * 2, carryLength + length)];
+            System.arraycopy(carry, 0, bigger, 0, carryLength);
+            carry = bigger;
+        }
+        System.arraycopy(chunk, from, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    private void setRecord(byte[] array, int offset, int length) {
+        recordArray = array;
+        recordOffset = offset;
+        recordLength = length;
+        hasRecord = true;
+        inQuotes = false;
+        escaped = false;
+    }
+
+    private void checkRecord() {
+        if (!hasRecord) {
+            throw new IllegalStateException("No current record");
+        }
+    }
+
+    /**
+     * Returns the UTF-8 bytes of the current record, without its delimiter.
+     */
+    public ByteBuffer getBytes() {
+        checkRecord();
+        return ByteBuffer.wrap(recordArray, recordOffset, recordLength).slice();
+    }
+
+    /**
+     * Returns the text of the current record, without its delimiter.
+     */
+    public CharSequence getText() {
+        checkRecord();
+        decodeText();
+        return textView.set(text, 0, textLength);
+    }
+
+    private void decodeText() {
+        if (textLength >= 0) {
+            return;
+        }
+        if (text.length < recordLength) {
+            text = new char[Math.max(text.length * 2, recordLength)];
+        }
+        textLength = decode(recordArray, recordOffset, recordOffset + recordLength, text, 0);
+    }
+
+    /**
+     * Decodes UTF-8 bytes into a large enough array, and returns the end of the chars.
+     */
+    private int decode(byte[] b, int from, int to, char[] out, int offset) {
+        int i = from;
+        int n = offset;
+        for (; i < to && b[i] >= 0; ++i) {
+            out[n++] = (char) b[i];
+        }
+        if (i < to) {
+            CharBuffer chars = CharBuffer.wrap(out, n, out.length - n);
+            decoder.reset();
+            decoder.decode(ByteBuffer.wrap(b, i, to - i), chars, true);
+            decoder.flush(chars);
+            n = chars.position();
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of fields of the current CSV record.
+     *
+     * @throws IllegalStateException if the records are JSON.
+     */
+    public int getFieldCount() {
+        checkRecord();
+        splitFields();
+        return fieldCount;
+    }
+
+    /**
+     * Returns a field of the current CSV record, unquoted.
+     *
+     * @param index the index of the field, starting from 0.
+     * @throws IllegalStateException if the records are JSON.
+     */
+    public CharSequence getField(int index) {
+        checkRecord();
+        splitFields();
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException(
+                    "Field " + index + " of a record of " + fieldCount + " fields");
+        }
+        if (fieldStarts[index] < 0) {
+            decodeField(index);
+        }
+        return fieldViews[index].set(fieldChars, fieldStarts[index], fieldLengths[index]);
+    }
+
+    /**
+     * Finds the bounds of the fields in the bytes of the record, which are decoded when accessed.
+     */
+    private void splitFields() {
+        if (!csv) {
+            throw new IllegalStateException("The fields of JSON records are not split");
+        }
+        if (fieldCount >= 0) {
+            return;
+        }
+        byte[] b = recordArray;
+        int end = recordOffset + recordLength;
+        int count = 0;
+        int fieldStart = recordOffset;
+        boolean quoted = false;
+        boolean escapedByte = false;
+        for (int i = recordOffset; i < end; ++i) {
+            byte c = b[i];
+            if (escapedByte) {
+                escapedByte = false;
+            } else if (quoted && c == escape && escape != quote) {
+                escapedByte = true;
+            } else if (c == quote) {
+                quoted = !quoted;
+            } else if (c == fieldDelimiter && !quoted) {
+                count = addField(count, fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        fieldCount = addField(count, fieldStart, end);
+        fieldCharsUsed = 0;
+    }
+
+    private int addField(int count, int start, int end) {
+        if (count == fieldStarts.length) {
+            int size = Math.max(8, count * 2);
+            int[] bounds = new int[2 * size];
+            System.arraycopy(fieldBounds, 0, bounds, 0, fieldBounds.length);
+            fieldBounds = bounds;
+            fieldStarts = new int[size];
+            fieldLengths = new int[size];
+            Chars[] views = new Chars[size];
+            System.arraycopy(fieldViews, 0, views, 0, fieldViews.length);
+            for (int i = fieldViews.length; i < size; ++i) {
+                views[i] = new Chars();
+            }
+            fieldViews = views;
+            // the fields found so far are not decoded yet
+            Arrays.fill(fieldStarts, -1);
+        }
+        fieldBounds[2 * count] = start;
+        fieldBounds[2 * count + 1] = end;
+        fieldStarts[count] = -1;
+        return count + 1;
+    }
+
+    private void decodeField(int index) {
+        byte[] b = recordArray;
+        int from = fieldBounds[2 * index];
+        int to = fieldBounds[2 * index + 1];
+        for (int i = from; i < to; ++i) {
+            if (b[i] == quote) {
+                to = unquote(from, to);
+                from = 0;
+                b = unquoted;
+                break;
+            }
+        }
+        if (fieldChars.length < fieldCharsUsed + to - from) {
+            char[] bigger = new char[Math.max(fieldChars.length * 2, fieldCharsUsed + to - from)];
+            System.arraycopy(fieldChars, 0, bigger, 0, fieldCharsUsed);
+            fieldChars = bigger;
+        }
+        int end = decode(b, from, to, fieldChars, fieldCharsUsed);
+        fieldStarts[index] = fieldCharsUsed;
+        fieldLengths[index] = end - fieldCharsUsed;
+        fieldCharsUsed = end;
+    }
+
+    /**
+     * Copies the bytes of a quoted field without its quotes and escapes, and returns their
+     * length.
+     */
+    private int unquote(int from, int to) {
+        if (unquoted.length < to - from) {
+            unquoted = new byte[Math.max(unquoted.length * 2, to - from)];
+        }
+        byte[] in = recordArray;
+        byte[] out = unquoted;
+        int o = 0;
+        boolean quoted = false;
+        for (int i = from; i < to; ++i) {
+            byte c = in[i];
+            if (quoted) {
+                if (c == escape && escape != quote && i + 1 < to) {
+                    out[o++] = in[++i];
+                } else if (c == quote) {
+                    if (escape == quote && i + 1 < to && in[i + 1] == quote) {
+                        out[o++] = c;
+                        ++i;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    out[o++] = c;
+                }
+            } else if (c == quote) {
+                quoted = true;
+            } else {
+                out[o++] = c;
+            }
+        }
+        return o;
+    }
+
+    /**
+     * Closes the select result the records are read from.
+     */
+    @Override
+    public void close() throws IOException {
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    /**
+     * A reusable view of a range of a char array.
+     */
+    private static final class Chars implements CharSequence {
+        private char[] chars;
+        private int offset;
+        private int length;
+
+        Chars set(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            }
+            return new String(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.qcloud.cos.model;
+
+/**
+ * Specifies the scheduling priority of an upload submitted to a
+ * {@link com.qcloud.cos.transfer.TransferManager} with fair scheduling enabled. The parts of a
+ * higher priority upload are always started before the parts of a lower priority one, uploads of
+ * the same priority share the part slots in a round-robin fashion.
+ */
+public enum TransferPriority {
+    HIGH, NORMAL, LOW;
+}
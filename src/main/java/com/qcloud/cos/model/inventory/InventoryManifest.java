@@ -0,0 +1,130 @@
+package com.qcloud.cos.model.inventory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The manifest.json of an inventory report, which lists the data files of the report.
+ */
+public class InventoryManifest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String sourceBucket;
+    private String destinationBucket;
+    private String version;
+    private String creationTimestamp;
+    private String fileFormat;
+    private String fileSchema;
+    private List<DataFile> files = new ArrayList<DataFile>();
+
+    /**
+     * Returns the bucket the inventory describes.
+     */
+    public String getSourceBucket() {
+        return sourceBucket;
+    }
+
+    public void setSourceBucket(String sourceBucket) {
+        this.sourceBucket = sourceBucket;
+    }
+
+    /**
+     * Returns the bucket the report is written to.
+     */
+    public String getDestinationBucket() {
+        return destinationBucket;
+    }
+
+    public void setDestinationBucket(String destinationBucket) {
+        this.destinationBucket = destinationBucket;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getCreationTimestamp() {
+        return creationTimestamp;
+    }
+
+    public void setCreationTimestamp(String creationTimestamp) {
+        this.creationTimestamp = creationTimestamp;
+    }
+
+    /**
+     * Returns the format of the data files, e.g. CSV.
+     */
+    public String getFileFormat() {
+        return fileFormat;
+    }
+
+    public void setFileFormat(String fileFormat) {
+        this.fileFormat = fileFormat;
+    }
+
+    /**
+     * Returns the comma separated names of the columns of the data files, e.g.
+     * "AppID, Bucket, Key, Size, LastModifiedDate, ETag, StorageClass".
+     */
+    public String getFileSchema() {
+        return fileSchema;
+    }
+
+    public void setFileSchema(String fileSchema) {
+        this.fileSchema = fileSchema;
+    }
+
+    public List<DataFile> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<DataFile> files) {
+        this.files = files;
+    }
+
+    /**
+     * A data file of the report, stored in the destination bucket.
+     */
+    public static class DataFile implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String key;
+        private long size;
+        private String md5Checksum;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        @JsonProperty("MD5checksum")
+        public String getMd5Checksum() {
+            return md5Checksum;
+        }
+
+        @JsonProperty("MD5checksum")
+        public void setMd5Checksum(String md5Checksum) {
+            this.md5Checksum = md5Checksum;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.qcloud.cos.model.inventory;
+
+import java.util.Date;
+
+import com.qcloud.cos.model.COSObjectSummary;
+
+/**
+ * A row of an inventory report. The fields missing from the report schema are null, or -1 for
+ * the size and the last modified time.
+ */
+public class InventoryRecord {
+
+    private final String bucketName;
+    private final String key;
+    private final String versionId;
+    private final long size;
+    private final long lastModifiedMillis;
+    private final String eTag;
+    private final String storageClass;
+    private final Boolean multipartUploaded;
+
+    public InventoryRecord(String bucketName, String key, String versionId, long size,
+            long lastModifiedMillis, String eTag, String storageClass,
+            Boolean multipartUploaded) {
+        this.bucketName = bucketName;
+        this.key = key;
+        this.versionId = versionId;
+        this.size = size;
+        this.lastModifiedMillis = lastModifiedMillis;
+        this.eTag = eTag;
+        this.storageClass = storageClass;
+        this.multipartUploaded = multipartUploaded;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the last modified time in milliseconds since the epoch, or -1.
+     */
+    public long getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+
+    /**
+     * Returns the ETag, without the quotes of the listings.
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getStorageClass() {
+        return storageClass;
+    }
+
+    public Boolean getMultipartUploaded() {
+        return multipartUploaded;
+    }
+
+    /**
+     * Returns the summary a listing would return for the object.
+     */
+    public COSObjectSummary toObjectSummary() {
+        COSObjectSummary summary = new COSObjectSummary();
+        summary.setBucketName(bucketName);
+        summary.setKey(key);
+        summary.setSize(size);
+        if (lastModifiedMillis >= 0) {
+            summary.setLastModified(new Date(lastModifiedMillis));
+        }
+        summary.setETag(eTag);
+        summary.setStorageClass(storageClass);
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return "InventoryRecord [bucketName=" + bucketName + ", key=" + key + ", versionId="
+                + versionId + ", size=" + size + "]";
+    }
+}
@@ -22,6 +22,7 @@ import com.qcloud.cos.annotation.SdkInternalApi;
 import com.qcloud.cos.internal.eventstreaming.HeaderType;
 import com.qcloud.cos.internal.eventstreaming.HeaderValue;
 import com.qcloud.cos.internal.eventstreaming.Message;
+import com.qcloud.cos.internal.eventstreaming.MessageReader;
 import com.qcloud.cos.model.SelectObjectContentEvent;
 import com.qcloud.cos.model.SelectObjectContentEvent.ContinuationEvent;
 import com.qcloud.cos.model.SelectObjectContentEvent.EndEvent;
@@ -51,9 +52,35 @@ public abstract class SelectObjectContentEventUnmarshaller {
         }
     }
 
+    /**
+     * Unmarshals the current message of a reader, the payload of a records event sharing its
+     * content with the reader.
+     */
+    public static SelectObjectContentEvent unmarshalMessage(MessageReader reader) {
+        String messageType = getStringHeader(reader, ":message-type");
+
+        if ("error".equals(messageType)) {
+            throw unmarshalErrorMessage(getStringHeader(reader, ":error-code"),
+                    getStringHeader(reader, ":error-message"));
+        } else if ("event".equals(messageType)) {
+            String eventType = getStringHeader(reader, ":event-type");
+            try {
+                return SelectObjectContentEventUnmarshaller.forEventType(eventType)
+                        .unmarshal(reader.getPayload());
+            } catch (Exception e) {
+                throw new SelectObjectContentEventException("Failed to read response event of type " + eventType, e);
+            }
+        } else {
+            throw new SelectObjectContentEventException("Service returned unknown message type: " + messageType);
+        }
+    }
+
     private static SelectObjectContentEventException unmarshalErrorMessage(Message message) {
-        String errorCode = getStringHeader(message, ":error-code");
-        String errorMessage = getStringHeader(message, ":error-message");
+        return unmarshalErrorMessage(getStringHeader(message, ":error-code"),
+                getStringHeader(message, ":error-message"));
+    }
+
+    private static SelectObjectContentEventException unmarshalErrorMessage(String errorCode, String errorMessage) {
         SelectObjectContentEventException exception =
                 new SelectObjectContentEventException(
                         "COS returned an error: " + errorMessage + " (" + errorCode + ")");
@@ -102,21 +129,38 @@ public abstract class SelectObjectContentEventUnmarshaller {
         return header.getString();
     }
 
-    public abstract SelectObjectContentEvent unmarshal(Message message) throws Exception;
+    private static String getStringHeader(MessageReader reader, String headerName) {
+        String header;
+        try {
+            header = reader.getStringHeader(headerName);
+        } catch (IllegalArgumentException e) {
+            throw new SelectObjectContentEventException(e.getMessage());
+        }
+        if (header == null) {
+            throw new SelectObjectContentEventException("Unexpected lack of '" + headerName + "' header from service.");
+        }
+        return header;
+    }
+
+    public SelectObjectContentEvent unmarshal(Message message) throws Exception {
+        return unmarshal(ByteBuffer.wrap(message.getPayload()));
+    }
+
+    public abstract SelectObjectContentEvent unmarshal(ByteBuffer payload) throws Exception;
 
     public static class RecordsEventUnmarshaller extends SelectObjectContentEventUnmarshaller {
 
         @Override
-        public RecordsEvent unmarshal(Message message) {
-            return new RecordsEvent().withPayload(ByteBuffer.wrap(message.getPayload()));
+        public RecordsEvent unmarshal(ByteBuffer payload) {
+            return new RecordsEvent().withPayload(payload);
         }
     }
 
     public static class StatsEventUnmarshaller extends SelectObjectContentEventUnmarshaller {
 
         @Override
-        public StatsEvent unmarshal(Message message) throws Exception {
-            StaxUnmarshallerContext context = payloadUnmarshaller(message);
+        public StatsEvent unmarshal(ByteBuffer payload) throws Exception {
+            StaxUnmarshallerContext context = payloadUnmarshaller(payload);
             return new StatsEvent().withDetails(StatsStaxUnmarshaller.getInstance().unmarshall(context));
         }
     }
@@ -124,8 +168,8 @@ public abstract class SelectObjectContentEventUnmarshaller {
     public static class ProgressEventUnmarshaller extends SelectObjectContentEventUnmarshaller {
 
         @Override
-        public ProgressEvent unmarshal(Message message) throws Exception {
-            StaxUnmarshallerContext context = payloadUnmarshaller(message);
+        public ProgressEvent unmarshal(ByteBuffer payload) throws Exception {
+            StaxUnmarshallerContext context = payloadUnmarshaller(payload);
             return new ProgressEvent().withDetails(ProgressStaxUnmarshaller.getInstance().unmarshall(context));
         }
     }
@@ -133,7 +177,7 @@ public abstract class SelectObjectContentEventUnmarshaller {
     public static class ContinuationEventUnmarshaller extends SelectObjectContentEventUnmarshaller {
 
         @Override
-        public ContinuationEvent unmarshal(Message message) {
+        public ContinuationEvent unmarshal(ByteBuffer payload) {
             return new ContinuationEvent();
         }
     }
@@ -141,7 +185,7 @@ public abstract class SelectObjectContentEventUnmarshaller {
     public static class EndEventUnmarshaller extends SelectObjectContentEventUnmarshaller {
 
         @Override
-        public EndEvent unmarshal(Message message) {
+        public EndEvent unmarshal(ByteBuffer payload) {
             return new EndEvent();
         }
     }
@@ -149,13 +193,14 @@ public abstract class SelectObjectContentEventUnmarshaller {
     public static class UnknownEventUnmarshaller extends SelectObjectContentEventUnmarshaller {
 
         @Override
-        public SelectObjectContentEvent unmarshal(Message message) {
+        public SelectObjectContentEvent unmarshal(ByteBuffer payload) {
             return new SelectObjectContentEvent();
         }
     }
 
-    private static StaxUnmarshallerContext payloadUnmarshaller(Message message) throws XMLStreamException {
-        InputStream payloadStream = new ByteArrayInputStream(message.getPayload());
+    private static StaxUnmarshallerContext payloadUnmarshaller(ByteBuffer payload) throws XMLStreamException {
+        InputStream payloadStream = new ByteArrayInputStream(payload.array(),
+                payload.arrayOffset() + payload.position(), payload.remaining());
         XMLEventReader xmlEventReader = XmlUtils.getXmlInputFactory().createXMLEventReader(payloadStream);
         return new StaxUnmarshallerContext(xmlEventReader);
     }
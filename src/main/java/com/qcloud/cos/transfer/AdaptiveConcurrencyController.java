@@ -0,0 +1,221 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+import static com.qcloud.cos.internal.Constants.MB;
+import static com.qcloud.cos.internal.Constants.GB;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adjusts the number of parts a {@link TransferManager} keeps in flight from the measured
+ * aggregate throughput and per part latency.
+ * <p>
+ * The limit starts at the configured minimum and doubles every sample window while the aggregate
+ * throughput keeps growing (slow start). After that it follows an AIMD scheme: it grows by one
+ * part when the throughput still improves, shrinks by one when the throughput is flat but the per
+ * byte latency is inflated (the extra parts only queue up somewhere), and is cut by a quarter when
+ * the throughput drops or a part fails. The limit always stays within the configured bounds.
+ * </p>
+ * <p>
+ * The same measurements drive the part size: parts are sized so that a single part takes a few
+ * seconds at the observed per part throughput, which keeps the per request overhead low on fast
+ * links and the retry cost low on slow ones.
+ * </p>
+ */
+public class AdaptiveConcurrencyController {
+
+    /**
+     * Callback notified when the concurrency limit changes, e.g. to resize a thread pool.
+     */
+    public interface LimitListener {
+        void onLimitChanged(int newLimit);
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    private static final long NANOS_PER_SECOND = 1000L * 1000L * 1000L;
+    private static final long DEFAULT_SAMPLE_WINDOW_NANOS = NANOS_PER_SECOND;
+    private static final double GAIN_THRESHOLD = 1.05;
+    private static final double DROP_THRESHOLD = 0.9;
+    private static final double LATENCY_INFLATION_THRESHOLD = 1.5;
+    private static final double EWMA_WEIGHT = 0.3;
+    private static final long TARGET_PART_SECONDS = 4;
+    private static final long MAXIMUM_PART_SIZE = 5 * GB;
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long sampleWindowNanos;
+    private LimitListener limitListener;
+
+    private int limit;
+    private int inFlight;
+    private boolean slowStart = true;
+
+    private long windowStartNanos = System.nanoTime();
+    private long windowBytes;
+    private long windowCompletions;
+    private double lastThroughput;
+
+    private double partThroughput;
+    private double baseNanosPerByte;
+
+    public AdaptiveConcurrencyController(int minConcurrency, int maxConcurrency) {
+        this(minConcurrency, maxConcurrency, DEFAULT_SAMPLE_WINDOW_NANOS);
+    }
+
+    AdaptiveConcurrencyController(int minConcurrency, int maxConcurrency,
+            long sampleWindowNanos) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("invalid concurrency bounds [" + minConcurrency
+                    + ", " + maxConcurrency + "]");
+        }
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.limit = minConcurrency;
+        this.sampleWindowNanos = sampleWindowNanos;
+    }
+
+    public synchronized void setLimitListener(LimitListener limitListener) {
+        this.limitListener = limitListener;
+        if (limitListener != null) {
+            limitListener.onLimitChanged(limit);
+        }
+    }
+
+    /**
+     * Returns the current number of parts allowed to be in flight.
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the smoothed throughput of a single part in bytes per second, or 0 if nothing has
+     * been measured yet.
+     */
+    public synchronized double getPartThroughput() {
+        return partThroughput;
+    }
+
+    /**
+     * Blocks until a part may be started.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        ++inFlight;
+    }
+
+    /**
+     * Records the completion of a part started by {@link #acquire()}.
+     *
+     * @param bytes the number of bytes the part transferred
+     * @param elapsedNanos the time the part took
+     * @param success false if the part failed
+     */
+    public synchronized void release(long bytes, long elapsedNanos, boolean success) {
+        --inFlight;
+        try {
+            if (!success) {
+                slowStart = false;
+                decrease(limit - Math.max(1, limit / 4));
+                resetWindow(System.nanoTime());
+                return;
+            }
+            recordPart(bytes, elapsedNanos);
+            windowBytes += bytes;
+            ++windowCompletions;
+            long now = System.nanoTime();
+            long windowNanos = now - windowStartNanos;
+            if (windowNanos < sampleWindowNanos || windowCompletions < limit) {
+                return;
+            }
+            double throughput = (double) windowBytes * NANOS_PER_SECOND / Math.max(1, windowNanos);
+            adjust(throughput, (double) elapsedNanos / Math.max(1, bytes));
+            lastThroughput = throughput;
+            resetWindow(now);
+        } finally {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the part size to use for an upload of the given length.
+     *
+     * @param contentLength the length of the data to upload
+     * @param minimumPartSize the lower bound of the part size, used as is until the first parts
+     *         have been measured
+     */
+    public synchronized long recommendPartSize(long contentLength, long minimumPartSize) {
+        long partSize = minimumPartSize;
+        if (partThroughput > 0) {
+            partSize = Math.max(partSize, (long) (partThroughput * TARGET_PART_SECONDS));
+            // keep every in flight slot busy for the object
+            if (contentLength > 0) {
+                partSize = Math.min(partSize, Math.max(minimumPartSize, contentLength / limit));
+            }
+            partSize = Math.min(partSize, MAXIMUM_PART_SIZE);
+            // round up to a whole number of MB
+            partSize = (partSize + MB - 1) / MB * MB;
+        }
+        if (contentLength > 0) {
+            long minimumForPartCount = (contentLength + MAXIMUM_UPLOAD_PARTS - 1) / MAXIMUM_UPLOAD_PARTS;
+            partSize = Math.max(partSize, minimumForPartCount);
+        }
+        return partSize;
+    }
+
+    private void recordPart(long bytes, long elapsedNanos) {
+        if (bytes <= 0 || elapsedNanos <= 0) {
+            return;
+        }
+        double throughput = (double) bytes * NANOS_PER_SECOND / elapsedNanos;
+        partThroughput = partThroughput == 0 ? throughput
+                : partThroughput * (1 - EWMA_WEIGHT) + throughput * EWMA_WEIGHT;
+        double nanosPerByte = (double) elapsedNanos / bytes;
+        if (baseNanosPerByte == 0 || nanosPerByte < baseNanosPerByte) {
+            baseNanosPerByte = nanosPerByte;
+        }
+    }
+
+    private void adjust(double throughput, double nanosPerByte) {
+        if (lastThroughput == 0 || throughput >= lastThroughput * GAIN_THRESHOLD) {
+            increase(slowStart ? limit * 2 : limit + 1);
+        } else if (throughput < lastThroughput * DROP_THRESHOLD) {
+            slowStart = false;
+            decrease(limit - Math.max(1, limit / 4));
+        } else {
+            slowStart = false;
+            if (nanosPerByte > baseNanosPerByte * LATENCY_INFLATION_THRESHOLD) {
+                decrease(limit - 1);
+            }
+        }
+    }
+
+    private void increase(int newLimit) {
+        setLimit(Math.min(maxConcurrency, newLimit));
+    }
+
+    private void decrease(int newLimit) {
+        setLimit(Math.max(minConcurrency, newLimit));
+    }
+
+    private void setLimit(int newLimit) {
+        if (newLimit == limit) {
+            return;
+        }
+        log.debug("Adjust transfer concurrency from " + limit + " to " + newLimit);
+        limit = newLimit;
+        if (limitListener != null) {
+            limitListener.onLimitChanged(newLimit);
+        }
+    }
+
+    private void resetWindow(long now) {
+        windowStartNanos = now;
+        windowBytes = 0;
+        windowCompletions = 0;
+    }
+}
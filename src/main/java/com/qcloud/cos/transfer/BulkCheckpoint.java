@@ -0,0 +1,86 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.utils.StringUtils.UTF8;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.qcloud.cos.utils.Jackson;
+
+/**
+ * The progress of a bulk operation as saved in its checkpoint file: every object up to
+ * <code>lastKey</code> in the order of the key source has been processed.
+ */
+class BulkCheckpoint {
+
+    private String lastKey;
+    private long succeededCount;
+    private long failedCount;
+    private boolean completed;
+
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(String lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public long getSucceededCount() {
+        return succeededCount;
+    }
+
+    public void setSucceededCount(long succeededCount) {
+        this.succeededCount = succeededCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    /**
+     * Returns true once the whole key source has been processed.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    /**
+     * Returns the checkpoint saved in the given file, or null if there is no such file.
+     */
+    static BulkCheckpoint load(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        return Jackson.loadFrom(file, BulkCheckpoint.class);
+    }
+
+    /**
+     * Replaces the content of the given file with this checkpoint. The checkpoint is written to a
+     * temporary file first and moved, so that a crash never leaves a partial checkpoint behind.
+     */
+    void save(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(Jackson.toJsonString(this).getBytes(UTF8));
+            out.flush();
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,30 @@
+package com.qcloud.cos.transfer;
+
+import java.util.Iterator;
+
+import com.qcloud.cos.model.COSObjectSummary;
+
+/**
+ * The objects a bulk operation is applied to, see
+ * {@link TransferManager#runBulkOperation(BulkKeySource, BulkOperation, BulkResultSink, BulkOperationOptions)}
+ * and {@link BulkKeySources} for the usual sources.
+ * <p>
+ * A source must return the objects in the same order every time it is iterated, as the
+ * checkpoint of a bulk operation only records the last key processed.
+ * </p>
+ */
+public interface BulkKeySource {
+
+    /**
+     * Returns the objects of this source following the given key, or all of them if the key is
+     * null. Only the key of the returned summaries is required, the other fields may be null.
+     * <p>
+     *
+     * If the returned iterator is also {@link java.io.Closeable}, it is closed once the bulk
+     * operation is done with it, whether consumed to the end or not.
+     * </p>
+     *
+     * @param startAfter the key of the last object already processed, or null.
+     */
+    Iterator<COSObjectSummary> iterator(String startAfter);
+}
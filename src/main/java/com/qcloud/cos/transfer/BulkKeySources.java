@@ -0,0 +1,156 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ObjectListing;
+
+/**
+ * Factory methods of the usual {@link BulkKeySource}s.
+ */
+public class BulkKeySources {
+
+    private static final int LIST_MAX_KEYS = 1000;
+
+    private BulkKeySources() {
+    }
+
+    /**
+     * Returns a source listing the objects of a bucket whose key starts with the given prefix. A
+     * resumed run starts listing right after the last key processed.
+     */
+    public static BulkKeySource listing(final COS cos, final String bucketName,
+            final String prefix) {
+        return new BulkKeySource() {
+            @Override
+            public Iterator<COSObjectSummary> iterator(String startAfter) {
+                return new ListingIterator(cos, cos.listObjects(appendSingleObjectUserAgent(
+                        new ListObjectsRequest(bucketName, prefix, startAfter, null,
+                                LIST_MAX_KEYS))));
+            }
+        };
+    }
+
+    /**
+     * Returns a source of the given keys, e.g. read from a file. The keys must be in ascending
+     * order: a resumed run skips the keys up to the last one processed.
+     */
+    public static BulkKeySource of(final Iterable<String> keys) {
+        return new BulkKeySource() {
+            @Override
+            public Iterator<COSObjectSummary> iterator(String startAfter) {
+                final PeekingIterator it = new PeekingIterator(keys.iterator());
+                // the key of the checkpoint may be gone from the keys, so skip up to it rather
+                // than look for it
+                while (startAfter != null && it.hasNext()
+                        && it.peek().compareTo(startAfter) <= 0) {
+                    it.next();
+                }
+                return new Iterator<COSObjectSummary>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public COSObjectSummary next() {
+                        COSObjectSummary summary = new COSObjectSummary();
+                        summary.setKey(it.next());
+                        return summary;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * An iterator of keys which can look at the next key without consuming it.
+     */
+    private static class PeekingIterator implements Iterator<String> {
+        private final Iterator<String> it;
+        private String next;
+        private boolean peeked;
+
+        PeekingIterator(Iterator<String> it) {
+            this.it = it;
+        }
+
+        String peek() {
+            if (!peeked) {
+                next = it.next();
+                peeked = true;
+            }
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return peeked || it.hasNext();
+        }
+
+        @Override
+        public String next() {
+            if (peeked) {
+                peeked = false;
+                return next;
+            }
+            return it.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Goes through the pages of a listing, fetching the next page only once the current one has
+     * been consumed.
+     */
+    private static class ListingIterator implements Iterator<COSObjectSummary> {
+        private final COS cos;
+        private ObjectListing listing;
+        private Iterator<COSObjectSummary> page;
+
+        ListingIterator(COS cos, ObjectListing first) {
+            this.cos = cos;
+            this.listing = first;
+            this.page = first.getObjectSummaries().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                if (!listing.isTruncated()) {
+                    return false;
+                }
+                listing = cos.listNextBatchOfObjects(listing);
+                page = listing.getObjectSummaries().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public COSObjectSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.qcloud.cos.transfer;
+
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObjectSummary;
+
+/**
+ * An operation applied to every object of a {@link BulkKeySource}, see {@link BulkOperations}
+ * for the usual ones. It is called concurrently from several threads, and may be called more than
+ * once for the same object when a failed call is retried or an interrupted run is resumed, so it
+ * should be idempotent.
+ */
+public interface BulkOperation {
+
+    void apply(COSObjectSummary object) throws CosClientException, CosServiceException;
+}
@@ -0,0 +1,114 @@
+package com.qcloud.cos.transfer;
+
+import java.io.File;
+
+/**
+ * Options of
+ * {@link TransferManager#runBulkOperation(BulkKeySource, BulkOperation, BulkResultSink, BulkOperationOptions)}.
+ */
+public class BulkOperationOptions {
+
+    private static final int DEFAULT_MIN_CONCURRENCY = 4;
+    private static final int DEFAULT_MAX_CONCURRENCY = 64;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 5 * 1000;
+
+    private int minConcurrency = DEFAULT_MIN_CONCURRENCY;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private File checkpointFile;
+    private long checkpointIntervalMillis = DEFAULT_CHECKPOINT_INTERVAL_MILLIS;
+
+    /**
+     * Returns the number of operations in flight the run starts with, and never goes below.
+     * Default is 4.
+     */
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    /**
+     * Returns the maximum number of operations in flight. Default is 64. The concurrency grows
+     * from the minimum while the throughput improves, and shrinks when COS starts throttling the
+     * requests. It is also bounded by the size of the thread pool of the
+     * <code>TransferManager</code>.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setConcurrency(int minConcurrency, int maxConcurrency) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("invalid concurrency bounds [" + minConcurrency
+                    + ", " + maxConcurrency + "]");
+        }
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public BulkOperationOptions withConcurrency(int minConcurrency, int maxConcurrency) {
+        setConcurrency(minConcurrency, maxConcurrency);
+        return this;
+    }
+
+    /**
+     * Returns the number of times an operation failing with a retryable error, e.g. a throttling
+     * or server error, is retried. Default is 3.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    public BulkOperationOptions withMaxRetries(int maxRetries) {
+        setMaxRetries(maxRetries);
+        return this;
+    }
+
+    /**
+     * Returns the file recording the progress of the run, or null if the progress is not
+     * recorded (the default).
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Sets the file recording the progress of the run. If the file already exists, the run
+     * resumes after the last object it records; the objects processed since the last checkpoint
+     * before a crash are processed again.
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public BulkOperationOptions withCheckpointFile(File checkpointFile) {
+        setCheckpointFile(checkpointFile);
+        return this;
+    }
+
+    /**
+     * Returns the minimum time between two writes of the checkpoint file. Default is 5 seconds.
+     */
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public void setCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        if (checkpointIntervalMillis < 0) {
+            throw new IllegalArgumentException("checkpointIntervalMillis must not be negative");
+        }
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    public BulkOperationOptions withCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        setCheckpointIntervalMillis(checkpointIntervalMillis);
+        return this;
+    }
+}
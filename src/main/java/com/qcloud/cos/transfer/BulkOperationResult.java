@@ -0,0 +1,35 @@
+package com.qcloud.cos.transfer;
+
+/**
+ * The outcome of
+ * {@link TransferManager#runBulkOperation(BulkKeySource, BulkOperation, BulkResultSink, BulkOperationOptions)}.
+ * The counts include the objects processed by the previous runs of a resumed operation.
+ */
+public class BulkOperationResult {
+
+    private final long succeededCount;
+    private final long failedCount;
+    private final String resumedAfter;
+
+    BulkOperationResult(long succeededCount, long failedCount, String resumedAfter) {
+        this.succeededCount = succeededCount;
+        this.failedCount = failedCount;
+        this.resumedAfter = resumedAfter;
+    }
+
+    public long getSucceededCount() {
+        return succeededCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Returns the last key processed by the previous runs according to the checkpoint file, or
+     * null if the operation started from the beginning.
+     */
+    public String getResumedAfter() {
+        return resumedAfter;
+    }
+}
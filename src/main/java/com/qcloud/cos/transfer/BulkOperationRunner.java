@@ -0,0 +1,266 @@
+package com.qcloud.cos.transfer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.retry.RetryUtils;
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * Applies a {@link BulkOperation} to every object of a {@link BulkKeySource}. The source is
+ * iterated on the calling thread, and the operations run on a thread pool of the runner, sized to
+ * {@link BulkOperationOptions#getMaxConcurrency()}, with a number in flight driven by an
+ * {@link AdaptiveConcurrencyController}: an operation counts as a one byte transfer, and an
+ * operation which had to be retried because of throttling or a server error counts as a failure,
+ * which cuts the concurrency.
+ * <p>
+ * The objects are numbered in the order of the source. The checkpoint records the last object of
+ * the longest run of completed ones starting from the first, so that a resumed run neither skips
+ * an object nor redoes more than the operations in flight at the time of the checkpoint.
+ * </p>
+ */
+final class BulkOperationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkOperationRunner.class);
+
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final ExecutorService threadPool;
+    private final BulkKeySource source;
+    private final BulkOperation operation;
+    private final BulkResultSink sink;
+    private final BulkOperationOptions options;
+    private final AdaptiveConcurrencyController controller;
+
+    // guarded by this
+    private final TreeMap<Long, Completion> completedAhead = new TreeMap<Long, Completion>();
+    private long lastDone;
+    private String lastDoneKey;
+    private long dispatched;
+    private long succeededCount;
+    private long failedCount;
+    private long lastCheckpointMillis;
+
+    BulkOperationRunner(BulkKeySource source, BulkOperation operation, BulkResultSink sink,
+            BulkOperationOptions options) {
+        this.threadPool = Executors.newFixedThreadPool(options.getMaxConcurrency(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("cos-bulk-operation-worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.source = source;
+        this.operation = operation;
+        this.sink = sink;
+        this.options = options;
+        this.controller = new AdaptiveConcurrencyController(options.getMinConcurrency(),
+                options.getMaxConcurrency());
+    }
+
+    BulkOperationResult run() throws InterruptedException, IOException {
+        try {
+            return runOperations();
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private BulkOperationResult runOperations() throws InterruptedException, IOException {
+        File checkpointFile = options.getCheckpointFile();
+        BulkCheckpoint checkpoint =
+                checkpointFile == null ? null : BulkCheckpoint.load(checkpointFile);
+        String resumedAfter = null;
+        if (checkpoint != null) {
+            resumedAfter = checkpoint.getLastKey();
+            synchronized (this) {
+                lastDoneKey = resumedAfter;
+                succeededCount = checkpoint.getSucceededCount();
+                failedCount = checkpoint.getFailedCount();
+            }
+            if (checkpoint.isCompleted()) {
+                return result(resumedAfter);
+            }
+            log.info("resuming bulk operation after key {}", resumedAfter);
+        }
+        synchronized (this) {
+            lastCheckpointMillis = System.currentTimeMillis();
+        }
+
+        boolean completed = false;
+        Iterator<COSObjectSummary> it = null;
+        try {
+            it = source.iterator(resumedAfter);
+            while (it.hasNext()) {
+                COSObjectSummary object = it.next();
+                controller.acquire();
+                submit(nextSequence(), object);
+                maybeCheckpoint();
+            }
+            completed = true;
+        } finally {
+            if (it instanceof Closeable) {
+                IOUtils.closeQuietly((Closeable) it, log);
+            }
+            awaitCompletion();
+            checkpoint(completed);
+        }
+        return result(resumedAfter);
+    }
+
+    private synchronized BulkOperationResult result(String resumedAfter) {
+        return new BulkOperationResult(succeededCount, failedCount, resumedAfter);
+    }
+
+    private synchronized long nextSequence() {
+        return ++dispatched;
+    }
+
+    private void submit(final long sequence, final COSObjectSummary object) {
+        boolean submitted = false;
+        try {
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(sequence, object);
+                }
+            });
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                controller.release(0, 0, true);
+                complete(sequence, object.getKey(), false);
+            }
+        }
+    }
+
+    private void execute(long sequence, COSObjectSummary object) {
+        long start = System.nanoTime();
+        boolean released = false;
+        boolean succeeded = false;
+        try {
+            boolean throttled = false;
+            Exception failure = null;
+            for (int attempt = 0;; ++attempt) {
+                try {
+                    operation.apply(object);
+                    failure = null;
+                    break;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                if (!isRetryable(failure) || attempt >= options.getMaxRetries()) {
+                    break;
+                }
+                throttled = true;
+                if (!RetryBackoff.sleep(attempt + 1)) {
+                    break;
+                }
+            }
+            controller.release(1, System.nanoTime() - start, !throttled);
+            released = true;
+            succeeded = failure == null;
+            try {
+                if (sink != null) {
+                    if (failure == null) {
+                        sink.onSuccess(object);
+                    } else {
+                        sink.onFailure(object, failure);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("bulk result sink failed for key " + object.getKey(), e);
+            }
+        } finally {
+            // an Error thrown by the operation or the sink still completes the object, as a
+            // failure, so that the run does not wait for it forever
+            if (!released) {
+                controller.release(1, System.nanoTime() - start, false);
+            }
+            complete(sequence, object.getKey(), succeeded);
+        }
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof CosServiceException) {
+            return RetryUtils.isRetryableServiceException(e)
+                    || ((CosServiceException) e).getStatusCode() == SC_TOO_MANY_REQUESTS;
+        }
+        return RetryUtils.isRetryableClientException(e);
+    }
+
+    /**
+     * Records the completion of an object, the counts only cover the objects up to the last one
+     * of the completed run so that they match the checkpoint.
+     */
+    private synchronized void complete(long sequence, String key, boolean succeeded) {
+        completedAhead.put(sequence, new Completion(key, succeeded));
+        while (!completedAhead.isEmpty() && completedAhead.firstKey() == lastDone + 1) {
+            Completion completion = completedAhead.remove(++lastDone);
+            lastDoneKey = completion.key;
+            if (completion.succeeded) {
+                ++succeededCount;
+            } else {
+                ++failedCount;
+            }
+        }
+        notifyAll();
+    }
+
+    private synchronized void awaitCompletion() throws InterruptedException {
+        while (lastDone < dispatched) {
+            wait(TimeUnit.SECONDS.toMillis(1));
+            maybeCheckpoint();
+        }
+    }
+
+    private synchronized void maybeCheckpoint() {
+        if (System.currentTimeMillis() - lastCheckpointMillis
+                >= options.getCheckpointIntervalMillis()) {
+            checkpoint(false);
+        }
+    }
+
+    private synchronized void checkpoint(boolean completed) {
+        File checkpointFile = options.getCheckpointFile();
+        if (checkpointFile == null) {
+            return;
+        }
+        lastCheckpointMillis = System.currentTimeMillis();
+        BulkCheckpoint checkpoint = new BulkCheckpoint();
+        checkpoint.setLastKey(lastDoneKey);
+        checkpoint.setSucceededCount(succeededCount);
+        checkpoint.setFailedCount(failedCount);
+        checkpoint.setCompleted(completed);
+        try {
+            checkpoint.save(checkpointFile);
+        } catch (IOException e) {
+            // the run goes on, at worst a resumed run redoes more objects
+            log.warn("failed to write bulk operation checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private static class Completion {
+        final String key;
+        final boolean succeeded;
+
+        Completion(String key, boolean succeeded) {
+            this.key = key;
+            this.succeeded = succeeded;
+        }
+    }
+}
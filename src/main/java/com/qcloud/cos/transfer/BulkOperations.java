@@ -0,0 +1,103 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.model.CASJobParameters;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.CannedAccessControlList;
+import com.qcloud.cos.model.CopyObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.ObjectTagging;
+import com.qcloud.cos.model.RestoreObjectRequest;
+import com.qcloud.cos.model.SetObjectAclRequest;
+import com.qcloud.cos.model.SetObjectTaggingRequest;
+import com.qcloud.cos.model.StorageClass;
+
+/**
+ * Factory methods of the usual {@link BulkOperation}s. Each of them applies to the objects of the
+ * given bucket, whatever the bucket name of the summaries is.
+ */
+public class BulkOperations {
+
+    private BulkOperations() {
+    }
+
+    /**
+     * Replaces the tags of every object with the given ones.
+     */
+    public static BulkOperation setObjectTagging(final COS cos, final String bucketName,
+            final ObjectTagging tagging) {
+        return new BulkOperation() {
+            @Override
+            public void apply(COSObjectSummary object) {
+                cos.setObjectTagging(appendSingleObjectUserAgent(
+                        new SetObjectTaggingRequest(bucketName, object.getKey(), tagging)));
+            }
+        };
+    }
+
+    /**
+     * Restores archived objects for the given number of days.
+     *
+     * @param casJobParameters the restore tier, or null for the default one.
+     */
+    public static BulkOperation restoreObject(final COS cos, final String bucketName,
+            final int expirationInDays, final CASJobParameters casJobParameters) {
+        return new BulkOperation() {
+            @Override
+            public void apply(COSObjectSummary object) {
+                cos.restoreObject(appendSingleObjectUserAgent(
+                        new RestoreObjectRequest(bucketName, object.getKey(), expirationInDays)
+                                .withCASJobParameters(casJobParameters)));
+            }
+        };
+    }
+
+    public static BulkOperation setObjectAcl(final COS cos, final String bucketName,
+            final CannedAccessControlList acl) {
+        return new BulkOperation() {
+            @Override
+            public void apply(COSObjectSummary object) {
+                cos.setObjectAcl(appendSingleObjectUserAgent(
+                        new SetObjectAclRequest(bucketName, object.getKey(), acl)));
+            }
+        };
+    }
+
+    /**
+     * Replaces the metadata of every object with the given one, by copying the objects onto
+     * themselves.
+     */
+    public static BulkOperation updateObjectMetadata(final COS cos, final String bucketName,
+            final ObjectMetadata metadata) {
+        return new BulkOperation() {
+            @Override
+            public void apply(COSObjectSummary object) {
+                CopyObjectRequest request = new CopyObjectRequest(bucketName, object.getKey(),
+                        bucketName, object.getKey());
+                request.setNewObjectMetadata(metadata);
+                cos.copyObject(appendSingleObjectUserAgent(request));
+            }
+        };
+    }
+
+    /**
+     * Moves every object to the given storage class, by copying the objects onto themselves. The
+     * objects already in that storage class according to their summary are skipped.
+     */
+    public static BulkOperation changeStorageClass(final COS cos, final String bucketName,
+            final StorageClass storageClass) {
+        return new BulkOperation() {
+            @Override
+            public void apply(COSObjectSummary object) {
+                if (storageClass.toString().equalsIgnoreCase(object.getStorageClass())) {
+                    return;
+                }
+                cos.copyObject(appendSingleObjectUserAgent(new CopyObjectRequest(bucketName,
+                        object.getKey(), bucketName, object.getKey())
+                                .withStorageClass(storageClass)));
+            }
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.qcloud.cos.transfer;
+
+import com.qcloud.cos.model.COSObjectSummary;
+
+/**
+ * Receives the outcome of a bulk operation for every object. It is called concurrently from the
+ * threads running the operation, and must be thread safe.
+ */
+public interface BulkResultSink {
+
+    void onSuccess(COSObjectSummary object);
+
+    /**
+     * Called once the operation failed with a non retryable error, or still failed after all the
+     * retries.
+     */
+    void onFailure(COSObjectSummary object, Exception e);
+}
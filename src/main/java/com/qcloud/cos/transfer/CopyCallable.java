@@ -42,6 +42,7 @@ import com.qcloud.cos.model.CopyResult;
 import com.qcloud.cos.model.InitiateMultipartUploadRequest;
 import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PartETag;
+import com.qcloud.cos.model.TransferPriority;
 import com.qcloud.cos.region.Region;
 import com.qcloud.cos.transfer.Transfer.TransferState;
 import com.qcloud.cos.Headers;
@@ -82,12 +83,25 @@ public class CopyCallable implements Callable<CopyResult> {
     private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
 
     private final ProgressListenerChain listenerChain;
+    /**
+     * Concurrency controller of the transfer manager, null if autotuning is disabled.
+     */
+    private final AdaptiveConcurrencyController concurrencyController;
+    /**
+     * Queue of the parts of this copy in the transfer scheduler, null if fair scheduling is
+     * disabled.
+     */
+    private final TransferScheduler.TransferQueue transferQueue;
 
     public CopyCallable(TransferManager transferManager, ExecutorService threadPool, CopyImpl copy,
             CopyObjectRequest copyObjectRequest, ObjectMetadata metadata,
             ProgressListenerChain progressListenerChain) {
         this.cos = transferManager.getCOSClient();
         this.configuration = transferManager.getConfiguration();
+        this.concurrencyController = transferManager.getConcurrencyController();
+        TransferScheduler scheduler = transferManager.getTransferScheduler();
+        this.transferQueue =
+                scheduler == null ? null : scheduler.newTransferQueue(TransferPriority.NORMAL);
         this.threadPool = threadPool;
         this.copyObjectRequest = copyObjectRequest;
         this.metadata = metadata;
@@ -99,6 +113,10 @@ public class CopyCallable implements Callable<CopyResult> {
         return futures;
     }
 
+    TransferScheduler.TransferQueue getTransferQueue() {
+        return transferQueue;
+    }
+
     String getMultipartUploadId() {
         return multipartUploadId;
     }
@@ -209,7 +227,9 @@ public class CopyCallable implements Callable<CopyResult> {
                 throw new CancellationException("TransferManager has been shutdown");
             }
             CopyPartRequest request = requestFactory.getNextCopyPartRequest();
-            futures.add(threadPool.submit(new CopyPartCallable(cos, request)));
+            CopyPartCallable callable = new CopyPartCallable(cos, request, concurrencyController);
+            futures.add(transferQueue == null ? threadPool.submit(callable)
+                    : transferQueue.submitPart(callable));
         }
     }
 
@@ -133,9 +133,14 @@ public class CopyMonitor implements Callable<CopyResult>, TransferMonitor {
 
             if (result == null) {
                 futures.addAll(multipartCopyCallable.getFutures());
-                futureReference.set(threadPool
-                        .submit(new CompleteMultipartCopy(multipartCopyCallable.getMultipartUploadId(), cos, origReq,
-                                futures, listener, this)));
+                CompleteMultipartCopy completeMultipartCopy = new CompleteMultipartCopy(
+                        multipartCopyCallable.getMultipartUploadId(), cos, origReq, futures,
+                        listener, this);
+                TransferScheduler.TransferQueue transferQueue =
+                        multipartCopyCallable.getTransferQueue();
+                futureReference.set(transferQueue == null
+                        ? threadPool.submit(completeMultipartCopy)
+                        : transferQueue.submitFinal(completeMultipartCopy));
             } else {
                 copyComplete();
             }
@@ -39,13 +39,43 @@ public class CopyPartCallable implements Callable<PartETag> {
      * Copy part request to be initiated.
      */
     private final CopyPartRequest request;
+    /**
+     * Concurrency controller of the transfer manager, null if autotuning is disabled.
+     */
+    private final AdaptiveConcurrencyController controller;
 
     public CopyPartCallable(COS cos, CopyPartRequest request) {
+        this(cos, request, null);
+    }
+
+    public CopyPartCallable(COS cos, CopyPartRequest request,
+            AdaptiveConcurrencyController controller) {
         this.cos = cos;
         this.request = request;
+        this.controller = controller;
     }
 
     public PartETag call() throws Exception {
+        if (controller == null) {
+            return copyPart();
+        }
+        controller.acquire();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            PartETag partETag = copyPart();
+            success = true;
+            return partETag;
+        } finally {
+            long partSize = 0;
+            if (request.getFirstByte() != null && request.getLastByte() != null) {
+                partSize = request.getLastByte() - request.getFirstByte() + 1;
+            }
+            controller.release(partSize, System.nanoTime() - startNanos, success);
+        }
+    }
+
+    private PartETag copyPart() {
         CopyPartResult copyPartResult = cos.copyPart(request);
         return copyPartResult == null ? null : copyPartResult.getPartETag();
     }
@@ -0,0 +1,138 @@
+package com.qcloud.cos.transfer;
+
+/**
+ * Options of {@link TransferManager#deletePrefix(String, String, DeletePrefixOptions)}.
+ */
+public class DeletePrefixOptions {
+
+    /**
+     * The maximum number of keys of a single DeleteObjects request.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int batchSize = MAX_BATCH_SIZE;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long maxDeletesPerSecond = 0;
+    private boolean dryRun = false;
+    private boolean includeVersions = false;
+
+    /**
+     * Returns the maximum number of DeleteObjects requests in flight. Default is 8.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the maximum number of DeleteObjects requests in flight. Listing is suspended while
+     * this many requests are pending.
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public DeletePrefixOptions withConcurrency(int concurrency) {
+        setConcurrency(concurrency);
+        return this;
+    }
+
+    /**
+     * Returns the number of keys deleted by a single DeleteObjects request. Default is
+     * {@value #MAX_BATCH_SIZE}.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    "batchSize must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public DeletePrefixOptions withBatchSize(int batchSize) {
+        setBatchSize(batchSize);
+        return this;
+    }
+
+    /**
+     * Returns the number of times the keys which could not be deleted are retried. Default is 3.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    public DeletePrefixOptions withMaxRetries(int maxRetries) {
+        setMaxRetries(maxRetries);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of keys submitted for deletion per second, 0 meaning no limit
+     * (the default).
+     */
+    public long getMaxDeletesPerSecond() {
+        return maxDeletesPerSecond;
+    }
+
+    public void setMaxDeletesPerSecond(long maxDeletesPerSecond) {
+        if (maxDeletesPerSecond < 0) {
+            throw new IllegalArgumentException("maxDeletesPerSecond must not be negative");
+        }
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+    }
+
+    public DeletePrefixOptions withMaxDeletesPerSecond(long maxDeletesPerSecond) {
+        setMaxDeletesPerSecond(maxDeletesPerSecond);
+        return this;
+    }
+
+    /**
+     * Returns true if the keys are only listed and counted, without deleting anything.
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public DeletePrefixOptions withDryRun(boolean dryRun) {
+        setDryRun(dryRun);
+        return this;
+    }
+
+    /**
+     * Returns true if every version of the objects, delete markers included, is deleted, which
+     * empties the prefix of a versioned bucket. By default only the current versions are.
+     */
+    public boolean isIncludeVersions() {
+        return includeVersions;
+    }
+
+    public void setIncludeVersions(boolean includeVersions) {
+        this.includeVersions = includeVersions;
+    }
+
+    public DeletePrefixOptions withIncludeVersions(boolean includeVersions) {
+        setIncludeVersions(includeVersions);
+        return this;
+    }
+}
@@ -0,0 +1,51 @@
+package com.qcloud.cos.transfer;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.qcloud.cos.exception.MultiObjectDeleteException.DeleteError;
+
+/**
+ * The outcome of {@link TransferManager#deletePrefix(String, String, DeletePrefixOptions)}.
+ */
+public class DeletePrefixResult {
+
+    private final long listedCount;
+    private final long deletedCount;
+    private final List<DeleteError> errors;
+    private final boolean dryRun;
+
+    DeletePrefixResult(long listedCount, long deletedCount, List<DeleteError> errors,
+            boolean dryRun) {
+        this.listedCount = listedCount;
+        this.deletedCount = deletedCount;
+        this.errors = Collections.unmodifiableList(errors);
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Returns the number of keys, or versions, found under the prefix.
+     */
+    public long getListedCount() {
+        return listedCount;
+    }
+
+    /**
+     * Returns the number of keys, or versions, deleted; always 0 for a dry run.
+     */
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * Returns the keys which could not be deleted after all the retries, with the last error of
+     * each.
+     */
+    public List<DeleteError> getErrors() {
+        return errors;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+}
@@ -0,0 +1,465 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.DeleteObjectRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.transfer.LocalFileWalker.LocalFile;
+import com.qcloud.cos.utils.Md5Utils;
+
+/**
+ * Syncs a local directory and the objects under a prefix in one direction. The files, walked in
+ * the order of their keys by a {@link LocalFileWalker}, the listing of the prefix and the index
+ * of the last sync are merged as sorted streams, so that a tree of any size is synced in bounded
+ * memory.
+ * <p>
+ * A file and an object are the same when their state is still the one recorded by the index;
+ * otherwise they differ if their sizes do, and if not, by the MD5 of the file against the ETag of
+ * the object when checksums are compared, or else when the source was modified in a later second
+ * than the target. The changed files are transferred by a pool of threads of the sync, which
+ * may wait for a multipart transfer on the thread pool of the <code>TransferManager</code>.
+ * </p>
+ * <p>
+ * The new index is written in the order of the keys as their transfers complete. A file which
+ * could not be transferred, even because of an Error, is reported as a failure and left out of
+ * it, to be compared again by the next sync. An index entry without ETag never matches.
+ * </p>
+ */
+final class DirectorySync {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectorySync.class);
+
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+
+    /**
+     * An entry of the new index, written once its transfer is done.
+     */
+    private static final class Slot {
+        // guarded by slots
+        SyncIndex.Entry entry;
+        boolean done;
+    }
+
+    private final TransferManager transferManager;
+    private final COS cos;
+    private final File directory;
+    private final String bucketName;
+    private final String prefix;
+    private final SyncDirection direction;
+    private final SyncOptions options;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    private final Deque<Slot> slots = new ArrayDeque<Slot>();
+    private SyncIndex.Writer newIndex;
+
+    private final AtomicLong transferredCount = new AtomicLong();
+    private final AtomicLong transferredBytes = new AtomicLong();
+    private final AtomicLong unchangedCount = new AtomicLong();
+    private final AtomicLong hashedCount = new AtomicLong();
+    private final AtomicLong deletedCount = new AtomicLong();
+    // guarded by failures
+    private final List<SyncResult.Failure> failures = new ArrayList<SyncResult.Failure>();
+
+    DirectorySync(TransferManager transferManager, COS cos, File directory, String bucketName,
+            String prefix, SyncDirection direction, SyncOptions options) {
+        this.transferManager = transferManager;
+        this.cos = cos;
+        this.directory = directory;
+        this.bucketName = bucketName;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.direction = direction;
+        this.options = options;
+        this.permits = new Semaphore(options.getConcurrency());
+        this.executor = Executors.newFixedThreadPool(options.getConcurrency(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("cos-sync-worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Compares keys in the order of a COS listing, i.e. of their UTF-8 bytes, which is the
+     * order of their code points.
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return ca < cb ? -1 : 1;
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return i < a.length() ? 1 : j < b.length() ? -1 : 0;
+    }
+
+    SyncResult run() throws InterruptedException, IOException {
+        File indexFile = options.getIndexFile();
+        SyncIndex.Reader index = SyncIndex.Reader.open(indexFile);
+        RuntimeException mergeFailure = null;
+        try {
+            newIndex = indexFile == null ? null : new SyncIndex.Writer(indexFile);
+            try {
+                merge(index);
+            } catch (RuntimeException e) {
+                mergeFailure = e;
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                flushIndex();
+            }
+            flushIndex();
+            if (newIndex != null) {
+                newIndex.commit();
+            }
+        } finally {
+            executor.shutdownNow();
+            index.close();
+            if (newIndex != null) {
+                newIndex.close();
+            }
+        }
+        if (mergeFailure != null) {
+            throw mergeFailure;
+        }
+        synchronized (failures) {
+            return new SyncResult(transferredCount.get(), transferredBytes.get(),
+                    unchangedCount.get(), hashedCount.get(), deletedCount.get(),
+                    new ArrayList<SyncResult.Failure>(failures));
+        }
+    }
+
+    private void merge(SyncIndex.Reader index) throws InterruptedException, IOException {
+        Iterator<LocalFile> locals = new LocalFileWalker(directory.toPath(), true);
+        Iterator<COSObjectSummary> remotes =
+                BulkKeySources.listing(cos, bucketName, prefix).iterator(null);
+        LocalFile local = locals.hasNext() ? locals.next() : null;
+        COSObjectSummary remote = nextRemote(remotes);
+        while (local != null || remote != null) {
+            int cmp = local == null ? 1
+                    : remote == null ? -1
+                            : compareKeys(prefix + local.relativeKey, remote.getKey());
+            if (cmp < 0) {
+                onlyLocal(local);
+                local = locals.hasNext() ? locals.next() : null;
+            } else if (cmp > 0) {
+                onlyRemote(remote);
+                remote = nextRemote(remotes);
+            } else {
+                both(local, remote, index.find(remote.getKey()));
+                local = locals.hasNext() ? locals.next() : null;
+                remote = nextRemote(remotes);
+            }
+            flushIndex();
+        }
+    }
+
+    /**
+     * Returns the next object of the listing, skipping the directory markers.
+     */
+    private static COSObjectSummary nextRemote(Iterator<COSObjectSummary> remotes) {
+        while (remotes.hasNext()) {
+            COSObjectSummary remote = remotes.next();
+            if (!remote.getKey().endsWith("/")) {
+                return remote;
+            }
+        }
+        return null;
+    }
+
+    private void onlyLocal(final LocalFile local) throws InterruptedException {
+        if (direction == SyncDirection.UPLOAD) {
+            final Slot slot = newSlot();
+            submit(prefix + local.relativeKey, slot, new Runnable() {
+                @Override
+                public void run() {
+                    upload(local, slot);
+                }
+            });
+        } else if (options.isDeleteExtraneous()) {
+            try {
+                Files.delete(local.path);
+                deletedCount.incrementAndGet();
+            } catch (IOException e) {
+                fail(prefix + local.relativeKey, e);
+            }
+        }
+    }
+
+    private void onlyRemote(final COSObjectSummary remote) throws InterruptedException {
+        if (direction == SyncDirection.DOWNLOAD) {
+            final Slot slot = newSlot();
+            submit(remote.getKey(), slot, new Runnable() {
+                @Override
+                public void run() {
+                    download(remote, slot);
+                }
+            });
+        } else if (options.isDeleteExtraneous()) {
+            submit(remote.getKey(), null, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        cos.deleteObject(appendSingleObjectUserAgent(
+                                new DeleteObjectRequest(bucketName, remote.getKey())));
+                        deletedCount.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        fail(remote.getKey(), e);
+                    }
+                }
+            });
+        }
+    }
+
+    private void both(final LocalFile local, final COSObjectSummary remote,
+            SyncIndex.Entry entry) throws InterruptedException {
+        final Slot slot = newSlot();
+        if (entry != null && entry.localSize == local.size
+                && entry.localModified == local.lastModified && entry.remoteSize == remote.getSize()
+                && entry.etag != null && entry.etag.equals(remote.getETag())) {
+            unchanged(local, remote, slot);
+            return;
+        }
+        if (local.size != remote.getSize()) {
+            transfer(local, remote, slot);
+            return;
+        }
+        if (options.isChecksumComparison() && remote.getETag() != null
+                && MD5_ETAG.matcher(remote.getETag()).matches()) {
+            submit(remote.getKey(), slot, new Runnable() {
+                @Override
+                public void run() {
+                    String md5;
+                    try {
+                        md5 = Md5Utils.md5Hex(local.path.toFile());
+                    } catch (IOException e) {
+                        fail(remote.getKey(), e);
+                        complete(slot, null);
+                        return;
+                    }
+                    hashedCount.incrementAndGet();
+                    if (md5.equalsIgnoreCase(remote.getETag())) {
+                        unchanged(local, remote, slot);
+                    } else if (direction == SyncDirection.UPLOAD) {
+                        upload(local, slot);
+                    } else {
+                        download(remote, slot);
+                    }
+                }
+            });
+            return;
+        }
+        long localSecond = local.lastModified / 1000;
+        long remoteSecond = remote.getLastModified().getTime() / 1000;
+        if (direction == SyncDirection.UPLOAD ? localSecond > remoteSecond
+                : remoteSecond > localSecond) {
+            transfer(local, remote, slot);
+        } else {
+            unchanged(local, remote, slot);
+        }
+    }
+
+    private void transfer(final LocalFile local, final COSObjectSummary remote, final Slot slot)
+            throws InterruptedException {
+        submit(remote.getKey(), slot, new Runnable() {
+            @Override
+            public void run() {
+                if (direction == SyncDirection.UPLOAD) {
+                    upload(local, slot);
+                } else {
+                    download(remote, slot);
+                }
+            }
+        });
+    }
+
+    private void unchanged(LocalFile local, COSObjectSummary remote, Slot slot) {
+        unchangedCount.incrementAndGet();
+        complete(slot, new SyncIndex.Entry(remote.getKey(), local.size, local.lastModified,
+                remote.getSize(), remote.getETag()));
+    }
+
+    private void upload(LocalFile local, Slot slot) {
+        String key = prefix + local.relativeKey;
+        PutObjectRequest request = new PutObjectRequest(bucketName, key, local.path.toFile());
+        String etag;
+        try {
+            if (local.size >= transferManager.getConfiguration().getMultipartUploadThreshold()) {
+                etag = transferManager.upload(request).waitForUploadResult().getETag();
+            } else {
+                etag = cos.putObject(appendSingleObjectUserAgent(request)).getETag();
+            }
+        } catch (Exception e) {
+            fail(key, e);
+            complete(slot, null);
+            return;
+        }
+        transferredCount.incrementAndGet();
+        transferredBytes.addAndGet(local.size);
+        complete(slot,
+                new SyncIndex.Entry(key, local.size, local.lastModified, local.size, etag));
+    }
+
+    private void download(COSObjectSummary remote, Slot slot) {
+        String key = remote.getKey();
+        SyncIndex.Entry entry;
+        try {
+            File file = localFile(key);
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+                throw new IOException("Unable to create the directory " + parent);
+            }
+            GetObjectRequest request = new GetObjectRequest(bucketName, key);
+            if (remote.getSize() >= transferManager.getConfiguration()
+                    .getMultipartUploadThreshold()) {
+                transferManager.download(request, file).waitForCompletion();
+            } else {
+                cos.getObject(appendSingleObjectUserAgent(request), file);
+            }
+            // the same modification time as the object, so that the next sync finds them the same
+            file.setLastModified(remote.getLastModified().getTime());
+            entry = new SyncIndex.Entry(key, file.length(),
+                    Files.getLastModifiedTime(file.toPath()).toMillis(), remote.getSize(),
+                    remote.getETag());
+        } catch (Exception e) {
+            fail(key, e);
+            complete(slot, null);
+            return;
+        }
+        transferredCount.incrementAndGet();
+        transferredBytes.addAndGet(remote.getSize());
+        complete(slot, entry);
+    }
+
+    /**
+     * Returns the file of the given key, refusing the keys which would fall outside the
+     * directory.
+     */
+    private File localFile(String key) throws IOException {
+        File file = directory;
+        for (String name : key.substring(prefix.length()).split("/", -1)) {
+            if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+                throw new IOException("The key " + key + " has no local path under " + directory);
+            }
+            file = new File(file, name);
+        }
+        return file;
+    }
+
+    /**
+     * Runs the task of a key on the pool. Whatever the task throws is reported as a failure of
+     * the key, and its slot of the new index, if any, is completed without entry unless the task
+     * did, so that the entries of the later keys are still written.
+     */
+    private void submit(final String key, final Slot slot, final Runnable task)
+            throws InterruptedException {
+        permits.acquire();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        fail(key, e);
+                    } catch (Error e) {
+                        fail(key, new CosClientException("Unable to sync " + key + ": " + e, e));
+                        throw e;
+                    } finally {
+                        if (slot != null) {
+                            completeIfPending(slot);
+                        }
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void fail(String key, Exception e) {
+        log.warn("unable to sync " + key, e);
+        synchronized (failures) {
+            failures.add(new SyncResult.Failure(key, e));
+        }
+    }
+
+    private Slot newSlot() {
+        Slot slot = new Slot();
+        if (newIndex != null) {
+            synchronized (slots) {
+                slots.add(slot);
+            }
+        }
+        return slot;
+    }
+
+    private void complete(Slot slot, SyncIndex.Entry entry) {
+        synchronized (slots) {
+            slot.entry = entry;
+            slot.done = true;
+        }
+    }
+
+    private void completeIfPending(Slot slot) {
+        synchronized (slots) {
+            slot.done = true;
+        }
+    }
+
+    /**
+     * Writes the entries of the new index up to the first transfer still pending.
+     */
+    private void flushIndex() throws IOException {
+        if (newIndex == null) {
+            return;
+        }
+        while (true) {
+            SyncIndex.Entry entry;
+            synchronized (slots) {
+                Slot slot = slots.peek();
+                if (slot == null || !slot.done) {
+                    return;
+                }
+                slots.poll();
+                entry = slot.entry;
+            }
+            if (entry != null) {
+                newIndex.write(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.event.MultipleFileTransferProgressUpdatingListener;
+import com.qcloud.cos.event.ProgressListener;
+import com.qcloud.cos.event.ProgressListenerChain;
+import com.qcloud.cos.exception.AbortedException;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.internal.ByteArrayContentInputStream;
+import com.qcloud.cos.internal.SkipMd5CheckStrategy;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.transfer.LocalFileWalker.LocalFile;
+import com.qcloud.cos.utils.Md5Utils;
+
+/**
+ * An upload of the files of a directory started by
+ * {@link TransferManager#uploadDirectory(String, String, File, boolean, ObjectMetadataProvider, DirectoryUploadOptions)}.
+ * <p>
+ * A thread of the upload walks the directory with a {@link LocalFileWalker}, holding only the
+ * entries of the directories on the way to the current file, and hands the files to a pool of
+ * threads of the upload, suspending the walk while the queue of files waiting is full. A file
+ * below the multipart upload threshold is put by a single request on a pooled connection of the
+ * client, one up to the small file threshold being read once in memory, and its MD5 computed from
+ * these bytes rather than by a first read of the file. A larger file is uploaded in parts by the
+ * <code>TransferManager</code>.
+ * </p>
+ * <p>
+ * The files which could not be uploaded are reported by {@link #getFailures()} rather than ending
+ * the upload.
+ * </p>
+ */
+public class DirectoryUpload {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryUpload.class);
+
+    public static class Failure {
+        private final String key;
+        private final Exception exception;
+
+        Failure(String key, Exception exception) {
+            this.key = key;
+            this.exception = exception;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+    }
+
+    private final TransferManager transferManager;
+    private final COS cos;
+    private final File directory;
+    private final String bucketName;
+    private final String prefix;
+    private final boolean includeSubdirectories;
+    private final ObjectMetadataProvider metadataProvider;
+    private final DirectoryUploadOptions options;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final Thread walker;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private final TransferProgress progress = new TransferProgress();
+    private final ProgressListenerChain listeners = new ProgressListenerChain();
+    private final ProgressListener progressListener =
+            new MultipleFileTransferProgressUpdatingListener(progress, listeners);
+
+    private final AtomicLong foundCount = new AtomicLong();
+    private final AtomicLong uploadedCount = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    // guarded by failures
+    private final List<Failure> failures = new ArrayList<Failure>();
+    private final Set<Upload> multipartUploads =
+            Collections.newSetFromMap(new ConcurrentHashMap<Upload, Boolean>());
+    private volatile RuntimeException walkFailure;
+    private volatile boolean aborted;
+
+    DirectoryUpload(TransferManager transferManager, COS cos, File directory, String bucketName,
+            String prefix, boolean includeSubdirectories, ObjectMetadataProvider metadataProvider,
+            DirectoryUploadOptions options) {
+        this.transferManager = transferManager;
+        this.cos = cos;
+        this.directory = directory;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.includeSubdirectories = includeSubdirectories;
+        this.metadataProvider = metadataProvider;
+        this.options = options;
+        this.permits = new Semaphore(options.getConcurrency() + options.getMaxQueuedFiles());
+        this.executor = Executors.newFixedThreadPool(options.getConcurrency(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("cos-directory-upload-worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.walker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                walkAndWait();
+            }
+        });
+        walker.setName("cos-directory-upload-walker");
+        walker.setDaemon(true);
+    }
+
+    void start() {
+        walker.start();
+    }
+
+    /**
+     * Returns the bytes uploaded so far, out of the total size of the files found so far, which
+     * is the size of all the files once the walk is done.
+     */
+    public TransferProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Adds a listener of the byte transfer events of the uploads of all the files.
+     */
+    public void addProgressListener(ProgressListener listener) {
+        listeners.addProgressListener(listener);
+    }
+
+    public void removeProgressListener(ProgressListener listener) {
+        listeners.removeProgressListener(listener);
+    }
+
+    /**
+     * Returns the number of files found so far by the walk of the directory.
+     */
+    public long getFoundCount() {
+        return foundCount.get();
+    }
+
+    /**
+     * Returns the number of files uploaded so far.
+     */
+    public long getUploadedCount() {
+        return uploadedCount.get();
+    }
+
+    /**
+     * Returns the total size of the files uploaded so far.
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    /**
+     * Returns the files which could not be uploaded so far, by key.
+     */
+    public List<Failure> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<Failure>(failures);
+        }
+    }
+
+    /**
+     * Returns whether the walk is done and all the files found are uploaded or failed.
+     */
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Waits until the walk is done and all the files found are uploaded or failed.
+     *
+     * @throws CosClientException if the directory could not be walked, once the uploads of the
+     *         files already found are done.
+     * @throws AbortedException if the upload was aborted.
+     */
+    public void waitForCompletion() throws InterruptedException, CosClientException {
+        done.await();
+        if (aborted) {
+            throw new AbortedException("Upload of " + directory + " aborted");
+        }
+        if (walkFailure != null) {
+            throw walkFailure;
+        }
+    }
+
+    /**
+     * Stops the walk of the directory, interrupts the uploads in progress and aborts the multipart
+     * uploads already started.
+     */
+    public void abort() {
+        aborted = true;
+        walker.interrupt();
+        // before the interrupts, which end the waits of the uploads and remove them from the set
+        for (Upload upload : multipartUploads) {
+            upload.abort();
+        }
+        executor.shutdownNow();
+    }
+
+    private void walkAndWait() {
+        try {
+            walk();
+        } catch (InterruptedException e) {
+            // aborted
+        } catch (RuntimeException e) {
+            if (!aborted) {
+                walkFailure = e;
+            }
+        } finally {
+            executor.shutdown();
+            awaitUploads();
+            done.countDown();
+        }
+    }
+
+    private void walk() throws InterruptedException {
+        LocalFileWalker files = new LocalFileWalker(directory.toPath(), includeSubdirectories);
+        long totalBytes = 0;
+        while (files.hasNext()) {
+            final LocalFile file = files.next();
+            foundCount.incrementAndGet();
+            totalBytes += file.size;
+            progress.setTotalBytesToTransfer(totalBytes);
+            permits.acquire();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            upload(file);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+
+    private void awaitUploads() {
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // aborted, the uploads are interrupted and end shortly
+            }
+        }
+    }
+
+    private void upload(LocalFile local) {
+        String key = prefix + local.relativeKey;
+        File file = local.path.toFile();
+        try {
+            ObjectMetadata metadata = new ObjectMetadata();
+            if (metadataProvider != null) {
+                metadataProvider.provideObjectMetadata(file, metadata);
+            }
+            long size;
+            if (local.size >= transferManager.getConfiguration().getMultipartUploadThreshold()) {
+                PutObjectRequest request = new PutObjectRequest(bucketName, key, file)
+                        .withMetadata(metadata)
+                        .<PutObjectRequest>withGeneralProgressListener(progressListener);
+                uploadInParts(request);
+                size = local.size;
+            } else if (local.size <= options.getSmallFileThreshold()) {
+                byte[] content = Files.readAllBytes(local.path);
+                metadata.setContentLength(content.length);
+                PutObjectRequest request = new PutObjectRequest(bucketName, key,
+                        new ByteArrayContentInputStream(content), metadata)
+                                .<PutObjectRequest>withGeneralProgressListener(progressListener);
+                if (metadata.getContentMD5() == null && !SkipMd5CheckStrategy.INSTANCE
+                        .skipServerSideValidation(request)) {
+                    metadata.setContentMD5(Md5Utils.md5AsBase64(content));
+                }
+                cos.putObject(appendSingleObjectUserAgent(request));
+                size = content.length;
+            } else {
+                PutObjectRequest request = new PutObjectRequest(bucketName, key, file)
+                        .withMetadata(metadata)
+                        .<PutObjectRequest>withGeneralProgressListener(progressListener);
+                cos.putObject(appendSingleObjectUserAgent(request));
+                size = local.size;
+            }
+            uploadedCount.incrementAndGet();
+            uploadedBytes.addAndGet(size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(key, e);
+        } catch (Exception e) {
+            fail(key, e);
+        }
+    }
+
+    private void uploadInParts(PutObjectRequest request) throws InterruptedException {
+        Upload upload = transferManager.upload(request);
+        multipartUploads.add(upload);
+        try {
+            // an abort which missed the upload in the set
+            if (aborted) {
+                upload.abort();
+            }
+            upload.waitForUploadResult();
+        } finally {
+            multipartUploads.remove(upload);
+        }
+    }
+
+    private void fail(String key, Exception e) {
+        if (aborted) {
+            return;
+        }
+        log.warn("unable to upload " + key, e);
+        synchronized (failures) {
+            failures.add(new Failure(key, e));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.qcloud.cos.transfer;
+
+import java.io.File;
+
+/**
+ * Options of
+ * {@link TransferManager#uploadDirectory(String, String, File, boolean, ObjectMetadataProvider, DirectoryUploadOptions)}.
+ */
+public class DirectoryUploadOptions {
+
+    private static final int DEFAULT_CONCURRENCY = 32;
+    private static final int DEFAULT_MAX_QUEUED_FILES = 1024;
+    private static final long DEFAULT_SMALL_FILE_THRESHOLD = 256 * 1024;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int maxQueuedFiles = DEFAULT_MAX_QUEUED_FILES;
+    private long smallFileThreshold = DEFAULT_SMALL_FILE_THRESHOLD;
+
+    /**
+     * Returns the maximum number of files uploaded at once. Default is 32.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the maximum number of files uploaded at once, each upload holding a connection of the
+     * client, so that it should not be more than the maximum number of connections of the client.
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public DirectoryUploadOptions withConcurrency(int concurrency) {
+        setConcurrency(concurrency);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of files found by the walk of the directory and waiting for
+     * their upload. Default is 1024.
+     */
+    public int getMaxQueuedFiles() {
+        return maxQueuedFiles;
+    }
+
+    /**
+     * Sets the maximum number of files found by the walk of the directory and waiting for their
+     * upload. The walk is suspended while this many files are waiting.
+     */
+    public void setMaxQueuedFiles(int maxQueuedFiles) {
+        if (maxQueuedFiles < 0) {
+            throw new IllegalArgumentException("maxQueuedFiles must not be negative");
+        }
+        this.maxQueuedFiles = maxQueuedFiles;
+    }
+
+    public DirectoryUploadOptions withMaxQueuedFiles(int maxQueuedFiles) {
+        setMaxQueuedFiles(maxQueuedFiles);
+        return this;
+    }
+
+    /**
+     * Returns the size up to which a file is read in memory at once, its MD5 being computed from
+     * the bytes sent rather than by a first read of the file. Default is 256KB.
+     */
+    public long getSmallFileThreshold() {
+        return smallFileThreshold;
+    }
+
+    /**
+     * Sets the size up to which a file is read in memory at once, its MD5 being computed from the
+     * bytes sent rather than by a first read of the file. Up to <code>concurrency</code> such
+     * files are held in memory at once. 0 reads no file in memory.
+     */
+    public void setSmallFileThreshold(long smallFileThreshold) {
+        if (smallFileThreshold < 0 || smallFileThreshold > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "smallFileThreshold must be between 0 and " + Integer.MAX_VALUE);
+        }
+        this.smallFileThreshold = smallFileThreshold;
+    }
+
+    public DirectoryUploadOptions withSmallFileThreshold(long smallFileThreshold) {
+        setSmallFileThreshold(smallFileThreshold);
+        return this;
+    }
+}
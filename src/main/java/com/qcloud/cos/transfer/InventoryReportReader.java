@@ -0,0 +1,532 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.internal.Constants;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.inventory.InventoryFormat;
+import com.qcloud.cos.model.inventory.InventoryManifest;
+import com.qcloud.cos.model.inventory.InventoryManifest.DataFile;
+import com.qcloud.cos.model.inventory.InventoryRecord;
+import com.qcloud.cos.utils.DateUtils;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.Jackson;
+import com.qcloud.cos.utils.UrlEncoderUtils;
+
+/**
+ * Reads the objects of a bucket from an inventory report rather than listing them, which is much
+ * faster for large buckets. Only the CSV format, gzipped or not, is supported.
+ * <p>
+ * The data files are decompressed and parsed as they are read, never held in memory as a whole.
+ * They can be read one by one with {@link #read(DataFile)}, e.g. to spread them over several
+ * threads, or all in a row with {@link #iterator(ExecutorService, int)}, which reads a few files
+ * ahead in parallel.
+ * </p>
+ */
+public class InventoryReportReader {
+
+    /**
+     * Opens the data files of a report, e.g. from COS or from a local copy of the report.
+     */
+    public interface DataFileOpener {
+        InputStream open(String key) throws IOException;
+    }
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int BATCHES_PER_FILE = 8;
+
+    private final InventoryManifest manifest;
+    private final DataFileOpener opener;
+    private final String[] columns;
+
+    public InventoryReportReader(InventoryManifest manifest, DataFileOpener opener) {
+        if (manifest.getFileFormat() != null
+                && !InventoryFormat.CSV.toString().equalsIgnoreCase(manifest.getFileFormat())) {
+            throw new IllegalArgumentException(
+                    "Unsupported inventory format " + manifest.getFileFormat());
+        }
+        if (manifest.getFileSchema() == null) {
+            throw new IllegalArgumentException("The inventory manifest has no file schema");
+        }
+        this.manifest = manifest;
+        this.opener = opener;
+        this.columns = manifest.getFileSchema().split(",");
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = columns[i].trim();
+        }
+    }
+
+    /**
+     * Returns a reader of the report whose manifest is stored in COS under the given key.
+     */
+    public static InventoryReportReader fromCos(final COS cos, final String bucketName,
+            String manifestKey) throws IOException {
+        DataFileOpener opener = new DataFileOpener() {
+            @Override
+            public InputStream open(String key) {
+                COSObject object = cos.getObject(
+                        appendSingleObjectUserAgent(new GetObjectRequest(bucketName, key)));
+                return object.getObjectContent();
+            }
+        };
+        return new InventoryReportReader(readManifest(opener.open(manifestKey)), opener);
+    }
+
+    /**
+     * Returns a reader of a report downloaded to the local disk: the data files are looked up by
+     * their name in the directory of the manifest, or by their key under that directory.
+     */
+    public static InventoryReportReader fromLocalFiles(File manifestFile) throws IOException {
+        final File directory = manifestFile.getAbsoluteFile().getParentFile();
+        DataFileOpener opener = new DataFileOpener() {
+            @Override
+            public InputStream open(String key) throws IOException {
+                File file = new File(directory, key.substring(key.lastIndexOf('/') + 1));
+                if (!file.isFile()) {
+                    file = new File(directory, key);
+                }
+                return new FileInputStream(file);
+            }
+        };
+        return new InventoryReportReader(readManifest(new FileInputStream(manifestFile)),
+                opener);
+    }
+
+    private static InventoryManifest readManifest(InputStream in) throws IOException {
+        try {
+            return Jackson.getObjectMapper().readValue(in, InventoryManifest.class);
+        } finally {
+            IOUtils.closeQuietly(in, null);
+        }
+    }
+
+    public InventoryManifest getManifest() {
+        return manifest;
+    }
+
+    public List<DataFile> getDataFiles() {
+        return Collections.unmodifiableList(manifest.getFiles());
+    }
+
+    /**
+     * Returns the rows of a data file, read as they are consumed. The iterator must be closed if
+     * it is not consumed to the end.
+     */
+    public RecordIterator read(DataFile dataFile) throws IOException {
+        InputStream in = opener.open(dataFile.getKey());
+        try {
+            if (dataFile.getKey().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            } else {
+                in = new BufferedInputStream(in, 64 * 1024);
+            }
+        } catch (IOException e) {
+            IOUtils.closeQuietly(in, null);
+            throw e;
+        }
+        return new FileRecordIterator(new BufferedReader(
+                new InputStreamReader(in, Constants.DEFAULT_ENCODING), 64 * 1024));
+    }
+
+    /**
+     * Returns the rows of all the data files in the order of the manifest. Up to the given number
+     * of files are downloaded and parsed ahead on the given executor, a bounded number of rows
+     * each. The iterator must be closed if it is not consumed to the end.
+     */
+    public RecordIterator iterator(ExecutorService executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        return new ParallelRecordIterator(executor, parallelism);
+    }
+
+    /**
+     * Returns the report as the key source of a bulk operation. A resumed operation skips the
+     * rows up to the last key processed, the rows being sorted by key. The executor reading the
+     * files ahead should not be the thread pool running the operation, as the readers wait for
+     * the rows to be consumed. The iterators of the source are {@link Closeable}, and stop the
+     * reading ahead once closed.
+     */
+    public BulkKeySource asKeySource(final ExecutorService executor, final int parallelism) {
+        return new BulkKeySource() {
+            @Override
+            public Iterator<COSObjectSummary> iterator(String startAfter) {
+                return new KeyIterator(InventoryReportReader.this.iterator(executor, parallelism),
+                        startAfter);
+            }
+        };
+    }
+
+    /**
+     * Parses a CSV line, whose fields may be quoted with double quotes, into the given list.
+     */
+    static void parseCsvLine(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            field.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                ++i;
+                while (i < length) {
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        field.append('"');
+                        ++i;
+                    } else {
+                        break;
+                    }
+                }
+                while (i < length && line.charAt(i) != ',') {
+                    ++i;
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i >= length) {
+                return;
+            }
+            // skip the comma
+            ++i;
+        }
+    }
+
+    /**
+     * Converts the fields of a row, interning the values repeated on every row.
+     */
+    private InventoryRecord toRecord(List<String> fields, Map<String, String> interned) {
+        String bucketName = null;
+        String key = null;
+        String versionId = null;
+        long size = -1;
+        long lastModified = -1;
+        String eTag = null;
+        String storageClass = null;
+        Boolean multipartUploaded = null;
+        int count = Math.min(columns.length, fields.size());
+        for (int i = 0; i < count; ++i) {
+            String value = fields.get(i);
+            if (value.isEmpty()) {
+                continue;
+            }
+            String column = columns[i];
+            if ("Key".equalsIgnoreCase(column)) {
+                key = UrlEncoderUtils.urlDecode(value);
+            } else if ("Bucket".equalsIgnoreCase(column)) {
+                bucketName = intern(value, interned);
+            } else if ("VersionId".equalsIgnoreCase(column)) {
+                versionId = value;
+            } else if ("Size".equalsIgnoreCase(column)) {
+                size = Long.parseLong(value);
+            } else if ("LastModifiedDate".equalsIgnoreCase(column)) {
+                lastModified = DateUtils.parseISO8601DateMillis(value);
+            } else if ("ETag".equalsIgnoreCase(column)) {
+                eTag = value;
+            } else if ("StorageClass".equalsIgnoreCase(column)) {
+                storageClass = intern(value, interned);
+            } else if ("IsMultipartUploaded".equalsIgnoreCase(column)) {
+                multipartUploaded = Boolean.valueOf(value);
+            }
+        }
+        if (key == null) {
+            throw new CosClientException("Inventory row without key: " + fields);
+        }
+        if (bucketName == null) {
+            bucketName = manifest.getSourceBucket();
+        }
+        return new InventoryRecord(bucketName, key, versionId, size, lastModified, eTag,
+                storageClass, multipartUploaded);
+    }
+
+    private static String intern(String value, Map<String, String> interned) {
+        String existing = interned.get(value);
+        if (existing == null) {
+            interned.put(value, value);
+            existing = value;
+        }
+        return existing;
+    }
+
+    /**
+     * An iterator of inventory rows which holds resources until consumed to the end or closed.
+     * Reading errors are thrown as {@link CosClientException}.
+     */
+    public abstract static class RecordIterator implements Iterator<InventoryRecord>, Closeable {
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public abstract void close();
+    }
+
+    /**
+     * The objects of the rows following a key, which closes the rows when closed.
+     */
+    private static class KeyIterator implements Iterator<COSObjectSummary>, Closeable {
+        private final RecordIterator records;
+        // the first row after the key, read while skipping the rows up to it
+        private InventoryRecord first;
+
+        KeyIterator(RecordIterator records, String startAfter) {
+            this.records = records;
+            try {
+                // the key of the checkpoint may be gone from the report, so skip up to it rather
+                // than look for it
+                while (startAfter != null && records.hasNext()) {
+                    InventoryRecord record = records.next();
+                    if (record.getKey().compareTo(startAfter) > 0) {
+                        first = record;
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                records.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return first != null || records.hasNext();
+        }
+
+        @Override
+        public COSObjectSummary next() {
+            if (first != null) {
+                InventoryRecord record = first;
+                first = null;
+                return record.toObjectSummary();
+            }
+            return records.next().toObjectSummary();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            first = null;
+            records.close();
+        }
+    }
+
+    private class FileRecordIterator extends RecordIterator {
+        private final BufferedReader reader;
+        private final List<String> fields = new ArrayList<String>();
+        private final Map<String, String> interned = new HashMap<String, String>();
+        private InventoryRecord next;
+        private boolean done;
+
+        FileRecordIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    close();
+                    throw new CosClientException("Unable to read the inventory report", e);
+                }
+                if (line == null) {
+                    close();
+                } else if (!line.isEmpty()) {
+                    parseCsvLine(line, fields);
+                    next = toRecord(fields, interned);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public InventoryRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            InventoryRecord record = next;
+            next = null;
+            return record;
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            IOUtils.closeQuietly(reader, null);
+        }
+    }
+
+    /**
+     * Reads the rows of a data file on an executor into a bounded queue of batches. The end of
+     * the file is marked by an empty batch.
+     */
+    private class FileFeed implements Runnable {
+        private final DataFile dataFile;
+        private final BlockingQueue<List<InventoryRecord>> batches =
+                new ArrayBlockingQueue<List<InventoryRecord>>(BATCHES_PER_FILE);
+        private volatile boolean closed;
+        private volatile Exception failure;
+
+        FileFeed(DataFile dataFile) {
+            this.dataFile = dataFile;
+        }
+
+        @Override
+        public void run() {
+            RecordIterator records = null;
+            try {
+                records = read(dataFile);
+                List<InventoryRecord> batch = new ArrayList<InventoryRecord>(BATCH_SIZE);
+                while (records.hasNext() && !closed) {
+                    batch.add(records.next());
+                    if (batch.size() == BATCH_SIZE) {
+                        put(batch);
+                        batch = new ArrayList<InventoryRecord>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    put(batch);
+                }
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                if (records != null) {
+                    records.close();
+                }
+                try {
+                    put(Collections.<InventoryRecord>emptyList());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void put(List<InventoryRecord> batch) throws InterruptedException {
+            // gives up once the iterator is closed, rather than waiting for room forever
+            while (!closed) {
+                if (batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+
+        List<InventoryRecord> take() {
+            try {
+                List<InventoryRecord> batch = batches.take();
+                if (batch.isEmpty() && failure != null) {
+                    throw new CosClientException(
+                            "Unable to read inventory data file " + dataFile.getKey(), failure);
+                }
+                return batch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CosClientException("Interrupted while reading the inventory report", e);
+            }
+        }
+    }
+
+    private class ParallelRecordIterator extends RecordIterator {
+        private final ExecutorService executor;
+        private final int parallelism;
+        private final List<FileFeed> feeds = new ArrayList<FileFeed>();
+        private int nextFile;
+        private Iterator<InventoryRecord> batch = Collections.<InventoryRecord>emptyList().iterator();
+        private boolean done;
+
+        ParallelRecordIterator(ExecutorService executor, int parallelism) {
+            this.executor = executor;
+            this.parallelism = parallelism;
+            startFeeds();
+        }
+
+        private void startFeeds() {
+            while (feeds.size() < parallelism && nextFile < manifest.getFiles().size()) {
+                FileFeed feed = new FileFeed(manifest.getFiles().get(nextFile++));
+                feeds.add(feed);
+                executor.execute(feed);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && !done) {
+                if (feeds.isEmpty()) {
+                    done = true;
+                    break;
+                }
+                List<InventoryRecord> next;
+                try {
+                    next = feeds.get(0).take();
+                } catch (CosClientException e) {
+                    close();
+                    throw e;
+                }
+                if (next.isEmpty()) {
+                    feeds.remove(0);
+                    startFeeds();
+                } else {
+                    batch = next.iterator();
+                }
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public InventoryRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            batch = Collections.<InventoryRecord>emptyList().iterator();
+            for (FileFeed feed : feeds) {
+                feed.closed = true;
+            }
+            feeds.clear();
+        }
+    }
+}
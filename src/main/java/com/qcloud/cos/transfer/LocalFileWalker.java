@@ -0,0 +1,154 @@
+package com.qcloud.cos.transfer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.qcloud.cos.exception.CosClientException;
+
+/**
+ * Walks the regular files of a directory tree in the order of their relative paths as COS keys,
+ * i.e. with '/' separators and compared by {@link DirectorySync#compareKeys(String, String)}, as a
+ * COS listing returns the keys. Only the entries of the directories on the way to the current
+ * file are held, one directory being listed when the walk enters it, so that trees of any size
+ * are walked in bounded memory. The symbolic links to files are followed, the ones to
+ * directories are not.
+ */
+final class LocalFileWalker implements Iterator<LocalFileWalker.LocalFile> {
+
+    static final class LocalFile {
+        final Path path;
+        final String relativeKey;
+        final long size;
+        final long lastModified;
+
+        LocalFile(Path path, String relativeKey, long size, long lastModified) {
+            this.path = path;
+            this.relativeKey = relativeKey;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class Entry {
+        final Path path;
+        // the name, followed by '/' for a directory
+        final String name;
+        final BasicFileAttributes attributes;
+
+        Entry(Path path, String name, BasicFileAttributes attributes) {
+            this.path = path;
+            this.name = name;
+            this.attributes = attributes;
+        }
+    }
+
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return DirectorySync.compareKeys(a.name, b.name);
+        }
+    };
+
+    private static final class Level {
+        final String keyPrefix;
+        final Iterator<Entry> entries;
+
+        Level(String keyPrefix, Iterator<Entry> entries) {
+            this.keyPrefix = keyPrefix;
+            this.entries = entries;
+        }
+    }
+
+    private final Deque<Level> levels = new ArrayDeque<Level>();
+    private final boolean recursive;
+    private LocalFile next;
+
+    /**
+     * @param recursive whether the files of the subdirectories are walked too.
+     * @throws CosClientException if the directory cannot be listed.
+     */
+    LocalFileWalker(Path directory, boolean recursive) {
+        this.recursive = recursive;
+        levels.push(new Level("", list(directory)));
+    }
+
+    private static Iterator<Entry> list(Path directory) {
+        List<Entry> entries = new ArrayList<Entry>();
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+            try {
+                for (Path path : stream) {
+                    BasicFileAttributes attributes = Files.readAttributes(path,
+                            BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isSymbolicLink()) {
+                        attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        if (!attributes.isRegularFile()) {
+                            continue;
+                        }
+                    }
+                    String name = path.getFileName().toString();
+                    if (attributes.isDirectory()) {
+                        entries.add(new Entry(path, name + "/", attributes));
+                    } else if (attributes.isRegularFile()) {
+                        entries.add(new Entry(path, name, attributes));
+                    }
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            throw new CosClientException("Unable to list the directory " + directory, e);
+        }
+        Collections.sort(entries, ENTRY_ORDER);
+        return entries.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !levels.isEmpty()) {
+            Level level = levels.peek();
+            if (!level.entries.hasNext()) {
+                levels.pop();
+                continue;
+            }
+            Entry entry = level.entries.next();
+            String key = level.keyPrefix + entry.name;
+            if (entry.attributes.isDirectory()) {
+                if (recursive) {
+                    levels.push(new Level(key, list(entry.path)));
+                }
+            } else {
+                next = new LocalFile(entry.path, key, entry.attributes.size(),
+                        entry.attributes.lastModifiedTime().toMillis());
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public LocalFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LocalFile file = next;
+        next = null;
+        return file;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,429 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.exception.AbortedException;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.Progress;
+import com.qcloud.cos.model.SelectObjectContentEvent;
+import com.qcloud.cos.model.SelectObjectContentEvent.ProgressEvent;
+import com.qcloud.cos.model.SelectObjectContentEvent.RecordsEvent;
+import com.qcloud.cos.model.SelectObjectContentEvent.StatsEvent;
+import com.qcloud.cos.model.SelectObjectContentEventStream;
+import com.qcloud.cos.model.SelectObjectContentEventVisitor;
+import com.qcloud.cos.model.SelectObjectContentRequest;
+import com.qcloud.cos.model.SelectObjectContentResult;
+import com.qcloud.cos.model.SelectRecordReader;
+import com.qcloud.cos.model.Stats;
+import com.qcloud.cos.utils.IOUtils;
+
+/**
+ * The records selected by the same query from every object of a key source, see
+ * {@link TransferManager#selectObjects(BulkKeySource, SelectObjectContentRequest, MultiObjectSelectOptions)}.
+ * <p>
+ * The objects are queried on a thread pool of the select, sized to
+ * {@link MultiObjectSelectOptions#getConcurrency()}, and the records events of each are queued
+ * up to a bound, beyond which the reading of its response waits for the consumer. The key source
+ * is iterated on the consuming thread as the queries complete. The first failure of a query
+ * closes the select and is thrown by {@link #hasNext()}.
+ * </p>
+ * <p>
+ * The select must be closed if it is not consumed to the end, which aborts the responses being
+ * read and closes the iterator of the key source if it is {@link Closeable}.
+ * </p>
+ */
+public class MultiObjectSelect implements Iterator<SelectedRecords>, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiObjectSelect.class);
+
+    private final COS cos;
+    private final ExecutorService executor;
+    private final SelectObjectContentRequest template;
+    private final MultiObjectSelectOptions options;
+    private final Iterator<COSObjectSummary> keys;
+    // the records of all the queries in the unordered mode, null in the ordered one
+    private final BlockingQueue<Object> sharedQueue;
+    // the queries in flight, in the order of the key source
+    private final List<ObjectSelect> selects = new ArrayList<ObjectSelect>();
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong bytesScanned = new AtomicLong();
+    private final AtomicLong bytesProcessed = new AtomicLong();
+    private final AtomicLong bytesReturned = new AtomicLong();
+    private final AtomicLong statsBytesScanned = new AtomicLong();
+    private final AtomicLong statsBytesProcessed = new AtomicLong();
+    private final AtomicLong statsBytesReturned = new AtomicLong();
+
+    private SelectedRecords next;
+    private boolean done;
+
+    MultiObjectSelect(COS cos, BulkKeySource source, SelectObjectContentRequest template,
+            MultiObjectSelectOptions options) {
+        this.cos = cos;
+        this.executor = Executors.newFixedThreadPool(options.getConcurrency(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("cos-select-worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.template = template;
+        this.options = options;
+        this.sharedQueue = options.isOrdered() ? null
+                : new ArrayBlockingQueue<Object>(
+                        options.getConcurrency() * options.getBufferedEventsPerObject());
+        this.keys = source.iterator(null);
+        startSelects();
+    }
+
+    private void startSelects() {
+        boolean started = false;
+        try {
+            while (selects.size() < options.getConcurrency() && keys.hasNext()) {
+                ObjectSelect select = new ObjectSelect(keys.next().getKey());
+                selects.add(select);
+                executor.execute(select);
+            }
+            started = true;
+        } finally {
+            if (!started) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of objects whose query completed.
+     */
+    public long getCompletedObjectCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Returns the sum of the latest progress of every object queried so far, the final
+     * statistics for the completed ones.
+     */
+    public Progress getProgress() {
+        return new Progress().withBytesScanned(bytesScanned.get())
+                .withBytesProcessed(bytesProcessed.get()).withBytesReturned(bytesReturned.get());
+    }
+
+    /**
+     * Returns the sum of the final statistics of the objects queried so far, which covers them
+     * all once the select has been consumed to the end.
+     */
+    public Stats getStats() {
+        return new Stats().withBytesScanned(statsBytesScanned.get())
+                .withBytesProcessed(statsBytesProcessed.get())
+                .withBytesReturned(statsBytesReturned.get());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !done) {
+            if (selects.isEmpty()) {
+                close();
+                break;
+            }
+            Object item;
+            try {
+                item = sharedQueue != null ? sharedQueue.take() : selects.get(0).queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new AbortedException("Interrupted while reading the selected records", e);
+            }
+            if (item instanceof ObjectSelect) {
+                ObjectSelect select = (ObjectSelect) item;
+                if (select.failure != null) {
+                    close();
+                    throw new CosClientException("Unable to select object " + select.key,
+                            select.failure);
+                }
+                selects.remove(select);
+                completedCount.incrementAndGet();
+                startSelects();
+            } else {
+                next = (SelectedRecords) item;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public SelectedRecords next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SelectedRecords records = next;
+        next = null;
+        return records;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the records as a single stream, whose closing closes the select.
+     */
+    public InputStream getRecordsInputStream() {
+        return new InputStream() {
+            private ByteBuffer current;
+
+            @Override
+            public int read() throws IOException {
+                if (!advance()) {
+                    return -1;
+                }
+                return current.get() & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!advance()) {
+                    return -1;
+                }
+                int n = Math.min(len, current.remaining());
+                current.get(b, off, n);
+                return n;
+            }
+
+            private boolean advance() throws IOException {
+                while (current == null || !current.hasRemaining()) {
+                    try {
+                        if (!hasNext()) {
+                            return false;
+                        }
+                    } catch (CosClientException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                    current = MultiObjectSelect.this.next().getPayload().duplicate();
+                }
+                return true;
+            }
+
+            @Override
+            public void close() {
+                MultiObjectSelect.this.close();
+            }
+        };
+    }
+
+    /**
+     * Returns a reader of the records, split by the record delimiter of the output serialization
+     * of the template request, whose closing closes the select.
+     *
+     * @throws IllegalStateException in the unordered mode, where a record split over several
+     *             events could be interleaved with the records of another object.
+     */
+    public SelectRecordReader getRecordReader() {
+        if (sharedQueue != null) {
+            throw new IllegalStateException("The records of an unordered select cannot be split");
+        }
+        return new SelectRecordReader(new Iterator<ByteBuffer>() {
+            @Override
+            public boolean hasNext() {
+                return MultiObjectSelect.this.hasNext();
+            }
+
+            @Override
+            public ByteBuffer next() {
+                return MultiObjectSelect.this.next().getPayload().duplicate();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }, template.getOutputSerialization(), this);
+    }
+
+    /**
+     * Aborts the queries in flight, including the responses being read, starts no other one and
+     * closes the iterator of the key source if it is {@link Closeable}.
+     */
+    @Override
+    public void close() {
+        done = true;
+        next = null;
+        for (ObjectSelect select : selects) {
+            select.closed = true;
+            select.abortResponse();
+        }
+        selects.clear();
+        // the workers stop on their own once their response is aborted or they see the closing
+        executor.shutdown();
+        if (keys instanceof Closeable) {
+            IOUtils.closeQuietly((Closeable) keys, log);
+        }
+    }
+
+    /**
+     * Queries an object on the executor, queuing its records events and then itself as the end
+     * marker.
+     */
+    private class ObjectSelect implements Runnable {
+        private final String key;
+        private final BlockingQueue<Object> queue;
+        private volatile boolean closed;
+        private volatile Exception failure;
+        // guarded by this, the response is aborted by the worker or by the closing of the select
+        private SelectObjectContentEventStream payload;
+        private boolean aborted;
+
+        // the latest progress, added to the totals
+        private long scanned;
+        private long processed;
+        private long returned;
+
+        ObjectSelect(String key) {
+            this.key = key;
+            this.queue = sharedQueue != null ? sharedQueue
+                    : new ArrayBlockingQueue<Object>(options.getBufferedEventsPerObject() + 1);
+        }
+
+        @Override
+        public void run() {
+            SelectObjectContentResult result = null;
+            boolean complete = false;
+            try {
+                if (closed) {
+                    return;
+                }
+                SelectObjectContentRequest request =
+                        (SelectObjectContentRequest) template.clone();
+                request.setKey(key);
+                result = cos.selectObjectContent(appendSingleObjectUserAgent(request));
+                synchronized (this) {
+                    payload = result.getPayload();
+                }
+                Iterator<SelectObjectContentEvent> events =
+                        result.getPayload().getEventsIterator();
+                SelectObjectContentEventVisitor visitor = new EventVisitor();
+                while (!closed && events.hasNext()) {
+                    events.next().visit(visitor);
+                }
+                complete = !closed;
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                if (result != null) {
+                    if (!complete) {
+                        abortResponse();
+                    }
+                    IOUtils.closeQuietly(result.getPayload(), log);
+                }
+                try {
+                    put(this);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Aborts the response, once, unblocking the worker if it is reading it.
+         */
+        synchronized void abortResponse() {
+            if (payload != null && !aborted) {
+                aborted = true;
+                payload.abort();
+            }
+        }
+
+        private void put(Object item) throws InterruptedException {
+            // gives up once the select is closed, rather than waiting for room forever
+            while (!closed) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+
+        private void progress(Long scanned, Long processed, Long returned) {
+            if (scanned != null) {
+                bytesScanned.addAndGet(scanned - this.scanned);
+                this.scanned = scanned;
+            }
+            if (processed != null) {
+                bytesProcessed.addAndGet(processed - this.processed);
+                this.processed = processed;
+            }
+            if (returned != null) {
+                bytesReturned.addAndGet(returned - this.returned);
+                this.returned = returned;
+            }
+        }
+
+        private void add(AtomicLong total, Long value) {
+            if (value != null) {
+                total.addAndGet(value);
+            }
+        }
+
+        private class EventVisitor extends SelectObjectContentEventVisitor {
+            @Override
+            public void visit(RecordsEvent event) {
+                ByteBuffer payload = event.getPayload();
+                if (payload == null || !payload.hasRemaining()) {
+                    return;
+                }
+                try {
+                    put(new SelectedRecords(key, payload));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AbortedException("Interrupted while selecting object " + key, e);
+                }
+            }
+
+            @Override
+            public void visit(ProgressEvent event) {
+                Progress details = event.getDetails();
+                if (details != null) {
+                    progress(details.getBytesScanned(), details.getBytesProcessed(),
+                            details.getBytesReturned());
+                }
+            }
+
+            @Override
+            public void visit(StatsEvent event) {
+                Stats details = event.getDetails();
+                if (details != null) {
+                    add(statsBytesScanned, details.getBytesScanned());
+                    add(statsBytesProcessed, details.getBytesProcessed());
+                    add(statsBytesReturned, details.getBytesReturned());
+                    progress(details.getBytesScanned(), details.getBytesProcessed(),
+                            details.getBytesReturned());
+                }
+            }
+        }
+    }
+}
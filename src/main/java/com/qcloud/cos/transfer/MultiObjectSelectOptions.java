@@ -0,0 +1,75 @@
+package com.qcloud.cos.transfer;
+
+import com.qcloud.cos.model.SelectObjectContentRequest;
+
+/**
+ * Options of
+ * {@link TransferManager#selectObjects(BulkKeySource, SelectObjectContentRequest, MultiObjectSelectOptions)}.
+ */
+public class MultiObjectSelectOptions {
+
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int DEFAULT_BUFFERED_EVENTS = 16;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private boolean ordered = true;
+    private int bufferedEventsPerObject = DEFAULT_BUFFERED_EVENTS;
+
+    /**
+     * Returns the maximum number of objects queried at the same time. Default is 8. It is also
+     * bounded by the size of the thread pool of the <code>TransferManager</code>.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public MultiObjectSelectOptions withConcurrency(int concurrency) {
+        setConcurrency(concurrency);
+        return this;
+    }
+
+    /**
+     * Returns true if the records are returned object by object, in the order of the key source
+     * (the default), false if they are returned as soon as they are received, the records of the
+     * objects queried at the same time being interleaved.
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public MultiObjectSelectOptions withOrdered(boolean ordered) {
+        setOrdered(ordered);
+        return this;
+    }
+
+    /**
+     * Returns the number of records events received ahead and not consumed yet, per object
+     * queried, beyond which the reading of the responses waits for the consumer. Default is 16.
+     */
+    public int getBufferedEventsPerObject() {
+        return bufferedEventsPerObject;
+    }
+
+    public void setBufferedEventsPerObject(int bufferedEventsPerObject) {
+        if (bufferedEventsPerObject < 1) {
+            throw new IllegalArgumentException("bufferedEventsPerObject must be at least 1");
+        }
+        this.bufferedEventsPerObject = bufferedEventsPerObject;
+    }
+
+    public MultiObjectSelectOptions withBufferedEventsPerObject(int bufferedEventsPerObject) {
+        setBufferedEventsPerObject(bufferedEventsPerObject);
+        return this;
+    }
+}
@@ -0,0 +1,245 @@
+package com.qcloud.cos.transfer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.exception.MultiObjectDeleteException.DeleteError;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.COSVersionSummary;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.DeleteObjectsRequest.KeyVersion;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ListVersionsRequest;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.VersionListing;
+
+import static com.qcloud.cos.transfer.TransferManager.appendSingleObjectUserAgent;
+
+/**
+ * Deletes everything under a prefix. The listing runs on the calling thread and every page is cut
+ * into DeleteObjects batches which are executed on a thread pool of the deleter, at most
+ * {@link DeletePrefixOptions#getConcurrency()} at a time, so that listing and deleting overlap.
+ * The keys which fail with a transient error are retried, the others are reported at once.
+ */
+final class PrefixDeleter {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefixDeleter.class);
+
+    /**
+     * The error codes of the keys of a DeleteObjects worth retrying, any other one is permanent.
+     */
+    private static final Set<String> RETRYABLE_ERROR_CODES = new HashSet<String>(Arrays.asList(
+            "InternalError", "ServiceUnavailable", "SlowDown", "RequestTimeout"));
+
+    private final COS cos;
+    private final ExecutorService threadPool;
+    private final String bucketName;
+    private final String prefix;
+    private final DeletePrefixOptions options;
+
+    private final Semaphore inFlight;
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final List<DeleteError> errors =
+            Collections.synchronizedList(new ArrayList<DeleteError>());
+    private long listedCount;
+    private long nextSubmitNanos;
+
+    PrefixDeleter(COS cos, String bucketName, String prefix, DeletePrefixOptions options) {
+        this.cos = cos;
+        this.threadPool = Executors.newFixedThreadPool(options.getConcurrency(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("cos-delete-prefix-worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.options = options;
+        this.inFlight = new Semaphore(options.getConcurrency());
+    }
+
+    DeletePrefixResult run() throws InterruptedException {
+        try {
+            if (options.isIncludeVersions()) {
+                deleteVersions();
+            } else {
+                deleteObjects();
+            }
+        } finally {
+            // wait for the batches in flight, even when the listing failed
+            try {
+                inFlight.acquire(options.getConcurrency());
+                inFlight.release(options.getConcurrency());
+            } finally {
+                threadPool.shutdownNow();
+            }
+        }
+        return new DeletePrefixResult(listedCount, deletedCount.get(),
+                new ArrayList<DeleteError>(errors), options.isDryRun());
+    }
+
+    private void deleteObjects() throws InterruptedException {
+        List<KeyVersion> batch = new ArrayList<KeyVersion>(options.getBatchSize());
+        ObjectListing listing = cos.listObjects(appendSingleObjectUserAgent(
+                new ListObjectsRequest(bucketName, prefix, null, null,
+                        DeletePrefixOptions.MAX_BATCH_SIZE)));
+        while (true) {
+            for (COSObjectSummary summary : listing.getObjectSummaries()) {
+                batch = add(batch, new KeyVersion(summary.getKey()));
+            }
+            if (!listing.isTruncated()) {
+                break;
+            }
+            listing = cos.listNextBatchOfObjects(listing);
+        }
+        flush(batch);
+    }
+
+    private void deleteVersions() throws InterruptedException {
+        List<KeyVersion> batch = new ArrayList<KeyVersion>(options.getBatchSize());
+        VersionListing listing = cos.listVersions(appendSingleObjectUserAgent(
+                new ListVersionsRequest(bucketName, prefix, null, null, null,
+                        DeletePrefixOptions.MAX_BATCH_SIZE)));
+        while (true) {
+            for (COSVersionSummary summary : listing.getVersionSummaries()) {
+                batch = add(batch, new KeyVersion(summary.getKey(), summary.getVersionId()));
+            }
+            if (!listing.isTruncated()) {
+                break;
+            }
+            listing = cos.listNextBatchOfVersions(listing);
+        }
+        flush(batch);
+    }
+
+    private List<KeyVersion> add(List<KeyVersion> batch, KeyVersion keyVersion)
+            throws InterruptedException {
+        ++listedCount;
+        batch.add(keyVersion);
+        if (batch.size() < options.getBatchSize()) {
+            return batch;
+        }
+        flush(batch);
+        return new ArrayList<KeyVersion>(options.getBatchSize());
+    }
+
+    private void flush(final List<KeyVersion> batch) throws InterruptedException {
+        if (batch.isEmpty() || options.isDryRun()) {
+            return;
+        }
+        pace(batch.size());
+        inFlight.acquire();
+        try {
+            threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        deleteWithRetries(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Holds the listing back so that no more than maxDeletesPerSecond keys are submitted per
+     * second on average.
+     */
+    private void pace(int keys) throws InterruptedException {
+        long rate = options.getMaxDeletesPerSecond();
+        if (rate <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextSubmitNanos - now > 0) {
+            TimeUnit.NANOSECONDS.sleep(nextSubmitNanos - now);
+        } else {
+            nextSubmitNanos = now;
+        }
+        nextSubmitNanos += TimeUnit.SECONDS.toNanos(keys) / rate;
+    }
+
+    private void deleteWithRetries(List<KeyVersion> batch) {
+        List<KeyVersion> pending = batch;
+        List<DeleteError> lastErrors = Collections.emptyList();
+        for (int attempt = 0; !pending.isEmpty(); ++attempt) {
+            if (attempt > 0) {
+                if (attempt > options.getMaxRetries() || !RetryBackoff.sleep(attempt)) {
+                    break;
+                }
+            }
+            try {
+                cos.deleteObjects(appendSingleObjectUserAgent(
+                        new DeleteObjectsRequest(bucketName).withKeys(pending).withQuiet(true)));
+                deletedCount.addAndGet(pending.size());
+                return;
+            } catch (MultiObjectDeleteException e) {
+                deletedCount.addAndGet(pending.size() - e.getErrors().size());
+                lastErrors = new ArrayList<DeleteError>(e.getErrors().size());
+                pending = new ArrayList<KeyVersion>(e.getErrors().size());
+                for (DeleteError error : e.getErrors()) {
+                    String code = error.getCode();
+                    if (code == null || RETRYABLE_ERROR_CODES.contains(code)) {
+                        lastErrors.add(error);
+                        pending.add(new KeyVersion(error.getKey(), error.getVersionId()));
+                    } else {
+                        report(Collections.singletonList(error));
+                    }
+                }
+            } catch (CosServiceException e) {
+                lastErrors = toErrors(pending, e.getErrorCode(), e.getErrorMessage());
+            } catch (CosClientException e) {
+                lastErrors = toErrors(pending, null, e.getMessage());
+            }
+        }
+        report(lastErrors);
+    }
+
+    private void report(List<DeleteError> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        log.warn("failed to delete {} keys of bucket {}, first: {} {}", failed.size(),
+                bucketName, failed.get(0).getKey(), failed.get(0).getCode());
+        errors.addAll(failed);
+    }
+
+    private static List<DeleteError> toErrors(List<KeyVersion> keys, String code,
+            String message) {
+        List<DeleteError> errors = new ArrayList<DeleteError>(keys.size());
+        for (KeyVersion keyVersion : keys) {
+            DeleteError error = new DeleteError();
+            error.setKey(keyVersion.getKey());
+            error.setVersionId(keyVersion.getVersion());
+            error.setCode(code);
+            error.setMessage(message);
+            errors.add(error);
+        }
+        return errors;
+    }
+}
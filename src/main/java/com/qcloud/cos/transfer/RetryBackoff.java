@@ -0,0 +1,36 @@
+package com.qcloud.cos.transfer;
+
+/**
+ * The exponential backoff between the retries of the bulk operations of the
+ * {@link TransferManager}: 100 ms before the first retry, doubled on every attempt up to 10 s.
+ */
+final class RetryBackoff {
+
+    static final long INITIAL_BACKOFF_MILLIS = 100;
+    static final long MAX_BACKOFF_MILLIS = 10 * 1000;
+
+    private RetryBackoff() {
+    }
+
+    /**
+     * Returns the delay before the given retry, the first one being 1.
+     */
+    static long delayMillis(int attempt) {
+        // past 16 doublings the delay is capped anyway, and the shift would overflow
+        int doublings = Math.min(attempt - 1, 16);
+        return Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << doublings);
+    }
+
+    /**
+     * Sleeps before the given retry, the first one being 1, returns false if interrupted.
+     */
+    static boolean sleep(int attempt) {
+        try {
+            Thread.sleep(delayMillis(attempt));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.qcloud.cos.transfer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The content of a records event returned by a {@link MultiObjectSelect}, i.e. one or more
+ * records of an object, the first and last ones possibly partial.
+ */
+public class SelectedRecords {
+
+    private final String key;
+    private final ByteBuffer payload;
+
+    public SelectedRecords(String key, ByteBuffer payload) {
+        this.key = key;
+        this.payload = payload;
+    }
+
+    /**
+     * Returns the key of the object the records were selected from.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+}
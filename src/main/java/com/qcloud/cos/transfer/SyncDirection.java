@@ -0,0 +1,18 @@
+package com.qcloud.cos.transfer;
+
+/**
+ * The direction of
+ * {@link TransferManager#sync(java.io.File, String, String, SyncDirection, SyncOptions)}.
+ */
+public enum SyncDirection {
+
+    /**
+     * Makes the objects under the prefix the same as the files of the local directory.
+     */
+    UPLOAD,
+
+    /**
+     * Makes the files of the local directory the same as the objects under the prefix.
+     */
+    DOWNLOAD
+}
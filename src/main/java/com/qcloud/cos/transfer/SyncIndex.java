@@ -0,0 +1,204 @@
+package com.qcloud.cos.transfer;
+
+import static com.qcloud.cos.utils.StringUtils.UTF8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The state of the files and objects found the same by the last sync, one line per key in the
+ * order of the keys: the key, with its tabs, line breaks and backslashes escaped, the size and
+ * modification time of the file, and the size and ETag of the object, separated by tabs. Being
+ * sorted, the index is read along with the walk and the listing rather than loaded in memory.
+ */
+final class SyncIndex {
+
+    private SyncIndex() {
+    }
+
+    static final class Entry {
+        final String key;
+        final long localSize;
+        final long localModified;
+        final long remoteSize;
+        final String etag;
+
+        Entry(String key, long localSize, long localModified, long remoteSize, String etag) {
+            this.key = key;
+            this.localSize = localSize;
+            this.localModified = localModified;
+            this.remoteSize = remoteSize;
+            this.etag = etag;
+        }
+    }
+
+    /**
+     * Reads the entries of an index in order, looking them up by increasing keys.
+     */
+    static final class Reader implements Closeable {
+        private final BufferedReader in;
+        private Entry next;
+
+        /**
+         * Opens the given index, or returns a reader of no entry if there is no such file.
+         */
+        static Reader open(File file) throws IOException {
+            if (file == null || !file.exists()) {
+                return new Reader(null);
+            }
+            return new Reader(
+                    new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8)));
+        }
+
+        private Reader(BufferedReader in) throws IOException {
+            this.in = in;
+            advance();
+        }
+
+        private void advance() throws IOException {
+            String line = in == null ? null : in.readLine();
+            next = line == null ? null : parse(line);
+        }
+
+        /**
+         * Returns the entry of the given key, or null if none, skipping the entries of the keys
+         * before it. The keys must be looked up in increasing order.
+         */
+        Entry find(String key) throws IOException {
+            while (next != null && DirectorySync.compareKeys(next.key, key) < 0) {
+                advance();
+            }
+            return next != null && next.key.equals(key) ? next : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Writes a new index to a temporary file, which replaces the index once committed.
+     */
+    static final class Writer implements Closeable {
+        private final File file;
+        private final File temp;
+        private final BufferedWriter out;
+
+        Writer(File file) throws IOException {
+            this.file = file;
+            this.temp = new File(file.getPath() + ".tmp");
+            this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF8));
+        }
+
+        void write(Entry entry) throws IOException {
+            out.write(escape(entry.key));
+            out.write('\t');
+            out.write(Long.toString(entry.localSize));
+            out.write('\t');
+            out.write(Long.toString(entry.localModified));
+            out.write('\t');
+            out.write(Long.toString(entry.remoteSize));
+            out.write('\t');
+            out.write(entry.etag == null ? "" : entry.etag);
+            out.write('\n');
+        }
+
+        /**
+         * Replaces the index with the entries written.
+         */
+        void commit() throws IOException {
+            out.close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Discards the entries written if the index has not been committed.
+         */
+        @Override
+        public void close() throws IOException {
+            out.close();
+            temp.delete();
+        }
+    }
+
+    private static Entry parse(String line) throws IOException {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 5) {
+            throw new IOException("Invalid sync index line: " + line);
+        }
+        try {
+            return new Entry(unescape(fields[0]), Long.parseLong(fields[1]),
+                    Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                    fields[4].isEmpty() ? null : fields[4]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid sync index line: " + line, e);
+        }
+    }
+
+    static String escape(String key) {
+        StringBuilder sb = null;
+        for (int i = 0; i < key.length(); ++i) {
+            char c = key.charAt(i);
+            String escaped = c == '\\' ? "\\\\" : c == '\t' ? "\\t" : c == '\n' ? "\\n"
+                    : c == '\r' ? "\\r" : null;
+            if (escaped != null && sb == null) {
+                sb = new StringBuilder(key.length() + 8).append(key, 0, i);
+            }
+            if (sb != null) {
+                if (escaped != null) {
+                    sb.append(escaped);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb == null ? key : sb.toString();
+    }
+
+    static String unescape(String field) throws IOException {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); ++i) {
+            char c = field.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i == field.length()) {
+                throw new IOException("Invalid escape in sync index key: " + field);
+            }
+            switch (field.charAt(i)) {
+                case '\\':
+                    sb.append('\\');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                default:
+                    throw new IOException("Invalid escape in sync index key: " + field);
+            }
+        }
+        return sb.toString();
+    }
+}
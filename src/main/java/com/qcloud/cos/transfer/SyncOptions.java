@@ -0,0 +1,99 @@
+package com.qcloud.cos.transfer;
+
+import java.io.File;
+
+/**
+ * Options of
+ * {@link TransferManager#sync(File, String, String, SyncDirection, SyncOptions)}.
+ */
+public class SyncOptions {
+
+    private static final int DEFAULT_CONCURRENCY = 16;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private boolean deleteExtraneous = false;
+    private boolean checksumComparison = false;
+    private File indexFile;
+
+    /**
+     * Returns the maximum number of files transferred at once. Default is 16.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the maximum number of files transferred at once. The walk of the directory and the
+     * listing are suspended while this many transfers are pending.
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public SyncOptions withConcurrency(int concurrency) {
+        setConcurrency(concurrency);
+        return this;
+    }
+
+    /**
+     * Returns whether the targets with no source are deleted, i.e. the objects with no local file
+     * for an upload, and the local files with no object for a download. Default is false.
+     */
+    public boolean isDeleteExtraneous() {
+        return deleteExtraneous;
+    }
+
+    public void setDeleteExtraneous(boolean deleteExtraneous) {
+        this.deleteExtraneous = deleteExtraneous;
+    }
+
+    public SyncOptions withDeleteExtraneous(boolean deleteExtraneous) {
+        setDeleteExtraneous(deleteExtraneous);
+        return this;
+    }
+
+    /**
+     * Returns whether a file and an object of the same size, not known to be unchanged from the
+     * index, are compared by the MD5 of the file rather than by their modification times. The
+     * objects uploaded in parts, whose ETag is not the MD5 of their content, are always compared
+     * by modification time. Default is false.
+     */
+    public boolean isChecksumComparison() {
+        return checksumComparison;
+    }
+
+    public void setChecksumComparison(boolean checksumComparison) {
+        this.checksumComparison = checksumComparison;
+    }
+
+    public SyncOptions withChecksumComparison(boolean checksumComparison) {
+        setChecksumComparison(checksumComparison);
+        return this;
+    }
+
+    /**
+     * Returns the file recording the state of the files and objects after the last sync, or null
+     * if none is kept (the default).
+     */
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Sets the file recording the state of the files and objects after the last sync. A file and
+     * an object whose size, modification time and ETag are still the ones recorded are known to
+     * be the same without being compared further, so that syncing an unchanged tree costs its
+     * walk and listing only. The file is replaced at the end of every sync.
+     */
+    public void setIndexFile(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public SyncOptions withIndexFile(File indexFile) {
+        setIndexFile(indexFile);
+        return this;
+    }
+}
@@ -0,0 +1,88 @@
+package com.qcloud.cos.transfer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of
+ * {@link TransferManager#sync(java.io.File, String, String, SyncDirection, SyncOptions)}.
+ */
+public class SyncResult {
+
+    /**
+     * A file or object which could not be transferred or deleted.
+     */
+    public static class Failure {
+        private final String key;
+        private final Exception exception;
+
+        Failure(String key, Exception exception) {
+            this.key = key;
+            this.exception = exception;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+    }
+
+    private final long transferredCount;
+    private final long transferredBytes;
+    private final long unchangedCount;
+    private final long hashedCount;
+    private final long deletedCount;
+    private final List<Failure> failures;
+
+    SyncResult(long transferredCount, long transferredBytes, long unchangedCount,
+            long hashedCount, long deletedCount, List<Failure> failures) {
+        this.transferredCount = transferredCount;
+        this.transferredBytes = transferredBytes;
+        this.unchangedCount = unchangedCount;
+        this.hashedCount = hashedCount;
+        this.deletedCount = deletedCount;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns the number of files uploaded or downloaded.
+     */
+    public long getTransferredCount() {
+        return transferredCount;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * Returns the number of files found the same as their object.
+     */
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    /**
+     * Returns the number of files whose MD5 was computed to compare them with their object.
+     */
+    public long getHashedCount() {
+        return hashedCount;
+    }
+
+    /**
+     * Returns the number of extraneous objects or files deleted.
+     */
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * Returns the files or objects which could not be transferred or deleted, with their error.
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+}
@@ -22,6 +22,7 @@ import static com.qcloud.cos.utils.ServiceUtils.APPEND_MODE;
 import static com.qcloud.cos.utils.ServiceUtils.OVERWRITE_MODE;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
@@ -34,6 +35,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -50,6 +52,7 @@ import com.qcloud.cos.event.ProgressListenerChain;
 import com.qcloud.cos.event.TransferCompletionFilter;
 import com.qcloud.cos.event.TransferProgressUpdatingListener;
 import com.qcloud.cos.event.TransferStateChangeListener;
+import com.qcloud.cos.exception.AbortedException;
 import com.qcloud.cos.exception.CosClientException;
 import com.qcloud.cos.exception.CosServiceException;
 import com.qcloud.cos.exception.FileLockException;
@@ -68,6 +71,7 @@ import com.qcloud.cos.model.MultipartUploadListing;
 import com.qcloud.cos.model.ObjectListing;
 import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.SelectObjectContentRequest;
 import com.qcloud.cos.transfer.Transfer.TransferState;
 import com.qcloud.cos.utils.VersionInfoUtils;
 
@@ -149,8 +153,30 @@ public class TransferManager {
 
     private static final Logger log = LoggerFactory.getLogger(TransferManager.class);
 
+    /**
+     * Number of parts in flight with fair scheduling when it cannot be derived from the thread
+     * pool.
+     */
+    private static final int DEFAULT_MAXIMUM_IN_FLIGHT_PARTS = 16;
+
     private final boolean shutDownThreadPools;
 
+    /**
+     * Whether the thread pool was created by this transfer manager, only such a pool is resized by
+     * concurrency autotuning.
+     */
+    private boolean ownsThreadPool = false;
+
+    /**
+     * Adjusts the number of parts in flight when concurrency autotuning is enabled.
+     */
+    private AdaptiveConcurrencyController concurrencyController;
+
+    /**
+     * Schedules the parts of multipart transfers when fair scheduling is enabled.
+     */
+    private TransferScheduler transferScheduler;
+
     /**
      * Constructs a new <code>TransferManager</code>, specifying the client to use when making
      * requests to Qcloud COS.
@@ -165,6 +191,7 @@ public class TransferManager {
      */
     public TransferManager(COS cos) {
         this(cos, TransferManagerUtils.createDefaultExecutorService());
+        this.ownsThreadPool = true;
     }
 
     /**
@@ -235,6 +262,78 @@ public class TransferManager {
         return configuration;
     }
 
+    /**
+     * Returns the controller adjusting the number of parts in flight, or null if concurrency
+     * autotuning is disabled in the configuration.
+     *
+     * @return The concurrency controller of this <code>TransferManager</code>.
+     * @see TransferManagerConfiguration#setConcurrencyAutotuning(boolean)
+     */
+    public synchronized AdaptiveConcurrencyController getConcurrencyController() {
+        if (!configuration.isConcurrencyAutotuning()) {
+            return null;
+        }
+        if (concurrencyController == null) {
+            concurrencyController = new AdaptiveConcurrencyController(
+                    configuration.getMinimumConcurrency(), configuration.getMaximumConcurrency());
+            if (ownsThreadPool && threadPool instanceof ThreadPoolExecutor) {
+                final ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool;
+                concurrencyController.setLimitListener(
+                        new AdaptiveConcurrencyController.LimitListener() {
+                            @Override
+                            public void onLimitChanged(int newLimit) {
+                                resizeThreadPool(executor, newLimit + 1);
+                            }
+                        });
+            }
+        }
+        return concurrencyController;
+    }
+
+    /**
+     * Returns the scheduler of the upload and copy parts, or null if fair scheduling is disabled
+     * in the configuration.
+     *
+     * @return The transfer scheduler of this <code>TransferManager</code>.
+     * @see TransferManagerConfiguration#setFairScheduling(boolean)
+     */
+    public synchronized TransferScheduler getTransferScheduler() {
+        if (!configuration.isFairScheduling()) {
+            return null;
+        }
+        if (transferScheduler == null) {
+            int maxInFlightParts = configuration.getMaximumInFlightParts();
+            if (maxInFlightParts <= 0) {
+                if (configuration.isConcurrencyAutotuning()) {
+                    maxInFlightParts = configuration.getMaximumConcurrency();
+                } else if (threadPool instanceof ThreadPoolExecutor) {
+                    maxInFlightParts = Math.max(1,
+                            ((ThreadPoolExecutor) threadPool).getMaximumPoolSize()
+                                    - configuration.getFastLaneThreads());
+                } else {
+                    maxInFlightParts = DEFAULT_MAXIMUM_IN_FLIGHT_PARTS;
+                }
+            }
+            transferScheduler = new TransferScheduler(threadPool, maxInFlightParts,
+                    configuration.getMaximumInFlightPartsPerTransfer());
+        }
+        return transferScheduler;
+    }
+
+    /**
+     * Resizes the thread pool, one extra thread is kept for the upload and copy tasks which
+     * schedule the parts.
+     */
+    private static void resizeThreadPool(ThreadPoolExecutor executor, int poolSize) {
+        if (poolSize > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
+        }
+    }
+
     /**
      * Returns the underlying Qcloud COS client used to make requests to Qcloud COS.
      *
@@ -768,6 +867,54 @@ public class TransferManager {
                 metadataProvider);
     }
 
+    /**
+     * Uploads all files in the directory given to the bucket named, optionally recursing for all
+     * subdirectories, while the directory is walked.
+     * <p>
+     * Unlike {@link #uploadDirectory(String, String, File, boolean, ObjectMetadataProvider)}, the
+     * files are not listed first: they are uploaded as the walk finds them, the walk being
+     * suspended while the queue of files waiting is full, so that trees of any size are uploaded
+     * in bounded memory. The small files are put by single requests on the pooled connections of
+     * the client, without a first read of each file for its MD5, and the larger ones uploaded in
+     * parts. The files which could not be uploaded are reported by the returned upload rather
+     * than ending it.
+     * </p>
+     * <p>
+     * COS will overwrite any existing objects that happen to have the same key, just as when
+     * uploading individual files, so use with caution.
+     * </p>
+     *
+     * @param bucketName The name of the bucket to upload objects to.
+     * @param virtualDirectoryKeyPrefix The key prefix of the virtual directory to upload to. Use
+     *         the null or empty string to upload files to the root of the bucket.
+     * @param directory The directory to upload.
+     * @param includeSubdirectories Whether to include subdirectories in the upload.
+     * @param metadataProvider A callback of type <code>ObjectMetadataProvider</code> which is used
+     *         to provide metadata for each file being uploaded, or null.
+     * @param options The concurrency, queue and small file options, or null for the defaults.
+     * @return The upload in progress, of which the progress, counts and failures are read.
+     */
+    public DirectoryUpload uploadDirectory(String bucketName, String virtualDirectoryKeyPrefix,
+            File directory, boolean includeSubdirectories,
+            ObjectMetadataProvider metadataProvider, DirectoryUploadOptions options) {
+        if (directory == null || !directory.exists() || !directory.isDirectory()) {
+            throw new IllegalArgumentException("Must provide a directory to upload");
+        }
+        if (bucketName == null) {
+            throw new IllegalArgumentException("The bucket name must be specified");
+        }
+        if (virtualDirectoryKeyPrefix == null || virtualDirectoryKeyPrefix.length() == 0) {
+            virtualDirectoryKeyPrefix = "";
+        } else if (!virtualDirectoryKeyPrefix.endsWith("/")) {
+            virtualDirectoryKeyPrefix = virtualDirectoryKeyPrefix + "/";
+        }
+        DirectoryUpload upload = new DirectoryUpload(this, cos, directory, bucketName,
+                virtualDirectoryKeyPrefix, includeSubdirectories, metadataProvider,
+                options == null ? new DirectoryUploadOptions() : options);
+        upload.start();
+        return upload;
+    }
+
     /**
      * Uploads all specified files to the bucket named, constructing relative keys depending on the
      * commonParentDirectory given.
@@ -943,6 +1090,163 @@ public class TransferManager {
         } while (uploadListing.isTruncated());
     }
 
+    /**
+     * <p>
+     * Deletes every object whose key starts with the specified prefix, and blocks until done.
+     * </p>
+     * <p>
+     * The listing pages are cut into DeleteObjects batches which are sent concurrently, on
+     * {@link DeletePrefixOptions#getConcurrency()} threads of their own, while the listing goes
+     * on. The keys which fail with a transient error are retried, and the ones still failing are
+     * reported in the result rather than thrown. A listing failure is thrown once the batches already sent are done.
+     * </p>
+     *
+     * @param bucketName The name of the bucket containing the objects to delete.
+     * @param prefix The prefix of the keys to delete, an empty prefix meaning the whole bucket.
+     * @param options The delete options, or null for the defaults.
+     * @return The number of keys deleted and the errors of the ones which could not be.
+     */
+    public DeletePrefixResult deletePrefix(String bucketName, String prefix,
+            DeletePrefixOptions options) throws CosServiceException, CosClientException {
+        if (bucketName == null) {
+            throw new IllegalArgumentException("The bucket name must be specified");
+        }
+        if (prefix == null) {
+            throw new IllegalArgumentException("The prefix must be specified");
+        }
+        PrefixDeleter deleter = new PrefixDeleter(cos, bucketName, prefix,
+                options == null ? new DeletePrefixOptions() : options);
+        try {
+            return deleter.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Delete of prefix " + prefix + " interrupted", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Applies an operation to every object of a key source, e.g. tags every object of a prefix,
+     * and blocks until done. See {@link BulkKeySources} and {@link BulkOperations}.
+     * </p>
+     * <p>
+     * The operations run on up to {@link BulkOperationOptions#getMaxConcurrency()} threads of
+     * their own. The number in flight adapts to the throughput, and backs off when COS throttles
+     * the requests. Retryable errors are retried, and the outcome for every object is reported
+     * to the sink rather than thrown. With a checkpoint file, an interrupted or crashed run
+     * started again with the same options resumes where it stopped.
+     * </p>
+     *
+     * @param source The objects to apply the operation to.
+     * @param operation The operation, which must be idempotent.
+     * @param sink The receiver of the outcome for every object, or null.
+     * @param options The concurrency, retry and checkpoint options, or null for the defaults.
+     * @return The number of objects processed.
+     */
+    public BulkOperationResult runBulkOperation(BulkKeySource source, BulkOperation operation,
+            BulkResultSink sink, BulkOperationOptions options) throws CosClientException {
+        if (source == null || operation == null) {
+            throw new IllegalArgumentException("The key source and operation must be specified");
+        }
+        BulkOperationRunner runner = new BulkOperationRunner(source, operation, sink,
+                options == null ? new BulkOperationOptions() : options);
+        try {
+            return runner.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Bulk operation interrupted", e);
+        } catch (IOException e) {
+            throw new CosClientException("Unable to read the bulk operation checkpoint", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Runs the same query over every object of a key source, e.g. all the CSV objects of a
+     * prefix, and returns the selected records as they are received.
+     * </p>
+     * <p>
+     * The objects are queried concurrently on up to
+     * {@link MultiObjectSelectOptions#getConcurrency()} threads of their own, each with a copy
+     * of the template request for its key. The records are returned object by object in the
+     * order of the source, or interleaved as soon as they are received, and a bounded number of
+     * them are buffered ahead of the consumer. The progress and statistics events are summed up
+     * over the objects.
+     * </p>
+     *
+     * @param source The objects to query, in the bucket of the template.
+     * @param template The query, input and output serialization of the requests, whose key is
+     *            ignored.
+     * @param options The concurrency, ordering and buffering options, or null for the defaults.
+     * @return The selected records, to close if they are not consumed to the end.
+     */
+    public MultiObjectSelect selectObjects(BulkKeySource source,
+            SelectObjectContentRequest template, MultiObjectSelectOptions options)
+            throws CosClientException {
+        if (source == null || template == null) {
+            throw new IllegalArgumentException("The key source and template must be specified");
+        }
+        if (template.getBucketName() == null) {
+            throw new IllegalArgumentException("The bucket name of the template must be specified");
+        }
+        return new MultiObjectSelect(cos, source, template,
+                options == null ? new MultiObjectSelectOptions() : options);
+    }
+
+    /**
+     * <p>
+     * Makes the objects under a prefix the same as the files of a local directory and its
+     * subdirectories, or the other way round, and blocks until done. Only the files and objects
+     * found different are transferred, the file of key <code>prefix + "a/b"</code> being
+     * <code>localDirectory/a/b</code>.
+     * </p>
+     * <p>
+     * The directory is walked and the prefix listed side by side in the order of the keys, so that
+     * trees of any size are synced in bounded memory. A file and an object differ by their sizes,
+     * and for the same size, by the MD5 of the file against the ETag of the object when checksums
+     * are compared, or else when the source was modified after the target. With an index file,
+     * the ones unchanged since the last sync are known to be the same without being compared
+     * further. The transfers run concurrently, and the ones which fail are reported in the result
+     * rather than thrown. A walk or listing failure is thrown once the transfers already started
+     * are done.
+     * </p>
+     *
+     * @param localDirectory The local directory to sync.
+     * @param bucketName The name of the bucket of the objects to sync.
+     * @param prefix The prefix of the keys to sync, to which a '/' is appended if missing, an
+     *            empty prefix meaning the whole bucket.
+     * @param direction Whether the objects or the files are updated.
+     * @param options The concurrency, deletion, comparison and index options, or null for the
+     *            defaults.
+     * @return The number of files transferred, unchanged and deleted, and the failures.
+     */
+    public SyncResult sync(File localDirectory, String bucketName, String prefix,
+            SyncDirection direction, SyncOptions options)
+            throws CosServiceException, CosClientException {
+        if (localDirectory == null || !localDirectory.isDirectory()) {
+            throw new IllegalArgumentException("Must provide a directory to sync");
+        }
+        if (bucketName == null) {
+            throw new IllegalArgumentException("The bucket name must be specified");
+        }
+        if (prefix == null) {
+            throw new IllegalArgumentException("The prefix must be specified");
+        }
+        if (direction == null) {
+            throw new IllegalArgumentException("The sync direction must be specified");
+        }
+        DirectorySync sync = new DirectorySync(this, cos, localDirectory, bucketName, prefix,
+                direction, options == null ? new SyncOptions() : options);
+        try {
+            return sync.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Sync of " + localDirectory + " interrupted", e);
+        } catch (IOException e) {
+            throw new CosClientException("Unable to read or write the sync index", e);
+        }
+    }
+
     /**
      * Forcefully shuts down this TransferManager instance - currently executing transfers will not
      * be allowed to finish. It also by default shuts down the underlying Qcloud COS client.
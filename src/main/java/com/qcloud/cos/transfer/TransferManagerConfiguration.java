@@ -50,6 +50,22 @@ public class TransferManagerConfiguration {
      */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /**
+     * Default lower bound of the number of parts in flight when concurrency autotuning is enabled.
+     */
+    private static final int DEFAULT_MINIMUM_CONCURRENCY = 1;
+
+    /**
+     * Default upper bound of the number of parts in flight when concurrency autotuning is enabled.
+     */
+    private static final int DEFAULT_MAXIMUM_CONCURRENCY = 16;
+
+    /**
+     * Default number of threads kept free of parts for single request uploads when fair scheduling
+     * is enabled.
+     */
+    private static final int DEFAULT_FAST_LANE_THREADS = 1;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size will cause multipart
      * uploads to be split into a larger number of smaller parts. Setting this value too low can
@@ -84,6 +100,45 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * Whether the number of parts in flight and the upload part size are adjusted from the
+     * measured throughput and latency. See {@link AdaptiveConcurrencyController}.
+     */
+    private boolean concurrencyAutotuning = false;
+
+    /**
+     * The lower bound of the number of parts in flight when concurrency autotuning is enabled.
+     */
+    private int minimumConcurrency = DEFAULT_MINIMUM_CONCURRENCY;
+
+    /**
+     * The upper bound of the number of parts in flight when concurrency autotuning is enabled.
+     */
+    private int maximumConcurrency = DEFAULT_MAXIMUM_CONCURRENCY;
+
+    /**
+     * Whether the parts of multipart transfers are scheduled by priority and round-robin between
+     * transfers. See {@link TransferScheduler}.
+     */
+    private boolean fairScheduling = false;
+
+    /**
+     * The maximum number of parts handed to the thread pool at once when fair scheduling is
+     * enabled, derived from the thread pool size if not positive.
+     */
+    private int maximumInFlightParts = 0;
+
+    /**
+     * The maximum number of parts of a single transfer in flight when fair scheduling is enabled,
+     * not capped if not positive.
+     */
+    private int maximumInFlightPartsPerTransfer = 0;
+
+    /**
+     * The number of threads of the thread pool not used by parts when fair scheduling is enabled.
+     */
+    private int fastLaneThreads = DEFAULT_FAST_LANE_THREADS;
+
     /**
      * Returns the minimum part size for upload parts. Decreasing the minimum part size causes
      * multipart uploads to be split into a larger number of smaller parts. Setting this value too
@@ -182,4 +237,153 @@ public class TransferManagerConfiguration {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
 
+    /**
+     * Returns whether the number of parts in flight and the upload part size are tuned from the
+     * measured throughput and latency.
+     *
+     * @return True if concurrency autotuning is enabled.
+     */
+    public boolean isConcurrencyAutotuning() {
+        return concurrencyAutotuning;
+    }
+
+    /**
+     * Enables or disables concurrency autotuning. When enabled, the number of upload and copy
+     * parts in flight is adjusted between {@link #getMinimumConcurrency()} and
+     * {@link #getMaximumConcurrency()}, and the upload part size and multipart upload threshold
+     * are derived from the measured per part throughput, with {@link #getMinimumUploadPartSize()}
+     * as the lower bound. If the transfer manager created its own thread pool, the pool is resized
+     * to follow the concurrency limit.
+     *
+     * @param concurrencyAutotuning True to enable concurrency autotuning.
+     */
+    public void setConcurrencyAutotuning(boolean concurrencyAutotuning) {
+        this.concurrencyAutotuning = concurrencyAutotuning;
+    }
+
+    /**
+     * Returns the lower bound of the number of parts in flight when concurrency autotuning is
+     * enabled.
+     *
+     * @return The minimum number of parts in flight.
+     */
+    public int getMinimumConcurrency() {
+        return minimumConcurrency;
+    }
+
+    /**
+     * Sets the lower bound of the number of parts in flight when concurrency autotuning is
+     * enabled.
+     *
+     * @param minimumConcurrency The minimum number of parts in flight.
+     */
+    public void setMinimumConcurrency(int minimumConcurrency) {
+        this.minimumConcurrency = minimumConcurrency;
+    }
+
+    /**
+     * Returns the upper bound of the number of parts in flight when concurrency autotuning is
+     * enabled.
+     *
+     * @return The maximum number of parts in flight.
+     */
+    public int getMaximumConcurrency() {
+        return maximumConcurrency;
+    }
+
+    /**
+     * Sets the upper bound of the number of parts in flight when concurrency autotuning is
+     * enabled.
+     *
+     * @param maximumConcurrency The maximum number of parts in flight.
+     */
+    public void setMaximumConcurrency(int maximumConcurrency) {
+        this.maximumConcurrency = maximumConcurrency;
+    }
+
+    /**
+     * Returns whether the parts of multipart transfers are scheduled by priority and round-robin
+     * between transfers.
+     *
+     * @return True if fair scheduling is enabled.
+     */
+    public boolean isFairScheduling() {
+        return fairScheduling;
+    }
+
+    /**
+     * Enables or disables fair scheduling. When enabled, upload and copy parts are handed to the
+     * thread pool a few at a time, to the transfers of the highest
+     * {@link com.qcloud.cos.model.TransferPriority} first and round-robin between transfers of the
+     * same priority, so a huge transfer does not starve the ones submitted after it.
+     *
+     * @param fairScheduling True to enable fair scheduling.
+     */
+    public void setFairScheduling(boolean fairScheduling) {
+        this.fairScheduling = fairScheduling;
+    }
+
+    /**
+     * Returns the maximum number of parts handed to the thread pool at once when fair scheduling
+     * is enabled.
+     *
+     * @return The maximum number of parts in flight, 0 if derived from the thread pool size.
+     */
+    public int getMaximumInFlightParts() {
+        return maximumInFlightParts;
+    }
+
+    /**
+     * Sets the maximum number of parts handed to the thread pool at once when fair scheduling is
+     * enabled. If not positive, the maximum concurrency is used with concurrency autotuning,
+     * otherwise the thread pool size minus {@link #getFastLaneThreads()}.
+     *
+     * @param maximumInFlightParts The maximum number of parts in flight.
+     */
+    public void setMaximumInFlightParts(int maximumInFlightParts) {
+        this.maximumInFlightParts = maximumInFlightParts;
+    }
+
+    /**
+     * Returns the maximum number of parts of a single transfer in flight when fair scheduling is
+     * enabled.
+     *
+     * @return The maximum number of parts of a transfer in flight, 0 if not capped.
+     */
+    public int getMaximumInFlightPartsPerTransfer() {
+        return maximumInFlightPartsPerTransfer;
+    }
+
+    /**
+     * Sets the maximum number of parts of a single transfer in flight when fair scheduling is
+     * enabled, not capped if not positive.
+     *
+     * @param maximumInFlightPartsPerTransfer The maximum number of parts of a transfer in flight.
+     */
+    public void setMaximumInFlightPartsPerTransfer(int maximumInFlightPartsPerTransfer) {
+        this.maximumInFlightPartsPerTransfer = maximumInFlightPartsPerTransfer;
+    }
+
+    /**
+     * Returns the number of threads of the thread pool kept free of parts when fair scheduling is
+     * enabled.
+     *
+     * @return The number of fast lane threads.
+     */
+    public int getFastLaneThreads() {
+        return fastLaneThreads;
+    }
+
+    /**
+     * Sets the number of threads of the thread pool kept free of parts when fair scheduling is
+     * enabled, so small objects uploaded in a single request and the transfer completions never
+     * wait for a long queue of parts. Only used when the maximum number of parts in flight is
+     * derived from the thread pool size.
+     *
+     * @param fastLaneThreads The number of fast lane threads.
+     */
+    public void setFastLaneThreads(int fastLaneThreads) {
+        this.fastLaneThreads = fastLaneThreads;
+    }
+
 }
@@ -64,9 +64,25 @@ public class TransferManagerUtils {
      */
     public static boolean isUploadParallelizable(final PutObjectRequest putObjectRequest,
             final boolean isUsingEncryption) {
+        return isUploadParallelizable(putObjectRequest, isUsingEncryption, false);
+    }
+
+    /**
+     * Returns true if the specified upload request can use parallel part
+     * uploads for increased performance.
+     *
+     * @param putObjectRequest The request to check.
+     * @param isUsingEncryption True if the upload is an encrypted upload, otherwise false.
+     * @param isParallelEncryption True if the encryption of a part does not depend on the previous
+     *         part, see {@link com.qcloud.cos.COSEncryptionClient#isParallelMultipartUpload()}.
+     * @return True if this request can use parallel part uploads for faster uploads.
+     */
+    public static boolean isUploadParallelizable(final PutObjectRequest putObjectRequest,
+            final boolean isUsingEncryption, final boolean isParallelEncryption) {
         // Each uploaded part in an encrypted upload depends on the encryption context
-        // from the previous upload, so we cannot parallelize encrypted upload parts.
-        if (isUsingEncryption) {
+        // from the previous upload, so we cannot parallelize encrypted upload parts,
+        // unless the parts are encrypted from their own offset.
+        if (isUsingEncryption && !isParallelEncryption) {
             return false;
         }
 
@@ -115,6 +131,49 @@ public class TransferManagerUtils {
         return (long) Math.max(optimalPartSize, configuration.getMinimumUploadPartSize());
     }
 
+    /**
+     * Returns the part size, in bytes, for each individual part upload in a
+     * multipart upload. When concurrency autotuning is enabled the part size is
+     * derived from the measured part throughput, otherwise it is the same as
+     * {@link #calculateOptimalPartSize(PutObjectRequest, TransferManagerConfiguration)}.
+     *
+     * @param putObjectRequest The request containing all the details of the upload.
+     * @param configuration Configuration values to use when calculating size.
+     * @param controller The concurrency controller of the transfer manager, or null if
+     *         concurrency autotuning is disabled.
+     * @return The part size, in bytes, for each individual part upload.
+     */
+    public static long calculateOptimalPartSize(PutObjectRequest putObjectRequest,
+            TransferManagerConfiguration configuration, AdaptiveConcurrencyController controller) {
+        if (controller == null) {
+            return calculateOptimalPartSize(putObjectRequest, configuration);
+        }
+        return controller.recommendPartSize(getContentLength(putObjectRequest),
+                configuration.getMinimumUploadPartSize());
+    }
+
+    /**
+     * Returns true if the the specified request should be processed as a
+     * multipart upload. When concurrency autotuning is enabled, any upload
+     * larger than a single part of the autotuned size is a multipart upload.
+     *
+     * @param putObjectRequest The request containing all the details of the upload.
+     * @param configuration Configuration settings controlling how transfer manager
+     *         processes requests.
+     * @param controller The concurrency controller of the transfer manager, or null if
+     *         concurrency autotuning is disabled.
+     * @return True if the the specified request should be processed as a
+     *         multipart upload.
+     */
+    public static boolean shouldUseMultipartUpload(PutObjectRequest putObjectRequest,
+            TransferManagerConfiguration configuration, AdaptiveConcurrencyController controller) {
+        if (controller == null) {
+            return shouldUseMultipartUpload(putObjectRequest, configuration);
+        }
+        long contentLength = TransferManagerUtils.getContentLength(putObjectRequest);
+        return contentLength > calculateOptimalPartSize(putObjectRequest, configuration, controller);
+    }
+
     /**
      * Returns true if the the specified request should be processed as a
      * multipart upload (instead of a single part upload).
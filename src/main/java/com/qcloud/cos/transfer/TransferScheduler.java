@@ -0,0 +1,239 @@
+package com.qcloud.cos.transfer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.qcloud.cos.model.TransferPriority;
+
+/**
+ * Schedules the parts of the multipart transfers of a {@link TransferManager} on its thread pool.
+ * <p>
+ * Instead of enqueuing every part of a transfer at once, parts are kept in one queue per transfer
+ * and only handed to the thread pool when a part slot is free. Slots are given to the transfers of
+ * the highest priority first, and round-robin between the transfers of the same priority, so a
+ * huge upload does not delay the uploads submitted after it. A single transfer can be capped to a
+ * number of parts in flight.
+ * </p>
+ * <p>
+ * Since at most {@code maxInFlightParts} parts wait in the thread pool at any time, small objects
+ * uploaded in a single request (which go to the thread pool directly) never queue behind more than
+ * that many parts. Leaving a few threads of the pool above {@code maxInFlightParts} gives them a
+ * dedicated fast lane.
+ * </p>
+ * <p>
+ * The task completing a transfer (e.g. complete multipart upload) is only handed to the thread
+ * pool once all the parts of the transfer have finished, so it never blocks a thread waiting for
+ * parts that are not started yet.
+ * </p>
+ */
+public class TransferScheduler {
+
+    private final ExecutorService executor;
+    private final int maxInFlightParts;
+    private final int maxInFlightPartsPerTransfer;
+
+    /**
+     * The transfers having parts to schedule, one round-robin queue per priority.
+     */
+    private final List<ArrayDeque<TransferQueue>> readyTransfers;
+    private int inFlightParts;
+
+    /**
+     * @param executor the thread pool running the parts
+     * @param maxInFlightParts the maximum number of parts handed to the thread pool at once
+     * @param maxInFlightPartsPerTransfer the maximum number of parts of a single transfer handed
+     *         to the thread pool at once, no cap other than maxInFlightParts if <= 0
+     */
+    public TransferScheduler(ExecutorService executor, int maxInFlightParts,
+            int maxInFlightPartsPerTransfer) {
+        if (maxInFlightParts < 1) {
+            throw new IllegalArgumentException("maxInFlightParts must be positive");
+        }
+        this.executor = executor;
+        this.maxInFlightParts = maxInFlightParts;
+        this.maxInFlightPartsPerTransfer =
+                maxInFlightPartsPerTransfer > 0 ? maxInFlightPartsPerTransfer : maxInFlightParts;
+        this.readyTransfers = new ArrayList<ArrayDeque<TransferQueue>>();
+        for (int i = 0; i < TransferPriority.values().length; ++i) {
+            readyTransfers.add(new ArrayDeque<TransferQueue>());
+        }
+    }
+
+    /**
+     * Creates the queue through which one transfer submits its parts.
+     */
+    public TransferQueue newTransferQueue(TransferPriority priority) {
+        return new TransferQueue(priority == null ? TransferPriority.NORMAL : priority);
+    }
+
+    synchronized int getInFlightParts() {
+        return inFlightParts;
+    }
+
+    /**
+     * The parts of a single transfer.
+     */
+    public final class TransferQueue {
+        private final TransferPriority priority;
+        private final Queue<FutureTask<?>> pendingParts = new LinkedList<FutureTask<?>>();
+        private int inFlight;
+        private boolean ready;
+        private FutureTask<?> finalTask;
+
+        private TransferQueue(TransferPriority priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * Queues a part of the transfer, it is started once the scheduler gives the transfer a
+         * part slot.
+         */
+        public <T> Future<T> submitPart(Callable<T> part) {
+            FutureTask<T> task = new FutureTask<T>(part);
+            synchronized (TransferScheduler.this) {
+                pendingParts.add(task);
+                markReady(this);
+            }
+            schedule(null);
+            return task;
+        }
+
+        /**
+         * Submits the task completing the transfer, it is started after all the parts submitted
+         * so far have finished.
+         */
+        public <T> Future<T> submitFinal(Callable<T> completion) {
+            FutureTask<T> task = new FutureTask<T>(completion);
+            boolean runNow;
+            synchronized (TransferScheduler.this) {
+                runNow = pendingParts.isEmpty() && inFlight == 0;
+                if (!runNow) {
+                    finalTask = task;
+                }
+            }
+            if (runNow) {
+                execute(task);
+            }
+            return task;
+        }
+    }
+
+    private void markReady(TransferQueue queue) {
+        if (!queue.ready && !queue.pendingParts.isEmpty()
+                && queue.inFlight < maxInFlightPartsPerTransfer) {
+            queue.ready = true;
+            readyTransfers.get(queue.priority.ordinal()).addLast(queue);
+        }
+    }
+
+    /**
+     * Returns the next transfer allowed to start a part, in priority then round-robin order.
+     */
+    private TransferQueue nextReadyTransfer() {
+        for (ArrayDeque<TransferQueue> transfers : readyTransfers) {
+            TransferQueue queue;
+            while ((queue = transfers.pollFirst()) != null) {
+                queue.ready = false;
+                if (!queue.pendingParts.isEmpty()
+                        && queue.inFlight < maxInFlightPartsPerTransfer) {
+                    return queue;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void schedule(FutureTask<?> finalTask) {
+        while (true) {
+            List<Runnable> toRun = new ArrayList<Runnable>();
+            if (finalTask != null) {
+                toRun.add(finalTask);
+                finalTask = null;
+            }
+            synchronized (this) {
+                while (inFlightParts < maxInFlightParts) {
+                    TransferQueue queue = nextReadyTransfer();
+                    if (queue == null) {
+                        break;
+                    }
+                    FutureTask<?> part = queue.pendingParts.poll();
+                    ++queue.inFlight;
+                    ++inFlightParts;
+                    // back to the tail of its priority queue for round-robin
+                    markReady(queue);
+                    toRun.add(new PartRunner(queue, part));
+                }
+            }
+            boolean rejected = false;
+            for (Runnable runnable : toRun) {
+                rejected |= !execute(runnable);
+            }
+            // the thread pool is shut down, keep going to cancel the remaining parts
+            if (!rejected) {
+                return;
+            }
+        }
+    }
+
+    private boolean execute(Runnable runnable) {
+        try {
+            executor.execute(runnable);
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (runnable instanceof PartRunner) {
+                PartRunner partRunner = (PartRunner) runnable;
+                partRunner.part.cancel(false);
+                FutureTask<?> finalTask = releasePart(partRunner.queue);
+                if (finalTask != null) {
+                    finalTask.cancel(false);
+                }
+            } else if (runnable instanceof FutureTask) {
+                ((FutureTask<?>) runnable).cancel(false);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Releases the slot of a finished part, returns the final task of the transfer if it is ready
+     * to run.
+     */
+    private synchronized FutureTask<?> releasePart(TransferQueue queue) {
+        --queue.inFlight;
+        --inFlightParts;
+        markReady(queue);
+        FutureTask<?> finalTask = null;
+        if (queue.finalTask != null && queue.pendingParts.isEmpty() && queue.inFlight == 0) {
+            finalTask = queue.finalTask;
+            queue.finalTask = null;
+        }
+        return finalTask;
+    }
+
+    private final class PartRunner implements Runnable {
+        private final TransferQueue queue;
+        private final FutureTask<?> part;
+
+        PartRunner(TransferQueue queue, FutureTask<?> part) {
+            this.queue = queue;
+            this.part = part;
+        }
+
+        @Override
+        public void run() {
+            try {
+                part.run();
+            } finally {
+                schedule(releasePart(queue));
+            }
+        }
+    }
+}
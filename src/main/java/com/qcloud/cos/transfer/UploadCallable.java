@@ -69,6 +69,16 @@ public class UploadCallable implements Callable<UploadResult> {
     private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
     private final ProgressListenerChain listener;
     private final TransferProgress transferProgress;
+    /**
+     * Concurrency controller of the transfer manager, null if autotuning is disabled.
+     */
+    private final AdaptiveConcurrencyController concurrencyController;
+    private final boolean multipartUpload;
+    /**
+     * Queue of the parts of this upload in the transfer scheduler, null if fair scheduling is
+     * disabled.
+     */
+    private final TransferScheduler.TransferQueue transferQueue;
 
     /**
      * ETags retrieved from Qcloud COS for a multi-part upload id. These parts will be skipped while
@@ -91,12 +101,24 @@ public class UploadCallable implements Callable<UploadResult> {
         this.upload = upload;
         this.multipartUploadId = uploadId;
         this.transferProgress = transferProgress;
+        // a resumed upload must keep the part size it was started with
+        this.concurrencyController = uploadId == null ? transferManager.getConcurrencyController() : null;
+        // decided once, the autotuned threshold may change while the upload is queued
+        this.multipartUpload = TransferManagerUtils.shouldUseMultipartUpload(origReq,
+                configuration, concurrencyController);
+        TransferScheduler scheduler = transferManager.getTransferScheduler();
+        this.transferQueue =
+                scheduler == null ? null : scheduler.newTransferQueue(origReq.getTransferPriority());
     }
 
     List<Future<PartETag>> getFutures() {
         return futures;
     }
 
+    TransferScheduler.TransferQueue getTransferQueue() {
+        return transferQueue;
+    }
+
     /**
      * Returns the ETags retrieved from Qcloud COS for a multi-part upload id. These parts will be
      * skipped while resuming a paused upload.
@@ -115,7 +137,7 @@ public class UploadCallable implements Callable<UploadResult> {
      * @return True if this UploadCallable is processing a multipart upload.
      */
     public boolean isMultipartUpload() {
-        return TransferManagerUtils.shouldUseMultipartUpload(origReq, configuration);
+        return multipartUpload;
     }
 
     public UploadResult call() throws Exception {
@@ -148,12 +170,12 @@ public class UploadCallable implements Callable<UploadResult> {
     /**
      * Captures the state of the upload.
      */
-    private void captureUploadStateIfPossible() {
+    private void captureUploadStateIfPossible(long partSize) {
         if (origReq.getSSECustomerKey() == null) {
             persistableUpload = new PersistableUpload(origReq.getBucketName(), origReq.getKey(),
                     origReq.getFile().getAbsolutePath(), multipartUploadId,
-                    configuration.getMinimumUploadPartSize(),
-                    configuration.getMultipartUploadThreshold());
+                    partSize, concurrencyController == null
+                            ? configuration.getMultipartUploadThreshold() : partSize);
             notifyPersistableTransferAvailability();
         }
     }
@@ -184,8 +206,14 @@ public class UploadCallable implements Callable<UploadResult> {
             UploadPartRequestFactory requestFactory =
                     new UploadPartRequestFactory(origReq, multipartUploadId, optimalPartSize);
 
-            if (TransferManagerUtils.isUploadParallelizable(origReq, isUsingEncryption)) {
-                captureUploadStateIfPossible();
+            boolean isParallelEncryption = isUsingEncryption
+                    && ((COSEncryptionClient) cos).isParallelMultipartUpload();
+            if (TransferManagerUtils.isUploadParallelizable(origReq, isUsingEncryption,
+                    isParallelEncryption)) {
+                // the encryption context of the upload only lives in the client
+                if (!isUsingEncryption) {
+                    captureUploadStateIfPossible(optimalPartSize);
+                }
                 uploadPartsInParallel(requestFactory, multipartUploadId);
                 return null;
             } else {
@@ -228,8 +256,8 @@ public class UploadCallable implements Callable<UploadResult> {
      * Computes and returns the optimal part size for the upload.
      */
     private long getOptimalPartSize(boolean isUsingEncryption) {
-        long optimalPartSize =
-                TransferManagerUtils.calculateOptimalPartSize(origReq, configuration);
+        long optimalPartSize = TransferManagerUtils.calculateOptimalPartSize(origReq,
+                configuration, concurrencyController);
         if (isUsingEncryption && optimalPartSize % 32 > 0) {
             // When using encryption, parts must line up correctly along cipher block boundaries
             optimalPartSize = optimalPartSize - (optimalPartSize % 32) + 32;
@@ -302,7 +330,9 @@ public class UploadCallable implements Callable<UploadResult> {
                 transferProgress.updateProgress(summary.getSize());
                 continue;
             }
-            futures.add(threadPool.submit(new UploadPartCallable(cos, request)));
+            UploadPartCallable callable = new UploadPartCallable(cos, request, concurrencyController);
+            futures.add(transferQueue == null ? threadPool.submit(callable)
+                    : transferQueue.submitPart(callable));
         }
     }
 
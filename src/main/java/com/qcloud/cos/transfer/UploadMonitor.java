@@ -126,9 +126,14 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
              */
             if (result == null) {
                 futures.addAll(multipartUploadCallable.getFutures());
-                futureReference.set(threadPool.submit(new CompleteMultipartUpload(
+                CompleteMultipartUpload completeMultipartUpload = new CompleteMultipartUpload(
                         multipartUploadCallable.getMultipartUploadId(), cos, origReq, futures,
-                        multipartUploadCallable.getETags(), listener, this)));
+                        multipartUploadCallable.getETags(), listener, this);
+                TransferScheduler.TransferQueue transferQueue =
+                        multipartUploadCallable.getTransferQueue();
+                futureReference.set(transferQueue == null
+                        ? threadPool.submit(completeMultipartUpload)
+                        : transferQueue.submitFinal(completeMultipartUpload));
                 /**
                  * if the logic get here. the upload part task has been summited. if it failed, we
                  * won't can abort, so you can call save the PersistableUpload.
@@ -28,14 +28,34 @@ public class UploadPartCallable implements Callable<PartETag> {
 
     private final COS cos;
     private final UploadPartRequest request;
+    private final AdaptiveConcurrencyController controller;
 
     public UploadPartCallable(COS cos, UploadPartRequest request) {
+        this(cos, request, null);
+    }
+
+    public UploadPartCallable(COS cos, UploadPartRequest request,
+            AdaptiveConcurrencyController controller) {
         this.cos = cos;
         this.request = request;
+        this.controller = controller;
     }
 
     public PartETag call() throws Exception {
-        PartETag partETag = cos.uploadPart(request).getPartETag();
-        return partETag;
+        // The last part of a parallel encrypted upload waits for all the preceding parts, so it
+        // must not hold a slot they need. Being usually shorter, it is no good sample either.
+        if (controller == null || request.isLastPart()) {
+            return cos.uploadPart(request).getPartETag();
+        }
+        controller.acquire();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            PartETag partETag = cos.uploadPart(request).getPartETag();
+            success = true;
+            return partETag;
+        } finally {
+            controller.release(request.getPartSize(), System.nanoTime() - startNanos, success);
+        }
     }
 }
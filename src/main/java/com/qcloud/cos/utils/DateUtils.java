@@ -57,7 +57,8 @@ public class DateUtils {
      * @return The RFC 822 string representing the specified date.
      */
     public static String formatRFC822Date(Date date) {
-        return rfc822DateFormat.print(date.getTime());
+        String formatted = FastDateCodec.formatRFC822(date.getTime());
+        return formatted != null ? formatted : rfc822DateFormat.print(date.getTime());
     }
 
     /**
@@ -67,6 +68,10 @@ public class DateUtils {
      * @return The parsed Date object.
      */
     public static Date parseRFC822Date(String dateString) {
+        long millis = FastDateCodec.parseRFC822(dateString);
+        if (millis != FastDateCodec.INVALID) {
+            return new Date(millis);
+        }
         return new Date(rfc822DateFormat.parseMillis(dateString));
     }
 
@@ -77,7 +82,8 @@ public class DateUtils {
      * @return The ISO 8601 string representing the specified date.
      */
     public static String formatISO8601Date(Date date) {
-        return iso8601DateFormat.print(date.getTime());
+        String formatted = FastDateCodec.formatISO8601(date.getTime());
+        return formatted != null ? formatted : iso8601DateFormat.print(date.getTime());
     }
 
     /**
@@ -88,6 +94,22 @@ public class DateUtils {
      * @return The parsed Date object.
      */
     public static Date parseISO8601Date(String dateString) {
+        return new Date(parseISO8601DateMillis(dateString));
+    }
+
+    /**
+     * Parses the specified date string as an ISO 8601 date and returns the
+     * milliseconds since the epoch, without allocating for the format COS
+     * returns, e.g. in listings.
+     *
+     * @param dateString The date string to parse.
+     * @return The parsed time in milliseconds since the epoch.
+     */
+    public static long parseISO8601DateMillis(String dateString) {
+        long millis = FastDateCodec.parseISO8601(dateString);
+        if (millis != FastDateCodec.INVALID) {
+            return millis;
+        }
 
         // For EC2 Spot Fleet.
         if (dateString.endsWith("+0000")) {
@@ -100,7 +122,7 @@ public class DateUtils {
         try {
             if (temp.equals(dateString)) {
                 // Normal case: nothing special here
-                return new Date(iso8601DateFormat.parseMillis(dateString));
+                return iso8601DateFormat.parseMillis(dateString);
             }
             // Handling edge case:
             // Joda-time can only handle up to year 292278993 but we are given
@@ -111,12 +133,12 @@ public class DateUtils {
             if (milli < 0) { // overflow!
                 // re-parse the original date string using JodaTime so as to
                 // throw  an exception with a consistent message
-                return new Date(iso8601DateFormat.parseMillis(dateString));
+                return iso8601DateFormat.parseMillis(dateString);
             }
-            return new Date(milli);
+            return milli;
         } catch (IllegalArgumentException e) {
             try {
-                return new Date(alternateIso8601DateFormat.parseMillis(dateString));
+                return alternateIso8601DateFormat.parseMillis(dateString);
                 // If the first ISO 8601 parser didn't work, try the alternate
                 // version which doesn't include fractional seconds
             } catch (Exception oops) {
@@ -0,0 +1,239 @@
+package com.qcloud.cos.utils;
+
+/**
+ * Parses and formats the exact date formats COS uses, without going through Joda-Time:
+ * "2020-04-10T06:26:45.000Z" (ISO 8601, UTC) in the XML responses and
+ * "Fri, 10 Apr 2020 06:26:45 GMT" (RFC 822) in the headers. Parsing does not allocate.
+ * Anything else, e.g. another time zone or a year outside 0000-9999, is left to the Joda-Time
+ * formatters of {@link DateUtils}: the parse methods return {@link #INVALID} and the format
+ * methods null.
+ */
+final class FastDateCodec {
+
+    /**
+     * Returned by the parse methods for a string they do not handle.
+     */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * MILLIS_PER_SECOND;
+    private static final long MIN_MILLIS = -62167219200000L; // 0000-01-01T00:00:00Z
+    private static final long MAX_MILLIS = 253402300799999L; // 9999-12-31T23:59:59.999Z
+
+    private static final String[] DAYS_OF_WEEK = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
+            "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    private FastDateCodec() {
+    }
+
+    /**
+     * Parses "yyyy-MM-ddTHH:mm:ss[.f]Z", with 1 to 9 fraction digits of which the first 3 are
+     * kept, as Joda-Time does.
+     */
+    static long parseISO8601(String s) {
+        int length = s.length();
+        if (length < 20 || s.charAt(length - 1) != 'Z' || s.charAt(4) != '-'
+                || s.charAt(7) != '-' || s.charAt(10) != 'T' || s.charAt(13) != ':'
+                || s.charAt(16) != ':') {
+            return INVALID;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = digits(s, 17, 2);
+        int millis = 0;
+        if (length > 20) {
+            int fractionDigits = length - 21;
+            if (s.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9
+                    || digits(s, 20, fractionDigits) < 0) {
+                return INVALID;
+            }
+            for (int i = 0; i < 3; ++i) {
+                millis = millis * 10 + (i < fractionDigits ? s.charAt(20 + i) - '0' : 0);
+            }
+        }
+        return toMillis(year, month, day, hour, minute, second, millis);
+    }
+
+    /**
+     * Parses "EEE, dd MMM yyyy HH:mm:ss GMT". The day of the week must match the date.
+     */
+    static long parseRFC822(String s) {
+        if (s.length() != 29 || s.charAt(3) != ',' || s.charAt(4) != ' ' || s.charAt(7) != ' '
+                || s.charAt(11) != ' ' || s.charAt(16) != ' ' || s.charAt(19) != ':'
+                || s.charAt(22) != ':' || !s.startsWith(" GMT", 25)) {
+            return INVALID;
+        }
+        int month = -1;
+        for (int i = 0; i < MONTHS.length; ++i) {
+            if (s.startsWith(MONTHS[i], 8)) {
+                month = i + 1;
+                break;
+            }
+        }
+        if (month < 0) {
+            return INVALID;
+        }
+        long millis = toMillis(digits(s, 12, 4), month, digits(s, 5, 2), digits(s, 17, 2),
+                digits(s, 20, 2), digits(s, 23, 2), 0);
+        if (millis == INVALID || !s.startsWith(DAYS_OF_WEEK[dayOfWeek(millis)], 0)) {
+            return INVALID;
+        }
+        return millis;
+    }
+
+    /**
+     * Formats as "yyyy-MM-ddTHH:mm:ss.SSSZ", or returns null if the year is out of range.
+     */
+    static String formatISO8601(long millis) {
+        if (millis < MIN_MILLIS || millis > MAX_MILLIS) {
+            return null;
+        }
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+        int[] ymd = civilFromDays(days);
+        char[] c = new char[24];
+        put(c, 0, ymd[0], 4);
+        c[4] = '-';
+        put(c, 5, ymd[1], 2);
+        c[7] = '-';
+        put(c, 8, ymd[2], 2);
+        c[10] = 'T';
+        putTime(c, 11, millisOfDay);
+        c[19] = '.';
+        put(c, 20, millisOfDay % 1000, 3);
+        c[23] = 'Z';
+        return new String(c);
+    }
+
+    /**
+     * Formats as "EEE, dd MMM yyyy HH:mm:ss GMT", or returns null if the year is out of range.
+     */
+    static String formatRFC822(long millis) {
+        if (millis < MIN_MILLIS || millis > MAX_MILLIS) {
+            return null;
+        }
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+        int[] ymd = civilFromDays(days);
+        char[] c = new char[29];
+        DAYS_OF_WEEK[dayOfWeek(millis)].getChars(0, 3, c, 0);
+        c[3] = ',';
+        c[4] = ' ';
+        put(c, 5, ymd[2], 2);
+        c[7] = ' ';
+        MONTHS[ymd[1] - 1].getChars(0, 3, c, 8);
+        c[11] = ' ';
+        put(c, 12, ymd[0], 4);
+        c[16] = ' ';
+        putTime(c, 17, millisOfDay);
+        " GMT".getChars(0, 4, c, 25);
+        return new String(c);
+    }
+
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second,
+            int millis) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+                || second > 59) {
+            return INVALID;
+        }
+        long days = daysFromCivil(year, month, day);
+        return days * MILLIS_PER_DAY + (hour * 3600L + minute * 60L + second) * MILLIS_PER_SECOND
+                + millis;
+    }
+
+    /**
+     * Returns the value of the given decimal digits, or -1 if there is a non digit.
+     */
+    private static int digits(String s, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; ++i) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void put(char[] c, int offset, int value, int count) {
+        for (int i = offset + count - 1; i >= offset; --i) {
+            c[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void putTime(char[] c, int offset, int millisOfDay) {
+        int seconds = millisOfDay / 1000;
+        put(c, offset, seconds / 3600, 2);
+        c[offset + 2] = ':';
+        put(c, offset + 3, seconds / 60 % 60, 2);
+        c[offset + 5] = ':';
+        put(c, offset + 6, seconds % 60, 2);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns 0 for Monday to 6 for Sunday.
+     */
+    private static int dayOfWeek(long millis) {
+        // 1970-01-01 was a Thursday
+        return (int) floorMod(floorDiv(millis, MILLIS_PER_DAY) + 3, 7);
+    }
+
+    /**
+     * Returns the number of days from 1970-01-01 of a proleptic Gregorian date, see
+     * http://howardhinnant.github.io/date_algorithms.html.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * The inverse of {@link #daysFromCivil(int, int, int)}, returns {year, month, day}.
+     */
+    private static int[] civilFromDays(long days) {
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return new int[] {year, month, day};
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && ((x ^ y) < 0)) ? q - 1 : q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
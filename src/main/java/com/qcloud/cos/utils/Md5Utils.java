@@ -23,6 +23,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -48,6 +49,15 @@ public class Md5Utils {
         return DigestUtils.md5(input);
     }
 
+    /**
+     * Computes the MD5 hash of the given range of the array and returns it as an array of bytes.
+     */
+    public static byte[] computeMD5Hash(byte[] input, int offset, int length) {
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        digest.update(input, offset, length);
+        return digest.digest();
+    }
+
     /**
      * Returns the MD5 in base64 for the given byte array.
      */
@@ -18,12 +18,9 @@
 
 package com.qcloud.cos.utils;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.SocketException;
 import java.util.Arrays;
 
@@ -34,6 +31,8 @@ import org.slf4j.LoggerFactory;
 
 import com.qcloud.cos.exception.CosClientException;
 import com.qcloud.cos.exception.FileLockException;
+import com.qcloud.cos.internal.DownloadSink;
+import com.qcloud.cos.internal.FileChannelDownloadSink;
 import com.qcloud.cos.internal.FileLocks;
 import com.qcloud.cos.internal.SkipMd5CheckStrategy;
 import com.qcloud.cos.model.COSObject;
@@ -72,7 +71,7 @@ public class ServiceUtils {
             throw new FileLockException("Fail to lock " + dstfile
                     + " for appendData=" + appendData);
         }
-        OutputStream outputStream = null;
+        DownloadSink sink = null;
         try {
             final long actualLen = dstfile.length();
             if (appendData && actualLen != expectedFileLength) {
@@ -82,19 +81,15 @@ public class ServiceUtils {
                                 + expectedFileLength + " but actual length is "
                                 + actualLen + " for file " + dstfile);
             }
-            outputStream = new BufferedOutputStream(new FileOutputStream(
-                    dstfile, appendData));
-            byte[] buffer = new byte[1024 * 10];
-            int bytesRead;
-            while ((bytesRead = cosObject.getObjectContent().read(buffer)) > -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
+            sink = new FileChannelDownloadSink(dstfile, appendData ? -1 : 0);
+            sink.write(cosObject.getObjectContent(), appendData ? actualLen : 0,
+                    cosObject.getObjectMetadata().getContentLength());
         } catch (IOException e) {
             cosObject.getObjectContent().abort();
             throw new CosClientException(
                     "Unable to store object contents to disk: " + e.getMessage(), e);
         } finally {
-            IOUtils.closeQuietly(outputStream, log);
+            IOUtils.closeQuietly(sink, log);
             FileLocks.unlock(dstfile);
             IOUtils.closeQuietly(cosObject.getObjectContent(), log);
         }
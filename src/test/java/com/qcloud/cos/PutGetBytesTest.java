@@ -0,0 +1,222 @@
+package com.qcloud.cos;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.internal.SkipMd5CheckStrategy;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.region.Region;
+import com.qcloud.cos.utils.Base64;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.Md5Utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PutGetBytesTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+
+    private final FakeBucket bucket = new FakeBucket();
+    private HttpServer server;
+    private COSClient cosClient;
+
+    /**
+     * Keeps the content of the last put, and answers gets with it.
+     */
+    private static class FakeBucket implements HttpHandler {
+        final List<byte[]> puts = new ArrayList<byte[]>();
+        final AtomicInteger failuresToAnswer = new AtomicInteger();
+        volatile String contentMd5;
+        volatile byte[] content = new byte[0];
+        volatile String etag;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (failuresToAnswer.getAndDecrement() > 0) {
+                    IOUtils.toByteArray(exchange.getRequestBody());
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                if (exchange.getRequestMethod().equals("PUT")) {
+                    byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                    puts.add(body);
+                    content = body;
+                    contentMd5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+                    etag = Md5Utils.md5Hex(body);
+                    exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+                    exchange.sendResponseHeaders(200, content.length == 0 ? -1 : content.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(content);
+                    out.close();
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", bucket);
+        server.start();
+        String endpoint = "127.0.0.1:" + server.getAddress().getPort();
+        ClientConfig clientConfig = new ClientConfig(new Region("ap-guangzhou"));
+        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+        cosClient = new COSClient(new AnonymousCOSCredentials(), clientConfig);
+    }
+
+    @After
+    public void tearDown() {
+        cosClient.shutdown();
+        server.stop(0);
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    @Test
+    public void testPutsAndGetsBytes() {
+        byte[] content = content(100000);
+        cosClient.putObject(BUCKET, "a", content, null);
+        assertArrayEquals(content, bucket.content);
+        assertEquals(Base64.encodeAsString(Md5Utils.computeMD5Hash(content)), bucket.contentMd5);
+        assertArrayEquals(content, cosClient.getObjectAsBytes(BUCKET, "a"));
+
+        cosClient.putObject(BUCKET, "empty", new byte[0], new ObjectMetadata());
+        assertEquals(0, cosClient.getObjectAsBytes(BUCKET, "empty").length);
+    }
+
+    @Test
+    public void testPutsRemainingBytesOfBuffers() {
+        byte[] content = content(1000);
+        ByteBuffer heap = ByteBuffer.wrap(content, 100, 500).slice();
+        heap.position(50);
+        cosClient.putObject(BUCKET, "heap", heap, null);
+        assertArrayEquals(Arrays.copyOfRange(content, 150, 600), bucket.content);
+        assertEquals(50, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(1000);
+        direct.put(content).flip();
+        direct.position(10);
+        cosClient.putObject(BUCKET, "direct", direct, null);
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 1000), bucket.content);
+        assertEquals(10, direct.position());
+    }
+
+    @Test
+    public void testPutsFilesAndPartsFromRegions() throws IOException {
+        byte[] content = content(300000);
+        File file = File.createTempFile("region", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(content);
+            out.close();
+            bucket.failuresToAnswer.set(1);
+            cosClient.putObject(BUCKET, "file", file);
+            assertArrayEquals(content, bucket.content);
+
+            cosClient.uploadPart(new UploadPartRequest().withBucketName(BUCKET).withKey("file")
+                    .withUploadId("upload").withPartNumber(2).withFile(file)
+                    .withFileOffset(100000).withPartSize(150000));
+            byte[] part = Arrays.copyOfRange(content, 100000, 250000);
+            assertArrayEquals(part, bucket.content);
+            // the MD5 of the part is calculated while it is sent, and checked with its ETag
+            assertNull(bucket.contentMd5);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testResendsBytesOnRetry() {
+        byte[] content = content(50000);
+        bucket.failuresToAnswer.set(2);
+        cosClient.putObject(BUCKET, "a", content, null);
+        assertEquals(1, bucket.puts.size());
+        assertArrayEquals(content, bucket.content);
+    }
+
+    @Test
+    public void testGetsIntoBuffer() {
+        byte[] content = content(3000);
+        cosClient.putObject(BUCKET, "a", content, null);
+
+        ByteBuffer heap = ByteBuffer.allocate(4000);
+        heap.position(500);
+        assertEquals(3000, cosClient.getObject(new GetObjectRequest(BUCKET, "a"), heap)
+                .getContentLength());
+        assertEquals(3500, heap.position());
+        assertArrayEquals(content, Arrays.copyOfRange(heap.array(), 500, 3500));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(3000);
+        cosClient.getObject(new GetObjectRequest(BUCKET, "a"), direct);
+        assertEquals(0, direct.remaining());
+        direct.flip();
+        byte[] read = new byte[3000];
+        direct.get(read);
+        assertArrayEquals(content, read);
+
+        try {
+            cosClient.getObject(new GetObjectRequest(BUCKET, "a"), ByteBuffer.allocate(2999));
+            fail();
+        } catch (CosClientException expected) {
+        }
+    }
+
+    @Test
+    public void testChecksIntegrityOfBytes() {
+        String property = SkipMd5CheckStrategy.DISABLE_GET_OBJECT_MD5_VALIDATION_PROPERTY;
+        String disabled = System.getProperty(property);
+        System.setProperty(property, "false");
+        try {
+            byte[] content = content(3000);
+            cosClient.putObject(BUCKET, "a", content, null);
+            assertArrayEquals(content, cosClient.getObjectAsBytes(BUCKET, "a"));
+            bucket.etag = Md5Utils.md5Hex("something else");
+            try {
+                cosClient.getObjectAsBytes(BUCKET, "a");
+                fail();
+            } catch (CosClientException expected) {
+            }
+        } finally {
+            if (disabled == null) {
+                System.clearProperty(property);
+            } else {
+                System.setProperty(property, disabled);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.qcloud.cos.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.qcloud.cos.auth.BasicCOSCredentials;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.StringUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DiskObjectCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A bucket in memory, which answers conditional GETs like COS.
+     */
+    private static class FakeBucket implements DiskObjectCache.Fetcher {
+        final Map<String, byte[]> objects = new HashMap<String, byte[]>();
+        int fetches;
+        int notModified;
+
+        void put(String key, String content) {
+            objects.put(key, content.getBytes(StringUtils.UTF8));
+        }
+
+        @Override
+        public COSObject fetch(GetObjectRequest request) {
+            ++fetches;
+            byte[] content = objects.get(request.getKey());
+            if (content == null) {
+                CosServiceException e = new CosServiceException("NoSuchKey");
+                e.setStatusCode(404);
+                throw e;
+            }
+            String eTag = "etag-" + new String(content, StringUtils.UTF8).hashCode();
+            if (request.getNonmatchingETagConstraints().contains(eTag)) {
+                ++notModified;
+                return null;
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setHeader("ETag", eTag);
+            metadata.setContentLength(content.length);
+            metadata.setContentType("text/plain");
+            metadata.addUserMetadata("owner", "tests");
+            COSObject object = new COSObject();
+            object.setObjectMetadata(metadata);
+            object.setObjectContent(new ByteArrayInputStream(content));
+            return object;
+        }
+    }
+
+    private static String read(COSObject object) throws Exception {
+        try {
+            return new String(IOUtils.toByteArray(object.getObjectContent()), StringUtils.UTF8);
+        } finally {
+            object.close();
+        }
+    }
+
+    private static GetObjectRequest get(String key) {
+        return new GetObjectRequest("examplebucket-1250000000", key);
+    }
+
+    @Test
+    public void testServesFreshEntriesWithoutRequest() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        bucket.put("config.json", "{\"a\":1}");
+        DiskObjectCache cache = new DiskObjectCache(folder.getRoot(), 1 << 20, 1, TimeUnit.HOURS);
+
+        assertEquals("{\"a\":1}", read(cache.getObject(get("config.json"), bucket)));
+        COSObject cached = cache.getObject(get("config.json"), bucket);
+        assertEquals("text/plain", cached.getObjectMetadata().getContentType());
+        assertEquals("tests", cached.getObjectMetadata().getUserMetaDataOf("owner"));
+        assertEquals(7, cached.getObjectMetadata().getContentLength());
+        assertEquals("{\"a\":1}", read(cached));
+        assertEquals(1, bucket.fetches);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // a second cache over the same directory, e.g. in another process
+        DiskObjectCache other = new DiskObjectCache(folder.getRoot(), 1 << 20, 1, TimeUnit.HOURS);
+        assertEquals("{\"a\":1}", read(other.getObject(get("config.json"), bucket)));
+        assertEquals(1, bucket.fetches);
+    }
+
+    @Test
+    public void testRevalidatesStaleEntries() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        bucket.put("model.bin", "v1");
+        DiskObjectCache cache = new DiskObjectCache(folder.getRoot(), 1 << 20, 0, TimeUnit.SECONDS);
+
+        assertEquals("v1", read(cache.getObject(get("model.bin"), bucket)));
+        assertEquals("v1", read(cache.getObject(get("model.bin"), bucket)));
+        assertEquals(1, bucket.notModified);
+        assertEquals(1, cache.getRevalidatedCount());
+
+        bucket.put("model.bin", "v2");
+        assertEquals("v2", read(cache.getObject(get("model.bin"), bucket)));
+        assertEquals("v2", read(cache.getObject(get("model.bin"), bucket)));
+        assertEquals(2, bucket.notModified);
+        assertEquals(2, cache.getMissCount());
+
+        bucket.objects.remove("model.bin");
+        try {
+            cache.getObject(get("model.bin"), bucket);
+            fail();
+        } catch (CosServiceException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; ++i) {
+            content.append('x');
+        }
+        for (int i = 0; i < 4; ++i) {
+            bucket.put("key" + i, content.toString() + i);
+        }
+        // room for about 3 entries
+        DiskObjectCache cache = new DiskObjectCache(folder.getRoot(), 35000, 1, TimeUnit.HOURS);
+        cache.setMaxObjectSize(20000);
+        for (int i = 0; i < 3; ++i) {
+            read(cache.getObject(get("key" + i), bucket));
+            Thread.sleep(5);
+        }
+        read(cache.getObject(get("key0"), bucket));
+        Thread.sleep(5);
+        read(cache.getObject(get("key3"), bucket));
+        assertEquals(4, bucket.fetches);
+
+        // key1 was the least recently used
+        read(cache.getObject(get("key0"), bucket));
+        read(cache.getObject(get("key2"), bucket));
+        assertEquals(4, bucket.fetches);
+        read(cache.getObject(get("key1"), bucket));
+        assertEquals(5, bucket.fetches);
+    }
+
+    @Test
+    public void testBypassesUncacheableRequests() throws Exception {
+        DiskObjectCache cache = new DiskObjectCache(folder.getRoot(), 100, 1, TimeUnit.HOURS);
+        assertTrue(cache.isCacheable(get("key")));
+        assertFalse(cache.isCacheable(get("key").withRange(0, 10)));
+        assertFalse(cache.isCacheable(get("key").withMatchingETagConstraint("etag")));
+        GetObjectRequest withCredentials = get("key");
+        withCredentials.setCosCredentials(new BasicCOSCredentials("id", "key"));
+        assertFalse(cache.isCacheable(withCredentials));
+
+        FakeBucket bucket = new FakeBucket();
+        bucket.put("big", "more than a quarter of the cache");
+        COSObject object = cache.getObject(get("big"), bucket);
+        assertArrayEquals(bucket.objects.get("big"),
+                IOUtils.toByteArray(object.getObjectContent()));
+        assertEquals(0, folder.getRoot().listFiles().length);
+
+        new File(folder.getRoot(), "junk.entry").createNewFile();
+        cache.clear();
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testServesObjectsWhichCannotBeCached() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        bucket.put("key", "content");
+        DiskObjectCache cache = new DiskObjectCache(folder.getRoot(), 1 << 20, 1, TimeUnit.HOURS);
+        // the entry cannot be renamed into place
+        File entry = new File(folder.getRoot(),
+                DiskObjectCache.entryName("examplebucket-1250000000", "key", null));
+        assertTrue(entry.mkdir());
+        assertTrue(new File(entry, "file").createNewFile());
+
+        assertEquals("content", read(cache.getObject(get("key"), bucket)));
+        assertEquals("content", read(cache.getObject(get("key"), bucket)));
+        assertEquals(4, bucket.fetches);
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+}
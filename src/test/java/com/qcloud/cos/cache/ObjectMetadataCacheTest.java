@@ -0,0 +1,163 @@
+package com.qcloud.cos.cache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.qcloud.cos.auth.BasicCOSCredentials;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.GetObjectMetadataRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ObjectMetadataCacheTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+
+    /**
+     * Answers HEAD requests from a map of key to ETag.
+     */
+    private static class FakeBucket implements ObjectMetadataCache.Loader {
+        final Map<String, String> eTags = new HashMap<String, String>();
+        int heads;
+
+        @Override
+        public ObjectMetadata load(GetObjectMetadataRequest request) {
+            ++heads;
+            String eTag = eTags.get(request.getKey());
+            if (eTag == null) {
+                CosServiceException e = new CosServiceException("Not Found");
+                e.setStatusCode(404);
+                e.setRequestId("request-" + heads);
+                throw e;
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setHeader("ETag", eTag);
+            return metadata;
+        }
+    }
+
+    private static GetObjectMetadataRequest head(String key) {
+        return new GetObjectMetadataRequest(BUCKET, key);
+    }
+
+    private static int statusOf(ObjectMetadataCache cache, String key, FakeBucket bucket) {
+        try {
+            cache.getObjectMetadata(head(key), bucket);
+            return 200;
+        } catch (CosServiceException e) {
+            return e.getStatusCode();
+        }
+    }
+
+    @Test
+    public void testCachesMetadataAndNotFound() {
+        FakeBucket bucket = new FakeBucket();
+        bucket.eTags.put("a", "etag-a");
+        ObjectMetadataCache cache = new ObjectMetadataCache(1024, 1, 1, TimeUnit.HOURS);
+
+        ObjectMetadata first = cache.getObjectMetadata(head("a"), bucket);
+        ObjectMetadata second = cache.getObjectMetadata(head("a"), bucket);
+        assertEquals("etag-a", second.getETag());
+        // callers cannot modify the cached metadata
+        assertNotSame(first, second);
+        assertEquals(404, statusOf(cache, "missing", bucket));
+        assertEquals(404, statusOf(cache, "missing", bucket));
+        assertEquals(2, bucket.heads);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getNegativeHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0);
+
+        // a version is cached apart from the latest one
+        cache.getObjectMetadata(new GetObjectMetadataRequest(BUCKET, "a", "v1"), bucket);
+        assertEquals(3, bucket.heads);
+    }
+
+    @Test
+    public void testWritesInvalidate() {
+        FakeBucket bucket = new FakeBucket();
+        ObjectMetadataCache cache = new ObjectMetadataCache(1024, 1, 1, TimeUnit.HOURS);
+        assertEquals(404, statusOf(cache, "a", bucket));
+
+        bucket.eTags.put("a", "etag-a");
+        cache.invalidate(BUCKET, "a", null);
+        assertEquals(200, statusOf(cache, "a", bucket));
+        assertEquals(200, statusOf(cache, "a", bucket));
+        assertEquals(2, bucket.heads);
+    }
+
+    @Test
+    public void testLoadOverlappingAWriteIsNotCached() {
+        final ObjectMetadataCache cache = new ObjectMetadataCache(1024, 1, 1, TimeUnit.HOURS);
+        final FakeBucket bucket = new FakeBucket();
+        bucket.eTags.put("a", "old");
+        ObjectMetadataCache.Loader racing = new ObjectMetadataCache.Loader() {
+            @Override
+            public ObjectMetadata load(GetObjectMetadataRequest request) {
+                ObjectMetadata metadata = bucket.load(request);
+                // the object is overwritten while the response is on its way
+                bucket.eTags.put("a", "new");
+                cache.invalidate(BUCKET, "a", null);
+                return metadata;
+            }
+        };
+        assertEquals("old", cache.getObjectMetadata(head("a"), racing).getETag());
+        assertEquals("new", cache.getObjectMetadata(head("a"), bucket).getETag());
+        assertEquals(2, bucket.heads);
+    }
+
+    @Test
+    public void testExpiresAndEvicts() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        ObjectMetadataCache cache = new ObjectMetadataCache(1024, 1, 0, TimeUnit.HOURS);
+        // 404s are not cached with a negative ttl of 0
+        assertEquals(404, statusOf(cache, "missing", bucket));
+        assertEquals(404, statusOf(cache, "missing", bucket));
+        assertEquals(2, bucket.heads);
+
+        cache = new ObjectMetadataCache(16, 20, 20, TimeUnit.MILLISECONDS);
+        bucket.eTags.put("a", "etag-a");
+        cache.getObjectMetadata(head("a"), bucket);
+        Thread.sleep(50);
+        cache.getObjectMetadata(head("a"), bucket);
+        assertEquals(4, bucket.heads);
+
+        cache = new ObjectMetadataCache(16, 1, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 1000; ++i) {
+            statusOf(cache, "key" + i, bucket);
+        }
+        assertTrue(cache.size() <= 16);
+        assertEquals(1000 - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        try {
+            new ObjectMetadataCache(1, 1, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ObjectMetadataCache(100, 0, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testBypassesRequestsWithTheirOwnCredentials() {
+        ObjectMetadataCache cache = new ObjectMetadataCache(1024, 1, 1, TimeUnit.HOURS);
+        GetObjectMetadataRequest request = new GetObjectMetadataRequest("bucket", "a");
+        assertTrue(cache.isCacheable(request));
+        request.setCosCredentials(new BasicCOSCredentials("id", "key"));
+        assertFalse(cache.isCacheable(request));
+    }
+}
@@ -0,0 +1,276 @@
+package com.qcloud.cos.cache;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.auth.BasicCOSCredentials;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.GetObjectMetadataRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.utils.IOUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+    private static final int CALLERS = 6;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answers once all the other callers joined the flight, so that they all share it.
+     */
+    private static class SlowBucket implements DiskObjectCache.Fetcher, ObjectMetadataCache.Loader {
+        final RequestCoalescer coalescer;
+        final byte[] content;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicBoolean sourceClosed = new AtomicBoolean();
+        volatile RuntimeException failure;
+        volatile Error error;
+
+        SlowBucket(RequestCoalescer coalescer, byte[] content) {
+            this.coalescer = coalescer;
+            this.content = content;
+        }
+
+        private void awaitFollowers() {
+            requests.incrementAndGet();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (coalescer.getCoalescedCount() < CALLERS - 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        @Override
+        public COSObject fetch(GetObjectRequest request) {
+            awaitFollowers();
+            COSObject object = new COSObject();
+            object.setBucketName(request.getBucketName());
+            object.setKey(request.getKey());
+            object.getObjectMetadata().setContentLength(content.length);
+            object.setObjectContent(new ByteArrayInputStream(content) {
+                @Override
+                public void close() throws IOException {
+                    sourceClosed.set(true);
+                    super.close();
+                }
+            });
+            return object;
+        }
+
+        @Override
+        public ObjectMetadata load(GetObjectMetadataRequest request) {
+            awaitFollowers();
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            return metadata;
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private List<Future<byte[]>> getConcurrently(final RequestCoalescer coalescer,
+            final SlowBucket bucket, final int readLimit) {
+        List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+        for (int i = 0; i < CALLERS; ++i) {
+            results.add(executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    COSObject object = coalescer.getObject(new GetObjectRequest(BUCKET, "key"),
+                            bucket);
+                    try {
+                        if (readLimit < 0) {
+                            return IOUtils.toByteArray(object.getObjectContent());
+                        }
+                        byte[] head = new byte[readLimit];
+                        int n = object.getObjectContent().read(head);
+                        return n == readLimit ? head : null;
+                    } finally {
+                        object.close();
+                    }
+                }
+            }));
+        }
+        return results;
+    }
+
+    @Test
+    public void testSharesSmallBodyInMemory() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(1 << 20, folder.getRoot());
+        SlowBucket bucket = new SlowBucket(coalescer, randomBytes(100000));
+        for (Future<byte[]> result : getConcurrently(coalescer, bucket, -1)) {
+            assertArrayEquals(bucket.content, result.get());
+        }
+        assertEquals(1, bucket.requests.get());
+        assertEquals(1, coalescer.getSentCount());
+        assertEquals(CALLERS - 1, coalescer.getCoalescedCount());
+        assertTrue(bucket.sourceClosed.get());
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testSharesLargeBodyThroughFile() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(1000, folder.getRoot());
+        SlowBucket bucket = new SlowBucket(coalescer, randomBytes(1000000));
+        for (Future<byte[]> result : getConcurrently(coalescer, bucket, -1)) {
+            assertArrayEquals(bucket.content, result.get());
+        }
+        assertEquals(1, bucket.requests.get());
+        assertTrue(bucket.sourceClosed.get());
+        // the spill file is deleted with the last stream
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testAbortsSourceWhenAllStreamsCloseEarly() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(1000, folder.getRoot());
+        SlowBucket bucket = new SlowBucket(coalescer, randomBytes(1000000));
+        for (Future<byte[]> result : getConcurrently(coalescer, bucket, 10)) {
+            byte[] head = result.get();
+            for (int i = 0; i < 10; ++i) {
+                assertEquals(bucket.content[i], head[i]);
+            }
+        }
+        assertTrue(bucket.sourceClosed.get());
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testSharesFailure() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        SlowBucket bucket = new SlowBucket(coalescer, new byte[0]);
+        CosServiceException unavailable = new CosServiceException("Slow Down");
+        unavailable.setStatusCode(503);
+        bucket.failure = unavailable;
+        for (Future<byte[]> result : getConcurrently(coalescer, bucket, -1)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                assertEquals(503, ((CosServiceException) e.getCause()).getStatusCode());
+            }
+        }
+        assertEquals(1, bucket.requests.get());
+
+        // the next request is sent again
+        bucket.failure = null;
+        COSObject object = coalescer.getObject(new GetObjectRequest(BUCKET, "key"), bucket);
+        assertEquals(2, bucket.requests.get());
+        object.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testFailsFollowersWhenLeaderThrowsError() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        SlowBucket bucket = new SlowBucket(coalescer, new byte[0]);
+        bucket.error = new OutOfMemoryError("simulated");
+        int errors = 0;
+        int followers = 0;
+        for (Future<byte[]> result : getConcurrently(coalescer, bucket, -1)) {
+            try {
+                result.get();
+                fail();
+            } catch (ExecutionException e) {
+                if (e.getCause() == bucket.error) {
+                    ++errors;
+                } else {
+                    assertSame(bucket.error, e.getCause().getCause());
+                    ++followers;
+                }
+            }
+        }
+        assertEquals(1, errors);
+        assertEquals(CALLERS - 1, followers);
+
+        // the flight is gone, the next request is sent again
+        bucket.error = null;
+        COSObject object = coalescer.getObject(new GetObjectRequest(BUCKET, "key"), bucket);
+        assertEquals(2, bucket.requests.get());
+        object.close();
+    }
+
+    @Test
+    public void testSharesHead() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final SlowBucket bucket = new SlowBucket(coalescer, new byte[42]);
+        List<Future<ObjectMetadata>> results = new ArrayList<Future<ObjectMetadata>>();
+        for (int i = 0; i < CALLERS; ++i) {
+            results.add(executor.submit(new Callable<ObjectMetadata>() {
+                @Override
+                public ObjectMetadata call() {
+                    return coalescer.getObjectMetadata(new GetObjectMetadataRequest(BUCKET, "key"),
+                            bucket);
+                }
+            }));
+        }
+        ObjectMetadata first = results.get(0).get();
+        for (Future<ObjectMetadata> result : results) {
+            assertEquals(42, result.get().getContentLength());
+            if (result != results.get(0)) {
+                assertNotSame(first, result.get());
+            }
+        }
+        assertEquals(1, bucket.requests.get());
+    }
+
+    @Test
+    public void testUnsharedRequestIsReturnedAsIs() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        final COSObject original = new COSObject();
+        COSObject object = coalescer.getObject(new GetObjectRequest(BUCKET, "key"),
+                new DiskObjectCache.Fetcher() {
+                    @Override
+                    public COSObject fetch(GetObjectRequest request) {
+                        return original;
+                    }
+                });
+        assertSame(original, object);
+
+        GetObjectRequest other = new GetObjectRequest(BUCKET, "key");
+        other.setCosCredentials(new BasicCOSCredentials("id", "key"));
+        assertFalse(coalescer.isCoalescable(other));
+        assertTrue(coalescer.isCoalescable(new GetObjectRequest(BUCKET, "key").withRange(0, 9)));
+    }
+}
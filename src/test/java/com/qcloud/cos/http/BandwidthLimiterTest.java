@@ -0,0 +1,59 @@
+package com.qcloud.cos.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import com.qcloud.cos.internal.BandwidthLimitedInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BandwidthLimiterTest {
+
+    private static long drain(InputStream in) throws Exception {
+        byte[] buf = new byte[8 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            total += n;
+        }
+        return total;
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter(0, 0);
+        InputStream in = BandwidthLimitedInputStream.inputStreamForResponse(
+                new ByteArrayInputStream(new byte[4 * 1024 * 1024]), limiter,
+                BandwidthPriority.NORMAL);
+        long start = System.currentTimeMillis();
+        assertEquals(4 * 1024 * 1024, drain(in));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testDownloadLimited() throws Exception {
+        // the first second worth of data is the initial burst, the rest is throttled
+        BandwidthLimiter limiter = new BandwidthLimiter(0, 256 * 1024);
+        InputStream in = BandwidthLimitedInputStream.inputStreamForResponse(
+                new ByteArrayInputStream(new byte[512 * 1024]), limiter, BandwidthPriority.NORMAL);
+        long start = System.currentTimeMillis();
+        assertEquals(512 * 1024, drain(in));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("elapsed " + elapsed, elapsed >= 800);
+    }
+
+    @Test
+    public void testRuntimeReconfiguration() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter(1024, 0);
+        limiter.setUploadBytesPerSecond(0);
+        InputStream in = BandwidthLimitedInputStream.inputStreamForRequest(
+                new ByteArrayInputStream(new byte[1024 * 1024]), limiter, BandwidthPriority.LOW);
+        long start = System.currentTimeMillis();
+        assertEquals(1024 * 1024, drain(in));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(0, limiter.getUploadBytesPerSecond());
+    }
+}
@@ -0,0 +1,243 @@
+package com.qcloud.cos.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectInputStream;
+import com.qcloud.cos.region.Region;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionDrainerTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+    private static final int DRAIN_THRESHOLD = 64 * 1024;
+
+    private final Objects objects = new Objects();
+    private HttpServer server;
+    private ConnectionDrainer drainer;
+    private COSClient cosClient;
+
+    /**
+     * Answers the get of an object named by its length, and keeps the client port of each get.
+     */
+    private static class Objects implements HttpHandler {
+        final List<Integer> ports = new ArrayList<Integer>();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                synchronized (ports) {
+                    ports.add(exchange.getRemoteAddress().getPort());
+                }
+                String path = exchange.getRequestURI().getPath();
+                int length = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+                exchange.sendResponseHeaders(200, length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(new byte[length]);
+                out.close();
+            } catch (IOException e) {
+                // the client aborted the connection
+            } finally {
+                exchange.close();
+            }
+        }
+
+        int lastPort() {
+            synchronized (ports) {
+                return ports.get(ports.size() - 1);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", objects);
+        server.start();
+        String endpoint = "127.0.0.1:" + server.getAddress().getPort();
+        ClientConfig clientConfig = new ClientConfig(new Region("ap-guangzhou"));
+        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+        drainer = new ConnectionDrainer(DRAIN_THRESHOLD, 4);
+        clientConfig.setConnectionDrainer(drainer);
+        cosClient = new COSClient(new AnonymousCOSCredentials(), clientConfig);
+    }
+
+    @After
+    public void tearDown() {
+        cosClient.shutdown();
+        drainer.shutdown();
+        server.stop(0);
+    }
+
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private int getAndClose(int length, int read) throws IOException {
+        COSObject object = cosClient.getObject(BUCKET, String.valueOf(length));
+        COSObjectInputStream in = object.getObjectContent();
+        byte[] buffer = new byte[read];
+        for (int n = 0; n < read;) {
+            n += in.read(buffer, n, read - n);
+        }
+        in.close();
+        return objects.lastPort();
+    }
+
+    private void awaitDrained(long count) throws InterruptedException {
+        for (int i = 0; i < 500 && drainer.getDrainedCount() < count; ++i) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, drainer.getDrainedCount());
+    }
+
+    @Test
+    public void testDrainsShortRemaindersAndReusesConnection() throws Exception {
+        int port = getAndClose(DRAIN_THRESHOLD + 1000, 1000);
+        awaitDrained(1);
+        assertEquals(DRAIN_THRESHOLD, drainer.getDrainedBytes());
+        assertEquals(port, getAndClose(100, 10));
+        awaitDrained(2);
+        assertEquals(0, drainer.getAbortedCount());
+    }
+
+    @Test
+    public void testAbortsLongRemainders() throws Exception {
+        int port = getAndClose(4 * 1024 * 1024, 10);
+        assertEquals(1, drainer.getAbortedCount());
+        assertNotEquals(port, getAndClose(100, 10));
+        awaitDrained(1);
+    }
+
+    @Test
+    public void testAbortsWhenDrainsArePending() throws Exception {
+        ConnectionDrainer drainer = new ConnectionDrainer(100, 1, 1, 1, TimeUnit.MINUTES);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final AtomicInteger aborted = new AtomicInteger();
+        Runnable abort = new Runnable() {
+            @Override
+            public void run() {
+                aborted.incrementAndGet();
+            }
+        };
+        Callable<Long> blockedDrain = new Callable<Long>() {
+            @Override
+            public Long call() throws InterruptedException {
+                assertTrue(blocked.await(5, TimeUnit.SECONDS));
+                return 10L;
+            }
+        };
+        try {
+            // the first drain blocks the thread, the second one waits for it
+            drainer.drainOrAbort(10, blockedDrain, NOTHING, abort);
+            drainer.drainOrAbort(10, blockedDrain, NOTHING, abort);
+            drainer.drainOrAbort(10, blockedDrain, NOTHING, abort);
+            assertEquals(1, aborted.get());
+            drainer.drainOrAbort(-1, blockedDrain, NOTHING, abort);
+            drainer.drainOrAbort(101, blockedDrain, NOTHING, abort);
+            assertEquals(3, aborted.get());
+            blocked.countDown();
+        } finally {
+            drainer.shutdown();
+        }
+        assertEquals(3, drainer.getAbortedCount());
+    }
+
+    @Test
+    public void testAbortsDrainsPastTheirTimeout() throws Exception {
+        ConnectionDrainer drainer = new ConnectionDrainer(100, 4, 1, 100, TimeUnit.MILLISECONDS);
+        final CountDownLatch aborted = new CountDownLatch(2);
+        final AtomicInteger released = new AtomicInteger();
+        Runnable release = new Runnable() {
+            @Override
+            public void run() {
+                released.incrementAndGet();
+            }
+        };
+        Runnable abort = new Runnable() {
+            @Override
+            public void run() {
+                aborted.countDown();
+            }
+        };
+        // a response sent slowly, until its connection is aborted
+        Callable<Long> slowDrain = new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                if (aborted.await(5, TimeUnit.SECONDS)) {
+                    throw new IOException("connection aborted");
+                }
+                return 10L;
+            }
+        };
+        try {
+            // the second drain times out while waiting for the thread held by the first one
+            drainer.drainOrAbort(10, slowDrain, release, abort);
+            drainer.drainOrAbort(10, slowDrain, release, abort);
+            assertTrue(aborted.await(5, TimeUnit.SECONDS));
+        } finally {
+            drainer.shutdown();
+        }
+        assertEquals(0, released.get());
+        assertEquals(2, drainer.getTimedOutCount());
+        assertEquals(2, drainer.getAbortedCount());
+        assertEquals(0, drainer.getDrainedCount());
+    }
+
+    @Test
+    public void testRunsDrainsConcurrently() throws Exception {
+        ConnectionDrainer drainer = new ConnectionDrainer(100, 1, 3, 1, TimeUnit.MINUTES);
+        final CountDownLatch running = new CountDownLatch(3);
+        final CountDownLatch released = new CountDownLatch(3);
+        Callable<Long> drain = new Callable<Long>() {
+            @Override
+            public Long call() throws InterruptedException {
+                running.countDown();
+                // every drain waits for the others to be running
+                assertTrue(running.await(5, TimeUnit.SECONDS));
+                return 10L;
+            }
+        };
+        Runnable release = new Runnable() {
+            @Override
+            public void run() {
+                released.countDown();
+            }
+        };
+        try {
+            for (int i = 0; i < 3; ++i) {
+                drainer.drainOrAbort(10, drain, release, NOTHING);
+            }
+            assertTrue(released.await(5, TimeUnit.SECONDS));
+        } finally {
+            drainer.shutdown();
+        }
+        assertEquals(3, drainer.getDrainedCount());
+        assertEquals(30, drainer.getDrainedBytes());
+        assertEquals(0, drainer.getAbortedCount());
+    }
+}
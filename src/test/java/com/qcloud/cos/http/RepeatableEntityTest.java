@@ -0,0 +1,283 @@
+package com.qcloud.cos.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.protocol.HttpContext;
+
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.event.ProgressEvent;
+import com.qcloud.cos.event.ProgressEventType;
+import com.qcloud.cos.event.SyncProgressListener;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.internal.ByteArrayContentInputStream;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.model.UploadPartResult;
+import com.qcloud.cos.region.Region;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.Md5Utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RepeatableEntityTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+
+    private final FakeBucket bucket = new FakeBucket();
+    private HttpServer server;
+    private ClientConfig clientConfig;
+    private RecordingHttpClient httpClient;
+    private COSClient cosClient;
+
+    /**
+     * Keeps the body of the last put, after answering a number of them with an error.
+     */
+    private static class FakeBucket implements HttpHandler {
+        final AtomicInteger failuresToAnswer = new AtomicInteger();
+        volatile byte[] content;
+        volatile String etag;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                if (failuresToAnswer.getAndDecrement() > 0) {
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                content = body;
+                String etag = this.etag != null ? this.etag : Md5Utils.md5Hex(body);
+                exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+                exchange.sendResponseHeaders(200, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Keeps the entities of the requests sent.
+     */
+    static class RecordingHttpClient extends DefaultCosHttpClient {
+        final List<HttpEntity> entities = new ArrayList<HttpEntity>();
+
+        RecordingHttpClient(ClientConfig clientConfig) {
+            super(clientConfig);
+        }
+
+        @Override
+        HttpResponse executeOneRequest(HttpContext context, HttpRequestBase httpRequest) {
+            if (httpRequest instanceof HttpEntityEnclosingRequest) {
+                synchronized (entities) {
+                    entities.add(((HttpEntityEnclosingRequest) httpRequest).getEntity());
+                }
+            }
+            return super.executeOneRequest(context, httpRequest);
+        }
+
+        HttpEntity lastEntity() {
+            synchronized (entities) {
+                return entities.get(entities.size() - 1);
+            }
+        }
+
+        /**
+         * Sends the requests of the given client through a new recording client.
+         */
+        static RecordingHttpClient install(COSClient cosClient, ClientConfig clientConfig)
+                throws ReflectiveOperationException {
+            RecordingHttpClient httpClient = new RecordingHttpClient(clientConfig);
+            Field field = COSClient.class.getDeclaredField("cosHttpClient");
+            field.setAccessible(true);
+            ((CosHttpClient) field.get(cosClient)).shutdown();
+            field.set(cosClient, httpClient);
+            return httpClient;
+        }
+    }
+
+    /**
+     * Adds up the request bytes transferred, less the ones reset.
+     */
+    static class RequestBytesListener extends SyncProgressListener {
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicInteger resets = new AtomicInteger();
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            ProgressEventType type = progressEvent.getEventType();
+            if (type == ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT
+                    || type == ProgressEventType.HTTP_REQUEST_CONTENT_RESET_EVENT) {
+                bytes.addAndGet(progressEvent.getBytesTransferred());
+            }
+            if (type == ProgressEventType.HTTP_REQUEST_CONTENT_RESET_EVENT) {
+                resets.incrementAndGet();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", bucket);
+        server.start();
+        String endpoint = "127.0.0.1:" + server.getAddress().getPort();
+        clientConfig = new ClientConfig(new Region("ap-guangzhou"));
+        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+        cosClient = new COSClient(new AnonymousCOSCredentials(), clientConfig);
+        httpClient = RecordingHttpClient.install(cosClient, clientConfig);
+    }
+
+    @After
+    public void tearDown() {
+        cosClient.shutdown();
+        server.stop(0);
+    }
+
+    static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    @Test
+    public void testSendsBytesAsByteArrayEntity() {
+        byte[] content = content(200000);
+        cosClient.putObject(BUCKET, "a", content, null);
+        assertTrue(httpClient.lastEntity() instanceof ByteArrayEntity);
+        assertArrayEquals(content, bucket.content);
+    }
+
+    @Test
+    public void testReportsProgressOfBytesAcrossRetries() {
+        byte[] content = content(200000);
+        RequestBytesListener listener = new RequestBytesListener();
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        bucket.failuresToAnswer.set(1);
+        cosClient.putObject(new PutObjectRequest(BUCKET, "a",
+                new ByteArrayContentInputStream(content), metadata)
+                        .<PutObjectRequest>withGeneralProgressListener(listener));
+
+        assertEquals(2, httpClient.entities.size());
+        assertTrue(httpClient.entities.get(0) instanceof ByteArrayEntity);
+        assertTrue(httpClient.entities.get(0) == httpClient.entities.get(1));
+        assertEquals(1, listener.resets.get());
+        assertEquals(content.length, listener.bytes.get());
+        assertArrayEquals(content, bucket.content);
+    }
+
+    @Test
+    public void testLimitsBandwidthOfBytes() {
+        clientConfig.setBandwidthLimiter(new BandwidthLimiter(100 * 1024, 0));
+        byte[] content = content(200 * 1024);
+        long start = System.nanoTime();
+        cosClient.putObject(BUCKET, "a", content, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        // a burst of one second, then the second half at 100KB/s
+        assertTrue("sent in " + elapsedMillis + "ms", elapsedMillis >= 500);
+        assertTrue(httpClient.lastEntity() instanceof ByteArrayEntity);
+    }
+
+    @Test
+    public void testSendsOtherStreamsAsInputStreamEntity() {
+        byte[] content = content(1000);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        cosClient.putObject(BUCKET, "a", new ByteArrayInputStream(content), metadata);
+        assertTrue(httpClient.lastEntity() instanceof InputStreamEntity);
+        assertArrayEquals(content, bucket.content);
+    }
+
+    private File write(byte[] content) throws IOException {
+        File file = File.createTempFile("region", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testSendsPartsAsFileRegionEntityWithStreamedMd5() throws IOException {
+        byte[] content = content(600000);
+        File file = write(content);
+        try {
+            RequestBytesListener listener = new RequestBytesListener();
+            bucket.failuresToAnswer.set(1);
+            UploadPartResult result = cosClient.uploadPart(new UploadPartRequest()
+                    .withBucketName(BUCKET).withKey("file").withUploadId("upload")
+                    .withPartNumber(2).withFile(file).withFileOffset(100000)
+                    .withPartSize(300000)
+                    .<UploadPartRequest>withGeneralProgressListener(listener));
+
+            byte[] part = Arrays.copyOfRange(content, 100000, 400000);
+            assertTrue(httpClient.lastEntity() instanceof FileRegionEntity);
+            assertArrayEquals(part, bucket.content);
+            assertEquals(Md5Utils.md5Hex(part), result.getETag());
+            assertEquals(1, listener.resets.get());
+            assertEquals(part.length, listener.bytes.get());
+
+            bucket.etag = Md5Utils.md5Hex("something else");
+            try {
+                cosClient.uploadPart(new UploadPartRequest().withBucketName(BUCKET)
+                        .withKey("file").withUploadId("upload").withPartNumber(3)
+                        .withFile(file).withFileOffset(400000).withPartSize(200000));
+                fail();
+            } catch (CosClientException expected) {
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLimitsBandwidthOfFiles() throws IOException {
+        File file = write(content(200 * 1024));
+        try {
+            clientConfig.setBandwidthLimiter(new BandwidthLimiter(100 * 1024, 0));
+            long start = System.nanoTime();
+            // the file is sent in a single buffer, which may go into debt of the budget
+            cosClient.putObject(BUCKET, "file", file);
+            cosClient.putObject(BUCKET, "file", file);
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+            assertTrue("sent in " + elapsedMillis + "ms", elapsedMillis >= 500);
+            assertTrue(httpClient.lastEntity() instanceof FileRegionEntity);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.qcloud.cos.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.region.Region;
+import com.qcloud.cos.utils.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryBufferTest {
+
+    private static final int MEMORY_THRESHOLD = 3 * RetryBuffer.CHUNK_SIZE + 100;
+
+    private File spillDirectory;
+    private RetryBuffer retryBuffer;
+
+    @Before
+    public void setUp() throws IOException {
+        spillDirectory = File.createTempFile("retry", "");
+        spillDirectory.delete();
+        spillDirectory.mkdir();
+        retryBuffer = new RetryBuffer(MEMORY_THRESHOLD, 2 * RetryBuffer.CHUNK_SIZE,
+                spillDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        spillDirectory.delete();
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) (i * 17 + i / 251);
+        }
+        return content;
+    }
+
+    /**
+     * A stream which cannot be reset, read a few bytes at a time.
+     */
+    private static InputStream unmarkable(byte[] content) {
+        return new FilterInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 5000));
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    private static byte[] readPartially(InputStream in, int length) throws IOException {
+        byte[] read = new byte[length];
+        int n = 0;
+        while (n < length) {
+            n += in.read(read, n, length - n);
+        }
+        return read;
+    }
+
+    @Test
+    public void testReplaysContentKeptInMemory() throws IOException {
+        byte[] content = content(MEMORY_THRESHOLD - 1);
+        RetryBufferInputStream in = retryBuffer.newInputStream(unmarkable(content));
+        in.mark(16);
+        readPartially(in, 1000);
+        in.reset();
+        assertArrayEquals(content, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(content, IOUtils.toByteArray(in));
+        in.discard();
+
+        assertEquals(1, retryBuffer.getBufferedCount());
+        assertEquals(0, retryBuffer.getSpilledCount());
+        assertEquals(0, retryBuffer.getSpillRate(), 0);
+        assertEquals(2, retryBuffer.getPooledChunks());
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void testReplaysContentSpilledToFile() throws IOException {
+        byte[] content = content(MEMORY_THRESHOLD * 5 + 7);
+        RetryBufferInputStream in = retryBuffer.newInputStream(unmarkable(content));
+        in.mark(16);
+        readPartially(in, MEMORY_THRESHOLD * 3);
+        assertEquals(1, spillDirectory.list().length);
+        in.reset();
+        assertArrayEquals(content, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(Arrays.copyOf(content, MEMORY_THRESHOLD + 10),
+                readPartially(in, MEMORY_THRESHOLD + 10));
+        in.discard();
+
+        try {
+            in.reset();
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(0, spillDirectory.list().length);
+        assertEquals(1, retryBuffer.getSpilledCount());
+        assertEquals(content.length - MEMORY_THRESHOLD, retryBuffer.getSpilledBytes());
+        assertEquals(1.0, retryBuffer.getSpillRate(), 0);
+    }
+
+    /**
+     * Fails the first put of each object with a 503, once its whole content is received.
+     */
+    private static class FlakyBucket implements HttpHandler {
+        final List<byte[]> puts = new ArrayList<byte[]>();
+        final AtomicInteger failuresToAnswer = new AtomicInteger();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                synchronized (puts) {
+                    puts.add(body);
+                }
+                exchange.sendResponseHeaders(failuresToAnswer.getAndDecrement() > 0 ? 503 : 200,
+                        -1);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRetriesPutsOfStreamsLongerThanReadLimit() throws IOException {
+        FlakyBucket bucket = new FlakyBucket();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", bucket);
+        server.start();
+        String endpoint = "127.0.0.1:" + server.getAddress().getPort();
+        ClientConfig clientConfig = new ClientConfig(new Region("ap-guangzhou"));
+        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+        clientConfig.setReadLimit(1024);
+        clientConfig.setRetryBuffer(retryBuffer);
+        COSClient cosClient = new COSClient(new AnonymousCOSCredentials(), clientConfig);
+        try {
+            byte[] content = content(MEMORY_THRESHOLD * 4);
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            bucket.failuresToAnswer.set(1);
+            cosClient.putObject("examplebucket-1250000000", "a", unmarkable(content), metadata);
+
+            assertEquals(2, bucket.puts.size());
+            assertArrayEquals(content, bucket.puts.get(0));
+            assertArrayEquals(content, bucket.puts.get(1));
+            assertEquals(1, retryBuffer.getSpilledCount());
+            assertEquals(0, spillDirectory.list().length);
+            assertTrue(retryBuffer.getPooledChunks() > 0);
+
+            byte[] small = content(100);
+            metadata.setContentLength(small.length);
+            cosClient.putObject("examplebucket-1250000000", "b", unmarkable(small), metadata);
+            assertArrayEquals(small, bucket.puts.get(2));
+            assertEquals(2, retryBuffer.getBufferedCount());
+            assertEquals(0.5, retryBuffer.getSpillRate(), 0);
+        } finally {
+            cosClient.shutdown();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.qcloud.cos.internal;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.CompactObjectListing;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.Owner;
+import com.qcloud.cos.utils.StringUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompactListBucketHandlerTest {
+
+    private static final String[] ETAGS = {
+            "0f343b0931126a20f133d67c2b018a3b",
+            "58dc8a5bd0e4e3f0ae1bf8f60ac34cf2-3",
+            "0F343B0931126A20F133D67C2B018A3B",
+            "a5ee7ae2b4fd7fe4a09ae7fa2c8e1b04"};
+
+    private static InputStream listing() {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='utf-8' ?>"
+                + "<ListBucketResult><Name>examplebucket-1250000000</Name>"
+                + "<Prefix>dir%2F</Prefix><Marker/><MaxKeys>4</MaxKeys>"
+                + "<IsTruncated>true</IsTruncated><EncodingType>url</EncodingType>");
+        for (int i = 0; i < ETAGS.length; ++i) {
+            xml.append("<Contents><Key>dir%2Fkey%20").append(i).append("</Key>")
+                    .append("<LastModified>2020-04-1").append(i)
+                    .append("T06:26:45.000Z</LastModified>")
+                    .append("<ETag>&quot;").append(ETAGS[i]).append("&quot;</ETag>")
+                    .append("<Size>").append(i * 1000L * 1000 * 1000).append("</Size>")
+                    .append("<Owner><ID>1250000000</ID><DisplayName>")
+                    .append(i == 3 ? "other" : "1250000000").append("</DisplayName></Owner>")
+                    .append("<StorageClass>").append(i == 2 ? "ARCHIVE" : "STANDARD")
+                    .append("</StorageClass></Contents>");
+        }
+        xml.append("<CommonPrefixes><Prefix>dir%2Fsub%2F</Prefix></CommonPrefixes>")
+                .append("</ListBucketResult>");
+        return new ByteArrayInputStream(xml.toString().getBytes(StringUtils.UTF8));
+    }
+
+    @Test
+    public void testSameContentAsListBucketHandler() throws Exception {
+        ObjectListing expected = new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(listing(), true).getObjectListing();
+        CompactObjectListing compact = new XmlResponsesSaxParser()
+                .parseCompactListBucketObjectsResponse(listing(), true).getObjectListing();
+        ObjectListing actual = compact.toObjectListing();
+
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals("dir/", actual.getPrefix());
+        assertEquals(expected.getMaxKeys(), actual.getMaxKeys());
+        assertTrue(actual.isTruncated());
+        assertEquals(expected.getNextMarker(), actual.getNextMarker());
+        assertEquals("dir/key 3", compact.getNextMarker());
+        assertEquals(Arrays.asList("dir/sub/"), actual.getCommonPrefixes());
+        assertEquals(ETAGS.length, actual.getObjectSummaries().size());
+        for (int i = 0; i < ETAGS.length; ++i) {
+            COSObjectSummary e = expected.getObjectSummaries().get(i);
+            COSObjectSummary a = actual.getObjectSummaries().get(i);
+            assertEquals(e.getBucketName(), a.getBucketName());
+            assertEquals(e.getKey(), a.getKey());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getLastModified(), a.getLastModified());
+            assertEquals(ETAGS[i], a.getETag());
+            assertEquals(e.getETag(), a.getETag());
+            assertEquals(e.getStorageClass(), a.getStorageClass());
+            assertEquals(e.getOwner().getId(), a.getOwner().getId());
+            assertEquals(e.getOwner().getDisplayName(), a.getOwner().getDisplayName());
+        }
+    }
+
+    @Test
+    public void testCursorSharesRepeatedValues() throws Exception {
+        CompactObjectListing compact = new XmlResponsesSaxParser()
+                .parseCompactListBucketObjectsResponse(listing(), true).getObjectListing();
+        CompactObjectListing.Cursor cursor = compact.cursor();
+        assertTrue(cursor.next());
+        assertTrue(cursor.hasMd5ETag());
+        byte[] md5 = new byte[16];
+        cursor.copyMd5ETag(md5, 0);
+        assertEquals(0x0f, md5[0]);
+        assertEquals(0x3b, md5[15]);
+        String storageClass = cursor.getStorageClass();
+        Owner owner = cursor.getOwner();
+
+        assertTrue(cursor.next());
+        // a multipart ETag is kept as is
+        assertFalse(cursor.hasMd5ETag());
+        assertSame(storageClass, cursor.getStorageClass());
+        assertSame(owner, cursor.getOwner());
+
+        cursor.moveTo(3);
+        assertEquals(3000L * 1000 * 1000, cursor.getSize());
+        assertEquals("other", cursor.getOwner().getDisplayName());
+        assertFalse(cursor.next());
+        assertNull(new CompactObjectListing().getLastKey());
+    }
+
+    @Test
+    public void testMissingETagIsNotAnMd5() {
+        CompactObjectListing compact = new CompactObjectListing();
+        compact.addObject("a", 1, -1, ETAGS[0], null, null);
+        compact.addObject("b", 2, -1, null, null, null);
+        CompactObjectListing.Cursor cursor = compact.cursor();
+        assertTrue(cursor.next());
+        assertTrue(cursor.hasMd5ETag());
+        assertEquals(ETAGS[0], cursor.getETag());
+        assertTrue(cursor.next());
+        assertFalse(cursor.hasMd5ETag());
+        assertNull(cursor.getETag());
+        assertNull(cursor.toObjectSummary().getETag());
+    }
+}
@@ -0,0 +1,168 @@
+package com.qcloud.cos.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.qcloud.cos.utils.IOUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DownloadSinkTest {
+
+    private static final int RANGE_SIZE = 1500000;
+    private static final int RANGES = 8;
+
+    private final byte[] content = new byte[RANGE_SIZE * RANGES - 1234];
+    private final ExecutorService executor = Executors.newFixedThreadPool(RANGES);
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < content.length; ++i) {
+            content[i] = (byte) (i * 13 + i / 509);
+        }
+        file = File.createTempFile("sink", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    /**
+     * Writes the ranges of the content concurrently, as streams read a few bytes at a time.
+     */
+    private void writeRanges(final DownloadSink sink) throws Exception {
+        List<Future<Long>> writes = new ArrayList<Future<Long>>();
+        for (int i = RANGES - 1; i >= 0; --i) {
+            final int start = i * RANGE_SIZE;
+            final int end = Math.min(start + RANGE_SIZE, content.length);
+            writes.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws IOException {
+                    return sink.write(new ByteArrayInputStream(content, start, end - start) {
+                        @Override
+                        public synchronized int read(byte[] b, int off, int len) {
+                            return super.read(b, off, Math.min(len, 7919));
+                        }
+                    }, start);
+                }
+            }));
+        }
+        long written = 0;
+        for (Future<Long> write : writes) {
+            written += write.get();
+        }
+        assertEquals(content.length, written);
+    }
+
+    private byte[] fileContent() throws IOException {
+        return IOUtils.toByteArray(new FileInputStream(file));
+    }
+
+    @Test
+    public void testWritesRangesConcurrentlyThroughChannel() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[content.length * 2]);
+        out.close();
+        DownloadSink sink = new FileChannelDownloadSink(file, content.length);
+        try {
+            writeRanges(sink);
+        } finally {
+            sink.close();
+        }
+        assertArrayEquals(content, fileContent());
+    }
+
+    @Test
+    public void testSizesBufferToContentLength() throws Exception {
+        final List<Integer> capacities = new ArrayList<Integer>();
+        DownloadSink sink = new DownloadSink() {
+            @Override
+            public void write(ByteBuffer src, long position) {
+                capacities.add(src.capacity());
+                src.position(src.limit());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertEquals(100, sink.write(new ByteArrayInputStream(content, 0, 100), 0, 100));
+        assertEquals(0, sink.write(new ByteArrayInputStream(new byte[0]), 0, 0));
+        assertEquals(100, sink.write(new ByteArrayInputStream(content, 0, 100), 0));
+        assertEquals(Arrays.asList(100, DownloadSink.BUFFER_SIZE), capacities);
+    }
+
+    @Test
+    public void testAppendsThroughChannel() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content, 0, 1000);
+        out.close();
+        DownloadSink sink = new FileChannelDownloadSink(file, -1);
+        try {
+            sink.write(new ByteArrayInputStream(content, 1000, content.length - 1000), 1000);
+        } finally {
+            sink.close();
+        }
+        assertArrayEquals(content, fileContent());
+    }
+
+    @Test
+    public void testWritesRangesConcurrentlyIntoMapping() throws Exception {
+        DownloadSink sink = new MappedFileDownloadSink(file, content.length);
+        try {
+            writeRanges(sink);
+            try {
+                sink.write(ByteBuffer.allocate(2), content.length - 1);
+                fail();
+            } catch (IOException expected) {
+            }
+        } finally {
+            sink.close();
+        }
+        assertArrayEquals(content, fileContent());
+    }
+
+    @Test
+    public void testWritesAcrossMappedWindows() throws Exception {
+        long length = MappedFileDownloadSink.WINDOW_SIZE + 100L;
+        DownloadSink sink = new MappedFileDownloadSink(file, length);
+        ByteBuffer src = ByteBuffer.wrap(content, 10, 300);
+        try {
+            sink.write(src, MappedFileDownloadSink.WINDOW_SIZE - 200L);
+        } finally {
+            sink.close();
+        }
+        assertEquals(0, src.remaining());
+        assertEquals(length, file.length());
+        byte[] written = new byte[300];
+        RandomAccessFile read = new RandomAccessFile(file, "r");
+        try {
+            read.seek(MappedFileDownloadSink.WINDOW_SIZE - 200L);
+            read.readFully(written);
+        } finally {
+            read.close();
+        }
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 310), written);
+    }
+}
@@ -0,0 +1,147 @@
+package com.qcloud.cos.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.qcloud.cos.http.FileRegionEntity;
+import com.qcloud.cos.utils.IOUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileRegionInputStreamTest {
+
+    private final byte[] content = new byte[1000000];
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < content.length; ++i) {
+            content[i] = (byte) (i * 7 + i / 251);
+        }
+        file = File.createTempFile("region", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadsRegion() throws IOException {
+        FileRegionInputStream region = FileRegionInputStream.open(file, 1000, 300000);
+        assertEquals(300000, region.available());
+        assertEquals(content[1000] & 0xFF, region.read());
+        region.mark(0);
+        byte[] read = IOUtils.toByteArray(region);
+        assertArrayEquals(Arrays.copyOfRange(content, 1001, 301000), read);
+        assertEquals(-1, region.read());
+        region.reset();
+        assertEquals(10, region.skip(10));
+        assertEquals(content[1011] & 0xFF, region.read());
+        region.release();
+    }
+
+    @Test
+    public void testSharesChannelOfFile() throws IOException {
+        FileRegionInputStream first = FileRegionInputStream.open(file, 0, 10);
+        FileRegionInputStream second = FileRegionInputStream.open(file, 10, 10);
+        FileChannel channel = first.getChannel();
+        assertSame(channel, second.getChannel());
+        // the connection closes what it sends, which is read again on a retry
+        first.close();
+        second.close();
+        assertTrue(channel.isOpen());
+        first.release();
+        // releasing twice releases the channel once
+        first.release();
+        assertTrue(channel.isOpen());
+        second.release();
+        assertFalse(channel.isOpen());
+
+        FileRegionInputStream reopened = FileRegionInputStream.open(file, 0, 10);
+        assertTrue(reopened.getChannel().isOpen());
+        reopened.release();
+    }
+
+    @Test
+    public void testReopensChannelClosedByInterrupt() throws Exception {
+        final FileRegionInputStream interrupted = FileRegionInputStream.open(file, 0, 10);
+        FileRegionInputStream region = FileRegionInputStream.open(file, 10, 10);
+        FileChannel channel = region.getChannel();
+        final Exception[] failure = new Exception[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                FileChannel channel = interrupted.getChannel();
+                Thread.currentThread().interrupt();
+                try {
+                    channel.read(ByteBuffer.allocate(10), 0);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertTrue(failure[0] instanceof ClosedByInterruptException);
+        assertFalse(channel.isOpen());
+
+        byte[] read = IOUtils.toByteArray(region);
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), read);
+        FileChannel reopened = region.getChannel();
+        interrupted.release();
+        region.release();
+        assertFalse(reopened.isOpen());
+    }
+
+    @Test
+    public void testFailsWhenFileEndsEarly() throws IOException {
+        FileRegionInputStream region = FileRegionInputStream.open(file, 999990, 20);
+        try {
+            IOUtils.toByteArray(region);
+            fail();
+        } catch (IOException expected) {
+        } finally {
+            region.release();
+        }
+    }
+
+    @Test
+    public void testWritesRegionAsRepeatableEntity() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileRegionEntity entity = new FileRegionEntity(
+                    new FileRegionInputStream(randomAccessFile.getChannel(), 5, 700000));
+            assertTrue(entity.isRepeatable());
+            assertEquals(700000, entity.getContentLength());
+            for (int i = 0; i < 2; ++i) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                entity.writeTo(out);
+                assertArrayEquals(Arrays.copyOfRange(content, 5, 700005), out.toByteArray());
+            }
+            assertArrayEquals(Arrays.copyOfRange(content, 5, 700005),
+                    IOUtils.toByteArray(entity.getContent()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
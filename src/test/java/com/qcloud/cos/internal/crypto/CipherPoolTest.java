@@ -0,0 +1,137 @@
+package com.qcloud.cos.internal.crypto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CipherPoolTest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static SecretKey newKey() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[7000];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testPooledCipherProducesGcmOutput() throws Exception {
+        CryptoRuntime.enableBouncyCastle();
+        SecretKey cek = newKey();
+        byte[] iv = new byte[12];
+        new Random(1).nextBytes(iv);
+        byte[] plaintext = new byte[3 * BUFFER_SIZE + 123];
+        new Random(2).nextBytes(plaintext);
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.ENCRYPT_MODE, cek, new GCMParameterSpec(128, iv));
+        byte[] expected = gcm.doFinal(plaintext);
+
+        String algorithm = ContentCryptoScheme.AES_GCM.getCipherAlgorithm();
+        CipherLite cipherLite =
+                ContentCryptoScheme.AES_GCM.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE, null);
+        byte[] actual = readFully(new CipherLiteInputStream(
+                new ByteArrayInputStream(plaintext), cipherLite, BUFFER_SIZE));
+        assertArrayEquals(expected, actual);
+        // the finished cipher went back to the pool
+        assertTrue(CipherPool.idleCount(algorithm, "BC") > 0);
+        assertArrayEquals(iv, cipherLite.getIV());
+
+        // recreating after the release reuses a pooled cipher, and the same IV
+        for (int i = 0; i < 3; ++i) {
+            CipherLite recreated = cipherLite.recreate();
+            assertArrayEquals(expected, readFully(new CipherLiteInputStream(
+                    new ByteArrayInputStream(plaintext), recreated, BUFFER_SIZE)));
+        }
+
+        CipherLite decrypter = cipherLite.createInverse();
+        assertArrayEquals(plaintext, readFully(new CipherLiteInputStream(
+                new ByteArrayInputStream(expected), decrypter, BUFFER_SIZE)));
+    }
+
+    @Test
+    public void testGcmResetAfterDoFinal() throws Exception {
+        CryptoRuntime.enableBouncyCastle();
+        SecretKey cek = newKey();
+        byte[] iv = new byte[12];
+        byte[] plaintext = new byte[BUFFER_SIZE + 40];
+        new Random(3).nextBytes(plaintext);
+        CipherLite cipherLite =
+                ContentCryptoScheme.AES_GCM.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE, null);
+        InputStream in = new RenewableCipherLiteInputStream(new ByteArrayInputStream(plaintext),
+                cipherLite, BUFFER_SIZE);
+        in.mark(-1);
+        byte[] first = readFully(in);
+        in.reset();
+        assertArrayEquals(first, readFully(in));
+        assertEquals(plaintext.length + 16, first.length);
+    }
+
+    @Test
+    public void testByteBufferUpdate() throws Exception {
+        CryptoRuntime.enableBouncyCastle();
+        SecretKey cek = newKey();
+        byte[] iv = new byte[12];
+        byte[] plaintext = new byte[10000];
+        new Random(4).nextBytes(plaintext);
+        CipherLite gcm =
+                ContentCryptoScheme.AES_GCM.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE, null);
+        byte[] expected = Arrays.copyOf(gcm.doFinal(plaintext), plaintext.length);
+
+        CipherLite ctr = ContentCryptoScheme.AES_GCM
+                .createCipherLite(cek, iv, Cipher.ENCRYPT_MODE, null).createAuxiliary(0);
+        ByteBuffer out = ByteBuffer.allocate(plaintext.length + 16);
+        ByteBuffer in = ByteBuffer.wrap(plaintext);
+        while (in.hasRemaining()) {
+            ByteBuffer chunk = in.slice();
+            chunk.limit(Math.min(chunk.remaining(), 999));
+            in.position(in.position() + chunk.remaining());
+            ctr.update(chunk, out);
+        }
+        byte[] rest = ctr.doFinal();
+        if (rest != null) {
+            out.put(rest);
+        }
+        out.flip();
+        byte[] actual = new byte[out.remaining()];
+        out.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDefaultProviderCiphersArePooled() throws Exception {
+        String algorithm = "AES/CBC/PKCS5Padding";
+        Cipher cipher = CipherPool.borrow(algorithm, null, null);
+        String providerName = cipher.getProvider().getName();
+        int idle = CipherPool.idleCount(algorithm, providerName);
+        CipherPool.release(cipher);
+        assertEquals(idle + 1, CipherPool.idleCount(algorithm, providerName));
+        // borrowed back without a provider, rather than left idle for good
+        Cipher borrowed = CipherPool.borrow(algorithm, null, null);
+        assertEquals(idle, CipherPool.idleCount(algorithm, providerName));
+        assertEquals(providerName, borrowed.getProvider().getName());
+    }
+}
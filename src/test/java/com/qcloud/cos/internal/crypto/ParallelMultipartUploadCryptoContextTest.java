@@ -0,0 +1,174 @@
+package com.qcloud.cos.internal.crypto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import com.qcloud.cos.exception.CosClientException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelMultipartUploadCryptoContextTest {
+
+    private static final int PART_SIZE = 4096;
+
+    private static SecretKey newKey() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+
+    private static ParallelMultipartUploadCryptoContext newContext(SecretKey cek, byte[] iv) {
+        CryptoRuntime.enableBouncyCastle();
+        ContentCryptoMaterial cekMaterial = ContentCryptoMaterial.wrap(cek, iv,
+                ContentCryptoScheme.AES_GCM, null, new SecuredCEK(new byte[0], null,
+                        Collections.<String, String>emptyMap()));
+        return new ParallelMultipartUploadCryptoContext("bucket", "key", cekMaterial, null);
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1000];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static InputStream encryptPart(ParallelMultipartUploadCryptoContext context,
+            byte[] plaintext, long offset, int length, boolean lastPart) throws Exception {
+        CipherLite ctr = context.getCipherLite().createAuxiliary(offset);
+        return new RenewableCipherLiteInputStream(
+                new ByteArrayInputStream(plaintext, (int) offset, length), ctr, 512, true,
+                lastPart);
+    }
+
+    @Test
+    public void testMultiplyH() throws Exception {
+        Random random = new Random(42);
+        byte[] h = new byte[16];
+        random.nextBytes(h);
+        GHash ghash = new GHash(h);
+        long[] hElement = {GHash.readLong(h, 0), GHash.readLong(h, 8)};
+        for (int i = 0; i < 100; ++i) {
+            long[] x = {random.nextLong(), random.nextLong()};
+            long[] expected = x.clone();
+            GHash.multiply(expected, hElement);
+            ghash.multiplyH(x);
+            assertArrayEquals(expected, x);
+        }
+    }
+
+    @Test
+    public void testParallelPartsMatchGcm() throws Exception {
+        SecretKey cek = newKey();
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        byte[] plaintext = new byte[3 * PART_SIZE + 100];
+        new Random(7).nextBytes(plaintext);
+
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.ENCRYPT_MODE, cek, new GCMParameterSpec(128, iv));
+        byte[] expected = gcm.doFinal(plaintext);
+
+        final ParallelMultipartUploadCryptoContext context = newContext(cek, iv);
+        final byte[][] ciphertexts = new byte[4][];
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // the last part is started first and waits for the others
+            final byte[] data = plaintext;
+            Future<?> last = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    long[] precedingHash = context.awaitPrecedingParts(4);
+                    long offset = context.lastPartOffset(4);
+                    GHashInputStream in = new GHashInputStream(
+                            encryptPart(context, data, offset, 100, true), context.getGHash(),
+                            precedingHash, offset, context.getEncryptedJ0());
+                    ciphertexts[3] = readFully(in);
+                    return null;
+                }
+            });
+            for (int partNumber = 3; partNumber >= 1; --partNumber) {
+                long offset = context.beginPart(partNumber, PART_SIZE);
+                GHashInputStream in = new GHashInputStream(
+                        encryptPart(context, plaintext, offset, PART_SIZE, false),
+                        context.getGHash());
+                // a retried part is read again from the beginning
+                in.mark(PART_SIZE);
+                readFully(in);
+                in.reset();
+                ciphertexts[partNumber - 1] = readFully(in);
+                context.partUploaded(partNumber, in.getHash());
+            }
+            last.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        for (byte[] ciphertext : ciphertexts) {
+            actual.write(ciphertext);
+        }
+        assertEquals(expected.length, actual.size());
+        assertArrayEquals(expected, actual.toByteArray());
+    }
+
+    @Test
+    public void testLastPartFailsWithPrecedingPart() throws Exception {
+        SecretKey cek = newKey();
+        byte[] iv = new byte[12];
+        ParallelMultipartUploadCryptoContext context = newContext(cek, iv);
+        context.beginPart(1, PART_SIZE);
+        context.partFailed(1);
+        try {
+            context.awaitPrecedingParts(2);
+            fail("expected the last part to fail");
+        } catch (CosClientException e) {
+            // expected
+        }
+        try {
+            context.beginPart(2, PART_SIZE * 2);
+            fail("expected parts of different sizes to be rejected");
+        } catch (CosClientException e) {
+            // expected
+        }
+        // a single part upload has nothing to wait for
+        assertArrayEquals(new long[2], context.awaitPrecedingParts(1));
+    }
+
+    @Test
+    public void testLastPartTimesOutWithoutPrecedingParts() throws Exception {
+        ParallelMultipartUploadCryptoContext context = newContext(newKey(), new byte[12]);
+        context.setPrecedingPartsTimeoutMillis(100);
+        context.beginPart(1, PART_SIZE);
+        context.partUploaded(1, new long[2]);
+        context.beginPart(2, PART_SIZE);
+        long start = System.nanoTime();
+        try {
+            context.awaitPrecedingParts(3);
+            fail("expected the last part to time out");
+        } catch (CosClientException e) {
+            // expected
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+}
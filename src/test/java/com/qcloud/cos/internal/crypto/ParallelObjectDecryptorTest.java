@@ -0,0 +1,193 @@
+package com.qcloud.cos.internal.crypto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import com.qcloud.cos.Headers;
+import com.qcloud.cos.internal.COSDirect;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectInputStream;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadResult;
+import com.qcloud.cos.model.CopyPartRequest;
+import com.qcloud.cos.model.CopyPartResult;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadResult;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.model.UploadPartResult;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class ParallelObjectDecryptorTest {
+
+    private static final int PART_SIZE = 4096;
+
+    /**
+     * Serves the ranges of an object held in memory.
+     */
+    private static class RangeCOSDirect extends COSDirect {
+        private final byte[] object;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        RangeCOSDirect(byte[] object) {
+            this.object = object;
+        }
+
+        @Override
+        public COSObject getObject(GetObjectRequest req) {
+            requests.incrementAndGet();
+            long[] range = req.getRange();
+            int start = (int) range[0];
+            int end = (int) Math.min(range[1], object.length - 1);
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(end - start + 1);
+            metadata.setHeader(Headers.CONTENT_RANGE,
+                    "bytes " + start + "-" + end + "/" + object.length);
+            metadata.setHeader(Headers.ETAG, "etag");
+            COSObject cosObject = new COSObject();
+            cosObject.setBucketName(req.getBucketName());
+            cosObject.setKey(req.getKey());
+            cosObject.setObjectMetadata(metadata);
+            cosObject.setObjectContent(new COSObjectInputStream(
+                    new ByteArrayInputStream(object, start, end - start + 1), null));
+            return cosObject;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectMetadata getObject(GetObjectRequest req, File dest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(
+                CompleteMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+                InitiateMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CopyPartResult copyPart(CopyPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static byte[] encrypt(SecretKey cek, byte[] iv, byte[] plaintext) throws Exception {
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.ENCRYPT_MODE, cek, new GCMParameterSpec(128, iv));
+        return gcm.doFinal(plaintext);
+    }
+
+    private static File newFile() throws Exception {
+        File file = File.createTempFile("ParallelObjectDecryptorTest", ".tmp");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void download(SecretKey cek, byte[] iv, RangeCOSDirect cos, int threads,
+            File file) throws Exception {
+        CryptoRuntime.enableBouncyCastle();
+        ContentCryptoMaterial cekMaterial = ContentCryptoMaterial.wrap(cek, iv,
+                ContentCryptoScheme.AES_GCM, null, new SecuredCEK(new byte[0], null,
+                        Collections.<String, String>emptyMap()));
+        ExecutorService executor = ParallelObjectDecryptor.newExecutor(threads);
+        try {
+            ParallelObjectDecryptor decryptor =
+                    new ParallelObjectDecryptor(cos, cekMaterial, null, executor, PART_SIZE);
+            GetObjectRequest req = new GetObjectRequest("bucket", "key");
+            GetObjectRequest firstReq = (GetObjectRequest) req.clone();
+            firstReq.setRange(0, PART_SIZE - 1);
+            ObjectMetadata metadata = decryptor.download(req, cos.getObject(firstReq), file);
+            assertEquals(cos.object.length, metadata.getContentLength());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDecryptedRangesMatchPlaintext() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        SecretKey cek = generator.generateKey();
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        // the tag straddles the last two ranges
+        for (int length : new int[] {0, 100, PART_SIZE - 8, 5 * PART_SIZE + 77}) {
+            byte[] plaintext = new byte[length];
+            new Random(length).nextBytes(plaintext);
+            RangeCOSDirect cos = new RangeCOSDirect(encrypt(cek, iv, plaintext));
+            File file = newFile();
+            download(cek, iv, cos, 4, file);
+            assertArrayEquals(plaintext, Files.readAllBytes(file.toPath()));
+            assertEquals((length + 16 + PART_SIZE - 1) / PART_SIZE, cos.requests.get());
+        }
+    }
+
+    @Test
+    public void testTamperedCiphertextIsRejected() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(128);
+        SecretKey cek = generator.generateKey();
+        byte[] iv = new byte[12];
+        byte[] plaintext = new byte[3 * PART_SIZE + 5];
+        new Random(3).nextBytes(plaintext);
+        byte[] ciphertext = encrypt(cek, iv, plaintext);
+        ciphertext[2 * PART_SIZE + 1] ^= 1;
+        File file = newFile();
+        try {
+            download(cek, iv, new RangeCOSDirect(ciphertext), 2, file);
+            fail("expected the tag check to fail");
+        } catch (SecurityException e) {
+            // expected
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testAlignPartSize() {
+        assertEquals(16, ParallelObjectDecryptor.alignPartSize(0));
+        assertEquals(32, ParallelObjectDecryptor.alignPartSize(17));
+        assertEquals(PART_SIZE, ParallelObjectDecryptor.alignPartSize(PART_SIZE));
+        assertFalse(ParallelObjectDecryptor.alignPartSize(PART_SIZE + 1) == PART_SIZE);
+    }
+}
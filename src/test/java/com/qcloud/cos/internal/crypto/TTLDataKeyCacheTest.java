@@ -0,0 +1,165 @@
+package com.qcloud.cos.internal.crypto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TTLDataKeyCacheTest {
+
+    /**
+     * Derives data keys from their blob instead of calling the key management service.
+     */
+    private static class FakeKMS implements QCLOUDKMS {
+        private final AtomicInteger decrypts = new AtomicInteger();
+        private final AtomicInteger generates = new AtomicInteger();
+
+        @Override
+        public byte[] decrypt(byte[] ciphertextBlob, Map<String, String> encryptionContext) {
+            decrypts.incrementAndGet();
+            return plaintextOf(ciphertextBlob);
+        }
+
+        @Override
+        public DataKey generateDataKey(String keyId, String keySpec,
+                Map<String, String> encryptionContext) {
+            byte[] blob = {(byte) generates.incrementAndGet()};
+            return new DataKey(plaintextOf(blob), blob);
+        }
+
+        static byte[] plaintextOf(byte[] blob) {
+            byte[] plaintext = new byte[32];
+            for (int i = 0; i < plaintext.length; ++i) {
+                plaintext[i] = (byte) (blob[0] + i);
+            }
+            return plaintext;
+        }
+    }
+
+    private static class ManualClockCache extends TTLDataKeyCache {
+        private long now;
+
+        ManualClockCache(int maxEntries, long ttlMillis, int maxDataKeyUses,
+                long dataKeyTtlMillis) {
+            super(maxEntries, ttlMillis, maxDataKeyUses, dataKeyTtlMillis);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static Map<String, String> context(String value) {
+        Map<String, String> context = new HashMap<String, String>();
+        context.put(KMSEncryptionMaterials.CUSTOMER_MASTER_KEY_ID, "cmk");
+        context.put("purpose", value);
+        return context;
+    }
+
+    @Test
+    public void testDecryptIsCachedByBlobAndContext() {
+        FakeKMS fake = new FakeKMS();
+        ManualClockCache cache = new ManualClockCache(2, 1000, 1, 0);
+        QCLOUDKMS kms = new CachingQCLOUDKMS(fake, cache);
+        byte[] blob = {1};
+
+        assertArrayEquals(FakeKMS.plaintextOf(blob), kms.decrypt(blob, context("a")));
+        assertArrayEquals(FakeKMS.plaintextOf(blob), kms.decrypt(blob.clone(), context("a")));
+        assertEquals(1, fake.decrypts.get());
+        // a different materials description is a different key
+        kms.decrypt(blob, context("b"));
+        assertEquals(2, fake.decrypts.get());
+        // expired
+        cache.now = 1000;
+        kms.decrypt(blob, context("a"));
+        assertEquals(3, fake.decrypts.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        FakeKMS fake = new FakeKMS();
+        QCLOUDKMS kms = new CachingQCLOUDKMS(fake, new TTLDataKeyCache(2, 1000));
+        kms.decrypt(new byte[] {1}, context("a"));
+        kms.decrypt(new byte[] {2}, context("a"));
+        kms.decrypt(new byte[] {1}, context("a"));
+        kms.decrypt(new byte[] {3}, context("a"));
+        assertEquals(3, fake.decrypts.get());
+        kms.decrypt(new byte[] {1}, context("a"));
+        assertEquals(3, fake.decrypts.get());
+        kms.decrypt(new byte[] {2}, context("a"));
+        assertEquals(4, fake.decrypts.get());
+    }
+
+    @Test
+    public void testDataKeyReuseLimits() {
+        FakeKMS fake = new FakeKMS();
+        ManualClockCache cache = new ManualClockCache(10, 1000, 3, 500);
+        QCLOUDKMS kms = new CachingQCLOUDKMS(fake, cache);
+
+        DataKey first = kms.generateDataKey("cmk", "AES_256", context("a"));
+        assertSame(first, kms.generateDataKey("cmk", "AES_256", context("a")));
+        assertSame(first, kms.generateDataKey("cmk", "AES_256", context("a")));
+        // N objects per key
+        DataKey second = kms.generateDataKey("cmk", "AES_256", context("a"));
+        assertNotSame(first, second);
+        assertEquals(2, fake.generates.get());
+        // T seconds per key
+        cache.now = 500;
+        assertNotSame(second, kms.generateDataKey("cmk", "AES_256", context("a")));
+        assertEquals(3, fake.generates.get());
+        // a generated key is readable without calling KMS
+        kms.decrypt(first.getCiphertextBlob(), context("a"));
+        assertEquals(0, fake.decrypts.get());
+    }
+
+    @Test
+    public void testNoReuseByDefault() {
+        FakeKMS fake = new FakeKMS();
+        QCLOUDKMS kms = new CachingQCLOUDKMS(fake, new TTLDataKeyCache());
+        Map<String, String> context = Collections.emptyMap();
+        kms.generateDataKey("cmk", "AES_256", context);
+        kms.generateDataKey("cmk", "AES_256", context);
+        assertEquals(2, fake.generates.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDataKeyIsEvicted() {
+        FakeKMS fake = new FakeKMS();
+        QCLOUDKMS kms = new CachingQCLOUDKMS(fake, new TTLDataKeyCache(2, 1000, 10, 1000));
+        DataKey a = kms.generateDataKey("cmk", "AES_256", context("a"));
+        kms.generateDataKey("cmk", "AES_256", context("b"));
+        assertSame(a, kms.generateDataKey("cmk", "AES_256", context("a")));
+        kms.generateDataKey("cmk", "AES_256", context("c"));
+        assertEquals(3, fake.generates.get());
+        assertSame(a, kms.generateDataKey("cmk", "AES_256", context("a")));
+        kms.generateDataKey("cmk", "AES_256", context("b"));
+        assertEquals(4, fake.generates.get());
+    }
+
+    @Test
+    public void testConfigurationIsSerializedWithoutCache() throws Exception {
+        CryptoConfiguration config =
+                new CryptoConfiguration().withDataKeyCache(new TTLDataKeyCache());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(config);
+        out.close();
+        CryptoConfiguration copy = (CryptoConfiguration) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertNull(copy.getDataKeyCache());
+        assertEquals(config.getCryptoMode(), copy.getCryptoMode());
+    }
+}
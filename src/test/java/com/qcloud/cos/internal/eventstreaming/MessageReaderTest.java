@@ -0,0 +1,166 @@
+package com.qcloud.cos.internal.eventstreaming;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.internal.SdkFilterInputStream;
+import com.qcloud.cos.model.SelectObjectContentEventStream;
+import com.qcloud.cos.utils.IOUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessageReaderTest {
+
+    private static Message recordsMessage(byte[] payload) {
+        Map<String, HeaderValue> headers = new LinkedHashMap<String, HeaderValue>();
+        headers.put(":message-type", HeaderValue.fromString("event"));
+        headers.put(":request-id", HeaderValue.fromUuid(UUID.randomUUID()));
+        headers.put(":event-type", HeaderValue.fromString("Records"));
+        headers.put(":content-type", HeaderValue.fromString("application/octet-stream"));
+        return new Message(headers, payload);
+    }
+
+    private static Message endMessage() {
+        Map<String, HeaderValue> headers = new LinkedHashMap<String, HeaderValue>();
+        headers.put(":message-type", HeaderValue.fromString("event"));
+        headers.put(":event-type", HeaderValue.fromString("End"));
+        return new Message(headers, new byte[0]);
+    }
+
+    private static byte[] encode(Message... messages) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Message message : messages) {
+            message.encode(out);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns at most 7 bytes per read, as a slow connection.
+     */
+    private static InputStream trickle(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    @Test
+    public void testReadsMessagesOfAnySize() throws Exception {
+        byte[][] payloads = {randomBytes(100), randomBytes(1024 * 1024), randomBytes(3),
+                randomBytes(200 * 1024)};
+        Message[] messages = new Message[payloads.length];
+        for (int i = 0; i < payloads.length; ++i) {
+            messages[i] = recordsMessage(payloads[i]);
+        }
+
+        for (InputStream in : new InputStream[] {new ByteArrayInputStream(encode(messages)),
+                trickle(encode(messages))}) {
+            MessageReader reader = new MessageReader(in, 4096);
+            List<ByteBuffer> read = new ArrayList<ByteBuffer>();
+            for (int i = 0; i < payloads.length; ++i) {
+                assertTrue(reader.next());
+                assertEquals("event", reader.getStringHeader(":message-type"));
+                assertEquals("Records", reader.getStringHeader(":event-type"));
+                assertNull(reader.getStringHeader(":error-code"));
+                assertEquals(messages[i], reader.toMessage());
+                read.add(reader.getPayload());
+            }
+            assertFalse(reader.next());
+            assertFalse(reader.hasPendingContent());
+            // the payloads are not overwritten by the next messages
+            for (int i = 0; i < payloads.length; ++i) {
+                assertArrayEquals(payloads[i], toArray(read.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsCorruptedMessages() throws Exception {
+        byte[] bytes = encode(recordsMessage(randomBytes(100)));
+        bytes[bytes.length - 10] ^= 1;
+        try {
+            new MessageReader(new ByteArrayInputStream(bytes)).next();
+            fail();
+        } catch (CosClientException expected) {
+        }
+
+        bytes = encode(recordsMessage(randomBytes(100)));
+        bytes[2] ^= 1;
+        try {
+            new MessageReader(new ByteArrayInputStream(bytes)).next();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testDetectsTruncatedStream() throws Exception {
+        byte[] bytes = encode(recordsMessage(randomBytes(100)), recordsMessage(randomBytes(100)));
+        MessageReader reader =
+                new MessageReader(new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+        assertTrue(reader.next());
+        assertFalse(reader.next());
+        assertTrue(reader.hasPendingContent());
+    }
+
+    @Test
+    public void testReadsRecordsOfSelectResponse() throws Exception {
+        byte[] first = randomBytes(300 * 1024);
+        byte[] second = randomBytes(1000);
+        byte[] response = encode(recordsMessage(first), recordsMessage(second), endMessage());
+
+        SelectObjectContentEventStream stream =
+                new SelectObjectContentEventStream(new SdkFilterInputStream(trickle(response)) {
+                });
+        byte[] records = IOUtils.toByteArray(stream.getRecordsInputStream());
+        stream.close();
+
+        ByteBuffer expected = ByteBuffer.allocate(first.length + second.length);
+        expected.put(first).put(second);
+        assertArrayEquals(expected.array(), records);
+    }
+
+    @Test
+    public void testDecoderFedBigMessages() {
+        byte[] payload = randomBytes(512 * 1024);
+        byte[] bytes = encode(recordsMessage(payload));
+        MessageDecoder decoder = new MessageDecoder();
+        List<Message> messages = decoder.feed(bytes);
+        assertEquals(1, messages.size());
+        assertArrayEquals(payload, messages.get(0).getPayload());
+        assertFalse(decoder.hasPendingContent());
+    }
+}
@@ -0,0 +1,138 @@
+package com.qcloud.cos.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.qcloud.cos.internal.SdkFilterInputStream;
+import com.qcloud.cos.internal.eventstreaming.HeaderValue;
+import com.qcloud.cos.internal.eventstreaming.Message;
+import com.qcloud.cos.utils.StringUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class SelectRecordReaderTest {
+
+    private static OutputSerialization csv() {
+        return new OutputSerialization().withCsv(new CSVOutput());
+    }
+
+    /**
+     * Cuts the content into payloads at the given offsets.
+     */
+    private static List<ByteBuffer> payloads(byte[] content, int... cuts) {
+        List<ByteBuffer> payloads = new ArrayList<ByteBuffer>();
+        int start = 0;
+        for (int cut : cuts) {
+            payloads.add(ByteBuffer.wrap(content, start, cut - start).slice());
+            start = cut;
+        }
+        payloads.add(ByteBuffer.wrap(content, start, content.length - start).slice());
+        return payloads;
+    }
+
+    private static List<List<String>> readFields(SelectRecordReader reader) {
+        List<List<String>> records = new ArrayList<List<String>>();
+        while (reader.next()) {
+            List<String> fields = new ArrayList<String>();
+            for (int i = 0; i < reader.getFieldCount(); ++i) {
+                fields.add(reader.getField(i).toString());
+            }
+            records.add(fields);
+        }
+        return records;
+    }
+
+    @Test
+    public void testSplitsCsvRecordsAcrossPayloads() {
+        String content = "1,plain,\"with, comma\"\n"
+                + "2,\"say \"\"hi\"\"\",\"two\nlines\"\n"
+                + "3,héllo 世界,\n"
+                + "4,last,no delimiter";
+        List<List<String>> expected = Arrays.asList(
+                Arrays.asList("1", "plain", "with, comma"),
+                Arrays.asList("2", "say \"hi\"", "two\nlines"),
+                Arrays.asList("3", "héllo 世界", ""),
+                Arrays.asList("4", "last", "no delimiter"));
+        byte[] bytes = content.getBytes(StringUtils.UTF8);
+        assertEquals(expected, readFields(new SelectRecordReader(
+                payloads(bytes).iterator(), csv(), null)));
+        // every place a payload can end, including within a character
+        for (int cut = 1; cut < bytes.length; ++cut) {
+            assertEquals(expected, readFields(new SelectRecordReader(
+                    payloads(bytes, cut / 2, cut).iterator(), csv(), null)));
+        }
+    }
+
+    @Test
+    public void testUsesOutputSettings() {
+        CSVOutput csvOutput = new CSVOutput();
+        csvOutput.setRecordDelimiter(';');
+        csvOutput.setFieldDelimiter('|');
+        csvOutput.setQuoteCharacter('\'');
+        csvOutput.setQuoteEscapeCharacter('\\');
+        byte[] bytes = "a|'b;\\'c'|d;e|f;".getBytes(StringUtils.UTF8);
+        SelectRecordReader reader = new SelectRecordReader(payloads(bytes, 5).iterator(),
+                new OutputSerialization().withCsv(csvOutput), null);
+        assertEquals(Arrays.asList(Arrays.asList("a", "b;'c", "d"), Arrays.asList("e", "f")),
+                readFields(reader));
+    }
+
+    @Test
+    public void testSplitsJsonRecords() {
+        byte[] bytes = "{\"a\":1}\n{\"a\":\"x\\ny\"}\n".getBytes(StringUtils.UTF8);
+        SelectRecordReader reader = new SelectRecordReader(payloads(bytes, 10).iterator(),
+                new OutputSerialization().withJson(new JSONOutput()), null);
+        List<String> records = new ArrayList<String>();
+        while (reader.next()) {
+            records.add(reader.getText().toString());
+            assertEquals(reader.getText().length(), reader.getBytes().remaining());
+        }
+        assertEquals(Arrays.asList("{\"a\":1}", "{\"a\":\"x\\ny\"}"), records);
+        try {
+            reader.getFieldCount();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testReadsRecordsInPlace() {
+        byte[] bytes = "a,b\nc,d\n".getBytes(StringUtils.UTF8);
+        SelectRecordReader reader =
+                new SelectRecordReader(payloads(bytes).iterator(), csv(), null);
+        reader.next();
+        ByteBuffer record = reader.getBytes();
+        assertEquals(3, record.remaining());
+        bytes[0] = 'z';
+        assertEquals('z', record.get(0));
+    }
+
+    @Test
+    public void testReadsRecordsOfEventStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String payload : new String[] {"1,a\n2,", "b\n", "3,c\n"}) {
+            Map<String, HeaderValue> headers = new LinkedHashMap<String, HeaderValue>();
+            headers.put(":message-type", HeaderValue.fromString("event"));
+            headers.put(":event-type", HeaderValue.fromString("Records"));
+            new Message(headers, payload.getBytes(StringUtils.UTF8)).encode(out);
+        }
+        SelectObjectContentEventStream stream = new SelectObjectContentEventStream(
+                new SdkFilterInputStream(new ByteArrayInputStream(out.toByteArray())) {
+                });
+        SelectRecordReader reader = stream.getRecordReader(csv());
+        assertEquals(Arrays.asList(Arrays.asList("1", "a"), Arrays.asList("2", "b"),
+                Arrays.asList("3", "c")), readFields(reader));
+        assertFalse(reader.next());
+        reader.close();
+    }
+}
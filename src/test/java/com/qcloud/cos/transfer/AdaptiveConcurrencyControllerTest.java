@@ -0,0 +1,60 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.Test;
+
+import static com.qcloud.cos.internal.Constants.MB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyControllerTest {
+
+    private static void completeParts(AdaptiveConcurrencyController controller, int count,
+            long bytes, long elapsedNanos) throws InterruptedException {
+        for (int i = 0; i < count; ++i) {
+            controller.acquire();
+            controller.release(bytes, elapsedNanos, true);
+        }
+    }
+
+    @Test
+    public void testSlowStartAndBounds() throws Exception {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1, 8, 0);
+        assertEquals(1, controller.getLimit());
+        long bytes = 1;
+        for (int i = 0; i < 10; ++i) {
+            // every window transfers twice as much as the previous one
+            bytes *= 2;
+            completeParts(controller, controller.getLimit(), bytes * MB, 1000L * 1000L);
+        }
+        assertEquals(8, controller.getLimit());
+    }
+
+    @Test
+    public void testDecreaseOnFailure() throws Exception {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(2, 16, 0);
+        completeParts(controller, 2, MB, 1000L * 1000L);
+        assertEquals(4, controller.getLimit());
+        controller.acquire();
+        controller.release(MB, 1000L * 1000L, false);
+        assertEquals(3, controller.getLimit());
+        controller.acquire();
+        controller.release(MB, 1000L * 1000L, false);
+        controller.acquire();
+        controller.release(MB, 1000L * 1000L, false);
+        assertEquals(2, controller.getLimit());
+    }
+
+    @Test
+    public void testRecommendPartSize() throws Exception {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1, 4, 0);
+        // nothing measured yet, use the configured minimum
+        assertEquals(5 * MB, controller.recommendPartSize(1024L * MB, 5 * MB));
+        // 10MB/s per part, parts of about 4 seconds
+        completeParts(controller, 1, 10 * MB, 1000L * 1000L * 1000L);
+        long partSize = controller.recommendPartSize(1024L * MB, 5 * MB);
+        assertEquals(40 * MB, partSize);
+        // never more than the maximum part count
+        long hugeObject = 10000L * 1024 * MB;
+        assertTrue(controller.recommendPartSize(hugeObject, 5 * MB) * 10000 >= hugeObject);
+    }
+}
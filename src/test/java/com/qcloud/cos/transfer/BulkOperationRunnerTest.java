@@ -0,0 +1,272 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObjectSummary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkOperationRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> keys(int count) {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < count; ++i) {
+            keys.add(String.format("key-%05d", i));
+        }
+        return keys;
+    }
+
+    private static CosServiceException serviceException(int statusCode) {
+        CosServiceException e = new CosServiceException("status " + statusCode);
+        e.setStatusCode(statusCode);
+        return e;
+    }
+
+    /**
+     * Records every call, and fails the keys given the number of times given.
+     */
+    private static class RecordingOperation implements BulkOperation {
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<String, AtomicInteger>();
+        final Map<String, Integer> failures = new ConcurrentHashMap<String, Integer>();
+        final Set<String> missing = new HashSet<String>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile int maxInFlight;
+
+        @Override
+        public void apply(COSObjectSummary object) {
+            String key = object.getKey();
+            calls.putIfAbsent(key, new AtomicInteger());
+            int call = calls.get(key).incrementAndGet();
+            int current = inFlight.incrementAndGet();
+            synchronized (this) {
+                maxInFlight = Math.max(maxInFlight, current);
+            }
+            try {
+                Thread.sleep(1);
+                if (missing.contains(key)) {
+                    throw serviceException(404);
+                }
+                Integer failing = failures.get(key);
+                if (failing != null && call <= failing) {
+                    throw serviceException(503);
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static class RecordingSink implements BulkResultSink {
+        final Set<String> succeeded = Collections.synchronizedSet(new HashSet<String>());
+        final Map<String, Exception> failed = new ConcurrentHashMap<String, Exception>();
+
+        @Override
+        public void onSuccess(COSObjectSummary object) {
+            succeeded.add(object.getKey());
+        }
+
+        @Override
+        public void onFailure(COSObjectSummary object, Exception e) {
+            failed.put(object.getKey(), e);
+        }
+    }
+
+    @Test
+    public void testAppliesToEveryKey() throws Exception {
+        RecordingOperation operation = new RecordingOperation();
+        RecordingSink sink = new RecordingSink();
+        BulkOperationResult result = new BulkOperationRunner(BulkKeySources.of(keys(500)),
+                operation, sink, new BulkOperationOptions().withConcurrency(2, 6)).run();
+        assertEquals(500, result.getSucceededCount());
+        assertEquals(0, result.getFailedCount());
+        assertNull(result.getResumedAfter());
+        assertEquals(500, sink.succeeded.size());
+        assertEquals(500, operation.calls.size());
+        assertTrue(operation.maxInFlight <= 6);
+    }
+
+    @Test
+    public void testRetriesRetryableErrorsOnly() throws Exception {
+        RecordingOperation operation = new RecordingOperation();
+        operation.failures.put("key-00003", 2);
+        operation.failures.put("key-00007", 5);
+        operation.missing.add("key-00009");
+        RecordingSink sink = new RecordingSink();
+        BulkOperationResult result = new BulkOperationRunner(BulkKeySources.of(keys(20)),
+                operation, sink, new BulkOperationOptions().withMaxRetries(2)).run();
+        assertEquals(18, result.getSucceededCount());
+        assertEquals(2, result.getFailedCount());
+        assertEquals(3, operation.calls.get("key-00003").get());
+        assertTrue(sink.succeeded.contains("key-00003"));
+        // two retries are not enough
+        assertEquals(3, operation.calls.get("key-00007").get());
+        assertEquals(503,
+                ((CosServiceException) sink.failed.get("key-00007")).getStatusCode());
+        // not found is not retried
+        assertEquals(1, operation.calls.get("key-00009").get());
+        assertEquals(404,
+                ((CosServiceException) sink.failed.get("key-00009")).getStatusCode());
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws Exception {
+        final List<String> keys = keys(300);
+        File checkpoint = new File(folder.getRoot(), "bulk.checkpoint");
+        BulkOperationOptions options = new BulkOperationOptions().withCheckpointFile(checkpoint);
+
+        // the source breaks down in the middle of the first run
+        BulkKeySource breaking = new BulkKeySource() {
+            @Override
+            public Iterator<COSObjectSummary> iterator(String startAfter) {
+                final Iterator<COSObjectSummary> it = BulkKeySources.of(keys).iterator(null);
+                return new Iterator<COSObjectSummary>() {
+                    int count;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (count == 120) {
+                            throw new IllegalStateException("listing failed");
+                        }
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public COSObjectSummary next() {
+                        ++count;
+                        return it.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+        RecordingOperation first = new RecordingOperation();
+        try {
+            new BulkOperationRunner(breaking, first, null, options).run();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(120, first.calls.size());
+        BulkCheckpoint saved = BulkCheckpoint.load(checkpoint);
+        assertEquals("key-00119", saved.getLastKey());
+        assertEquals(120, saved.getSucceededCount());
+
+        RecordingOperation second = new RecordingOperation();
+        BulkOperationResult result = new BulkOperationRunner(BulkKeySources.of(keys), second,
+                null, options).run();
+        assertEquals("key-00119", result.getResumedAfter());
+        assertEquals(180, second.calls.size());
+        assertNull(second.calls.get("key-00119"));
+        assertEquals(300, result.getSucceededCount());
+        assertTrue(BulkCheckpoint.load(checkpoint).isCompleted());
+
+        // a completed operation is not run again
+        RecordingOperation third = new RecordingOperation();
+        result = new BulkOperationRunner(BulkKeySources.of(keys), third, null, options).run();
+        assertEquals(300, result.getSucceededCount());
+        assertTrue(third.calls.isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testCompletesObjectsWhoseOperationThrowsAnError() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        BulkOperation operation = new BulkOperation() {
+            @Override
+            public void apply(COSObjectSummary object) {
+                calls.incrementAndGet();
+                if (object.getKey().equals("key-00005")) {
+                    throw new AssertionError("broken operation");
+                }
+            }
+        };
+        RecordingSink sink = new RecordingSink();
+        BulkOperationResult result = new BulkOperationRunner(BulkKeySources.of(keys(20)),
+                operation, sink, new BulkOperationOptions()).run();
+        assertEquals(20, calls.get());
+        assertEquals(19, result.getSucceededCount());
+        assertEquals(1, result.getFailedCount());
+        assertEquals(19, sink.succeeded.size());
+    }
+
+    @Test
+    public void testResumesAfterKeyGoneFromSource() throws Exception {
+        List<String> keys = keys(10);
+        keys.remove("key-00004");
+        Iterator<COSObjectSummary> it = BulkKeySources.of(keys).iterator("key-00004");
+        assertEquals("key-00005", it.next().getKey());
+
+        it = BulkKeySources.of(keys).iterator("key-00009");
+        assertTrue(!it.hasNext());
+    }
+
+    @Test
+    public void testClosesTheKeyIterator() throws Exception {
+        final AtomicInteger closed = new AtomicInteger();
+        BulkKeySource source = new BulkKeySource() {
+            @Override
+            public Iterator<COSObjectSummary> iterator(String startAfter) {
+                final Iterator<COSObjectSummary> it = BulkKeySources.of(keys(10)).iterator(null);
+                return new ClosingIterator(it, closed);
+            }
+        };
+        new BulkOperationRunner(source, new RecordingOperation(), null,
+                new BulkOperationOptions()).run();
+        assertEquals(1, closed.get());
+    }
+
+    private static class ClosingIterator implements Iterator<COSObjectSummary>, Closeable {
+        private final Iterator<COSObjectSummary> it;
+        private final AtomicInteger closed;
+
+        ClosingIterator(Iterator<COSObjectSummary> it, AtomicInteger closed) {
+            this.it = it;
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public COSObjectSummary next() {
+            return it.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+}
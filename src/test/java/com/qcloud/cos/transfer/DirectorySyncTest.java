@@ -0,0 +1,320 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.DeleteObjectRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.transfer.LocalFileWalker.LocalFile;
+import com.qcloud.cos.utils.Md5Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DirectorySyncTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final FakeBucket bucket = new FakeBucket();
+    private TransferManager transferManager;
+    private File directory;
+    private File indexFile;
+
+    private static class StoredObject {
+        final byte[] content;
+        final Date lastModified;
+
+        StoredObject(byte[] content, Date lastModified) {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A bucket listed a few keys at a time.
+     */
+    private static class FakeBucket extends FakeCos {
+        final TreeMap<String, StoredObject> objects = new TreeMap<String, StoredObject>();
+        final AtomicInteger puts = new AtomicInteger();
+        final AtomicInteger gets = new AtomicInteger();
+        int pageSize = 3;
+        // the key whose put throws an Error
+        volatile String brokenKey;
+
+        public ObjectListing listObjects(ListObjectsRequest req) {
+            return list(req.getPrefix(), req.getMarker());
+        }
+
+        public ObjectListing listNextBatchOfObjects(ObjectListing previous) {
+            return list(previous.getPrefix(), previous.getNextMarker());
+        }
+
+        public synchronized void deleteObject(DeleteObjectRequest req) {
+            objects.remove(req.getKey());
+        }
+
+        synchronized void store(String key, byte[] content, long lastModified) {
+            objects.put(key, new StoredObject(content, new Date(lastModified)));
+        }
+
+        private synchronized ObjectListing list(String prefix, String marker) {
+            ObjectListing listing = new ObjectListing();
+            listing.setPrefix(prefix);
+            Map<String, StoredObject> tail =
+                    marker == null ? objects : objects.tailMap(marker, false);
+            for (Map.Entry<String, StoredObject> entry : tail.entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    continue;
+                }
+                if (listing.getObjectSummaries().size() == pageSize) {
+                    listing.setTruncated(true);
+                    listing.setNextMarker(
+                            listing.getObjectSummaries().get(pageSize - 1).getKey());
+                    break;
+                }
+                COSObjectSummary summary = new COSObjectSummary();
+                summary.setKey(entry.getKey());
+                summary.setSize(entry.getValue().content.length);
+                summary.setETag(Md5Utils.md5Hex(entry.getValue().content));
+                summary.setLastModified(entry.getValue().lastModified);
+                listing.getObjectSummaries().add(summary);
+            }
+            return listing;
+        }
+
+        public PutObjectResult putObject(PutObjectRequest req) throws IOException {
+            puts.incrementAndGet();
+            if (req.getKey().equals(brokenKey)) {
+                throw new AssertionError("broken put");
+            }
+            byte[] content = Files.readAllBytes(req.getFile().toPath());
+            store(req.getKey(), content, System.currentTimeMillis());
+            PutObjectResult result = new PutObjectResult();
+            result.setETag(Md5Utils.md5Hex(content));
+            return result;
+        }
+
+        public ObjectMetadata getObject(GetObjectRequest req, File file) throws IOException {
+            gets.incrementAndGet();
+            StoredObject object;
+            synchronized (this) {
+                object = objects.get(req.getKey());
+            }
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(object.content);
+            } finally {
+                out.close();
+            }
+            return new ObjectMetadata();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        transferManager = new TransferManager(bucket.proxy(), executor, false);
+        directory = Files.createTempDirectory("sync").toFile();
+        indexFile = File.createTempFile("sync", ".index");
+        indexFile.delete();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        delete(directory);
+        indexFile.delete();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File write(String path, String content, long lastModified) throws IOException {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+    private SyncOptions options() {
+        return new SyncOptions().withConcurrency(3).withDeleteExtraneous(true)
+                .withIndexFile(indexFile);
+    }
+
+    @Test
+    public void testWalksFilesInKeyOrder() throws IOException {
+        long now = System.currentTimeMillis();
+        for (String path : new String[] {"a0", "a/c", "a.txt", "a/b/d", "b", "a/b.x"}) {
+            write(path, path, now);
+        }
+        List<String> keys = new ArrayList<String>();
+        LocalFileWalker walker = new LocalFileWalker(directory.toPath(), true);
+        while (walker.hasNext()) {
+            LocalFile file = walker.next();
+            keys.add(file.relativeKey);
+            assertEquals(file.relativeKey.length(), file.size);
+        }
+        List<String> sorted = new ArrayList<String>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(6, keys.size());
+
+        assertTrue(DirectorySync.compareKeys("a\uffff", "a\ud83d\ude00") < 0);
+        assertEquals("k\\\\\\t\\n", SyncIndex.escape("k\\\t\n"));
+        assertEquals("k\\\t\n", SyncIndex.unescape(SyncIndex.escape("k\\\t\n")));
+    }
+
+    @Test
+    public void testUploadsChangedFilesAndDeletesExtraneousObjects() throws IOException {
+        long hourAgo = System.currentTimeMillis() - 3600 * 1000;
+        write("same", "same", hourAgo);
+        write("longer", "longer content", hourAgo);
+        write("newer", "newer", System.currentTimeMillis());
+        write("dir/new", "new", hourAgo);
+        bucket.store("p/same", "same".getBytes("UTF-8"), System.currentTimeMillis());
+        bucket.store("p/longer", "short".getBytes("UTF-8"), System.currentTimeMillis());
+        bucket.store("p/newer", "older".getBytes("UTF-8"), hourAgo);
+        bucket.store("p/extra", "extra".getBytes("UTF-8"), hourAgo);
+        bucket.store("q/other", "other".getBytes("UTF-8"), hourAgo);
+
+        SyncResult result = transferManager.sync(directory, BUCKET, "p", SyncDirection.UPLOAD,
+                options());
+        assertEquals(3, result.getTransferredCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(1, result.getDeletedCount());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals("[p/dir/new, p/longer, p/newer, p/same, q/other]",
+                bucket.objects.keySet().toString());
+        assertArrayEquals("newer".getBytes("UTF-8"), bucket.objects.get("p/newer").content);
+
+        result = transferManager.sync(directory, BUCKET, "p/", SyncDirection.UPLOAD,
+                options().withChecksumComparison(true));
+        assertEquals(0, result.getTransferredCount());
+        assertEquals(4, result.getUnchangedCount());
+        assertEquals(0, result.getHashedCount());
+        assertEquals(3, bucket.puts.get());
+    }
+
+    @Test
+    public void testComparesChecksumsOfFilesOfTheSameSize() throws IOException {
+        long hourAgo = System.currentTimeMillis() - 3600 * 1000;
+        write("changed", "after", hourAgo);
+        write("same", "same", System.currentTimeMillis());
+        bucket.store("changed", "befor".getBytes("UTF-8"), System.currentTimeMillis());
+        bucket.store("same", "same".getBytes("UTF-8"), hourAgo);
+
+        SyncResult result = transferManager.sync(directory, BUCKET, "", SyncDirection.UPLOAD,
+                options().withChecksumComparison(true));
+        assertEquals(2, result.getHashedCount());
+        assertEquals(1, result.getTransferredCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertArrayEquals("after".getBytes("UTF-8"), bucket.objects.get("changed").content);
+    }
+
+    @Test
+    public void testDownloadsChangedObjectsAndDeletesExtraneousFiles() throws IOException {
+        long hourAgo = System.currentTimeMillis() - 3600 * 1000;
+        write("same", "same", System.currentTimeMillis());
+        write("older", "older", hourAgo);
+        File extra = write("sub/extra", "extra", hourAgo);
+        bucket.store("p/same", "same".getBytes("UTF-8"), hourAgo);
+        bucket.store("p/older", "newer".getBytes("UTF-8"), System.currentTimeMillis());
+        bucket.store("p/sub/dir/new", "new".getBytes("UTF-8"), hourAgo);
+        bucket.store("p/sub/", new byte[0], hourAgo);
+        bucket.store("p/../escape", "escape".getBytes("UTF-8"), hourAgo);
+
+        SyncResult result = transferManager.sync(directory, BUCKET, "p/", SyncDirection.DOWNLOAD,
+                options());
+        assertEquals(2, result.getTransferredCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(1, result.getFailures().size());
+        assertEquals("p/../escape", result.getFailures().get(0).getKey());
+        assertFalse(extra.exists());
+        assertFalse(new File(directory.getParentFile(), "escape").exists());
+        File downloaded = new File(directory, "sub/dir/new");
+        assertEquals("new", new String(Files.readAllBytes(downloaded.toPath()), "UTF-8"));
+        assertEquals(hourAgo / 1000, downloaded.lastModified() / 1000);
+        assertEquals("newer",
+                new String(Files.readAllBytes(new File(directory, "older").toPath()), "UTF-8"));
+
+        result = transferManager.sync(directory, BUCKET, "p/", SyncDirection.DOWNLOAD,
+                options());
+        assertEquals(0, result.getTransferredCount());
+        assertEquals(3, result.getUnchangedCount());
+        assertEquals(2, bucket.gets.get());
+    }
+
+    @Test
+    public void testIndexEntryWithoutETagIsCompared() throws IOException {
+        long hourAgo = System.currentTimeMillis() - 3600 * 1000;
+        File file = write("same", "same", hourAgo);
+        bucket.store("same", "same".getBytes("UTF-8"), hourAgo);
+        Files.write(indexFile.toPath(), ("same\t4\t" + file.lastModified() + "\t4\t\n")
+                .getBytes("UTF-8"));
+
+        SyncResult result = transferManager.sync(directory, BUCKET, "", SyncDirection.UPLOAD,
+                options().withChecksumComparison(true));
+        assertEquals(1, result.getHashedCount());
+        assertEquals(1, result.getUnchangedCount());
+    }
+
+    @Test
+    public void testErrorOfTransferIsReported() throws IOException {
+        long now = System.currentTimeMillis();
+        for (String path : new String[] {"a", "b", "c", "d"}) {
+            write(path, path, now);
+        }
+        bucket.brokenKey = "p/b";
+
+        SyncResult result = transferManager.sync(directory, BUCKET, "p", SyncDirection.UPLOAD,
+                options());
+        assertEquals(3, result.getTransferredCount());
+        assertEquals(1, result.getFailures().size());
+        assertEquals("p/b", result.getFailures().get(0).getKey());
+        // the files after the broken one are still in the index
+        List<String> indexed = new ArrayList<String>();
+        for (String line : Files.readAllLines(indexFile.toPath(), Charset.forName("UTF-8"))) {
+            indexed.add(line.substring(0, line.indexOf('\t')));
+        }
+        assertEquals(Arrays.asList("p/a", "p/c", "p/d"), indexed);
+    }
+}
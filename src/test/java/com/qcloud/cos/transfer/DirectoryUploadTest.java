@@ -0,0 +1,261 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.exception.AbortedException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadResult;
+import com.qcloud.cos.model.ListPartsRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartListing;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.model.UploadPartResult;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.Md5Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DirectoryUploadTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final FakeBucket bucket = new FakeBucket();
+    private TransferManager transferManager;
+    private File directory;
+
+    /**
+     * A bucket which keeps the content and Content-MD5 of the objects put, and the highest number
+     * of puts at once. Its parts of the multipart uploads wait until the upload is aborted.
+     */
+    private static class FakeBucket extends FakeCos {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<String, byte[]>();
+        final Map<String, String> contentMd5s = new ConcurrentHashMap<String, String>();
+        final Set<String> multipartUploads =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final CountDownLatch partStarted = new CountDownLatch(1);
+        final CountDownLatch multipartAborted = new CountDownLatch(1);
+        volatile CountDownLatch blocked;
+
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+                InitiateMultipartUploadRequest req) {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-" + req.getKey());
+            multipartUploads.add(result.getUploadId());
+            return result;
+        }
+
+        public PartListing listParts(ListPartsRequest req) {
+            return new PartListing();
+        }
+
+        public UploadPartResult uploadPart(UploadPartRequest req) throws InterruptedException {
+            partStarted.countDown();
+            multipartAborted.await();
+            throw new CosServiceException("No Such Upload");
+        }
+
+        public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            if (multipartUploads.remove(req.getUploadId())) {
+                multipartAborted.countDown();
+            }
+        }
+
+        public PutObjectResult putObject(PutObjectRequest req) throws Exception {
+            enter();
+            try {
+                if (blocked != null) {
+                    blocked.await();
+                }
+                Thread.sleep(2);
+                if (req.getKey().endsWith("bad")) {
+                    throw new CosServiceException("Access Denied");
+                }
+                byte[] content;
+                if (req.getFile() != null) {
+                    content = Files.readAllBytes(req.getFile().toPath());
+                } else {
+                    InputStream in = req.getInputStream();
+                    content = IOUtils.toByteArray(in);
+                    assertEquals(content.length, req.getMetadata().getContentLength());
+                }
+                objects.put(req.getKey(), content);
+                String contentMd5 = req.getMetadata().getContentMD5();
+                if (contentMd5 != null) {
+                    contentMd5s.put(req.getKey(), contentMd5);
+                }
+                PutObjectResult result = new PutObjectResult();
+                result.setETag(Md5Utils.md5Hex(content));
+                return result;
+            } finally {
+                exit();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        transferManager = new TransferManager(bucket.proxy(), executor, false);
+        directory = Files.createTempDirectory("upload").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testUploadsTreeWithBoundedConcurrency() throws Exception {
+        long totalBytes = 0;
+        for (int i = 0; i < 300; ++i) {
+            String path = "d" + i % 7 + "/s" + i % 3 + "/f" + i;
+            write(path, path);
+            totalBytes += path.length();
+        }
+        write("large", "content larger than the small file threshold");
+        totalBytes += "content larger than the small file threshold".length();
+
+        DirectoryUpload upload = transferManager.uploadDirectory(BUCKET, "p", directory, true,
+                null, new DirectoryUploadOptions().withConcurrency(5).withMaxQueuedFiles(10)
+                        .withSmallFileThreshold(32));
+        upload.waitForCompletion();
+
+        assertTrue(upload.isDone());
+        assertTrue(upload.getFailures().isEmpty());
+        assertEquals(301, upload.getFoundCount());
+        assertEquals(301, upload.getUploadedCount());
+        assertEquals(totalBytes, upload.getUploadedBytes());
+        assertEquals(totalBytes, upload.getProgress().getTotalBytesToTransfer());
+        assertEquals(301, bucket.objects.size());
+        assertTrue(bucket.maxInFlight.get() <= 5);
+        assertEquals("d3/s1/f10", new String(bucket.objects.get("p/d3/s1/f10"), "UTF-8"));
+        assertEquals(Md5Utils.md5AsBase64("d3/s1/f10".getBytes("UTF-8")),
+                bucket.contentMd5s.get("p/d3/s1/f10"));
+        // put from the file, its MD5 being left to the client
+        assertNull(bucket.contentMd5s.get("p/large"));
+    }
+
+    @Test
+    public void testReportsFailuresAndSkipsSubdirectories() throws Exception {
+        write("a", "a");
+        write("bad", "bad");
+        write("sub/c", "c");
+        final AtomicInteger provided = new AtomicInteger();
+        ObjectMetadataProvider metadataProvider = new ObjectMetadataProvider() {
+            @Override
+            public void provideObjectMetadata(File file, ObjectMetadata metadata) {
+                provided.incrementAndGet();
+                metadata.setContentType("text/plain");
+            }
+        };
+
+        DirectoryUpload upload = transferManager.uploadDirectory(BUCKET, null, directory, false,
+                metadataProvider, null);
+        upload.waitForCompletion();
+
+        assertEquals(2, upload.getFoundCount());
+        assertEquals(1, upload.getUploadedCount());
+        assertEquals(1, upload.getFailures().size());
+        assertEquals("bad", upload.getFailures().get(0).getKey());
+        assertEquals(2, provided.get());
+        assertEquals("[a]", bucket.objects.keySet().toString());
+    }
+
+    @Test
+    public void testAbortStopsTheWalk() throws Exception {
+        for (int i = 0; i < 50; ++i) {
+            write("f" + i, "f");
+        }
+        bucket.blocked = new CountDownLatch(1);
+        DirectoryUpload upload = transferManager.uploadDirectory(BUCKET, "", directory, true,
+                null, new DirectoryUploadOptions().withConcurrency(2).withMaxQueuedFiles(3));
+        for (int i = 0; i < 500 && upload.getFoundCount() < 6; ++i) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        // two files uploading and three queued, the walk waiting with the sixth
+        assertEquals(6, upload.getFoundCount());
+        upload.abort();
+        try {
+            upload.waitForCompletion();
+            fail("aborted upload completed");
+        } catch (AbortedException e) {
+            // expected
+        }
+        assertTrue(upload.isDone());
+        assertEquals(0, upload.getUploadedCount());
+        assertTrue(upload.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testAbortAbortsTheMultipartUploads() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 4096; ++i) {
+            content.append('m');
+        }
+        write("large", content.toString());
+        transferManager.getConfiguration().setMultipartUploadThreshold(1024);
+        transferManager.getConfiguration().setMinimumUploadPartSize(1024);
+        DirectoryUpload upload = transferManager.uploadDirectory(BUCKET, "", directory, true,
+                null, new DirectoryUploadOptions());
+        assertTrue(bucket.partStarted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, bucket.multipartUploads.size());
+        upload.abort();
+        try {
+            upload.waitForCompletion();
+            fail("aborted upload completed");
+        } catch (AbortedException e) {
+            // expected
+        }
+        assertTrue(bucket.multipartUploads.isEmpty());
+        assertFalse(bucket.objects.containsKey("large"));
+        assertTrue(upload.getFailures().isEmpty());
+    }
+}
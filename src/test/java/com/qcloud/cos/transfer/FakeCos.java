@@ -0,0 +1,65 @@
+package com.qcloud.cos.transfer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.region.Region;
+
+/**
+ * The base of the fake COS clients of the tests. A call of the {@link #proxy()} goes to the public
+ * method of the subclass with the same name and parameter types, and fails with an
+ * UnsupportedOperationException if there is none. The subclasses can count their calls in flight
+ * with {@link #enter()} and {@link #exit()}.
+ */
+abstract class FakeCos implements InvocationHandler {
+
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+
+    COS proxy() {
+        return (COS) Proxy.newProxyInstance(COS.class.getClassLoader(),
+                new Class<?>[] {COS.class}, this);
+    }
+
+    public ClientConfig getClientConfig() {
+        return new ClientConfig(new Region("ap-guangzhou"));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Method answer;
+        try {
+            answer = getClass().getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException(method.getName());
+        }
+        answer.setAccessible(true);
+        try {
+            return answer.invoke(this, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Counts a call in flight, and the most calls in flight at once.
+     */
+    void enter() {
+        int current = inFlight.incrementAndGet();
+        while (true) {
+            int max = maxInFlight.get();
+            if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                break;
+            }
+        }
+    }
+
+    void exit() {
+        inFlight.decrementAndGet();
+    }
+}
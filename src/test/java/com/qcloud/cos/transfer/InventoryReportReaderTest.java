@@ -0,0 +1,201 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.inventory.InventoryRecord;
+import com.qcloud.cos.utils.DateUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InventoryReportReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void write(String name, String content, boolean gzip) throws Exception {
+        OutputStream out = new FileOutputStream(new File(folder.getRoot(), name));
+        if (gzip) {
+            out = new GZIPOutputStream(out);
+        }
+        out.write(content.getBytes(UTF8));
+        out.close();
+    }
+
+    private static String key(int i) {
+        return String.format("dir/key-%05d", i);
+    }
+
+    private static String row(int i) {
+        return "\"1250000000\",\"examplebucket\",\"" + key(i).replace("/", "%2F") + "\",\"" + i
+                + "\",\"2019-08-11T06:26:45.000Z\",\"etag" + i + "\",\"STANDARD\",\"false\"\n";
+    }
+
+    /**
+     * Writes a report of 3 data files: 2500 gzipped rows, 10 plain rows and 3000 gzipped rows.
+     */
+    private File writeReport() throws Exception {
+        int[] counts = {2500, 10, 3000};
+        String[] names = {"a.csv.gz", "b.csv", "c.csv.gz"};
+        StringBuilder files = new StringBuilder();
+        int row = 0;
+        for (int f = 0; f < counts.length; ++f) {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < counts[f]; ++i) {
+                content.append(row(row++));
+            }
+            write(names[f], content.toString(), names[f].endsWith(".gz"));
+            files.append(f == 0 ? "" : ",").append("{\"key\":\"inventory/data/").append(names[f])
+                    .append("\",\"size\":1,\"MD5checksum\":\"x\"}");
+        }
+        write("manifest.json", "{\"sourceBucket\":\"examplebucket-1250000000\","
+                + "\"fileFormat\":\"CSV\",\"fileSchema\":\"AppID, Bucket, Key, Size, "
+                + "LastModifiedDate, ETag, StorageClass, IsMultipartUploaded\","
+                + "\"files\":[" + files + "]}", false);
+        return new File(folder.getRoot(), "manifest.json");
+    }
+
+    @Test
+    public void testReadsAllFilesInOrder() throws Exception {
+        InventoryReportReader reader = InventoryReportReader.fromLocalFiles(writeReport());
+        assertEquals(3, reader.getDataFiles().size());
+        assertEquals("x", reader.getDataFiles().get(0).getMd5Checksum());
+
+        InventoryReportReader.RecordIterator it = reader.iterator(executor, 2);
+        long expectedTime = DateUtils.parseISO8601Date("2019-08-11T06:26:45.000Z").getTime();
+        InventoryRecord previous = null;
+        int count = 0;
+        while (it.hasNext()) {
+            InventoryRecord record = it.next();
+            assertEquals(key(count), record.getKey());
+            assertEquals(count, record.getSize());
+            assertEquals("etag" + count, record.getETag());
+            assertEquals(expectedTime, record.getLastModifiedMillis());
+            assertEquals(Boolean.FALSE, record.getMultipartUploaded());
+            if (previous != null && count != 2500 && count != 2510) {
+                // repeated values are shared within a file
+                assertSame(previous.getStorageClass(), record.getStorageClass());
+                assertSame(previous.getBucketName(), record.getBucketName());
+            }
+            previous = record;
+            ++count;
+        }
+        assertEquals(5510, count);
+    }
+
+    @Test
+    public void testReadSingleFile() throws Exception {
+        InventoryReportReader reader = InventoryReportReader.fromLocalFiles(writeReport());
+        InventoryReportReader.RecordIterator it = reader.read(reader.getDataFiles().get(1));
+        List<String> keys = new ArrayList<String>();
+        while (it.hasNext()) {
+            keys.add(it.next().getKey());
+        }
+        assertEquals(10, keys.size());
+        assertEquals(key(2500), keys.get(0));
+    }
+
+    @Test
+    public void testCloseBeforeTheEnd() throws Exception {
+        InventoryReportReader reader = InventoryReportReader.fromLocalFiles(writeReport());
+        for (int i = 0; i < 5; ++i) {
+            InventoryReportReader.RecordIterator it = reader.iterator(executor, 3);
+            assertTrue(it.hasNext());
+            it.next();
+            it.close();
+            assertFalse(it.hasNext());
+        }
+        // the readers of the closed iterators gave their threads back
+        InventoryReportReader.RecordIterator it = reader.iterator(executor, 3);
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            ++count;
+        }
+        assertEquals(5510, count);
+    }
+
+    @Test
+    public void testKeySourceResumes() throws Exception {
+        InventoryReportReader reader = InventoryReportReader.fromLocalFiles(writeReport());
+        Iterator<COSObjectSummary> it = reader.asKeySource(executor, 2).iterator(key(2505));
+        COSObjectSummary summary = it.next();
+        assertEquals(key(2506), summary.getKey());
+        assertEquals("examplebucket", summary.getBucketName());
+        assertEquals(2506, summary.getSize());
+        int count = 1;
+        while (it.hasNext()) {
+            it.next();
+            ++count;
+        }
+        assertEquals(5510 - 2506, count);
+    }
+
+    @Test
+    public void testKeySourceResumesAfterKeyGoneFromReport() throws Exception {
+        InventoryReportReader reader = InventoryReportReader.fromLocalFiles(writeReport());
+        Iterator<COSObjectSummary> it =
+                reader.asKeySource(executor, 2).iterator(key(2505) + "-deleted");
+        assertEquals(key(2506), it.next().getKey());
+        ((Closeable) it).close();
+    }
+
+    @Test(timeout = 10000)
+    public void testKeySourceCloseBeforeTheEnd() throws Exception {
+        InventoryReportReader reader = InventoryReportReader.fromLocalFiles(writeReport());
+        BulkKeySource source = reader.asKeySource(executor, 3);
+        for (int i = 0; i < 5; ++i) {
+            Iterator<COSObjectSummary> it = source.iterator(null);
+            assertTrue(it.hasNext());
+            it.next();
+            ((Closeable) it).close();
+        }
+        // the readers of the closed iterators gave their threads back
+        Iterator<COSObjectSummary> it = source.iterator(key(5000));
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            ++count;
+        }
+        assertEquals(509, count);
+    }
+
+    @Test
+    public void testParseCsvLine() {
+        List<String> fields = new ArrayList<String>();
+        InventoryReportReader.parseCsvLine("\"a\",b,\"c \"\"quoted\"\", d\",,\"\"", fields);
+        assertEquals(Arrays.asList("a", "b", "c \"quoted\", d", "", ""), fields);
+        InventoryReportReader.parseCsvLine("single", fields);
+        assertEquals(Arrays.asList("single"), fields);
+        InventoryReportReader.parseCsvLine("a,", fields);
+        assertEquals(Arrays.asList("a", ""), fields);
+    }
+}
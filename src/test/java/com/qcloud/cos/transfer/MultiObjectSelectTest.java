@@ -0,0 +1,297 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.internal.SdkFilterInputStream;
+import com.qcloud.cos.internal.eventstreaming.HeaderValue;
+import com.qcloud.cos.internal.eventstreaming.Message;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.SelectObjectContentEventStream;
+import com.qcloud.cos.model.SelectObjectContentRequest;
+import com.qcloud.cos.model.SelectObjectContentResult;
+import com.qcloud.cos.model.Stats;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.StringUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MultiObjectSelectTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+
+    /**
+     * Answers the select of object "key-i" with i records events of one row each, and the one
+     * of "key-blocking" with a response whose reading blocks until aborted.
+     */
+    private static class FakeBucket extends FakeCos {
+        final AtomicInteger aborted = new AtomicInteger();
+        final AtomicInteger selects = new AtomicInteger();
+        final AtomicBoolean reading = new AtomicBoolean();
+        final AtomicBoolean unblocked = new AtomicBoolean();
+
+        public SelectObjectContentResult selectObjectContent(SelectObjectContentRequest request)
+                throws Exception {
+            assertEquals(BUCKET, request.getBucketName());
+            assertEquals("select * from cosobject", request.getExpression());
+            selects.incrementAndGet();
+            enter();
+            try {
+                String key = request.getKey();
+                if (key.equals("key-denied")) {
+                    CosServiceException e = new CosServiceException("Access Denied");
+                    e.setStatusCode(403);
+                    throw e;
+                }
+                if (key.equals("key-blocking")) {
+                    return result(new BlockingInputStream());
+                }
+                int rows = Integer.parseInt(key.substring(key.indexOf('-') + 1));
+                // the later objects answer first
+                Thread.sleep(Math.max(0, 20 - rows));
+                return result(new ByteArrayInputStream(response(key, rows)));
+            } finally {
+                exit();
+            }
+        }
+
+        private SelectObjectContentResult result(InputStream response) {
+            SelectObjectContentResult result = new SelectObjectContentResult();
+            result.setPayload(new SelectObjectContentEventStream(
+                    new SdkFilterInputStream(response) {
+                        @Override
+                        public void abort() {
+                            aborted.incrementAndGet();
+                            super.abort();
+                        }
+                    }));
+            return result;
+        }
+
+        private class BlockingInputStream extends InputStream {
+            @Override
+            public int read() throws IOException {
+                // like a socket read, only the abort of the response unblocks it
+                reading.set(true);
+                while (aborted.get() == 0) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        // ignored
+                    }
+                }
+                unblocked.set(true);
+                throw new IOException("aborted");
+            }
+        }
+    }
+
+    private static Message event(String type, String payload) {
+        Map<String, HeaderValue> headers = new LinkedHashMap<String, HeaderValue>();
+        headers.put(":message-type", HeaderValue.fromString("event"));
+        headers.put(":event-type", HeaderValue.fromString(type));
+        return new Message(headers, payload.getBytes(StringUtils.UTF8));
+    }
+
+    private static String row(String key, int i) {
+        return key + "," + i + "\n";
+    }
+
+    private static byte[] response(String key, int rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int returned = 0;
+        for (int i = 0; i < rows; ++i) {
+            event("Records", row(key, i)).encode(out);
+            returned += row(key, i).length();
+        }
+        event("Stats", "<Stats><BytesScanned>100</BytesScanned><BytesProcessed>100"
+                + "</BytesProcessed><BytesReturned>" + returned + "</BytesReturned></Stats>")
+                        .encode(out);
+        event("End", "").encode(out);
+        return out.toByteArray();
+    }
+
+    private static List<String> keys(int count) {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < count; ++i) {
+            keys.add("key-" + i);
+        }
+        return keys;
+    }
+
+    private static SelectObjectContentRequest template() {
+        SelectObjectContentRequest request = new SelectObjectContentRequest();
+        request.setBucketName(BUCKET);
+        request.setExpression("select * from cosobject");
+        return request;
+    }
+
+    private MultiObjectSelect select(FakeBucket bucket, List<String> keys,
+            MultiObjectSelectOptions options) {
+        return new MultiObjectSelect(bucket.proxy(), BulkKeySources.of(keys), template(),
+                options);
+    }
+
+    @Test
+    public void testMergesRecordsInKeyOrder() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        MultiObjectSelect select = select(bucket, keys(20),
+                new MultiObjectSelectOptions().withConcurrency(4).withBufferedEventsPerObject(2));
+        String records = new String(IOUtils.toByteArray(select.getRecordsInputStream()),
+                StringUtils.UTF8);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; ++i) {
+            for (int j = 0; j < i; ++j) {
+                expected.append(row("key-" + i, j));
+            }
+        }
+        assertEquals(expected.toString(), records);
+        assertTrue(bucket.maxInFlight.get() <= 4);
+        assertEquals(20, select.getCompletedObjectCount());
+        Stats stats = select.getStats();
+        assertEquals(2000, stats.getBytesScanned().longValue());
+        assertEquals(expected.length(), stats.getBytesReturned().longValue());
+        assertEquals(expected.length(), select.getProgress().getBytesReturned().longValue());
+        assertEquals(0, bucket.aborted.get());
+    }
+
+    @Test
+    public void testMergesRecordsAsReceived() {
+        FakeBucket bucket = new FakeBucket();
+        MultiObjectSelect select = select(bucket, keys(20),
+                new MultiObjectSelectOptions().withConcurrency(6).withOrdered(false));
+        Map<String, List<String>> byKey = new LinkedHashMap<String, List<String>>();
+        List<String> all = new ArrayList<String>();
+        while (select.hasNext()) {
+            SelectedRecords records = select.next();
+            String row = StringUtils.UTF8.decode(records.getPayload()).toString();
+            if (!byKey.containsKey(records.getKey())) {
+                byKey.put(records.getKey(), new ArrayList<String>());
+            }
+            byKey.get(records.getKey()).add(row);
+            all.add(row);
+        }
+        assertEquals(19, byKey.size());
+        for (int i = 1; i < 20; ++i) {
+            List<String> rows = byKey.get("key-" + i);
+            assertEquals(i, rows.size());
+            // the records of an object keep their order
+            for (int j = 0; j < i; ++j) {
+                assertEquals(row("key-" + i, j), rows.get(j));
+            }
+        }
+        assertEquals(190, all.size());
+        assertTrue(bucket.maxInFlight.get() <= 6);
+    }
+
+    @Test
+    public void testFailureClosesTheSelect() {
+        FakeBucket bucket = new FakeBucket();
+        List<String> keys = keys(3);
+        keys.add("key-denied");
+        keys.addAll(keys(10));
+        MultiObjectSelect select = select(bucket, keys,
+                new MultiObjectSelectOptions().withConcurrency(2));
+        int records = 0;
+        try {
+            while (select.hasNext()) {
+                select.next();
+                ++records;
+            }
+            fail();
+        } catch (CosClientException e) {
+            assertEquals(403, ((CosServiceException) e.getCause()).getStatusCode());
+        }
+        assertEquals(3, records);
+        assertTrue(bucket.selects.get() < keys.size());
+    }
+
+    @Test
+    public void testCloseAbortsQueriesInFlight() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        MultiObjectSelect select = select(bucket, Collections.singletonList("key-500"),
+                new MultiObjectSelectOptions().withBufferedEventsPerObject(1));
+        assertEquals(row("key-500", 0),
+                StringUtils.UTF8.decode(select.next().getPayload()).toString());
+        select.close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bucket.aborted.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, bucket.aborted.get());
+        assertTrue(!select.hasNext());
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseAbortsResponsesBeingRead() throws Exception {
+        FakeBucket bucket = new FakeBucket();
+        final AtomicBoolean keysClosed = new AtomicBoolean();
+        BulkKeySource source = new BulkKeySource() {
+            @Override
+            public Iterator<COSObjectSummary> iterator(String startAfter) {
+                final Iterator<COSObjectSummary> it = BulkKeySources
+                        .of(Collections.singletonList("key-blocking")).iterator(startAfter);
+                return new ClosingIterator(it, keysClosed);
+            }
+        };
+        MultiObjectSelect select = new MultiObjectSelect(bucket.proxy(), source, template(),
+                new MultiObjectSelectOptions());
+        while (!bucket.reading.get()) {
+            Thread.sleep(10);
+        }
+        select.close();
+        assertTrue(keysClosed.get());
+        while (!bucket.unblocked.get()) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, bucket.aborted.get());
+    }
+
+    private static class ClosingIterator implements Iterator<COSObjectSummary>, Closeable {
+        private final Iterator<COSObjectSummary> it;
+        private final AtomicBoolean closed;
+
+        ClosingIterator(Iterator<COSObjectSummary> it, AtomicBoolean closed) {
+            this.it = it;
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public COSObjectSummary next() {
+            return it.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.exception.MultiObjectDeleteException.DeleteError;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.COSVersionSummary;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.DeleteObjectsRequest.KeyVersion;
+import com.qcloud.cos.model.DeleteObjectsResult;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ListVersionsRequest;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.VersionListing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixDeleterTest {
+
+    /**
+     * A bucket of "key#version" entries; the listing of current objects shows every key once.
+     */
+    private static class FakeBucket extends FakeCos {
+        final TreeMap<String, String> entries = new TreeMap<String, String>();
+        final Set<String> denied = new HashSet<String>();
+        final Set<String> flaky = Collections.synchronizedSet(new HashSet<String>());
+        final AtomicInteger deleteCalls = new AtomicInteger();
+        int pageSize = 7;
+
+        public ObjectListing listObjects(ListObjectsRequest req) {
+            return listObjects(req.getPrefix(), null);
+        }
+
+        public ObjectListing listNextBatchOfObjects(ObjectListing previous) {
+            return listObjects(previous.getPrefix(), previous.getNextMarker());
+        }
+
+        public VersionListing listVersions(ListVersionsRequest req) {
+            return listVersions(req.getPrefix(), null);
+        }
+
+        public VersionListing listNextBatchOfVersions(VersionListing previous) {
+            return listVersions(previous.getPrefix(), previous.getNextKeyMarker());
+        }
+
+        private synchronized ObjectListing listObjects(String prefix, String marker) {
+            ObjectListing listing = new ObjectListing();
+            listing.setPrefix(prefix);
+            String last = null;
+            for (String entry : tail(marker)) {
+                String key = entry.substring(0, entry.indexOf('#'));
+                if (!key.startsWith(prefix) || key.equals(last)) {
+                    continue;
+                }
+                if (listing.getObjectSummaries().size() == pageSize) {
+                    listing.setTruncated(true);
+                    listing.setNextMarker(last + "#\uffff");
+                    break;
+                }
+                COSObjectSummary summary = new COSObjectSummary();
+                summary.setKey(key);
+                listing.getObjectSummaries().add(summary);
+                last = key;
+            }
+            return listing;
+        }
+
+        private synchronized VersionListing listVersions(String prefix, String marker) {
+            VersionListing listing = new VersionListing();
+            listing.setPrefix(prefix);
+            List<COSVersionSummary> summaries = new ArrayList<COSVersionSummary>();
+            for (String entry : tail(marker)) {
+                if (!entry.startsWith(prefix)) {
+                    continue;
+                }
+                if (summaries.size() == pageSize) {
+                    listing.setTruncated(true);
+                    listing.setNextKeyMarker(summaries.get(pageSize - 1).getKey() + "#"
+                            + summaries.get(pageSize - 1).getVersionId());
+                    break;
+                }
+                COSVersionSummary summary = new COSVersionSummary();
+                summary.setKey(entry.substring(0, entry.indexOf('#')));
+                summary.setVersionId(entry.substring(entry.indexOf('#') + 1));
+                summaries.add(summary);
+            }
+            listing.setVersionSummaries(summaries);
+            return listing;
+        }
+
+        private List<String> tail(String marker) {
+            return new ArrayList<String>(marker == null ? entries.keySet()
+                    : entries.tailMap(marker, false).keySet());
+        }
+
+        public DeleteObjectsResult deleteObjects(DeleteObjectsRequest req) throws Exception {
+            deleteCalls.incrementAndGet();
+            enter();
+            try {
+                Thread.sleep(5);
+                List<DeleteError> errors = new ArrayList<DeleteError>();
+                for (KeyVersion keyVersion : req.getKeys()) {
+                    String key = keyVersion.getKey();
+                    boolean isDenied = denied.contains(key);
+                    if (isDenied || flaky.remove(key)) {
+                        DeleteError error = new DeleteError();
+                        error.setKey(key);
+                        error.setVersionId(keyVersion.getVersion());
+                        error.setCode(isDenied ? "AccessDenied" : "SlowDown");
+                        errors.add(error);
+                        continue;
+                    }
+                    synchronized (this) {
+                        if (keyVersion.getVersion() == null) {
+                            entries.subMap(key + "#", key + "#\uffff").clear();
+                        } else {
+                            entries.remove(key + "#" + keyVersion.getVersion());
+                        }
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    throw new MultiObjectDeleteException(errors,
+                            Collections.<DeleteObjectsResult.DeletedObject>emptyList());
+                }
+                return new DeleteObjectsResult(
+                        Collections.<DeleteObjectsResult.DeletedObject>emptyList());
+            } finally {
+                exit();
+            }
+        }
+
+        void put(String key, String... versions) {
+            for (String version : versions) {
+                entries.put(key + "#" + version, "");
+            }
+        }
+
+        int count(String prefix) {
+            int count = 0;
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    ++count;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static FakeBucket newBucket(int keys) {
+        FakeBucket bucket = new FakeBucket();
+        for (int i = 0; i < keys; ++i) {
+            bucket.put(String.format("logs/%04d", i), "v1");
+        }
+        bucket.put("other/keep", "v1");
+        return bucket;
+    }
+
+    @Test
+    public void testDeletesEveryKeyWithBoundedConcurrency() throws Exception {
+        FakeBucket bucket = newBucket(200);
+        DeletePrefixOptions options =
+                new DeletePrefixOptions().withBatchSize(10).withConcurrency(3);
+        DeletePrefixResult result = new PrefixDeleter(bucket.proxy(), "bucket",
+                "logs/", options).run();
+        assertEquals(200, result.getListedCount());
+        assertEquals(200, result.getDeletedCount());
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(20, bucket.deleteCalls.get());
+        assertTrue(bucket.maxInFlight.get() <= 3);
+        // the batches do run concurrently, on threads of the deleter
+        assertTrue(bucket.maxInFlight.get() > 1);
+        assertEquals(0, bucket.count("logs/"));
+        assertEquals(1, bucket.count("other/"));
+    }
+
+    @Test
+    public void testRetriesFailedKeysAndReportsPermanentErrors() throws Exception {
+        FakeBucket bucket = newBucket(30);
+        bucket.flaky.add("logs/0003");
+        bucket.flaky.add("logs/0017");
+        bucket.denied.add("logs/0020");
+        DeletePrefixOptions options = new DeletePrefixOptions().withBatchSize(8)
+                .withMaxRetries(2);
+        DeletePrefixResult result = new PrefixDeleter(bucket.proxy(), "bucket",
+                "logs/", options).run();
+        assertEquals(30, result.getListedCount());
+        assertEquals(29, result.getDeletedCount());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("logs/0020", result.getErrors().get(0).getKey());
+        assertEquals("AccessDenied", result.getErrors().get(0).getCode());
+        // 4 batches, the 2 with a throttled key retried once, the denied key never
+        assertEquals(6, bucket.deleteCalls.get());
+        assertEquals(1, bucket.count("logs/"));
+    }
+
+    @Test
+    public void testDryRunDeletesNothing() throws Exception {
+        FakeBucket bucket = newBucket(25);
+        DeletePrefixResult result = new PrefixDeleter(bucket.proxy(), "bucket",
+                "logs/", new DeletePrefixOptions().withDryRun(true)).run();
+        assertTrue(result.isDryRun());
+        assertEquals(25, result.getListedCount());
+        assertEquals(0, result.getDeletedCount());
+        assertEquals(0, bucket.deleteCalls.get());
+        assertEquals(25, bucket.count("logs/"));
+    }
+
+    @Test
+    public void testIncludeVersionsDeletesEveryVersion() throws Exception {
+        FakeBucket bucket = newBucket(0);
+        for (int i = 0; i < 10; ++i) {
+            bucket.put("data/" + i, "v1", "v2", "v3");
+        }
+        DeletePrefixOptions options = new DeletePrefixOptions().withBatchSize(4);
+
+        DeletePrefixResult current = new PrefixDeleter(bucket.proxy(), "bucket",
+                "data/", new DeletePrefixOptions().withDryRun(true)).run();
+        assertEquals(10, current.getListedCount());
+
+        DeletePrefixResult result = new PrefixDeleter(bucket.proxy(), "bucket",
+                "data/", options.withIncludeVersions(true)).run();
+        assertEquals(30, result.getListedCount());
+        assertEquals(30, result.getDeletedCount());
+        assertEquals(0, bucket.count("data/"));
+        assertFalse(bucket.entries.isEmpty());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        FakeBucket bucket = newBucket(40);
+        DeletePrefixOptions options = new DeletePrefixOptions().withBatchSize(10)
+                .withMaxDeletesPerSecond(200);
+        long start = System.nanoTime();
+        DeletePrefixResult result = new PrefixDeleter(bucket.proxy(), "bucket",
+                "logs/", options).run();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertEquals(40, result.getDeletedCount());
+        // four batches of 10 keys at 200 keys per second start 50ms apart
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 150);
+    }
+}
@@ -0,0 +1,138 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qcloud.cos.model.TransferPriority;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransferSchedulerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Callable<String> record(final List<String> order, final String name,
+            final CountDownLatch gate) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if (gate != null) {
+                    gate.await();
+                }
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    @Test
+    public void testPriorityAndRoundRobin() throws Exception {
+        TransferScheduler scheduler = new TransferScheduler(executor, 1, 0);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch gate = new CountDownLatch(1);
+        // occupies the only part slot while the other parts are queued
+        TransferScheduler.TransferQueue blocker = scheduler.newTransferQueue(TransferPriority.LOW);
+        Future<String> blocked = blocker.submitPart(record(order, "blocker", gate));
+
+        TransferScheduler.TransferQueue low = scheduler.newTransferQueue(TransferPriority.LOW);
+        TransferScheduler.TransferQueue first = scheduler.newTransferQueue(TransferPriority.NORMAL);
+        TransferScheduler.TransferQueue second = scheduler.newTransferQueue(TransferPriority.NORMAL);
+        TransferScheduler.TransferQueue high = scheduler.newTransferQueue(TransferPriority.HIGH);
+        Future<String> lowest = low.submitPart(record(order, "low", null));
+        first.submitPart(record(order, "first-1", null));
+        first.submitPart(record(order, "first-2", null));
+        second.submitPart(record(order, "second-1", null));
+        Future<String> last = second.submitPart(record(order, "second-2", null));
+        high.submitPart(record(order, "high", null));
+
+        gate.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        last.get(5, TimeUnit.SECONDS);
+        lowest.get(5, TimeUnit.SECONDS);
+        assertEquals(7, order.size());
+        assertEquals("blocker", order.get(0));
+        assertEquals("high", order.get(1));
+        assertEquals("first-1", order.get(2));
+        assertEquals("second-1", order.get(3));
+        assertEquals("first-2", order.get(4));
+        assertEquals("second-2", order.get(5));
+        assertEquals("low", order.get(6));
+    }
+
+    @Test
+    public void testPerTransferCap() throws Exception {
+        TransferScheduler scheduler = new TransferScheduler(executor, 4, 2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        TransferScheduler.TransferQueue queue = scheduler.newTransferQueue(TransferPriority.NORMAL);
+        List<Future<Integer>> parts = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 8; ++i) {
+            parts.add(queue.submitPart(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int current = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), current));
+                    }
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return current;
+                }
+            }));
+            assertTrue(scheduler.getInFlightParts() <= 2);
+        }
+        for (Future<Integer> part : parts) {
+            part.get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testFinalTaskRunsAfterParts() throws Exception {
+        // a single thread would deadlock if the final task waited on parts not started yet
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            TransferScheduler scheduler = new TransferScheduler(singleThread, 1, 0);
+            final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            TransferScheduler.TransferQueue queue =
+                    scheduler.newTransferQueue(TransferPriority.NORMAL);
+            final List<Future<String>> parts = new ArrayList<Future<String>>();
+            for (int i = 0; i < 3; ++i) {
+                parts.add(queue.submitPart(record(order, "part-" + i, null)));
+            }
+            Future<String> complete = queue.submitFinal(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    for (Future<String> part : parts) {
+                        part.get();
+                    }
+                    order.add("complete");
+                    return "complete";
+                }
+            });
+            assertEquals("complete", complete.get(5, TimeUnit.SECONDS));
+            assertEquals(4, order.size());
+            assertEquals("complete", order.get(3));
+            assertEquals(0, scheduler.getInFlightParts());
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.qcloud.cos.transfer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.COSEncryptionClient;
+import com.qcloud.cos.auth.AnonymousCOSCredentials;
+import com.qcloud.cos.auth.COSStaticCredentialsProvider;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.internal.crypto.CryptoConfiguration;
+import com.qcloud.cos.internal.crypto.CryptoMode;
+import com.qcloud.cos.internal.crypto.CryptoRuntime;
+import com.qcloud.cos.internal.crypto.EncryptionMaterials;
+import com.qcloud.cos.internal.crypto.StaticEncryptionMaterialsProvider;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.PartETag;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.region.Region;
+import com.qcloud.cos.utils.IOUtils;
+import com.qcloud.cos.utils.Md5Utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertEquals;
+
+public class UploadPartCallableTest {
+
+    private static final String BUCKET = "examplebucket-1250000000";
+    private static final int PART_SIZE = 4096;
+
+    private final FakeBucket bucket = new FakeBucket();
+    private HttpServer server;
+    private COSEncryptionClient cosClient;
+    private File file;
+
+    /**
+     * Starts multipart uploads and keeps the body of every part.
+     */
+    private static class FakeBucket implements HttpHandler {
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<Integer, byte[]>();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+                String query = exchange.getRequestURI().getQuery();
+                if ("POST".equals(exchange.getRequestMethod())) {
+                    byte[] response = ("<InitiateMultipartUploadResult><Bucket>" + BUCKET
+                            + "</Bucket><Key>key</Key><UploadId>upload</UploadId>"
+                            + "</InitiateMultipartUploadResult>").getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, response.length);
+                    exchange.getResponseBody().write(response);
+                    return;
+                }
+                int partNumber = Integer.parseInt(query.replaceAll(".*partNumber=(\\d+).*", "$1"));
+                parts.put(partNumber, body);
+                exchange.getResponseHeaders().add("ETag", "\"" + Md5Utils.md5Hex(body) + "\"");
+                exchange.sendResponseHeaders(200, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", bucket);
+        server.start();
+        String endpoint = "127.0.0.1:" + server.getAddress().getPort();
+        ClientConfig clientConfig = new ClientConfig(new Region("ap-guangzhou"));
+        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+        CryptoRuntime.enableBouncyCastle();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        cosClient = new COSEncryptionClient(
+                new COSStaticCredentialsProvider(new AnonymousCOSCredentials()),
+                new StaticEncryptionMaterialsProvider(
+                        new EncryptionMaterials(generator.generateKey())),
+                clientConfig, new CryptoConfiguration(CryptoMode.AuthenticatedEncryption)
+                        .withParallelMultipartUpload(true));
+        file = File.createTempFile("parts", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[3 * PART_SIZE + 100]);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cosClient.shutdown();
+        server.stop(0);
+        file.delete();
+    }
+
+    private UploadPartCallable newCallable(String uploadId, int partNumber, boolean lastPart,
+            AdaptiveConcurrencyController controller) {
+        long offset = (partNumber - 1) * (long) PART_SIZE;
+        UploadPartRequest request = new UploadPartRequest().withBucketName(BUCKET).withKey("key")
+                .withUploadId(uploadId).withPartNumber(partNumber).withFile(file)
+                .withFileOffset(offset)
+                .withPartSize(Math.min(PART_SIZE, file.length() - offset))
+                .withLastPart(lastPart);
+        return new UploadPartCallable(cosClient, request, controller);
+    }
+
+    @Test(timeout = 30000)
+    public void testLastEncryptedPartDoesNotHoldTheOnlySlot() throws Exception {
+        String uploadId = cosClient.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(BUCKET, "key")).getUploadId();
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the last part runs first and waits for the preceding parts, which need the slot
+            List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
+            futures.add(executor.submit(newCallable(uploadId, 4, true, controller)));
+            for (int partNumber = 1; partNumber <= 3; ++partNumber) {
+                futures.add(executor.submit(newCallable(uploadId, partNumber, false, controller)));
+            }
+            for (Future<PartETag> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(4, bucket.parts.size());
+        // the last part carries the GCM tag of the whole object
+        assertEquals(100 + 16, bucket.parts.get(4).length);
+    }
+}
@@ -0,0 +1,69 @@
+package com.qcloud.cos.utils;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DateUtilsTest {
+
+    private static final long[] EDGES = {0L, -1L, 1L, 951782400000L, 951868799999L,
+            -62167219200000L, 253402300799999L, -2208988800000L, 4102444800000L};
+
+    @Test
+    public void testSameAsJodaTime() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000 + EDGES.length; ++i) {
+            long millis = i < EDGES.length ? EDGES[i]
+                    : (random.nextLong() % 253402300799999L + 253402300799999L) / 2 - 31000000000000L;
+            String iso = DateUtils.iso8601DateFormat.print(millis);
+            String rfc = DateUtils.rfc822DateFormat.print(millis);
+            assertEquals(iso, DateUtils.formatISO8601Date(new Date(millis)));
+            assertEquals(rfc, DateUtils.formatRFC822Date(new Date(millis)));
+            assertEquals(millis, FastDateCodec.parseISO8601(iso));
+            assertEquals(millis / 1000 * 1000 - (millis % 1000 < 0 ? 1000 : 0),
+                    FastDateCodec.parseRFC822(rfc));
+        }
+    }
+
+    @Test
+    public void testParseISO8601() {
+        assertEquals(1586500005000L, DateUtils.parseISO8601DateMillis("2020-04-10T06:26:45Z"));
+        assertEquals(1586500005500L, DateUtils.parseISO8601DateMillis("2020-04-10T06:26:45.5Z"));
+        assertEquals(1586500005123L,
+                DateUtils.parseISO8601DateMillis("2020-04-10T06:26:45.123456789Z"));
+        assertEquals(1582934400000L, FastDateCodec.parseISO8601("2020-02-29T00:00:00.000Z"));
+
+        // left to Joda-Time
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseISO8601("2019-02-29T00:00:00.000Z"));
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseISO8601("2020-04-10T24:00:00.000Z"));
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseISO8601("2020-04-10T06:26:45.Z"));
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseISO8601("2020-04-10 06:26:45.000Z"));
+        assertEquals(FastDateCodec.INVALID,
+                FastDateCodec.parseISO8601("2020-04-10T08:26:45.000+02:00"));
+        assertEquals(1586500005000L,
+                DateUtils.parseISO8601DateMillis("2020-04-10T08:26:45.000+02:00"));
+        assertEquals(1586500005000L, DateUtils.parseISO8601DateMillis("2020-04-10T06:26:45+0000"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseISO8601Invalid() {
+        DateUtils.parseISO8601Date("2019-02-29T00:00:00.000Z");
+    }
+
+    @Test
+    public void testParseRFC822() {
+        assertEquals(1586500005000L,
+                DateUtils.parseRFC822Date("Fri, 10 Apr 2020 06:26:45 GMT").getTime());
+        // a wrong day of the week is left to Joda-Time
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseRFC822("Sat, 10 Apr 2020 06:26:45 GMT"));
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseRFC822("Fri, 10 Apx 2020 06:26:45 GMT"));
+        assertEquals(FastDateCodec.INVALID, FastDateCodec.parseRFC822("Fri, 10 Apr 2020 06:26:45 UTC"));
+        assertNull(FastDateCodec.formatRFC822(253402300800000L));
+        assertEquals("10000-01-01T00:00:00.000Z",
+                DateUtils.formatISO8601Date(new Date(253402300800000L)));
+    }
+}